@@ -0,0 +1,303 @@
+package org.eclipse.cdt.launch.remote.direct;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests the rolling checksum, the block matching and the round trip of
+ * {@link DirectDebugDeltaEngine}.
+ */
+public class DirectDebugDeltaEngineTest {
+	private static final int BLOCK_SIZE = 64;
+
+	/* What a delta is made of */
+	private static class DeltaStats {
+		int copiedBlocks;
+		int literalBytes;
+		int records;
+	}
+
+	@Test
+	public void rolledChecksumEqualsRecomputed() {
+		byte[] data = randomBytes(4096, 1);
+		int checksum = DirectDebugDeltaEngine.weakChecksum(data, 0, BLOCK_SIZE);
+		for (int pos = 1; pos + BLOCK_SIZE <= data.length; pos++) {
+			checksum = DirectDebugDeltaEngine.rollChecksum(checksum, data[pos - 1] & 0xff,
+					data[pos + BLOCK_SIZE - 1] & 0xff, BLOCK_SIZE);
+			assertEquals("at " + pos, DirectDebugDeltaEngine.weakChecksum(data, pos, BLOCK_SIZE), checksum); //$NON-NLS-1$
+		}
+	}
+
+	@Test
+	public void rolledChecksumOfHighBytesEqualsRecomputed() {
+		// large sums wrap around in both halves
+		byte[] data = new byte[4096];
+		Arrays.fill(data, (byte) 0xff);
+		for (int i = 0; i < data.length; i += 7)
+			data[i] = (byte) 0x80;
+		int blockSize = 1024;
+		int checksum = DirectDebugDeltaEngine.weakChecksum(data, 0, blockSize);
+		for (int pos = 1; pos + blockSize <= data.length; pos++) {
+			checksum = DirectDebugDeltaEngine.rollChecksum(checksum, data[pos - 1] & 0xff,
+					data[pos + blockSize - 1] & 0xff, blockSize);
+			assertEquals("at " + pos, DirectDebugDeltaEngine.weakChecksum(data, pos, blockSize), checksum); //$NON-NLS-1$
+		}
+	}
+
+	@Test
+	public void signatureHasOneEntryPerBlock() throws IOException {
+		byte[] data = randomBytes(5 * BLOCK_SIZE + 10, 2);
+		DirectDebugDeltaEngine.Signature signature = computeSignature(data);
+		assertEquals(6, signature.getBlockCount());
+		assertEquals(BLOCK_SIZE, signature.getBlockLength(0));
+		assertEquals(10, signature.getBlockLength(5));
+		assertEquals(DirectDebugDeltaEngine.weakChecksum(data, 5 * BLOCK_SIZE, 10), signature.weak[5]);
+	}
+
+	@Test
+	public void identicalFileIsCopiedWhole() throws IOException {
+		byte[] data = randomBytes(10 * BLOCK_SIZE + 17, 3);
+		byte[] delta = computeDelta(data, data);
+		DeltaStats stats = parse(delta);
+		assertEquals(11, stats.copiedBlocks);
+		assertEquals(0, stats.literalBytes);
+		// consecutive blocks are merged into one record, plus the end
+		assertEquals(2, stats.records);
+		assertArrayEquals(data, applyDelta(data, delta));
+	}
+
+	@Test
+	public void movedBlocksAreMatched() throws IOException {
+		byte[] old = randomBytes(4 * BLOCK_SIZE, 4);
+		byte[] data = new byte[old.length];
+		// the blocks in reverse order
+		for (int i = 0; i < 4; i++)
+			System.arraycopy(old, i * BLOCK_SIZE, data, (3 - i) * BLOCK_SIZE, BLOCK_SIZE);
+		DeltaStats stats = roundTrip(old, data);
+		assertEquals(4, stats.copiedBlocks);
+		assertEquals(0, stats.literalBytes);
+	}
+
+	@Test
+	public void emptyFiles() throws IOException {
+		DeltaStats stats = roundTrip(new byte[0], new byte[0]);
+		assertEquals(0, stats.copiedBlocks);
+		assertEquals(0, stats.literalBytes);
+	}
+
+	@Test
+	public void emptyOldFile() throws IOException {
+		byte[] data = randomBytes(3 * BLOCK_SIZE + 5, 5);
+		DeltaStats stats = roundTrip(new byte[0], data);
+		assertEquals(0, stats.copiedBlocks);
+		assertEquals(data.length, stats.literalBytes);
+	}
+
+	@Test
+	public void emptyNewFile() throws IOException {
+		DeltaStats stats = roundTrip(randomBytes(3 * BLOCK_SIZE, 6), new byte[0]);
+		assertEquals(0, stats.copiedBlocks);
+		assertEquals(0, stats.literalBytes);
+	}
+
+	@Test
+	public void fileShorterThanOneBlock() throws IOException {
+		byte[] old = randomBytes(BLOCK_SIZE / 2, 7);
+		DeltaStats stats = roundTrip(old, old);
+		assertEquals(1, stats.copiedBlocks);
+		assertEquals(0, stats.literalBytes);
+
+		byte[] changed = old.clone();
+		changed[3] ^= 1;
+		stats = roundTrip(old, changed);
+		assertEquals(0, stats.copiedBlocks);
+		assertEquals(changed.length, stats.literalBytes);
+	}
+
+	@Test
+	public void changedLastPartialBlock() throws IOException {
+		byte[] old = randomBytes(8 * BLOCK_SIZE + 20, 8);
+		byte[] data = old.clone();
+		data[data.length - 1] ^= 1;
+		DeltaStats stats = roundTrip(old, data);
+		assertEquals(8, stats.copiedBlocks);
+		assertEquals(20, stats.literalBytes);
+	}
+
+	@Test
+	public void grownLastPartialBlock() throws IOException {
+		byte[] old = randomBytes(8 * BLOCK_SIZE + 20, 9);
+		byte[] data = Arrays.copyOf(old, old.length + 30);
+		DeltaStats stats = roundTrip(old, data);
+		assertEquals(8, stats.copiedBlocks);
+		assertEquals(50, stats.literalBytes);
+	}
+
+	@Test
+	public void insertionShiftsAlignment() throws IOException {
+		byte[] old = randomBytes(32 * BLOCK_SIZE, 10);
+		// three bytes in the middle of block 10, the blocks after it move off their boundaries
+		int at = 10 * BLOCK_SIZE + 5;
+		byte[] data = new byte[old.length + 3];
+		System.arraycopy(old, 0, data, 0, at);
+		data[at] = 1;
+		data[at + 1] = 2;
+		data[at + 2] = 3;
+		System.arraycopy(old, at, data, at + 3, old.length - at);
+		DeltaStats stats = roundTrip(old, data);
+		// only the block around the insertion is sent
+		assertEquals(31, stats.copiedBlocks);
+		assertEquals(BLOCK_SIZE + 3, stats.literalBytes);
+	}
+
+	@Test
+	public void insertionAtStart() throws IOException {
+		byte[] old = randomBytes(16 * BLOCK_SIZE + 9, 11);
+		byte[] data = new byte[old.length + 1];
+		data[0] = 42;
+		System.arraycopy(old, 0, data, 1, old.length);
+		DeltaStats stats = roundTrip(old, data);
+		assertEquals(17, stats.copiedBlocks);
+		assertEquals(1, stats.literalBytes);
+	}
+
+	@Test
+	public void deletionShiftsAlignment() throws IOException {
+		byte[] old = randomBytes(16 * BLOCK_SIZE, 12);
+		int at = 4 * BLOCK_SIZE + 10;
+		byte[] data = new byte[old.length - 7];
+		System.arraycopy(old, 0, data, 0, at);
+		System.arraycopy(old, at + 7, data, at, old.length - at - 7);
+		DeltaStats stats = roundTrip(old, data);
+		assertEquals(15, stats.copiedBlocks);
+		assertEquals(BLOCK_SIZE - 7, stats.literalBytes);
+	}
+
+	@Test
+	public void largeFileBeyondTheWindowBuffer() throws IOException {
+		// more than the new data held in memory at once, so the window is refilled
+		byte[] old = randomBytes(3 * 1024 * 1024 + 123, 13);
+		int blockSize = DirectDebugDeltaEngine.chooseBlockSize(old.length);
+		byte[] data = new byte[old.length + 1000];
+		Random random = new Random(14);
+		int from = 0;
+		int to = 0;
+		// a few insertions and changes spread over the file
+		for (int i = 1; i <= 10; i++) {
+			int end = i * (old.length / 10);
+			int length = end - from;
+			System.arraycopy(old, from, data, to, length);
+			to += length;
+			from = end;
+			for (int j = 0; j < 100; j++)
+				data[to++] = (byte) random.nextInt();
+		}
+		System.arraycopy(old, from, data, to, old.length - from);
+		data[data.length / 3] ^= 1;
+		DeltaStats stats = roundTrip(old, data, blockSize);
+		assertTrue(stats.literalBytes < 20 * blockSize);
+	}
+
+	@Test
+	public void blockSizeIsBounded() {
+		assertEquals(1024, DirectDebugDeltaEngine.chooseBlockSize(0));
+		assertEquals(1024, DirectDebugDeltaEngine.chooseBlockSize(1000));
+		assertEquals(64 * 1024, DirectDebugDeltaEngine.chooseBlockSize(1L << 40));
+		assertEquals(0, DirectDebugDeltaEngine.chooseBlockSize(16L * 1024 * 1024) % 64);
+	}
+
+	private static DeltaStats roundTrip(byte[] old, byte[] data) throws IOException {
+		return roundTrip(old, data, BLOCK_SIZE);
+	}
+
+	/*
+	 * Check that the delta rebuilds the new contents and answer what it consists of.
+	 */
+	private static DeltaStats roundTrip(byte[] old, byte[] data, int blockSize) throws IOException {
+		byte[] delta = computeDelta(old, data, blockSize);
+		assertArrayEquals(data, applyDelta(old, delta));
+		return parse(delta);
+	}
+
+	private static DirectDebugDeltaEngine.Signature computeSignature(byte[] old) throws IOException {
+		return DirectDebugDeltaEngine.computeSignature(new ByteArrayInputStream(old), old.length, BLOCK_SIZE);
+	}
+
+	private static byte[] computeDelta(byte[] old, byte[] data) throws IOException {
+		return computeDelta(old, data, BLOCK_SIZE);
+	}
+
+	private static byte[] computeDelta(byte[] old, byte[] data, int blockSize) throws IOException {
+		DirectDebugDeltaEngine.Signature signature = DirectDebugDeltaEngine.computeSignature(
+				new ByteArrayInputStream(old), old.length, blockSize);
+		ByteArrayOutputStream delta = new ByteArrayOutputStream();
+		DirectDebugDeltaEngine.computeDelta(signature, new ByteArrayInputStream(data), delta);
+		return delta.toByteArray();
+	}
+
+	private static byte[] applyDelta(byte[] old, byte[] delta) throws IOException {
+		File file = File.createTempFile("delta", ".old"); //$NON-NLS-1$ //$NON-NLS-2$
+		try {
+			FileOutputStream out = new FileOutputStream(file);
+			try {
+				out.write(old);
+			} finally {
+				out.close();
+			}
+			RandomAccessFile oldFile = new RandomAccessFile(file, "r"); //$NON-NLS-1$
+			try {
+				ByteArrayOutputStream result = new ByteArrayOutputStream();
+				DirectDebugDeltaEngine.applyDelta(oldFile, new ByteArrayInputStream(delta), result);
+				return result.toByteArray();
+			} finally {
+				oldFile.close();
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	private static DeltaStats parse(byte[] delta) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(delta));
+		byte[] magic = new byte[DirectDebugDeltaEngine.MAGIC.length];
+		in.readFully(magic);
+		assertArrayEquals(DirectDebugDeltaEngine.MAGIC, magic);
+		in.readInt();
+		DeltaStats stats = new DeltaStats();
+		while (true) {
+			byte op = in.readByte();
+			stats.records++;
+			if (op == DirectDebugDeltaEngine.OP_END) {
+				assertEquals(0, in.available());
+				return stats;
+			} else if (op == DirectDebugDeltaEngine.OP_COPY) {
+				in.readInt();
+				stats.copiedBlocks += in.readInt();
+			} else {
+				assertEquals(DirectDebugDeltaEngine.OP_DATA, op);
+				int length = in.readInt();
+				in.skipBytes(length);
+				stats.literalBytes += length;
+			}
+		}
+	}
+
+	private static byte[] randomBytes(int length, long seed) {
+		byte[] data = new byte[length];
+		new Random(seed).nextBytes(data);
+		return data;
+	}
+}
@@ -14,6 +14,13 @@ public class Activator extends AbstractUIPlugin {
 
 	// The shared instance
 	private static Activator plugin;
+
+	// Changes of workspace resources since the last synchronizations
+	private DirectDebugChangeJournal changeJournal;
+
+	// Uploads saved sources of the launch configurations which ask for it,
+	// started by the first launch or when a configuration turns it on
+	private DirectDebugBackgroundSync backgroundSync;
 	
 	/**
 	 * The constructor
@@ -28,6 +35,8 @@ public class Activator extends AbstractUIPlugin {
 	public void start(BundleContext context) throws Exception {
 		super.start(context);
 		plugin = this;
+		changeJournal = new DirectDebugChangeJournal();
+		changeJournal.start();
 	}
 
 	/*
@@ -35,6 +44,22 @@ public class Activator extends AbstractUIPlugin {
 	 * @see org.eclipse.ui.plugin.AbstractUIPlugin#stop(org.osgi.framework.BundleContext)
 	 */
 	public void stop(BundleContext context) throws Exception {
+		synchronized (this) {
+			if (backgroundSync != null) {
+				backgroundSync.stop();
+				backgroundSync = null;
+			}
+		}
+		if (changeJournal != null) {
+			changeJournal.stop();
+			changeJournal = null;
+		}
+		DirectRemoteShellPool.closeAll();
+		DirectRemoteGdbVersionCache.stop();
+		DirectRemoteConsole.closeAll();
+		RemoteCommandChannel.closeAll();
+		DirectRemoteConnectionPool.closeAll();
+		DirectRemoteSourceCache.shutdown();
 		plugin = null;
 		super.stop(context);
 	}
@@ -48,6 +73,26 @@ public class Activator extends AbstractUIPlugin {
 		return plugin;
 	}
 
+	/**
+	 * Returns the journal of workspace resource changes
+	 *
+	 * @return the change journal, or <code>null</code> if the plug-in is not active
+	 */
+	DirectDebugChangeJournal getChangeJournal() {
+		return changeJournal;
+	}
+
+	/**
+	 * Starts uploading saved sources for the launch configurations which ask
+	 * for it, unless this is already done
+	 */
+	synchronized void startBackgroundSync() {
+		if (backgroundSync == null) {
+			backgroundSync = new DirectDebugBackgroundSync();
+			backgroundSync.start();
+		}
+	}
+
 	/**
 	 * Returns an image descriptor for the image file at the given
 	 * plug-in relative path
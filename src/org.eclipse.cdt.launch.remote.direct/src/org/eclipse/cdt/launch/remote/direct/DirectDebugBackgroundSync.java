@@ -0,0 +1,179 @@
+package org.eclipse.cdt.launch.remote.direct;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.cdt.debug.core.ICDTLaunchConfigurationConstants;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.debug.core.DebugPlugin;
+import org.eclipse.debug.core.ILaunchConfiguration;
+import org.eclipse.debug.core.ILaunchConfigurationType;
+import org.eclipse.debug.core.ILaunchManager;
+import org.eclipse.osgi.util.NLS;
+import org.eclipse.rse.core.RSECorePlugin;
+import org.eclipse.rse.ui.SystemBasePlugin;
+
+/**
+ * Pushes saved sources to the remote workspace in the background, so that the
+ * remote tree is usually current when a debug session is launched.
+ * <p>
+ * Every launch configuration which enables it gets a job that is (re)scheduled
+ * whenever a file of its project changes. The job only runs once no change
+ * happened for the configured delay, so a burst of saves causes one upload.
+ */
+class DirectDebugBackgroundSync implements IResourceChangeListener {
+	private static final String LAUNCH_TYPE_ID = "org.eclipse.cdt.launch.remoteApplicationLaunchType"; //$NON-NLS-1$
+
+	private final Map<ILaunchConfiguration, SyncJob> jobs = new HashMap<ILaunchConfiguration, SyncJob>();
+
+	/**
+	 * Synchronizes the sources of one launch configuration.
+	 */
+	private class SyncJob extends Job {
+		private final ILaunchConfiguration config;
+
+		SyncJob(ILaunchConfiguration config) {
+			super(NLS.bind(Messages.DirectDebugBackgroundSync_0, config.getName()));
+			this.config = config;
+			setPriority(Job.BUILD);
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			if (!config.exists()) {
+				forget(config);
+				return Status.OK_STATUS;
+			}
+			if (!RSECorePlugin.isInitComplete(RSECorePlugin.INIT_MODEL)) {
+				// try again once the connections are known
+				schedule(getDelay(config));
+				return Status.OK_STATUS;
+			}
+			try {
+				DirectDebugSourceSync.synchronize(config, monitor);
+			} catch (CoreException e) {
+				SystemBasePlugin.logError("Background synchronization of " + config.getName() + " failed", e); //$NON-NLS-1$ //$NON-NLS-2$
+			} catch (RuntimeException e) {
+				// the export reports its failures this way; the next launch shows them
+				if (!monitor.isCanceled())
+					SystemBasePlugin.logError("Background synchronization of " + config.getName() + " failed", e); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			return monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
+		}
+
+		@Override
+		public boolean belongsTo(Object family) {
+			return family == DirectDebugBackgroundSync.this;
+		}
+	}
+
+	/**
+	 * Start watching the workspace.
+	 */
+	public void start() {
+		ResourcesPlugin.getWorkspace().addResourceChangeListener(this, IResourceChangeEvent.POST_CHANGE);
+	}
+
+	/**
+	 * Stop watching the workspace and cancel pending synchronizations.
+	 */
+	public void stop() {
+		ResourcesPlugin.getWorkspace().removeResourceChangeListener(this);
+		Job.getJobManager().cancel(this);
+		synchronized (jobs) {
+			jobs.clear();
+		}
+	}
+
+	public void resourceChanged(IResourceChangeEvent event) {
+		IResourceDelta delta = event.getDelta();
+		if (delta == null)
+			return;
+		final Set<String> changedProjects = new HashSet<String>();
+		try {
+			delta.accept(new IResourceDeltaVisitor() {
+
+				public boolean visit(IResourceDelta child) {
+					IResource resource = child.getResource();
+					if (resource.getType() == IResource.ROOT)
+						return true;
+					// build output does not start a synchronization, it is picked up with the next one
+					if (resource.isDerived() || changedProjects.contains(resource.getProject().getName()))
+						return false;
+					if (resource.getType() == IResource.FILE
+							&& (child.getKind() == IResourceDelta.ADDED || (child.getKind() == IResourceDelta.CHANGED
+									&& (child.getFlags() & (IResourceDelta.CONTENT | IResourceDelta.REPLACED)) != 0)))
+						changedProjects.add(resource.getProject().getName());
+					return true;
+				}
+			});
+		} catch (CoreException e) {
+			SystemBasePlugin.logError("Could not inspect resource changes", e); //$NON-NLS-1$
+			return;
+		}
+		if (changedProjects.isEmpty())
+			return;
+
+		ILaunchManager manager = DebugPlugin.getDefault().getLaunchManager();
+		ILaunchConfigurationType type = manager.getLaunchConfigurationType(LAUNCH_TYPE_ID);
+		if (type == null)
+			return;
+		try {
+			ILaunchConfiguration[] configs = manager.getLaunchConfigurations(type);
+			for (int i = 0; i < configs.length; i++) {
+				ILaunchConfiguration config = configs[i];
+				if (config.getAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_SYNC_BACKGROUND,
+						IDirectRemoteConnectionConfigurationConstants.DEFAULT_SYNC_BACKGROUND)
+						&& changedProjects.contains(config.getAttribute(ICDTLaunchConfigurationConstants.ATTR_PROJECT_NAME, ""))) //$NON-NLS-1$
+					schedule(config);
+			}
+		} catch (CoreException e) {
+			SystemBasePlugin.logError("Could not read the launch configurations", e); //$NON-NLS-1$
+		}
+	}
+
+	/*
+	 * Start the debounce window of the given configuration again.
+	 */
+	private void schedule(ILaunchConfiguration config) {
+		SyncJob job;
+		synchronized (jobs) {
+			job = jobs.get(config);
+			if (job == null) {
+				job = new SyncJob(config);
+				jobs.put(config, job);
+			}
+		}
+		// a running job runs once more after the delay, a waiting one starts its delay over
+		if (job.getState() != Job.RUNNING)
+			job.cancel();
+		job.schedule(getDelay(config));
+	}
+
+	private void forget(ILaunchConfiguration config) {
+		synchronized (jobs) {
+			jobs.remove(config);
+		}
+	}
+
+	private static long getDelay(ILaunchConfiguration config) {
+		try {
+			return Math.max(0, config.getAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_SYNC_BACKGROUND_DELAY,
+					IDirectRemoteConnectionConfigurationConstants.DEFAULT_SYNC_BACKGROUND_DELAY));
+		} catch (CoreException e) {
+			return IDirectRemoteConnectionConfigurationConstants.DEFAULT_SYNC_BACKGROUND_DELAY;
+		}
+	}
+}
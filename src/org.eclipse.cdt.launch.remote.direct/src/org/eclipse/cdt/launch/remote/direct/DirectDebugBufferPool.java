@@ -0,0 +1,174 @@
+package org.eclipse.cdt.launch.remote.direct;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Transfer buffers shared by all uploads. Files are uploaded by several
+ * threads at once, mostly small ones, so buffers are recycled rather than
+ * allocated per file. There are a few sizes: small files are copied with the
+ * smallest, large files with fewer, larger writes to the remote stream.
+ * <p>
+ * The buffers live on the heap: the remote file streams only accept byte
+ * arrays, so a direct buffer would only add a copy.
+ */
+class DirectDebugBufferPool {
+	/* The buffer sizes, each four times the previous one */
+	static final int MIN_CHUNK = 64 * 1024;
+	static final int MAX_CHUNK = 1024 * 1024;
+	private static final int SIZE_CLASSES = 3;
+	/* Aim at about this many writes for a file of known length */
+	private static final int CHUNKS_PER_FILE = 16;
+	/* Buffers kept per size; more are dropped when they are released */
+	private static final int MAX_POOLED = 8;
+
+	private static final Queue<ByteBuffer>[] pools = createPools();
+	private static final AtomicInteger[] pooled = new AtomicInteger[SIZE_CLASSES];
+
+	static {
+		for (int i = 0; i < SIZE_CLASSES; i++)
+			pooled[i] = new AtomicInteger();
+	}
+
+	private DirectDebugBufferPool() {
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Queue<ByteBuffer>[] createPools() {
+		Queue<ByteBuffer>[] queues = new Queue[SIZE_CLASSES];
+		for (int i = 0; i < SIZE_CLASSES; i++)
+			queues[i] = new ConcurrentLinkedQueue<ByteBuffer>();
+		return queues;
+	}
+
+	/**
+	 * Take a cleared buffer of at least the given size, or of the largest size
+	 * if more is asked for. It should be given back with {@link #release(ByteBuffer)}.
+	 */
+	static ByteBuffer acquire(int size) {
+		int sizeClass = getSizeClass(size);
+		ByteBuffer buffer = pools[sizeClass].poll();
+		if (buffer == null)
+			return ByteBuffer.allocate(MIN_CHUNK << (2 * sizeClass));
+		pooled[sizeClass].decrementAndGet();
+		buffer.clear();
+		return buffer;
+	}
+
+	/**
+	 * Give a buffer back to the pool.
+	 */
+	static void release(ByteBuffer buffer) {
+		int sizeClass = getSizeClass(buffer.capacity());
+		if ((MIN_CHUNK << (2 * sizeClass)) != buffer.capacity())
+			return;
+		if (pooled[sizeClass].incrementAndGet() <= MAX_POOLED)
+			pools[sizeClass].offer(buffer);
+		else
+			pooled[sizeClass].decrementAndGet();
+	}
+
+	/**
+	 * Answer the chunk size for copying a file of the given length.
+	 */
+	static int getChunkSize(long length) {
+		return (int) Math.max(MIN_CHUNK, Math.min(MAX_CHUNK, length / CHUNKS_PER_FILE));
+	}
+
+	/**
+	 * Copy a local file to a stream, reading it through its channel in
+	 * chunks suited to its length.
+	 *
+	 * @return the number of bytes copied
+	 */
+	static long copy(File source, OutputStream out) throws IOException {
+		FileInputStream in = new FileInputStream(source);
+		try {
+			FileChannel channel = in.getChannel();
+			ByteBuffer buffer = acquire(getChunkSize(channel.size()));
+			try {
+				long total = 0;
+				while (true) {
+					buffer.clear();
+					int n = fill(channel, buffer);
+					if (n > 0) {
+						out.write(buffer.array(), buffer.arrayOffset(), n);
+						total += n;
+					}
+					if (buffer.hasRemaining())
+						return total;
+				}
+			} finally {
+				release(buffer);
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Copy a stream of unknown length to another. The chunks grow as long as
+	 * the source fills them, so short contents use a small buffer and long
+	 * contents few writes.
+	 *
+	 * @return the number of bytes copied
+	 */
+	static long copy(InputStream in, OutputStream out) throws IOException {
+		ByteBuffer buffer = acquire(MIN_CHUNK);
+		try {
+			long total = 0;
+			while (true) {
+				int n = fill(in, buffer.array(), buffer.arrayOffset(), buffer.capacity());
+				if (n > 0) {
+					out.write(buffer.array(), buffer.arrayOffset(), n);
+					total += n;
+				}
+				if (n < buffer.capacity())
+					return total;
+				if (buffer.capacity() < MAX_CHUNK) {
+					int next = buffer.capacity() * 4;
+					release(buffer);
+					buffer = null;
+					buffer = acquire(next);
+				}
+			}
+		} finally {
+			if (buffer != null)
+				release(buffer);
+		}
+	}
+
+	private static int getSizeClass(int size) {
+		int sizeClass = 0;
+		while (sizeClass < SIZE_CLASSES - 1 && (MIN_CHUNK << (2 * sizeClass)) < size)
+			sizeClass++;
+		return sizeClass;
+	}
+
+	private static int fill(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer) < 0)
+				break;
+		}
+		return buffer.position();
+	}
+
+	private static int fill(InputStream in, byte[] buffer, int offset, int length) throws IOException {
+		int total = 0;
+		while (total < length) {
+			int n = in.read(buffer, offset + total, length - total);
+			if (n < 0)
+				break;
+			total += n;
+		}
+		return total;
+	}
+}
@@ -0,0 +1,250 @@
+package org.eclipse.cdt.launch.remote.direct;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.resources.ISaveContext;
+import org.eclipse.core.resources.ISaveParticipant;
+import org.eclipse.core.resources.ISavedState;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.rse.ui.SystemBasePlugin;
+
+/**
+ * Records which workspace resources changed, so that a synchronization only
+ * has to visit the files changed since the previous one.
+ * <p>
+ * Every change is numbered with an increasing sequence number. A
+ * synchronization remembers the sequence number it started at and later asks
+ * for the changes after it. The journal survives restarts through the saved
+ * state of the workspace, which also delivers the changes made while the
+ * plug-in was not active. Whenever changes may have been lost, the journal
+ * starts a new epoch and every synchronization against an older epoch has to
+ * walk the whole project again.
+ */
+class DirectDebugChangeJournal implements IResourceChangeListener, ISaveParticipant {
+	private static final String SAVED_STATE_KEY = "journal"; //$NON-NLS-1$
+	private static final String FILE_PREFIX = "journal-"; //$NON-NLS-1$
+	private static final String EPOCH_KEY = "/epoch"; //$NON-NLS-1$
+	private static final String SEQUENCE_KEY = "/sequence"; //$NON-NLS-1$
+	/* Beyond this many entries the journal starts over rather than growing further */
+	private static final int MAX_ENTRIES = 100000;
+
+	private final Map<IPath, Long> changes = new HashMap<IPath, Long>();
+	private String epoch;
+	private long sequence = 0;
+
+	/**
+	 * Restore the journal and start listening for workspace changes.
+	 */
+	public void start() throws CoreException {
+		IWorkspace workspace = ResourcesPlugin.getWorkspace();
+		ISavedState lastState = workspace.addSaveParticipant(Activator.PLUGIN_ID, this);
+		boolean restored = false;
+		if (lastState != null) {
+			IPath name = lastState.lookup(new Path(SAVED_STATE_KEY));
+			restored = name != null && load(getStateFile(name.toString()));
+			// changes since the last save, including those made while we were inactive
+			lastState.processResourceChangeEvents(this);
+		}
+		if (!restored) {
+			reset();
+		}
+		workspace.addResourceChangeListener(this, IResourceChangeEvent.POST_CHANGE);
+	}
+
+	/**
+	 * Stop listening for workspace changes.
+	 */
+	public void stop() {
+		IWorkspace workspace = ResourcesPlugin.getWorkspace();
+		workspace.removeResourceChangeListener(this);
+		workspace.removeSaveParticipant(Activator.PLUGIN_ID);
+	}
+
+	/**
+	 * @return the identity of the current epoch; sequence numbers of different epochs cannot be compared
+	 */
+	public synchronized String getEpoch() {
+		return epoch;
+	}
+
+	/**
+	 * @return the sequence number of the latest change
+	 */
+	public synchronized long getSequence() {
+		return sequence;
+	}
+
+	/**
+	 * Answer the full paths of the resources changed after the given sequence
+	 * number. Changed containers stand for their whole subtree. Resources which
+	 * were deleted or moved away are included; they no longer exist in the
+	 * workspace.
+	 */
+	public synchronized List<IPath> getChangesSince(long since) {
+		List<IPath> result = new ArrayList<IPath>();
+		for (Iterator<Map.Entry<IPath, Long>> it = changes.entrySet().iterator(); it.hasNext();) {
+			Map.Entry<IPath, Long> entry = it.next();
+			if (entry.getValue().longValue() > since)
+				result.add(entry.getKey());
+		}
+		return result;
+	}
+
+	public void resourceChanged(IResourceChangeEvent event) {
+		IResourceDelta delta = event.getDelta();
+		if (delta == null)
+			return;
+		final List<IPath> changed = new ArrayList<IPath>();
+		try {
+			delta.accept(new IResourceDeltaVisitor() {
+
+				public boolean visit(IResourceDelta child) {
+					IResource resource = child.getResource();
+					switch (resource.getType()) {
+					case IResource.FILE:
+						// moved files are removed from their old path and added at the new one
+						if (child.getKind() == IResourceDelta.ADDED || child.getKind() == IResourceDelta.REMOVED
+								|| (child.getKind() == IResourceDelta.CHANGED && (child.getFlags() & (IResourceDelta.CONTENT
+										| IResourceDelta.REPLACED | IResourceDelta.TYPE | IResourceDelta.ENCODING)) != 0))
+							changed.add(resource.getFullPath());
+						return false;
+					case IResource.FOLDER:
+					case IResource.PROJECT:
+						if (child.getKind() == IResourceDelta.ADDED || child.getKind() == IResourceDelta.REMOVED
+								|| (child.getFlags() & (IResourceDelta.OPEN | IResourceDelta.TYPE)) != 0) {
+							// the whole subtree is new or gone
+							changed.add(resource.getFullPath());
+							return false;
+						}
+						return true;
+					default:
+						return true;
+					}
+				}
+			});
+		} catch (CoreException e) {
+			SystemBasePlugin.logError("Could not record resource changes", e); //$NON-NLS-1$
+			synchronized (this) {
+				reset();
+			}
+			return;
+		}
+		if (changed.isEmpty())
+			return;
+		synchronized (this) {
+			Long number = Long.valueOf(++sequence);
+			for (Iterator<IPath> it = changed.iterator(); it.hasNext();)
+				changes.put(it.next(), number);
+			if (changes.size() > MAX_ENTRIES)
+				reset();
+		}
+	}
+
+	public void prepareToSave(ISaveContext context) throws CoreException {
+	}
+
+	public void saving(ISaveContext context) throws CoreException {
+		if (context.getKind() == ISaveContext.PROJECT_SAVE)
+			return;
+		String name = FILE_PREFIX + context.getSaveNumber();
+		try {
+			save(getStateFile(name));
+		} catch (IOException e) {
+			// without a journal the next session starts a new epoch
+			SystemBasePlugin.logError("Could not save the change journal", e); //$NON-NLS-1$
+			return;
+		}
+		context.map(new Path(SAVED_STATE_KEY), new Path(name));
+		context.needSaveNumber();
+		context.needDelta();
+	}
+
+	public void doneSaving(ISaveContext context) {
+		getStateFile(FILE_PREFIX + context.getPreviousSaveNumber()).delete();
+	}
+
+	public void rollback(ISaveContext context) {
+		getStateFile(FILE_PREFIX + context.getSaveNumber()).delete();
+	}
+
+	/*
+	 * Forget all changes; everything has to be walked again. Callers hold the lock.
+	 */
+	private void reset() {
+		changes.clear();
+		epoch = Long.toString(System.currentTimeMillis(), 36) + '-' + Integer.toString(System.identityHashCode(this), 36);
+		sequence = 0;
+	}
+
+	private synchronized boolean load(File file) {
+		Properties properties = new Properties();
+		try {
+			InputStream in = new FileInputStream(file);
+			try {
+				properties.load(in);
+			} finally {
+				in.close();
+			}
+			String savedEpoch = properties.getProperty(EPOCH_KEY);
+			String savedSequence = properties.getProperty(SEQUENCE_KEY);
+			if (savedEpoch == null || savedSequence == null)
+				return false;
+			changes.clear();
+			for (Iterator<Map.Entry<Object, Object>> it = properties.entrySet().iterator(); it.hasNext();) {
+				Map.Entry<Object, Object> entry = it.next();
+				String key = (String) entry.getKey();
+				if (!key.startsWith("/")) //$NON-NLS-1$
+					changes.put(new Path(key).makeAbsolute(), Long.valueOf((String) entry.getValue()));
+			}
+			epoch = savedEpoch;
+			sequence = Long.parseLong(savedSequence);
+			return true;
+		} catch (IOException e) {
+			SystemBasePlugin.logError("Could not read the change journal " + file, e); //$NON-NLS-1$
+		} catch (NumberFormatException e) {
+			SystemBasePlugin.logError("Could not read the change journal " + file, e); //$NON-NLS-1$
+		}
+		return false;
+	}
+
+	private synchronized void save(File file) throws IOException {
+		// full paths are stored without their leading '/' so they never clash with the keys above
+		Properties properties = new Properties();
+		for (Iterator<Map.Entry<IPath, Long>> it = changes.entrySet().iterator(); it.hasNext();) {
+			Map.Entry<IPath, Long> entry = it.next();
+			properties.setProperty(entry.getKey().makeRelative().toString(), entry.getValue().toString());
+		}
+		properties.setProperty(EPOCH_KEY, epoch);
+		properties.setProperty(SEQUENCE_KEY, Long.toString(sequence));
+		OutputStream out = new FileOutputStream(file);
+		try {
+			properties.store(out, null);
+		} finally {
+			out.close();
+		}
+	}
+
+	private static File getStateFile(String name) {
+		return Activator.getDefault().getStateLocation().append(name).toFile();
+	}
+}
@@ -0,0 +1,62 @@
+package org.eclipse.cdt.launch.remote.direct;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compression of uploads. The presets are the <code>SYNC_COMPRESSION_*</code>
+ * constants of {@link IDirectRemoteConnectionConfigurationConstants}; they map
+ * to deflate levels, since gzip is the only decompressor that can be expected
+ * on every host.
+ */
+class DirectDebugCompression {
+	/* Extensions of files whose contents are compressed already */
+	private static final Set<String> COMPRESSED_EXTENSIONS = new HashSet<String>(Arrays.asList(new String[] {
+			"gz", "tgz", "bz2", "xz", "lz", "lzma", "zst", "z", "zip", "jar", "war", "ear", "apk", "7z", "rar", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$ //$NON-NLS-8$ //$NON-NLS-9$ //$NON-NLS-10$ //$NON-NLS-11$ //$NON-NLS-12$ //$NON-NLS-13$ //$NON-NLS-14$ //$NON-NLS-15$
+			"deb", "rpm", "png", "jpg", "jpeg", "gif", "webp", "mp3", "mp4", "mkv", "ogg", "pdf" })); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$ //$NON-NLS-8$ //$NON-NLS-9$ //$NON-NLS-10$ //$NON-NLS-11$ //$NON-NLS-12$
+
+	private DirectDebugCompression() {
+	}
+
+	/**
+	 * Answer the deflate level of a preset.
+	 */
+	static int getLevel(int preset) {
+		switch (preset) {
+		case IDirectRemoteConnectionConfigurationConstants.SYNC_COMPRESSION_NONE:
+			return Deflater.NO_COMPRESSION;
+		case IDirectRemoteConnectionConfigurationConstants.SYNC_COMPRESSION_FAST:
+			return Deflater.BEST_SPEED;
+		case IDirectRemoteConnectionConfigurationConstants.SYNC_COMPRESSION_BEST:
+			return Deflater.BEST_COMPRESSION;
+		default:
+			return Deflater.DEFAULT_COMPRESSION;
+		}
+	}
+
+	/**
+	 * Answer whether a file with the given name is stored compressed, so
+	 * compressing it again only costs time.
+	 */
+	static boolean isCompressed(String fileName) {
+		int dot = fileName.lastIndexOf('.');
+		return dot >= 0 && COMPRESSED_EXTENSIONS.contains(fileName.substring(dot + 1).toLowerCase());
+	}
+
+	/**
+	 * Wrap a stream into a gzip stream compressing with the given preset.
+	 */
+	static OutputStream newGzipStream(OutputStream out, int preset, int bufferSize) throws IOException {
+		final int level = getLevel(preset);
+		return new GZIPOutputStream(out, bufferSize) {
+			{
+				def.setLevel(level);
+			}
+		};
+	}
+}
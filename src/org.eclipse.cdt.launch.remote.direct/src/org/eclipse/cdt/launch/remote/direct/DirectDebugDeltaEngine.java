@@ -0,0 +1,357 @@
+package org.eclipse.cdt.launch.remote.direct;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Block level delta encoding in the manner of rsync. The receiver describes
+ * its copy of a file by a {@link Signature}: a weak rolling checksum and an
+ * MD5 digest of every block. The sender slides a window over the new contents
+ * and replaces every block found in the signature by a reference to it, so
+ * only the changed bytes are transferred.
+ * <p>
+ * The weak checksum and the delta format are shared with the remote helper
+ * script <code>rexp_delta.py</code>. A delta consists of the magic
+ * <code>RXD1</code> and the block size, followed by records, all numbers
+ * being big endian 32 bit integers:
+ * <ul>
+ * <li><code>'C' first count</code>: copy <code>count</code> blocks of the old file, starting at block <code>first</code></li>
+ * <li><code>'D' length bytes</code>: literal data</li>
+ * <li><code>'E'</code>: end of the delta</li>
+ * </ul>
+ */
+class DirectDebugDeltaEngine {
+	static final byte[] MAGIC = { 'R', 'X', 'D', '1' };
+	static final byte OP_COPY = 'C';
+	static final byte OP_DATA = 'D';
+	static final byte OP_END = 'E';
+
+	/* Bounds of the block size chosen for a file */
+	private static final int MIN_BLOCK_SIZE = 1024;
+	private static final int MAX_BLOCK_SIZE = 64 * 1024;
+	/* Amount of new data held in memory while searching for matches */
+	private static final int WINDOW_BUFFER_SIZE = 1024 * 1024;
+
+	private DirectDebugDeltaEngine() {
+	}
+
+	/**
+	 * The checksums of the blocks of a file.
+	 */
+	static class Signature {
+		final int blockSize;
+		final long fileLength;
+		final int[] weak;
+		final byte[][] strong;
+
+		Signature(int blockSize, long fileLength, int[] weak, byte[][] strong) {
+			this.blockSize = blockSize;
+			this.fileLength = fileLength;
+			this.weak = weak;
+			this.strong = strong;
+		}
+
+		int getBlockCount() {
+			return weak.length;
+		}
+
+		int getBlockLength(int index) {
+			if (index < weak.length - 1)
+				return blockSize;
+			int rest = (int) (fileLength % blockSize);
+			return rest == 0 ? blockSize : rest;
+		}
+	}
+
+	/**
+	 * Answer a block size suitable for a file of the given length: about the
+	 * square root of the length, so the signature and the expected literal
+	 * overhead stay balanced.
+	 */
+	static int chooseBlockSize(long fileLength) {
+		int size = (int) Math.sqrt((double) fileLength);
+		size = (size + 63) & ~63;
+		return Math.max(MIN_BLOCK_SIZE, Math.min(MAX_BLOCK_SIZE, size));
+	}
+
+	/**
+	 * Compute the weak checksum of a block: the sum of its bytes in the low
+	 * and the position weighted sum in the high 16 bits.
+	 */
+	static int weakChecksum(byte[] data, int offset, int length) {
+		int a = 0;
+		int b = 0;
+		for (int i = 0; i < length; i++) {
+			int x = data[offset + i] & 0xff;
+			a += x;
+			b += (length - i) * x;
+		}
+		return ((b & 0xffff) << 16) | (a & 0xffff);
+	}
+
+	/**
+	 * Slide the weak checksum of a block one byte further: the byte
+	 * <code>out</code> leaves the block at its start and <code>in</code>
+	 * enters it at its end. The result is the checksum of the new block.
+	 */
+	static int rollChecksum(int checksum, int out, int in, int blockSize) {
+		int a = ((checksum & 0xffff) - out + in) & 0xffff;
+		int b = ((checksum >>> 16) - blockSize * out + a) & 0xffff;
+		return (b << 16) | a;
+	}
+
+	/**
+	 * Compute the signature of the given contents.
+	 */
+	static Signature computeSignature(InputStream in, long fileLength, int blockSize) throws IOException {
+		int count = (int) ((fileLength + blockSize - 1) / blockSize);
+		int[] weak = new int[count];
+		byte[][] strong = new byte[count][];
+		byte[] block = new byte[blockSize];
+		MessageDigest md5 = newDigest();
+		for (int i = 0; i < count; i++) {
+			int length = (int) Math.min(blockSize, fileLength - (long) i * blockSize);
+			readFully(in, block, length);
+			weak[i] = weakChecksum(block, 0, length);
+			md5.update(block, 0, length);
+			strong[i] = md5.digest();
+		}
+		return new Signature(blockSize, fileLength, weak, strong);
+	}
+
+	/**
+	 * Encode the given new contents as a delta against the file described by
+	 * the signature.
+	 */
+	static void computeDelta(Signature signature, InputStream newContents, OutputStream delta) throws IOException {
+		int blockSize = signature.blockSize;
+		Map<Integer, int[]> blocksByWeak = indexBlocks(signature);
+		MessageDigest md5 = newDigest();
+		DeltaWriter writer = new DeltaWriter(delta, blockSize);
+
+		byte[] buffer = new byte[Math.max(WINDOW_BUFFER_SIZE, 4 * blockSize)];
+		int length = fill(newContents, buffer, 0);
+		boolean eof = length < buffer.length;
+		int pos = 0;
+		int literalStart = 0;
+		boolean rolling = false;
+		int weak = 0;
+		while (true) {
+			// keep a full window plus the byte rolled in next in the buffer
+			if (!eof && pos + blockSize >= length) {
+				writer.data(buffer, literalStart, pos - literalStart);
+				System.arraycopy(buffer, pos, buffer, 0, length - pos);
+				length -= pos;
+				pos = 0;
+				literalStart = 0;
+				int read = fill(newContents, buffer, length);
+				length += read;
+				eof = length < buffer.length;
+			}
+			int window = Math.min(blockSize, length - pos);
+			if (window <= 0)
+				break;
+			if (!rolling) {
+				weak = weakChecksum(buffer, pos, window);
+				rolling = window == blockSize;
+			}
+			int match = findBlock(signature, blocksByWeak, weak, buffer, pos, window, md5);
+			if (match >= 0) {
+				writer.data(buffer, literalStart, pos - literalStart);
+				writer.copy(match);
+				pos += window;
+				literalStart = pos;
+				rolling = false;
+				continue;
+			}
+			if (window < blockSize) {
+				// the tail, shorter than a block and not found: send the rest as is
+				pos = length;
+				break;
+			}
+			if (pos + blockSize < length) {
+				weak = rollChecksum(weak, buffer[pos] & 0xff, buffer[pos + blockSize] & 0xff, blockSize);
+			} else {
+				rolling = false;
+			}
+			pos++;
+			if (pos - literalStart >= WINDOW_BUFFER_SIZE) {
+				// bound the size of a literal record
+				writer.data(buffer, literalStart, pos - literalStart);
+				literalStart = pos;
+			}
+		}
+		writer.data(buffer, literalStart, pos - literalStart);
+		writer.finish();
+	}
+
+	/**
+	 * Rebuild the new contents from the old file and a delta. This is what the
+	 * remote helper does; it is used to check deltas locally.
+	 */
+	static void applyDelta(RandomAccessFile oldFile, InputStream deltaStream, OutputStream out) throws IOException {
+		DataInputStream delta = new DataInputStream(deltaStream);
+		byte[] magic = new byte[MAGIC.length];
+		delta.readFully(magic);
+		if (!Arrays.equals(magic, MAGIC))
+			throw new IOException("Not a delta"); //$NON-NLS-1$
+		int blockSize = delta.readInt();
+		byte[] buffer = new byte[Math.max(blockSize, 64 * 1024)];
+		while (true) {
+			byte op = delta.readByte();
+			if (op == OP_END) {
+				return;
+			} else if (op == OP_COPY) {
+				long start = (long) delta.readInt() * blockSize;
+				long remaining = (long) delta.readInt() * blockSize;
+				oldFile.seek(start);
+				while (remaining > 0) {
+					int n = oldFile.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+					if (n < 0)
+						break;
+					out.write(buffer, 0, n);
+					remaining -= n;
+				}
+			} else if (op == OP_DATA) {
+				int remaining = delta.readInt();
+				while (remaining > 0) {
+					int n = delta.read(buffer, 0, Math.min(buffer.length, remaining));
+					if (n < 0)
+						throw new EOFException();
+					out.write(buffer, 0, n);
+					remaining -= n;
+				}
+			} else {
+				throw new IOException("Corrupt delta"); //$NON-NLS-1$
+			}
+		}
+	}
+
+	/*
+	 * Index the blocks by weak checksum; most checksums occur once.
+	 */
+	private static Map<Integer, int[]> indexBlocks(Signature signature) {
+		Map<Integer, int[]> blocksByWeak = new HashMap<Integer, int[]>(signature.getBlockCount() * 2);
+		for (int i = 0; i < signature.getBlockCount(); i++) {
+			Integer key = Integer.valueOf(signature.weak[i]);
+			int[] blocks = blocksByWeak.get(key);
+			if (blocks == null) {
+				blocks = new int[] { i };
+			} else {
+				blocks = Arrays.copyOf(blocks, blocks.length + 1);
+				blocks[blocks.length - 1] = i;
+			}
+			blocksByWeak.put(key, blocks);
+		}
+		return blocksByWeak;
+	}
+
+	private static int findBlock(Signature signature, Map<Integer, int[]> blocksByWeak, int weak, byte[] data,
+			int offset, int length, MessageDigest md5) {
+		int[] candidates = blocksByWeak.get(Integer.valueOf(weak));
+		if (candidates == null)
+			return -1;
+		byte[] digest = null;
+		for (int i = 0; i < candidates.length; i++) {
+			int block = candidates[i];
+			if (signature.getBlockLength(block) != length)
+				continue;
+			if (digest == null) {
+				md5.update(data, offset, length);
+				digest = md5.digest();
+			}
+			if (Arrays.equals(digest, signature.strong[block]))
+				return block;
+		}
+		return -1;
+	}
+
+	/**
+	 * Writes delta records, merging references to consecutive blocks.
+	 */
+	private static class DeltaWriter {
+		private final DataOutputStream out;
+		private int copyFirst = -1;
+		private int copyCount = 0;
+
+		DeltaWriter(OutputStream out, int blockSize) throws IOException {
+			this.out = new DataOutputStream(out);
+			this.out.write(MAGIC);
+			this.out.writeInt(blockSize);
+		}
+
+		void copy(int block) throws IOException {
+			if (copyCount > 0 && copyFirst + copyCount == block) {
+				copyCount++;
+				return;
+			}
+			flushCopy();
+			copyFirst = block;
+			copyCount = 1;
+		}
+
+		void data(byte[] data, int offset, int length) throws IOException {
+			if (length <= 0)
+				return;
+			flushCopy();
+			out.writeByte(OP_DATA);
+			out.writeInt(length);
+			out.write(data, offset, length);
+		}
+
+		void finish() throws IOException {
+			flushCopy();
+			out.writeByte(OP_END);
+			out.flush();
+		}
+
+		private void flushCopy() throws IOException {
+			if (copyCount == 0)
+				return;
+			out.writeByte(OP_COPY);
+			out.writeInt(copyFirst);
+			out.writeInt(copyCount);
+			copyCount = 0;
+		}
+	}
+
+	private static int fill(InputStream in, byte[] buffer, int offset) throws IOException {
+		int total = 0;
+		while (offset + total < buffer.length) {
+			int n = in.read(buffer, offset + total, buffer.length - offset - total);
+			if (n < 0)
+				break;
+			total += n;
+		}
+		return total;
+	}
+
+	private static void readFully(InputStream in, byte[] buffer, int length) throws IOException {
+		int total = 0;
+		while (total < length) {
+			int n = in.read(buffer, total, length - total);
+			if (n < 0)
+				throw new EOFException();
+			total += n;
+		}
+	}
+
+	static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("MD5"); //$NON-NLS-1$
+		} catch (NoSuchAlgorithmException e) {
+			// every Java platform is required to support MD5
+			throw new IllegalStateException(e);
+		}
+	}
+}
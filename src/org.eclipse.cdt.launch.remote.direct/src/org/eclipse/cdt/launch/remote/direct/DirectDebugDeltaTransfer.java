@@ -0,0 +1,208 @@
+package org.eclipse.cdt.launch.remote.direct;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.rse.core.model.IHost;
+import org.eclipse.rse.services.files.IFileService;
+import org.eclipse.rse.subsystems.files.core.subsystems.IRemoteFileSubSystem;
+
+/**
+ * Updates a remote file by sending only the blocks that changed. The
+ * signature of the remote copy is computed by the helper script
+ * <code>rexp_delta.py</code>, which is passed to the remote Python through the
+ * shell, so nothing has to be installed on the host. The delta is uploaded
+ * and applied by the same script, which replaces the file only if the result
+ * has the expected digest.
+ * <p>
+ * Hosts without Python are remembered, so they are not asked again.
+ */
+class DirectDebugDeltaTransfer {
+	private static final String SCRIPT_RESOURCE = "rexp_delta.py"; //$NON-NLS-1$
+	private static final String SCRIPT_DELIMITER = "__REXP_PY__"; //$NON-NLS-1$
+	private static final String DELTA_PREFIX = ".rexp-delta-"; //$NON-NLS-1$
+	/* Exit code of the command when no Python is found */
+	private static final int NO_INTERPRETER = 127;
+	/* A delta larger than this share of the file is not worth the extra round trip */
+	private static final double MAX_DELTA_RATIO = 0.8;
+
+	private static final Pattern SIZE_LINE = Pattern.compile("^@@RXSIZE (\\d+) (\\d+)$"); //$NON-NLS-1$
+	private static final Pattern BLOCK_LINE = Pattern.compile("^@@RX ([0-9a-f]{8}) ([0-9a-f]{32})$"); //$NON-NLS-1$
+
+	private static final Set<IHost> hostsWithoutHelper = Collections.synchronizedSet(new HashSet<IHost>());
+	private static String script;
+
+	private DirectDebugDeltaTransfer() {
+	}
+
+	/**
+	 * Bring the remote copy of a file up to date by a delta.
+	 *
+	 * @param host the connection
+	 * @param file the local file, which must have a location in the file system
+	 * @param destination the remote path of the file, which must exist
+	 * @param remoteLength the length of the remote file
+	 * @return false if no delta could be used; the whole file should be uploaded then
+	 */
+	public static boolean transfer(IHost host, IFile file, IPath destination, long remoteLength, IProgressMonitor monitor)
+			throws Exception {
+		if (hostsWithoutHelper.contains(host) || file.getLocation() == null)
+			return false;
+		String directory = RSEHelper.quote(destination.removeLastSegments(1).toString());
+		String name = destination.lastSegment();
+		int blockSize = DirectDebugDeltaEngine.chooseBlockSize(remoteLength);
+
+		RemoteCommandResult result = RSEHelper.runRemoteCommand(host, "cd " + directory + " && " //$NON-NLS-1$ //$NON-NLS-2$
+				+ getPythonCommand("sig " + RSEHelper.quote(name) + ' ' + blockSize), monitor); //$NON-NLS-1$
+		if (result.getExitCode() == NO_INTERPRETER) {
+			hostsWithoutHelper.add(host);
+			return false;
+		}
+		if (!result.isOK())
+			return false;
+		DirectDebugDeltaEngine.Signature signature = parseSignature(result.getOutput(), blockSize);
+		if (signature == null)
+			return false;
+
+		File localFile = file.getLocation().toFile();
+		File delta = File.createTempFile(DELTA_PREFIX, null);
+		try {
+			MessageDigest md5 = DirectDebugDeltaEngine.newDigest();
+			InputStream in = new DigestInputStream(new BufferedInputStream(new FileInputStream(localFile)), md5);
+			OutputStream out = new BufferedOutputStream(new FileOutputStream(delta));
+			try {
+				DirectDebugDeltaEngine.computeDelta(signature, in, out);
+			} finally {
+				in.close();
+				out.close();
+			}
+			if (delta.length() > localFile.length() * MAX_DELTA_RATIO)
+				return false;
+
+			String deltaName = DELTA_PREFIX + System.currentTimeMillis() + '-' + name;
+			upload(host, delta, destination.removeLastSegments(1).toString(), deltaName);
+			String quotedDelta = RSEHelper.quote(deltaName);
+			result = RSEHelper.runRemoteCommand(host, "cd " + directory + " && " //$NON-NLS-1$ //$NON-NLS-2$
+					+ getPythonCommand("patch " + RSEHelper.quote(name) + ' ' + quotedDelta + ' ' + toHex(md5.digest())) //$NON-NLS-1$
+					+ "; rc=$?; rm -f " + quotedDelta + "; test $rc -eq 0", monitor); //$NON-NLS-1$ //$NON-NLS-2$
+			return result.isOK();
+		} finally {
+			delta.delete();
+		}
+	}
+
+	/*
+	 * Parse the output of the signature command, or answer null if it is incomplete.
+	 */
+	private static DirectDebugDeltaEngine.Signature parseSignature(List<String> output, int blockSize) {
+		long fileLength = -1;
+		List<String> blocks = new ArrayList<String>();
+		for (Iterator<String> it = output.iterator(); it.hasNext();) {
+			// the terminal may echo the script, which never matches the patterns
+			String line = it.next().trim();
+			Matcher block = BLOCK_LINE.matcher(line);
+			if (block.matches()) {
+				blocks.add(line);
+				continue;
+			}
+			Matcher size = SIZE_LINE.matcher(line);
+			if (size.matches() && Integer.parseInt(size.group(2)) == blockSize)
+				fileLength = Long.parseLong(size.group(1));
+		}
+		if (fileLength < 0 || blocks.size() != (fileLength + blockSize - 1) / blockSize)
+			return null;
+		int[] weak = new int[blocks.size()];
+		byte[][] strong = new byte[blocks.size()][];
+		for (int i = 0; i < weak.length; i++) {
+			Matcher block = BLOCK_LINE.matcher(blocks.get(i));
+			block.matches();
+			weak[i] = (int) Long.parseLong(block.group(1), 16);
+			strong[i] = fromHex(block.group(2));
+		}
+		return new DirectDebugDeltaEngine.Signature(blockSize, fileLength, weak, strong);
+	}
+
+	private static void upload(IHost host, File source, String remoteParent, String remoteName) throws Exception {
+		IRemoteFileSubSystem rfss = DirectRemoteConnectionPool.getFileSubSystem(host);
+		OutputStream out = rfss.getOutputStream(remoteParent, remoteName, IFileService.NONE, new NullProgressMonitor());
+		try {
+			DirectDebugBufferPool.copy(source, out);
+		} finally {
+			out.close();
+		}
+	}
+
+	/*
+	 * The shell command running the helper script with the given arguments,
+	 * with exit code 127 if there is no Python.
+	 */
+	private static String getPythonCommand(String arguments) throws IOException {
+		return "{ PY=$(command -v python3 2>/dev/null || command -v python 2>/dev/null); if test -n \"$PY\"; then \"$PY\" - " //$NON-NLS-1$
+				+ arguments + " <<'" + SCRIPT_DELIMITER + "'\n" //$NON-NLS-1$ //$NON-NLS-2$
+				+ getScript()
+				+ SCRIPT_DELIMITER + "\nelse (exit " + NO_INTERPRETER + "); fi; }"; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	private static synchronized String getScript() throws IOException {
+		if (script == null) {
+			InputStream in = DirectDebugDeltaTransfer.class.getResourceAsStream(SCRIPT_RESOURCE);
+			if (in == null)
+				throw new IOException(SCRIPT_RESOURCE);
+			try {
+				ByteArrayOutputStream contents = new ByteArrayOutputStream();
+				byte[] buffer = new byte[8192];
+				int n;
+				while ((n = in.read(buffer)) > 0)
+					contents.write(buffer, 0, n);
+				// comments and blank lines only make the shell echo longer
+				StringBuffer lines = new StringBuffer();
+				String[] all = contents.toString("UTF-8").split("\r?\n"); //$NON-NLS-1$ //$NON-NLS-2$
+				for (int i = 0; i < all.length; i++) {
+					if (all[i].trim().length() > 0 && !all[i].trim().startsWith("#")) //$NON-NLS-1$
+						lines.append(all[i]).append('\n');
+				}
+				script = lines.toString();
+			} finally {
+				in.close();
+			}
+		}
+		return script;
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuffer hex = new StringBuffer(bytes.length * 2);
+		for (int i = 0; i < bytes.length; i++) {
+			hex.append(Character.forDigit((bytes[i] >> 4) & 0xf, 16));
+			hex.append(Character.forDigit(bytes[i] & 0xf, 16));
+		}
+		return hex.toString();
+	}
+
+	private static byte[] fromHex(String hex) {
+		byte[] bytes = new byte[hex.length() / 2];
+		for (int i = 0; i < bytes.length; i++)
+			bytes[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+		return bytes;
+	}
+}
@@ -0,0 +1,166 @@
+package org.eclipse.cdt.launch.remote.direct;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.eclipse.cdt.debug.core.ICDTLaunchConfigurationConstants;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.ResourceAttributes;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.osgi.util.NLS;
+import org.eclipse.rse.core.model.IHost;
+import org.eclipse.rse.services.files.IFileService;
+import org.eclipse.rse.subsystems.files.core.subsystems.IRemoteFileSubSystem;
+
+/**
+ * Exports many files at once by streaming them as a single tar archive into
+ * the remote destination directory and unpacking it there with the remote
+ * shell. Only available for hosts with a POSIX shell and '/' separators.
+ * <p>
+ * The file contents are transferred verbatim, without the encoding
+ * conversion applied by single file uploads.
+ */
+class DirectDebugRemoteArchiveExporter {
+	private static final String ARCHIVE_PREFIX = ".rexp-sync-"; //$NON-NLS-1$
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final IHost host;
+	private final IPath root;
+	private final int compression;
+	private final boolean compress;
+	private String archiveName;
+	private DirectDebugTarWriter writer;
+
+	/**
+	 * @param host the connection
+	 * @param root the remote directory the archive is unpacked in; every exported path must be below it
+	 * @param compression how strongly the archive is compressed, one of the
+	 *            <code>SYNC_COMPRESSION_*</code> constants
+	 */
+	public DirectDebugRemoteArchiveExporter(IHost host, IPath root, int compression) {
+		this.host = host;
+		this.root = root;
+		this.compression = compression;
+		this.compress = compression != IDirectRemoteConnectionConfigurationConstants.SYNC_COMPRESSION_NONE;
+	}
+
+	/**
+	 * Answer whether archives can be unpacked on the given host.
+	 */
+	public static boolean isSupported(IHost host) {
+		return RSEHelper.isPosixHost(host);
+	}
+
+	/**
+	 * Open the transfer of the archive into the remote root directory, which
+	 * is created first, as it does not exist before the first synchronization.
+	 */
+	public void open(IProgressMonitor monitor) throws Exception {
+		RemoteCommandResult created = RSEHelper.runRemoteCommand(host,
+				"mkdir -p " + RSEHelper.quote(root.toString()), monitor); //$NON-NLS-1$
+		if (!created.isOK()) {
+			RSEHelper.abort(NLS.bind(Messages.DirectDebugRemoteArchiveExporter_1, root, created.getErrorText()),
+					null, ICDTLaunchConfigurationConstants.ERR_INTERNAL_ERROR);
+		}
+		IRemoteFileSubSystem rfss = DirectRemoteConnectionPool.getFileSubSystem(host);
+		archiveName = ARCHIVE_PREFIX + System.currentTimeMillis() + (compress ? ".tar.gz" : ".tar"); //$NON-NLS-1$ //$NON-NLS-2$
+		OutputStream out = new BufferedOutputStream(
+				rfss.getOutputStream(root.toString(), archiveName, IFileService.NONE, new NullProgressMonitor()),
+				BUFFER_SIZE);
+		if (compress)
+			out = DirectDebugCompression.newGzipStream(out, compression, BUFFER_SIZE);
+		writer = new DirectDebugTarWriter(out);
+	}
+
+	/**
+	 * Add a directory to the archive.
+	 */
+	public void addFolder(IPath destinationPath) throws IOException {
+		writer.putDirectory(getEntryName(destinationPath), System.currentTimeMillis());
+	}
+
+	/**
+	 * Add the contents of the passed file to the archive.
+	 */
+	public void addFile(IFile file, IPath destinationPath) throws IOException, CoreException {
+		ResourceAttributes attributes = file.getResourceAttributes();
+		boolean executable = attributes != null && attributes.isExecutable();
+		IPath location = file.getLocation();
+		if (location != null) {
+			File localFile = location.toFile();
+			InputStream in = new FileInputStream(localFile);
+			try {
+				writer.putFile(getEntryName(destinationPath), localFile.length(), localFile.lastModified(), executable, in);
+			} finally {
+				in.close();
+			}
+		} else {
+			// an EFS file, its size is only known once it has been read
+			ByteArrayOutputStream contents = new ByteArrayOutputStream();
+			InputStream in = file.getContents();
+			try {
+				DirectDebugBufferPool.copy(in, contents);
+			} finally {
+				in.close();
+			}
+			writer.putFile(getEntryName(destinationPath), contents.size(), file.getLocalTimeStamp(), executable,
+					new ByteArrayInputStream(contents.toByteArray()));
+		}
+	}
+
+	/**
+	 * Complete the transfer and unpack the archive on the remote host. The
+	 * archive is removed afterwards, whether unpacking succeeded or not.
+	 */
+	public void finish(IProgressMonitor monitor) throws Exception {
+		writer.close();
+		writer = null;
+		String archive = RSEHelper.quote(archiveName);
+		String command = "cd " + RSEHelper.quote(root.toString()) //$NON-NLS-1$
+				+ " && tar -x" + (compress ? "z" : "") + "f " + archive //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+				+ "; rc=$?; rm -f " + archive + "; test $rc -eq 0"; //$NON-NLS-1$ //$NON-NLS-2$
+		RemoteCommandResult result = RSEHelper.runRemoteCommand(host, command, monitor);
+		// even a failed unpack may have written some of the files
+		DirectDebugRemoteStatCache.forHost(host).clear();
+		if (!result.isOK()) {
+			RSEHelper.abort(NLS.bind(Messages.DirectDebugRemoteArchiveExporter_0, archiveName, result.getErrorText()),
+					null, ICDTLaunchConfigurationConstants.ERR_INTERNAL_ERROR);
+		}
+	}
+
+	/**
+	 * Give up the transfer and remove what was already written, as far as possible.
+	 */
+	public void abort() {
+		if (writer != null) {
+			try {
+				writer.close();
+			} catch (IOException e) {
+				// the transfer is broken anyway
+			}
+			writer = null;
+		}
+		if (archiveName != null) {
+			try {
+				// nobody waits for the outcome
+				RSEHelper.submitRemoteCommand(host, "rm -f " + RSEHelper.quote(root.append(archiveName).toString()), //$NON-NLS-1$
+						new NullProgressMonitor());
+			} catch (Exception e) {
+				// leave the partial archive behind
+			}
+		}
+	}
+
+	private String getEntryName(IPath destinationPath) {
+		return destinationPath.removeFirstSegments(root.segmentCount()).makeRelative().toString();
+	}
+}
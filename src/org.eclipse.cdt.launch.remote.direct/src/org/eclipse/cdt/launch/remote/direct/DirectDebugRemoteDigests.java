@@ -0,0 +1,99 @@
+package org.eclipse.cdt.launch.remote.direct;
+
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.rse.core.model.IHost;
+import org.eclipse.rse.services.files.IFileService;
+import org.eclipse.rse.subsystems.files.core.subsystems.IRemoteFileSubSystem;
+
+/**
+ * Computes the content digests of many remote files with a single shell
+ * command. The list of files is uploaded first and fed to <code>md5sum</code>,
+ * so the command line stays short whatever the number of files.
+ */
+class DirectDebugRemoteDigests {
+	private static final String LIST_PREFIX = ".rexp-digests-"; //$NON-NLS-1$
+	private static final int DIGEST_LENGTH = 32;
+
+	private DirectDebugRemoteDigests() {
+	}
+
+	/**
+	 * Compute the digests of the given files below <code>root</code>.
+	 *
+	 * @param host the connection
+	 * @param root the remote directory the paths are relative to
+	 * @param paths the relative paths of the files, with '/' separators
+	 * @param monitor progress monitor, checked for cancellation
+	 * @return the digests of the files which exist remotely, by relative
+	 *         path, or <code>null</code> if the host cannot compute digests
+	 */
+	public static Map<String, String> fetch(IHost host, IPath root, Collection<String> paths, IProgressMonitor monitor)
+			throws Exception {
+		if (!RSEHelper.isPosixHost(host))
+			return null;
+		IRemoteFileSubSystem rfss = DirectRemoteConnectionPool.getFileSubSystem(host);
+		String listName = LIST_PREFIX + System.currentTimeMillis();
+		OutputStream out = new BufferedOutputStream(
+				rfss.getOutputStream(root.toString(), listName, IFileService.NONE, new NullProgressMonitor()));
+		try {
+			for (Iterator<String> it = paths.iterator(); it.hasNext();) {
+				out.write(("./" + it.next()).getBytes("UTF-8")); //$NON-NLS-1$ //$NON-NLS-2$
+				out.write(0);
+			}
+		} finally {
+			out.close();
+		}
+
+		String list = RSEHelper.quote(listName);
+		// missing files are simply left out of the output
+		String command = "cd " + RSEHelper.quote(root.toString()) //$NON-NLS-1$
+				+ " && { if command -v md5sum >/dev/null 2>&1; then xargs -0 md5sum -- < " + list //$NON-NLS-1$
+				+ " 2>/dev/null; rc=0; else rc=1; fi; rm -f " + list + "; test $rc -eq 0; }"; //$NON-NLS-1$ //$NON-NLS-2$
+		RemoteCommandResult result = RSEHelper.runRemoteCommand(host, command, monitor);
+		if (!result.isOK())
+			return null;
+
+		Map<String, String> digests = new HashMap<String, String>();
+		for (Iterator<String> it = result.getOutput().iterator(); it.hasNext();) {
+			String line = it.next();
+			// "<digest>  ./<path>"; names with a backslash or line break are escaped and the line starts with '\'
+			boolean escaped = line.length() > 0 && line.charAt(0) == '\\';
+			if (escaped)
+				line = line.substring(1);
+			if (line.length() < DIGEST_LENGTH + 4)
+				continue;
+			String path = line.substring(DIGEST_LENGTH + 2);
+			if (escaped)
+				path = unescape(path);
+			if (path.startsWith("./")) //$NON-NLS-1$
+				path = path.substring(2);
+			digests.put(path, line.substring(0, DIGEST_LENGTH));
+		}
+		return digests;
+	}
+
+	/*
+	 * Undo the escaping of md5sum: backslashes are doubled, line breaks written as \n.
+	 */
+	private static String unescape(String path) {
+		StringBuffer unescaped = new StringBuffer(path.length());
+		for (int i = 0; i < path.length(); i++) {
+			char c = path.charAt(i);
+			if (c == '\\' && i + 1 < path.length()) {
+				char next = path.charAt(++i);
+				c = next == 'n' ? '\n' : next == 'r' ? '\r' : next;
+			}
+			unescaped.append(c);
+		}
+		return unescaped.toString();
+	}
+}
@@ -4,26 +4,48 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.rse.core.model.IHost;
 import org.eclipse.rse.internal.importexport.files.Utilities;
 import org.eclipse.rse.services.clientserver.messages.SystemMessageException;
 import org.eclipse.rse.services.files.IFileService;
-import org.eclipse.rse.subsystems.files.core.model.RemoteFileUtility;
+import org.eclipse.rse.subsystems.files.core.subsystems.IRemoteFile;
 import org.eclipse.rse.subsystems.files.core.subsystems.IRemoteFileSubSystem;
+import org.eclipse.rse.ui.SystemBasePlugin;
 
 // Similar to org.eclipse.ui.wizards.datatransfer.FileSystemExporter
 /**
  * Helper class for exporting resources to the file system.
  */
 class DirectDebugRemoteExporter {
+	/* Keep each mkdir command line well below the line limit of a terminal */
+	private static final int MAX_COMMAND_LINE = 2000;
+	private static final int BUFFER_SIZE = DirectDebugBufferPool.MIN_CHUNK;
+	/* Smaller files are not worth the extra command which decompresses them */
+	private static final long MIN_COMPRESSED_UPLOAD = 128 * 1024;
+	private static final String COMPRESSED_PREFIX = ".rexp-gz-"; //$NON-NLS-1$
+	/* Exit code of the shell for a missing command */
+	private static final int COMMAND_NOT_FOUND = 127;
+
+	private static final Set<IHost> hostsWithoutGzip = Collections.synchronizedSet(new HashSet<IHost>());
+
 	private IHost _host = null;
+	private DirectDebugRemoteStatCache _statCache = null;
+	private int _compression = IDirectRemoteConnectionConfigurationConstants.SYNC_COMPRESSION_NONE;
+	private boolean _binary = false;
 
 	/**
 	 *  Create an instance of this class.  Use this constructor if you wish to
@@ -31,6 +53,8 @@ class DirectDebugRemoteExporter {
 	public DirectDebugRemoteExporter(IHost s) {
 		super();
 		_host = s;
+		if (s != null)
+			_statCache = DirectDebugRemoteStatCache.forHost(s);
 	}
 
 	/**
@@ -40,18 +64,119 @@ class DirectDebugRemoteExporter {
 		super();
 	}
 
+	/**
+	 *  Set how strongly large files are compressed for the upload, one of the
+	 *  <code>SYNC_COMPRESSION_*</code> constants
+	 */
+	public void setCompression(int compression) {
+		_compression = compression;
+	}
+
+	/**
+	 *  Set whether files are uploaded byte for byte, without converting their
+	 *  encoding to the one of the host
+	 */
+	public void setBinary(boolean binary) {
+		_binary = binary;
+	}
+
 	/**
 	 *  Creates the specified file system directory at <code>destinationPath</code>.
 	 *  This creates a new file system directory.
 	 */
 	public void createFolder(IPath destinationPath) {
 		// IFS: use IFSJaveFile object if necessary
-		if (_host != null)
-			new DirectDebugUniFilePlus(Utilities.getIRemoteFile(_host, destinationPath.toString())).mkdir();
+		if (_host != null) {
+			String dest = destinationPath.toString();
+			// nothing to do for directories known to exist
+			if (_statCache.getFile(dest) == null)
+				new DirectDebugUniFilePlus(Utilities.getIRemoteFile(_host, dest), _statCache).mkdir();
+		}
 		else
 			new File(destinationPath.toOSString()).mkdir();
 	}
 
+	/**
+	 *  Creates all of the passed directories with a single batch of <code>mkdir -p</code>
+	 *  commands. Directories the metadata cache knows to exist are skipped, as are
+	 *  those created anyway as the parent of another one.
+	 *
+	 *  @return false if the directories could not be created this way, for instance
+	 *  because the host has no POSIX shell; they should be created one by one then
+	 */
+	public boolean createFolders(Collection<IPath> destinationPaths, IProgressMonitor monitor) throws Exception {
+		if (_host == null || !RSEHelper.isPosixHost(_host))
+			return false;
+		Set<String> folders = new LinkedHashSet<String>();
+		Set<String> parents = new HashSet<String>();
+		for (Iterator<IPath> it = destinationPaths.iterator(); it.hasNext();) {
+			IPath folder = it.next().removeTrailingSeparator();
+			if (_statCache.isKnownFolder(folder.toString()))
+				continue;
+			folders.add(folder.toString());
+			for (IPath parent = folder.removeLastSegments(1); parent.segmentCount() > 0; parent = parent.removeLastSegments(1))
+				parents.add(parent.toString());
+		}
+		folders.removeAll(parents);
+		if (folders.isEmpty())
+			return true;
+
+		// one mkdir per line; the exit status tells whether any of them failed
+		StringBuffer script = new StringBuffer("rc=0"); //$NON-NLS-1$
+		StringBuffer line = null;
+		for (Iterator<String> it = folders.iterator(); it.hasNext();) {
+			String folder = RSEHelper.quote(it.next());
+			if (line != null && line.length() + folder.length() + 1 > MAX_COMMAND_LINE) {
+				script.append('\n').append(line).append(" || rc=1"); //$NON-NLS-1$
+				line = null;
+			}
+			if (line == null)
+				line = new StringBuffer("mkdir -p --"); //$NON-NLS-1$
+			line.append(' ').append(folder);
+		}
+		script.append('\n').append(line).append(" || rc=1"); //$NON-NLS-1$
+		script.append("\ntest $rc -eq 0"); //$NON-NLS-1$
+
+		RemoteCommandResult result = RSEHelper.runRemoteCommand(_host, script.toString(), monitor);
+		for (Iterator<IPath> it = destinationPaths.iterator(); it.hasNext();)
+			_statCache.invalidate(it.next().toString());
+		return result.isOK();
+	}
+
+	/**
+	 *  Deletes the passed remote files and folders, folders with their contents,
+	 *  using as few remote commands as possible. Only possible on POSIX hosts.
+	 *
+	 *  @return whether all of them are gone; false if the host does not allow it
+	 */
+	public boolean deleteFiles(Collection<IPath> destinationPaths, IProgressMonitor monitor) throws Exception {
+		if (destinationPaths.isEmpty())
+			return true;
+		if (_host == null || !RSEHelper.isPosixHost(_host))
+			return false;
+
+		// one rm per line; the exit status tells whether any of them failed
+		StringBuffer script = new StringBuffer("rc=0"); //$NON-NLS-1$
+		StringBuffer line = null;
+		for (Iterator<IPath> it = destinationPaths.iterator(); it.hasNext();) {
+			String path = RSEHelper.quote(it.next().removeTrailingSeparator().toString());
+			if (line != null && line.length() + path.length() + 1 > MAX_COMMAND_LINE) {
+				script.append('\n').append(line).append(" || rc=1"); //$NON-NLS-1$
+				line = null;
+			}
+			if (line == null)
+				line = new StringBuffer("rm -rf --"); //$NON-NLS-1$
+			line.append(' ').append(path);
+		}
+		script.append('\n').append(line).append(" || rc=1"); //$NON-NLS-1$
+		script.append("\ntest $rc -eq 0"); //$NON-NLS-1$
+
+		RemoteCommandResult result = RSEHelper.runRemoteCommand(_host, script.toString(), monitor);
+		for (Iterator<IPath> it = destinationPaths.iterator(); it.hasNext();)
+			_statCache.invalidate(it.next().toString());
+		return result.isOK();
+	}
+
 	/**
 	 *  Writes the passed resource to the specified location recursively
 	 * @throws SystemMessageException TODO
@@ -83,7 +208,7 @@ class DirectDebugRemoteExporter {
 	 * @throws SystemMessageException TODO
 	 */
 	protected void writeFile(IFile file, IPath destinationPath) throws IOException, CoreException, SystemMessageException {
-		IRemoteFileSubSystem rfss = RemoteFileUtility.getFileSubSystem(_host);
+		IRemoteFileSubSystem rfss = DirectRemoteConnectionPool.getFileSubSystem(_host);
 		String dest = destinationPath.toString();
 		char sep = rfss.getSeparatorChar();
 		if (sep != '/')
@@ -92,13 +217,21 @@ class DirectDebugRemoteExporter {
 			dest = dest.replace('/', sep);
 		}
 		String localEncoding = file.getCharset();
-		String hostEncoding = Utilities.getIRemoteFile(_host, dest).getEncoding();
+		// a new file gets the default encoding of the host
+		IRemoteFile target = _statCache.getFile(destinationPath.toString());
+		String hostEncoding = target != null ? target.getEncoding() : rfss.getRemoteEncoding();
+		// whatever happens, the cached metadata of the destination is outdated
+		_statCache.invalidate(destinationPath.toString());
 		IPath location = file.getLocation();
-		if (location != null){
+		if (location != null && isCompressible(location.toFile(), localEncoding, hostEncoding)
+				&& writeCompressed(rfss, location.toFile(), destinationPath)) {
+			return;
+		}
+		if (location != null && !_binary){
 			rfss.upload(location.makeAbsolute().toOSString(), localEncoding, dest, hostEncoding, new NullProgressMonitor()); //$NON-NLS-1$
 		}
 		else {
-			// an EFS file
+			// an EFS file, or the bytes are to be sent as they are
 			int lastSep = dest.lastIndexOf(sep);
 			String remoteParent = dest.substring(0, lastSep);
 			String remoteFile = dest.substring(lastSep +1);
@@ -107,20 +240,7 @@ class DirectDebugRemoteExporter {
 			
 			InputStream instream = file.getContents();
 			try {
-				int length = 1000;
-				byte[] buffer = new byte[length];
-				
-				int bytesRead = 0;
-				boolean done = false;
-				while (!done){
-					bytesRead = instream.read(buffer, 0, length);	
-					if (bytesRead > 0){
-						outstream.write(buffer, 0, bytesRead);
-					}
-					if (bytesRead == -1){
-						done = true;
-					}
-				}
+				DirectDebugBufferPool.copy(instream, outstream);
 			}
 			finally {
 				instream.close();
@@ -129,6 +249,51 @@ class DirectDebugRemoteExporter {
 		}
 	}
 
+	/**
+	 *  Answer whether the passed local file is uploaded compressed. The compressed
+	 *  contents are transferred verbatim, so the encodings have to agree.
+	 */
+	protected boolean isCompressible(File localFile, String localEncoding, String hostEncoding) {
+		return _compression != IDirectRemoteConnectionConfigurationConstants.SYNC_COMPRESSION_NONE
+				&& RSEHelper.isPosixHost(_host) && !hostsWithoutGzip.contains(_host)
+				&& localFile.length() >= MIN_COMPRESSED_UPLOAD
+				&& !DirectDebugCompression.isCompressed(localFile.getName())
+				&& (_binary || localEncoding != null && localEncoding.equals(hostEncoding));
+	}
+
+	/**
+	 *  Upload the passed file gzip compressed next to its destination and
+	 *  decompress it there with the remote shell.
+	 *
+	 *  @return false if the file could not be written this way; it should be uploaded as is then
+	 */
+	protected boolean writeCompressed(IRemoteFileSubSystem rfss, File localFile, IPath destinationPath) {
+		String remoteParent = destinationPath.removeLastSegments(1).toString();
+		String name = destinationPath.lastSegment();
+		String compressedName = COMPRESSED_PREFIX + System.currentTimeMillis() + '-' + name + ".gz"; //$NON-NLS-1$
+		try {
+			OutputStream outstream = DirectDebugCompression.newGzipStream(
+					rfss.getOutputStream(remoteParent, compressedName, IFileService.NONE, new NullProgressMonitor()),
+					_compression, BUFFER_SIZE);
+			try {
+				DirectDebugBufferPool.copy(localFile, outstream);
+			} finally {
+				outstream.close();
+			}
+			String compressed = RSEHelper.quote(compressedName);
+			String command = "cd " + RSEHelper.quote(remoteParent) //$NON-NLS-1$
+					+ " && gzip -dc " + compressed + " > " + RSEHelper.quote(name) //$NON-NLS-1$ //$NON-NLS-2$
+					+ "; rc=$?; rm -f " + compressed + "; (exit $rc)"; //$NON-NLS-1$ //$NON-NLS-2$
+			RemoteCommandResult result = RSEHelper.runRemoteCommand(_host, command, new NullProgressMonitor());
+			if (result.getExitCode() == COMMAND_NOT_FOUND)
+				hostsWithoutGzip.add(_host);
+			return result.isOK();
+		} catch (Exception e) {
+			SystemBasePlugin.logError("Could not upload " + destinationPath + " compressed, uploading it as is", e); //$NON-NLS-1$ //$NON-NLS-2$
+			return false;
+		}
+	}
+
 	/**
 	 *  Writes the passed resource to the specified location recursively
 	 * @throws SystemMessageException TODO
@@ -34,6 +34,7 @@ import org.eclipse.rse.ui.SystemBasePlugin;
  */
 public class DirectDebugRemoteFileExportActionDelegate extends RemoteFileImportExportActionDelegate {
 	private IProgressMonitor monitor = null;
+	private DirectDebugSyncOptions syncOptions = null;
 
 	public IProgressMonitor getMonitor() {
 		return this.monitor;
@@ -43,6 +44,14 @@ public class DirectDebugRemoteFileExportActionDelegate extends RemoteFileImportE
 		this.monitor = monitor;
 	}
 
+	public DirectDebugSyncOptions getSyncOptions() {
+		return this.syncOptions;
+	}
+
+	public void setSyncOptions(DirectDebugSyncOptions syncOptions) {
+		this.syncOptions = syncOptions;
+	}
+
 	/**
 	 * @see org.eclipse.ui.IActionDelegate#run(org.eclipse.jface.action.IAction)
 	 */
@@ -151,6 +160,7 @@ public class DirectDebugRemoteFileExportActionDelegate extends RemoteFileImportE
 
 				DirectDebugRemoteFileExportOperation op = new DirectDebugRemoteFileExportOperation(exportDatas[i],
 						new RemoteFileOverwriteQuery());
+				op.setSyncOptions(this.syncOptions);
 				
 				Boolean isSuccess = true;
 				try{
@@ -19,19 +19,28 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspaceRoot;
+import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubProgressMonitor;
 import org.eclipse.jface.operation.IRunnableWithProgress;
 import org.eclipse.jface.operation.ModalContext;
 import org.eclipse.osgi.util.NLS;
@@ -59,6 +68,9 @@ import org.eclipse.ui.dialogs.IOverwriteQuery;
  *	Operation for exporting the contents of a resource to the local file system.
  */
 class DirectDebugRemoteFileExportOperation implements IRunnableWithProgress {
+	// written to the export root by every synchronization which records its journal position
+	private static final String SYNC_STATE_FILE = ".rexp-sync-state"; //$NON-NLS-1$
+
 	private IHost conn;
 	private IPath path;
 	private IProgressMonitor monitor;
@@ -66,7 +78,8 @@ class DirectDebugRemoteFileExportOperation implements IRunnableWithProgress {
 	private List resourcesToExport;
 	private IOverwriteQuery overwriteCallback;
 	private IResource resource;
-	private List errorTable = new ArrayList(1);
+	// filled concurrently by the upload workers
+	private List errorTable = Collections.synchronizedList(new ArrayList(1));
 	private RemoteFileExportData exportData;
 	private boolean saveSettings;
 	private String descriptionFilePath;
@@ -80,6 +93,42 @@ class DirectDebugRemoteFileExportOperation implements IRunnableWithProgress {
 	private int overwriteState = OVERWRITE_NOT_SET;
 	private boolean createLeadupStructure = true;
 	private boolean createContainerDirectories = true;
+	private DirectDebugSyncOptions syncOptions = new DirectDebugSyncOptions();
+	private DirectDebugRemoteUploadPool uploadPool;
+	private DirectDebugRemoteStatCache statCache;
+	// the remote directory all exported paths are below
+	private IPath exportRoot;
+	// the transfer of these waits until it is known whether an archive is used,
+	// or until the folders they go to are created
+	private List<IPath> deferredFolders = new ArrayList<IPath>();
+	private List<DeferredUpload> deferredUploads = new ArrayList<DeferredUpload>();
+	private DirectDebugSyncManifest manifest;
+	// content digests of the local files, only used when changes are detected by content
+	private boolean compareContents;
+	private List<DeferredUpload> contentCandidates = new ArrayList<DeferredUpload>();
+	private Map<IFile, String> localDigests = new ConcurrentHashMap<IFile, String>();
+	// the changed resources visited by an incremental synchronization
+	private List<IPath> visitedChanges = new ArrayList<IPath>();
+	// remote copies of resources deleted in the workspace, removed once the transfers are done
+	private List<IPath> remoteRemovals = new ArrayList<IPath>();
+	// spans of the launch running this export, if any
+	private DirectRemoteLaunchTimeline timeline;
+	private DirectRemoteLaunchTimeline.Span exportSpan;
+
+	/**
+	 * A file which is to be checked or exported once the export walk has completed.
+	 */
+	private static class DeferredUpload {
+		final IFile file;
+		final IPath fullPath;
+		final String destination;
+
+		DeferredUpload(IFile file, IPath fullPath, String destination) {
+			this.file = file;
+			this.fullPath = fullPath;
+			this.destination = destination;
+		}
+	}
 
 	/**
 	 *  Create an instance of this class.  Use this constructor if you wish to
@@ -144,6 +193,23 @@ class DirectDebugRemoteFileExportOperation implements IRunnableWithProgress {
 		return result;
 	}
 
+	/**
+	 *	Answer the number of file resources an incremental synchronization of
+	 *	the passed changes visits, changed containers with all their files
+	 *
+	 *	@return int
+	 */
+	protected int countChangedResources(List<IPath> changedResources) throws CoreException {
+		IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
+		int result = 0;
+		for (Iterator<IPath> changes = changedResources.iterator(); changes.hasNext();) {
+			IResource changed = root.findMember(changes.next());
+			if (changed != null)
+				result += countChildrenOf(changed);
+		}
+		return result;
+	}
+
 	/**
 	 *  Create the directories required for exporting the passed resource,
 	 *  based upon its container hierarchy
@@ -154,7 +220,7 @@ class DirectDebugRemoteFileExportOperation implements IRunnableWithProgress {
 		IPath resourcePath = resource.getFullPath().removeLastSegments(1);
 		for (int i = 0; i < resourcePath.segmentCount(); i++) {
 			path = path.append(resourcePath.segment(i));
-			exporter.createFolder(path);
+			requireFolder(path);
 		}
 	}
 
@@ -190,12 +256,7 @@ class DirectDebugRemoteFileExportOperation implements IRunnableWithProgress {
 				exportFile((IFile) child, currentPath);
 			else {
 				IPath destination = currentPath.append(child.getName());
-				try {
-					exporter.createFolder(destination);
-				} catch (Exception e) {
-					String msg = NLS.bind(RemoteImportExportResources.FILEMSG_EXPORT_ERROR, destination,  e.getLocalizedMessage() == null ? e.toString() : e.getMessage());
-					errorTable.add(new Status(IStatus.ERROR, RemoteImportExportPlugin.getDefault().getBundle().getSymbolicName(), 0, msg, e));
-				}
+				requireFolder(destination);
 				try {
 					exportChildren(((IContainer) child).members(), destination);
 				} catch (CoreException e) {
@@ -211,6 +272,63 @@ class DirectDebugRemoteFileExportOperation implements IRunnableWithProgress {
 		}
 	}
 
+	/**
+	 *  Make sure the passed remote directory exists before files are written into it.
+	 *  The directories not known to exist are created together once the export walk
+	 *  has completed.
+	 *
+	 *  @param destination org.eclipse.core.runtime.IPath
+	 */
+	protected void requireFolder(IPath destination) {
+		if (!isKnownFolder(destination))
+			deferredFolders.add(destination);
+	}
+
+	/**
+	 *  Answer whether the passed remote directory is known to exist from what
+	 *  has been listed so far, without asking the remote host
+	 */
+	private boolean isKnownFolder(IPath destination) {
+		return statCache != null && statCache.isKnownFolder(destination.toString());
+	}
+
+	/**
+	 *  Create the folders collected during the export walk, in one batch if the
+	 *  host allows it, otherwise one by one
+	 */
+	protected void createDeferredFolders() throws InterruptedException {
+		if (deferredFolders.isEmpty()) {
+			return;
+		}
+		try {
+			if (exporter.createFolders(deferredFolders, new SubProgressMonitor(monitor, 0))) {
+				return;
+			}
+		} catch (OperationCanceledException e) {
+			throw new InterruptedException();
+		} catch (Exception e) {
+			SystemBasePlugin.logError("Could not create the remote folders at once, creating them one by one", e); //$NON-NLS-1$
+		}
+		for (Iterator<IPath> folders = deferredFolders.iterator(); folders.hasNext();) {
+			createFolder(folders.next());
+			ModalContext.checkCanceled(monitor);
+		}
+	}
+
+	/**
+	 *  Create the passed remote directory, reporting failures in the error table
+	 *
+	 *  @param destination org.eclipse.core.runtime.IPath
+	 */
+	protected void createFolder(IPath destination) {
+		try {
+			exporter.createFolder(destination);
+		} catch (Exception e) {
+			String msg = NLS.bind(RemoteImportExportResources.FILEMSG_EXPORT_ERROR, destination,  e.getLocalizedMessage() == null ? e.toString() : e.getMessage());
+			errorTable.add(new Status(IStatus.ERROR, RemoteImportExportPlugin.getDefault().getBundle().getSymbolicName(), 0, msg, e));
+		}
+	}
+
 	/**
 	 *  Export the passed file to the specified location
 	 *
@@ -219,6 +337,34 @@ class DirectDebugRemoteFileExportOperation implements IRunnableWithProgress {
 	 */
 	protected void exportFile(IFile file, IPath location) throws InterruptedException {
 		IPath fullPath = location.append(file.getName());
+		if (compareContents) {
+			// compared with the remote copy once the export walk has completed
+			contentCandidates.add(new DeferredUpload(file, fullPath, fullPath.toString()));
+			return;
+		}
+		exportFileChecked(file, fullPath);
+	}
+
+	/**
+	 *  Export the passed file to the specified remote path, unless it is up to date
+	 *  or must not be overwritten
+	 *
+	 *  @param file org.eclipse.core.resources.IFile
+	 *  @param fullPath org.eclipse.core.runtime.IPath
+	 */
+	protected void exportFileChecked(IFile file, IPath fullPath) throws InterruptedException {
+		exportFileChecked(file, fullPath, false);
+	}
+
+	/**
+	 *  Export the passed file to the specified remote path, unless it must not be
+	 *  overwritten, or it is up to date and not known to differ
+	 *
+	 *  @param file org.eclipse.core.resources.IFile
+	 *  @param fullPath org.eclipse.core.runtime.IPath
+	 *  @param differs whether the remote copy is known to differ, so the modification stamp is not asked
+	 */
+	protected void exportFileChecked(IFile file, IPath fullPath, boolean differs) throws InterruptedException {
 		String destination = fullPath.toString();
 		// flag to indicate whether export is required
 		boolean exportRequired = false;
@@ -229,7 +375,10 @@ class DirectDebugRemoteFileExportOperation implements IRunnableWithProgress {
 			targetFile = new File(properPathString);
 		} else {
 			try {
-				targetFile = new DirectDebugUniFilePlus(Utilities.getIRemoteFile(conn, fullPath.toString()));
+				// answered from the listing of the parent directory, null if there is no such file
+				IRemoteFile remoteFile = statCache.getFile(destination);
+				if (remoteFile != null)
+					targetFile = new DirectDebugUniFilePlus(remoteFile, statCache);
 			} catch (NullPointerException e) {
 				String msg = NLS.bind(RemoteImportExportResources.FILEMSG_EXPORT_ERROR, fullPath, RemoteImportExportResources.MSG_IMPORT_EXPORT_UNABLE_TO_USE_CONNECTION);
 				
@@ -238,8 +387,8 @@ class DirectDebugRemoteFileExportOperation implements IRunnableWithProgress {
 				throw e;
 			}
 		}
-		if (targetFile.exists()) {
-			exportRequired = isExportRequired(file, destination);
+		if (targetFile != null && targetFile.exists()) {
+			exportRequired = differs || isExportRequired(file, destination);
 			// if export is not required, no need to do anything
 			if (!exportRequired) {
 				return;
@@ -267,20 +416,233 @@ class DirectDebugRemoteFileExportOperation implements IRunnableWithProgress {
 					overwriteState = OVERWRITE_ALL;
 				}
 			}
-		} else if (!targetFile.exists()) {
+		} else {
 			// need to do an export if target file does not exist, even if the local
 			// file has not changed. This is for the scenario where a file may have been
 			// exported, and the server copy was later deleted. The next export should put
 			// the local copy back on the server, even if the local file was not changed.
 			exportRequired = true;
 		}
+		queueUpload(file, fullPath, destination);
+	}
+
+	/**
+	 *  Transfer the passed file right away if the folder it goes to is known to
+	 *  exist, so uploads overlap the export walk. Otherwise it waits until the
+	 *  export walk has completed and the folders are in place; unless an archive
+	 *  is always used, then every file waits for it.
+	 */
+	protected void queueUpload(IFile file, IPath fullPath, String destination) throws InterruptedException {
+		if (syncOptions.getArchiveMode() != IDirectRemoteConnectionConfigurationConstants.SYNC_ARCHIVE_ALWAYS
+				&& isKnownFolder(fullPath.removeLastSegments(1))) {
+			submitUpload(file, fullPath, destination);
+			return;
+		}
+		deferredUploads.add(new DeferredUpload(file, fullPath, destination));
+	}
+
+	/**
+	 *  Compare the files collected during the export walk with their remote copies
+	 *  by content digest, using one remote command for all of them. Files whose
+	 *  remote copy has the same content are not exported again, even if their
+	 *  modification stamp changed. If the remote host cannot compute digests,
+	 *  every file is checked by its modification stamp.
+	 */
+	protected void checkContentDigests() throws InterruptedException {
+		if (contentCandidates.isEmpty()) {
+			return;
+		}
+		List<String> paths = new ArrayList<String>(contentCandidates.size());
+		for (Iterator<DeferredUpload> candidates = contentCandidates.iterator(); candidates.hasNext();) {
+			DeferredUpload candidate = candidates.next();
+			monitor.subTask(candidate.file.getFullPath().toString());
+			String relativePath = getRelativePath(candidate.fullPath);
+			long stamp = candidate.file.getModificationStamp();
+			String digest = manifest.getDigest(relativePath, stamp);
+			if (digest == null) {
+				try {
+					digest = DirectDebugSyncManifest.computeDigest(candidate.file);
+					manifest.put(relativePath, stamp, digest);
+				} catch (Exception e) {
+					// not readable now, the export reports the problem
+				}
+			}
+			if (digest != null) {
+				localDigests.put(candidate.file, digest);
+			}
+			paths.add(relativePath);
+			ModalContext.checkCanceled(monitor);
+		}
+
+		Map<String, String> remoteDigests = null;
+		try {
+			remoteDigests = DirectDebugRemoteDigests.fetch(conn, exportRoot, paths, new SubProgressMonitor(monitor, 0));
+		} catch (OperationCanceledException e) {
+			throw new InterruptedException();
+		} catch (Exception e) {
+			SystemBasePlugin.logError("Could not compute the digests of the remote files", e); //$NON-NLS-1$
+		}
+
+		for (Iterator<DeferredUpload> candidates = contentCandidates.iterator(); candidates.hasNext();) {
+			DeferredUpload candidate = candidates.next();
+			if (remoteDigests == null) {
+				exportFileChecked(candidate.file, candidate.fullPath);
+				continue;
+			}
+			String remoteDigest = remoteDigests.get(getRelativePath(candidate.fullPath));
+			if (remoteDigest == null) {
+				// the remote copy does not exist
+				queueUpload(candidate.file, candidate.fullPath, candidate.destination);
+			} else if (remoteDigest.equals(localDigests.get(candidate.file))) {
+				// same content, whatever the modification stamps say
+				recordExport(candidate.file, candidate.destination);
+				monitor.worked(1);
+			} else {
+				// the contents differ, even if the remote copy was changed behind our back
+				exportFileChecked(candidate.file, candidate.fullPath, true);
+			}
+			ModalContext.checkCanceled(monitor);
+		}
+		contentCandidates.clear();
+	}
+
+	/**
+	 *  Answer the path of an exported file relative to the export root
+	 */
+	protected String getRelativePath(IPath fullPath) {
+		return fullPath.removeFirstSegments(exportRoot.segmentCount()).makeRelative().toString();
+	}
+
+	/**
+	 *  Hand the passed file to the upload pool. Progress is reported as uploads complete.
+	 */
+	protected void submitUpload(final IFile file, final IPath fullPath, final String destination) throws InterruptedException {
+		uploadPool.submit(new Runnable() {
+			public void run() {
+				uploadFile(file, fullPath, destination);
+			}
+		});
+		ModalContext.checkCanceled(monitor);
+	}
+
+	/**
+	 *  Transfer the folders and files collected during the export walk, either as
+	 *  one archive or file by file
+	 */
+	protected void transferDeferredUploads() throws InterruptedException {
+		if (deferredUploads.isEmpty() && deferredFolders.isEmpty()) {
+			return;
+		}
+		// large files which exist remotely are patched, they are not worth an archive entry
+		List<DeferredUpload> deltaUploads = new ArrayList<DeferredUpload>();
+		if (syncOptions.getDeltaThreshold() > 0) {
+			for (Iterator<DeferredUpload> uploads = deferredUploads.iterator(); uploads.hasNext();) {
+				DeferredUpload upload = uploads.next();
+				if (getDeltaTarget(upload.file, upload.destination) != null) {
+					deltaUploads.add(upload);
+					uploads.remove();
+				}
+			}
+		}
+		int archiveMode = syncOptions.getArchiveMode();
+		boolean useArchive = archiveMode == IDirectRemoteConnectionConfigurationConstants.SYNC_ARCHIVE_ALWAYS
+				|| (archiveMode == IDirectRemoteConnectionConfigurationConstants.SYNC_ARCHIVE_AUTO
+						&& deferredUploads.size() >= syncOptions.getArchiveThreshold());
+		if (!useArchive || !DirectDebugRemoteArchiveExporter.isSupported(conn) || !exportArchive()) {
+			// the archive is not used or could not be unpacked, fall back to single transfers
+			createDeferredFolders();
+			for (Iterator<DeferredUpload> uploads = deferredUploads.iterator(); uploads.hasNext();) {
+				DeferredUpload upload = uploads.next();
+				submitUpload(upload.file, upload.fullPath, upload.destination);
+			}
+		}
+		for (Iterator<DeferredUpload> uploads = deltaUploads.iterator(); uploads.hasNext();) {
+			DeferredUpload upload = uploads.next();
+			submitUpload(upload.file, upload.fullPath, upload.destination);
+		}
+		deferredFolders.clear();
+		deferredUploads.clear();
+	}
+
+	/**
+	 *  Stream the collected folders and files as a single archive and unpack it remotely.
+	 *
+	 *  @return whether the archive has been unpacked successfully
+	 */
+	protected boolean exportArchive() throws InterruptedException {
+		int compression = syncOptions.getCompression();
+		if (isMostlyCompressed(deferredUploads)) {
+			compression = IDirectRemoteConnectionConfigurationConstants.SYNC_COMPRESSION_NONE;
+		}
+		DirectDebugRemoteArchiveExporter archive = new DirectDebugRemoteArchiveExporter(conn, exportRoot, compression);
+		try {
+			archive.open(new SubProgressMonitor(monitor, 0));
+			for (Iterator<IPath> folders = deferredFolders.iterator(); folders.hasNext();) {
+				IPath folder = folders.next();
+				if (exportRoot.isPrefixOf(folder) && !exportRoot.equals(folder)) {
+					archive.addFolder(folder);
+				}
+			}
+			for (Iterator<DeferredUpload> uploads = deferredUploads.iterator(); uploads.hasNext();) {
+				DeferredUpload upload = uploads.next();
+				monitor.subTask(upload.file.getFullPath().toString());
+				archive.addFile(upload.file, upload.fullPath);
+				ModalContext.checkCanceled(monitor);
+			}
+			archive.finish(new SubProgressMonitor(monitor, 0));
+			// only now, the files are uploaded one by one again if the archive fails
+			monitor.worked(deferredUploads.size());
+		} catch (InterruptedException e) {
+			archive.abort();
+			throw e;
+		} catch (Exception e) {
+			SystemBasePlugin.logError("Could not export the files as archive, exporting them one by one", e); //$NON-NLS-1$
+			archive.abort();
+			return false;
+		}
+		for (Iterator<DeferredUpload> uploads = deferredUploads.iterator(); uploads.hasNext();) {
+			DeferredUpload upload = uploads.next();
+			recordExport(upload.file, upload.destination);
+		}
+		return true;
+	}
+
+	/**
+	 *  Answer whether most of the bytes of the passed uploads are in files which
+	 *  are compressed already, so compressing the archive is not worth the time
+	 */
+	private static boolean isMostlyCompressed(List<DeferredUpload> uploads) {
+		long total = 0;
+		long compressed = 0;
+		for (Iterator<DeferredUpload> it = uploads.iterator(); it.hasNext();) {
+			IFile file = it.next().file;
+			IPath location = file.getLocation();
+			long length = location != null ? location.toFile().length() : 0;
+			total += length;
+			if (DirectDebugCompression.isCompressed(file.getName())) {
+				compressed += length;
+			}
+		}
+		return total > 0 && compressed * 2 > total;
+	}
+
+	/**
+	 *  Write the passed file to the specified remote location and remember its
+	 *  modification stamp. Large files are patched by a delta where possible.
+	 *  Runs on an upload worker thread, so failures are only recorded in the
+	 *  error table.
+	 *
+	 *  @param file org.eclipse.core.resources.IFile
+	 *  @param fullPath org.eclipse.core.runtime.IPath
+	 *  @param destination the remote path as string
+	 */
+	protected void uploadFile(IFile file, IPath fullPath, String destination) {
+		DirectRemoteLaunchTimeline.Span span = timeline.begin("upload", destination, exportSpan); //$NON-NLS-1$
 		try {
-			exporter.write(file, fullPath);
+			if (!transferDelta(file, destination))
+				exporter.write(file, fullPath);
 			// if there are no exceptions, we should be here and the export should have completed fine
-			// so we update the modification time at the time of export
-			SystemIFileProperties props = new SystemIFileProperties(file);
-			long modTime = file.getModificationStamp();
-			props.setModificationStampAtExport(conn.getHostName(), destination, modTime);
+			recordExport(file, destination);
 		} catch (IOException e) {
 			String msg = NLS.bind(RemoteImportExportResources.FILEMSG_EXPORT_ERROR, fullPath, e.getLocalizedMessage());
 			errorTable.add(new Status(IStatus.ERROR, PlatformUI.PLUGIN_ID, 0, msg, e));
@@ -296,9 +658,65 @@ class DirectDebugRemoteFileExportOperation implements IRunnableWithProgress {
 		} catch (Exception e) {
 			String msg = NLS.bind(RemoteImportExportResources.FILEMSG_EXPORT_ERROR, fullPath, e.getLocalizedMessage());
 			errorTable.add(new Status(IStatus.ERROR, PlatformUI.PLUGIN_ID, 0, msg, e));
+		} finally {
+			span.end();
 		}
-		monitor.worked(1);
-		ModalContext.checkCanceled(monitor);
+	}
+
+	/**
+	 *  Answer the remote copy of a file if it is large enough to be updated by a
+	 *  delta, or null if the whole file should be uploaded
+	 */
+	protected IRemoteFile getDeltaTarget(IFile file, String destination) {
+		long threshold = syncOptions.getDeltaThreshold();
+		if (threshold <= 0 || file.getLocation() == null || !RSEHelper.isPosixHost(conn)
+				|| file.getLocation().toFile().length() < threshold) {
+			return null;
+		}
+		IRemoteFile remoteFile = statCache.getFile(destination);
+		if (remoteFile == null || !remoteFile.isFile() || remoteFile.getLength() < threshold) {
+			return null;
+		}
+		try {
+			// the delta carries the local bytes, which is only right without an encoding conversion
+			if (!compareContents && !file.getCharset().equals(remoteFile.getEncoding())) {
+				return null;
+			}
+		} catch (CoreException e) {
+			return null;
+		}
+		return remoteFile;
+	}
+
+	/**
+	 *  Update the remote copy of the passed file by sending only the changed blocks
+	 *
+	 *  @return whether the file has been updated; if not, the whole file has to be uploaded
+	 */
+	protected boolean transferDelta(IFile file, String destination) {
+		IRemoteFile remoteFile = getDeltaTarget(file, destination);
+		if (remoteFile == null) {
+			return false;
+		}
+		try {
+			return DirectDebugDeltaTransfer.transfer(conn, file, new Path(destination), remoteFile.getLength(),
+					new NullProgressMonitor());
+		} catch (Exception e) {
+			SystemBasePlugin.logError("Could not transfer a delta of " + destination + ", uploading the whole file", e); //$NON-NLS-1$ //$NON-NLS-2$
+			return false;
+		} finally {
+			statCache.invalidate(destination);
+		}
+	}
+
+	/**
+	 *  Remember the modification time of a file at the time it was exported, so
+	 *  that it is not exported again until it changes
+	 */
+	protected void recordExport(IFile file, String destination) {
+		SystemIFileProperties props = new SystemIFileProperties(file);
+		long modTime = file.getModificationStamp();
+		props.setModificationStampAtExport(conn.getHostName(), destination, modTime);
 	}
 
 	protected boolean isExportRequired(IFile file, String destinationPath) {
@@ -353,7 +771,7 @@ class DirectDebugRemoteFileExportOperation implements IRunnableWithProgress {
 				IPath containersToCreate = currentResource.getFullPath().removeFirstSegments(resource.getFullPath().segmentCount()).removeLastSegments(1);
 				for (int i = 0; i < containersToCreate.segmentCount(); i++) {
 					path = path.append(containersToCreate.segment(i));
-					exporter.createFolder(path);
+					requireFolder(path);
 				}
 			}
 			if (currentResource.getType() == IResource.FILE)
@@ -361,7 +779,7 @@ class DirectDebugRemoteFileExportOperation implements IRunnableWithProgress {
 			else {
 				if (createContainerDirectories) {
 					path = path.append(currentResource.getName());
-					exporter.createFolder(path);
+					requireFolder(path);
 				}
 				try {
 					exportChildren(((IContainer) currentResource).members(), path);
@@ -374,6 +792,209 @@ class DirectDebugRemoteFileExportOperation implements IRunnableWithProgress {
 		}
 	}
 
+	/**
+	 *	Export only the resources which changed since the last successful
+	 *	synchronization, as recorded by the change journal. A changed container
+	 *	is exported with its whole subtree. The remote copies of deleted
+	 *	resources are removed once the transfers are done.
+	 *
+	 *	@param changedResources the full paths of the changed resources
+	 */
+	protected void exportChangedResources(List<IPath> changedResources) throws InterruptedException {
+		// containers come before their members, which are then already covered
+		Collections.sort(changedResources, new Comparator<IPath>() {
+
+			public int compare(IPath first, IPath second) {
+				return first.segmentCount() - second.segmentCount();
+			}
+		});
+		IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
+		for (Iterator<IPath> changes = changedResources.iterator(); changes.hasNext();) {
+			IPath changedPath = changes.next();
+			if (isCovered(visitedChanges, changedPath)) continue;
+			IResource changed = root.findMember(changedPath);
+			if (changed == null) {
+				// deleted or moved away, its members with it
+				if (collectRemoval(changedPath))
+					visitedChanges.add(changedPath);
+				continue;
+			}
+			if (!changed.isAccessible()) continue;
+			IResource exported = findExportedResource(changedPath);
+			if (exported == null) continue;
+			IPath destination = getDestination(exported, changedPath);
+			visitedChanges.add(changedPath);
+			if (changed.getType() == IResource.FILE)
+				exportFile((IFile) changed, destination.removeLastSegments(1));
+			else {
+				requireFolder(destination);
+				try {
+					exportChildren(((IContainer) changed).members(), destination);
+				} catch (CoreException e) {
+					errorTable.add(e.getStatus());
+				}
+			}
+		}
+	}
+
+	private static boolean isCovered(List<IPath> containers, IPath path) {
+		for (Iterator<IPath> it = containers.iterator(); it.hasNext();) {
+			if (it.next().isPrefixOf(path)) return true;
+		}
+		return false;
+	}
+
+	/**
+	 *  Remember to remove the remote copy of a resource which no longer exists
+	 *  in the workspace. Nothing is removed unless the resource selected for
+	 *  export which contained it is still there, so a closed or deleted project
+	 *  does not empty the remote workspace.
+	 *
+	 *  @return whether the remote copy is to be removed
+	 */
+	protected boolean collectRemoval(IPath removedPath) {
+		IResource exported = findExportedResource(removedPath);
+		if (exported == null || exported.getFullPath().equals(removedPath))
+			return false;
+		IPath destination = getDestination(exported, removedPath);
+		if (!exportRoot.isPrefixOf(destination) || destination.segmentCount() <= exportRoot.segmentCount())
+			return false;
+		remoteRemovals.add(destination);
+		return true;
+	}
+
+	/**
+	 *  Remember to remove the remote copies of the resources among the passed
+	 *  changes which no longer exist, for a synchronization which walks all
+	 *  resources instead of only the changed ones
+	 */
+	protected void collectRemovals(List<IPath> changedResources) {
+		IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
+		for (Iterator<IPath> changes = changedResources.iterator(); changes.hasNext();) {
+			IPath changedPath = changes.next();
+			if (root.findMember(changedPath) == null)
+				collectRemoval(changedPath);
+		}
+	}
+
+	/**
+	 *  Remove the remote copies of the resources deleted in the workspace
+	 */
+	protected void removeDeletedResources() throws InterruptedException {
+		if (remoteRemovals.isEmpty()) {
+			return;
+		}
+		try {
+			if (!exporter.deleteFiles(remoteRemovals, new SubProgressMonitor(monitor, 0))) {
+				String msg = NLS.bind(Messages.DirectDebugRemoteFileExportOperation_0, remoteRemovals);
+				errorTable.add(new Status(IStatus.ERROR, Activator.PLUGIN_ID, 0, msg, null));
+			}
+		} catch (OperationCanceledException e) {
+			throw new InterruptedException();
+		} catch (Exception e) {
+			String msg = NLS.bind(Messages.DirectDebugRemoteFileExportOperation_0, e.getLocalizedMessage());
+			errorTable.add(new Status(IStatus.ERROR, Activator.PLUGIN_ID, 0, msg, e));
+		}
+		remoteRemovals.clear();
+	}
+
+	/**
+	 *  Answer whether the token on the remote host is the one the last
+	 *  synchronization of this selection left. Otherwise something else wrote
+	 *  to the destination since and only a complete synchronization can tell
+	 *  what changed.
+	 *
+	 *  @param expectedToken the token recorded by the last synchronization, or null
+	 *  @return whether only the changed resources have to be visited
+	 */
+	protected boolean hasRemoteToken(String expectedToken) throws InterruptedException {
+		if (expectedToken == null || !RSEHelper.isPosixHost(conn)) {
+			return false;
+		}
+		String command = "cat " + RSEHelper.quote(exportRoot.append(SYNC_STATE_FILE).toString()); //$NON-NLS-1$
+		RemoteCommandResult result;
+		try {
+			result = RSEHelper.runRemoteCommand(conn, command, new SubProgressMonitor(monitor, 0));
+		} catch (OperationCanceledException e) {
+			throw new InterruptedException();
+		} catch (Exception e) {
+			SystemBasePlugin.logError("Could not read the synchronization token, synchronizing all resources", e); //$NON-NLS-1$
+			return false;
+		}
+		List<String> output = result.getOutput();
+		return result.isOK() && !output.isEmpty() && expectedToken.equals(output.get(0).trim());
+	}
+
+	/**
+	 *  Leave a new token on the remote host, which the next synchronization of
+	 *  this selection expects to find there
+	 *
+	 *  @return the token, or null if it could not be written
+	 */
+	protected String writeRemoteToken() throws InterruptedException {
+		if (!RSEHelper.isPosixHost(conn)) {
+			return null;
+		}
+		String token = Long.toString(System.currentTimeMillis(), 36) + '-' + Integer.toString(System.identityHashCode(this), 36);
+		String command = "printf %s " + token + " > " + RSEHelper.quote(exportRoot.append(SYNC_STATE_FILE).toString()); //$NON-NLS-1$ //$NON-NLS-2$
+		try {
+			if (RSEHelper.runRemoteCommand(conn, command, new SubProgressMonitor(monitor, 0)).isOK()) {
+				return token;
+			}
+		} catch (OperationCanceledException e) {
+			throw new InterruptedException();
+		} catch (Exception e) {
+			SystemBasePlugin.logError("Could not write the synchronization token", e); //$NON-NLS-1$
+		}
+		return null;
+	}
+
+	/**
+	 *  Answer the resource selected for export which contains the passed path, or null
+	 */
+	protected IResource findExportedResource(IPath childPath) {
+		Iterator resources = resourcesToExport.iterator();
+		while (resources.hasNext()) {
+			IResource exported = (IResource) resources.next();
+			if (exported.isAccessible() && exported.getFullPath().isPrefixOf(childPath))
+				return exported;
+		}
+		return null;
+	}
+
+	/**
+	 *  Answer the remote path a resource is exported to, the same way
+	 *  exportSpecifiedResources lays out the selected resources
+	 *
+	 *  @param exported the selected resource containing <code>childPath</code>
+	 *  @param childPath the full path of the resource to export
+	 */
+	protected IPath getDestination(IResource exported, IPath childPath) {
+		IPath destination = exportRoot;
+		if (createLeadupStructure)
+			destination = destination.append(exported.getFullPath().removeLastSegments(1));
+		if (exported.getType() == IResource.FILE)
+			return destination.append(exported.getName());
+		if (createContainerDirectories)
+			destination = destination.append(exported.getName());
+		return destination.append(childPath.removeFirstSegments(exported.getFullPath().segmentCount()));
+	}
+
+	/**
+	 *  Answer a description of what is exported and how, so that a change of the
+	 *  selection is noticed and followed by a complete export
+	 */
+	protected String getSelectionKey() {
+		StringBuffer key = new StringBuffer();
+		key.append(createLeadupStructure).append(',').append(createContainerDirectories);
+		if (resourcesToExport == null)
+			return key.append('\n').append(resource.getFullPath()).toString();
+		Iterator resources = resourcesToExport.iterator();
+		while (resources.hasNext())
+			key.append('\n').append(((IResource) resources.next()).getFullPath());
+		return key.toString();
+	}
+
 	/**
 	 * Returns the status of the export operation.
 	 * If there were any errors, the result is a status object containing
@@ -411,17 +1032,55 @@ class DirectDebugRemoteFileExportOperation implements IRunnableWithProgress {
 	public void run(IProgressMonitor monitor) throws InterruptedException {
 		this.monitor = monitor;
 		IPath parentPath = (IPath)path.clone();
+		exportRoot = parentPath;
+		timeline = DirectRemoteLaunchTimeline.current();
+		exportSpan = timeline.begin("export", exportRoot.toString(), null); //$NON-NLS-1$
+		if (conn != null) {
+			try {
+				// once per session; back-to-back synchronizations find the connection open
+				DirectRemoteConnectionPool.getConnectedFileSubSystem(conn, new SubProgressMonitor(monitor, 0));
+			} catch (Exception e) {
+				// the transfers which need the connection report the failure
+				SystemBasePlugin.logError("Could not connect to " + conn.getAliasName(), e); //$NON-NLS-1$
+			}
+			statCache = DirectDebugRemoteStatCache.forHost(conn);
+			statCache.evictExpired();
+			exporter.setCompression(syncOptions.getCompression());
+			manifest = DirectDebugSyncManifest.load(conn, exportRoot);
+			compareContents = syncOptions.isContentHash() && RSEHelper.isPosixHost(conn);
+			// the remote digests can only match bytes sent without an encoding conversion
+			exporter.setBinary(compareContents);
+		}
+		// position in the change journal this synchronization covers
+		DirectDebugChangeJournal journal = Activator.getDefault().getChangeJournal();
+		String journalEpoch = null;
+		long journalSequence = 0;
+		List<IPath> journalChanges = null;
+		List<IPath> changedResources = null;
+		if (journal != null && manifest != null && syncOptions.isIncremental() && resource == null && resourcesToExport != null) {
+			journalEpoch = journal.getEpoch();
+			journalSequence = journal.getSequence();
+			long lastSequence = manifest.getJournalSequence(journalEpoch, getSelectionKey());
+			if (lastSequence >= 0) {
+				journalChanges = journal.getChangesSince(lastSequence);
+				// only the changed files, unless the remote side may have changed behind our back
+				if (hasRemoteToken(manifest.getRemoteToken(getSelectionKey())))
+					changedResources = journalChanges;
+			}
+		}
 		if (resource != null) {
 			if (createLeadupStructure) createLeadupDirectoriesFor(resource);
 			if (createContainerDirectories && resource.getType() != IResource.FILE) { // ensure it's a container
 				path = path.append(resource.getName());
-				exporter.createFolder(path);
+				requireFolder(path);
 			}
 		}
 		try {
 			int totalWork = IProgressMonitor.UNKNOWN;
 			try {
-				if (resourcesToExport == null)
+				if (changedResources != null)
+					totalWork = countChangedResources(changedResources);
+				else if (resourcesToExport == null)
 					totalWork = countChildrenOf(resource);
 				else
 					totalWork = countSelectedResources();
@@ -431,10 +1090,34 @@ class DirectDebugRemoteFileExportOperation implements IRunnableWithProgress {
 			}
 			String taskMsg = SystemImportExportResources.RESID_FILEEXPORT_EXPORTING;
 			monitor.beginTask(taskMsg, totalWork);
-			if (resourcesToExport == null) {
+			uploadPool = new DirectDebugRemoteUploadPool(conn, syncOptions.getUploadStreams(), monitor);
+			DirectRemoteLaunchTimeline.Span walk = timeline.begin("export-walk", null, exportSpan); //$NON-NLS-1$
+			if (changedResources != null) {
+				exportChangedResources(changedResources);
+			} else if (resourcesToExport == null) {
 				exportAllResources();
 			} else {
 				exportSpecifiedResources();
+				if (journalChanges != null)
+					collectRemovals(journalChanges);
+			}
+			checkContentDigests();
+			if (compareContents && changedResources == null) {
+				// every file was looked at, the digests of the others belong to deleted files
+				manifest.pruneUnused();
+			}
+			walk.end();
+			DirectRemoteLaunchTimeline.Span transfer = timeline.begin("export-transfer", null, exportSpan); //$NON-NLS-1$
+			transferDeferredUploads();
+			// all uploads must have landed before the remote side is refreshed
+			uploadPool.join();
+			removeDeletedResources();
+			transfer.end();
+			if (journalEpoch != null && errorTable.isEmpty()) {
+				// the next synchronization only has to visit what changes from now on
+				String token = writeRemoteToken();
+				if (token != null)
+					manifest.setJournalSequence(journalEpoch, getSelectionKey(), journalSequence, token);
 			}
 			
 			// fire event to update RSE
@@ -455,6 +1138,19 @@ class DirectDebugRemoteFileExportOperation implements IRunnableWithProgress {
 				}
 			}
 		} finally {
+			if (uploadPool != null) {
+				uploadPool.shutdown();
+				uploadPool = null;
+			}
+			if (manifest != null) {
+				try {
+					manifest.save();
+				} catch (IOException e) {
+					SystemBasePlugin.logError("Could not save the synchronization manifest", e); //$NON-NLS-1$
+				}
+				manifest = null;
+			}
+			exportSpan.end();
 			monitor.done();
 		}
 	}
@@ -572,4 +1268,15 @@ class DirectDebugRemoteFileExportOperation implements IRunnableWithProgress {
 	public void setReviewSynchronize(boolean value) {
 		reviewSynchronize = value;
 	}
+
+	/**
+	 *	Set the options controlling how the files are transferred
+	 *
+	 *	@param options DirectDebugSyncOptions
+	 */
+	public void setSyncOptions(DirectDebugSyncOptions options) {
+		if (options != null) {
+			syncOptions = options;
+		}
+	}
 }
\ No newline at end of file
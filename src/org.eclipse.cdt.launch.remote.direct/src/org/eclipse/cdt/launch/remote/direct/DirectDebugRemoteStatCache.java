@@ -0,0 +1,224 @@
+package org.eclipse.cdt.launch.remote.direct;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.rse.core.model.IHost;
+import org.eclipse.rse.internal.importexport.files.Utilities;
+import org.eclipse.rse.services.clientserver.messages.SystemMessageException;
+import org.eclipse.rse.subsystems.files.core.subsystems.IRemoteFile;
+
+/**
+ * Caches the metadata of remote files by directory. The first lookup of a
+ * file lists its parent directory once, which answers existence, size,
+ * modification time and permissions of all of its children, instead of one
+ * round trip per file.
+ * <p>
+ * Listings expire after {@link #TIME_TO_LIVE} milliseconds. Our own writes
+ * mark the single entry they touch as stale, so the rest of the listing stays
+ * usable; a stale entry is fetched on its own when it is looked up again.
+ */
+class DirectDebugRemoteStatCache {
+	/* How long a directory listing is trusted, in milliseconds */
+	static final long TIME_TO_LIVE = 30 * 1000;
+
+	private static final Map<IHost, DirectDebugRemoteStatCache> caches = new HashMap<IHost, DirectDebugRemoteStatCache>();
+
+	private final IHost host;
+	private final Map<String, Listing> listings = new HashMap<String, Listing>();
+
+	/**
+	 * The children of one remote directory at the time it was listed.
+	 */
+	private static class Listing {
+		final long created = System.currentTimeMillis();
+		boolean exists = true;
+		// children by name; a directory that does not exist has none
+		final Map<String, IRemoteFile> children = new HashMap<String, IRemoteFile>();
+		final Set<String> stale = new HashSet<String>();
+
+		boolean isExpired(long now) {
+			return now - created > TIME_TO_LIVE;
+		}
+	}
+
+	private DirectDebugRemoteStatCache(IHost host) {
+		this.host = host;
+	}
+
+	/**
+	 * Answer the shared cache of the given connection.
+	 */
+	public static DirectDebugRemoteStatCache forHost(IHost host) {
+		synchronized (caches) {
+			DirectDebugRemoteStatCache cache = caches.get(host);
+			if (cache == null) {
+				cache = new DirectDebugRemoteStatCache(host);
+				caches.put(host, cache);
+			}
+			return cache;
+		}
+	}
+
+	/**
+	 * Answer the remote file at the given path, listing its parent directory
+	 * if it is not cached yet.
+	 *
+	 * @param path the absolute remote path
+	 * @return the remote file, or <code>null</code> if it does not exist
+	 */
+	public IRemoteFile getFile(String path) {
+		IPath filePath = toPath(path);
+		String parent = getKey(filePath.removeLastSegments(1));
+		String name = filePath.lastSegment();
+		if (name == null)
+			return fetch(path, false);
+
+		Listing listing;
+		synchronized (this) {
+			listing = listings.get(parent);
+			if (listing != null && listing.isExpired(System.currentTimeMillis())) {
+				listings.remove(parent);
+				listing = null;
+			}
+			if (listing != null && !listing.stale.contains(name))
+				return listing.children.get(name);
+		}
+
+		if (listing != null) {
+			// only this entry changed since the directory was listed
+			IRemoteFile file = fetch(path, true);
+			synchronized (this) {
+				listing.stale.remove(name);
+				if (file != null)
+					listing.children.put(name, file);
+				else
+					listing.children.remove(name);
+			}
+			return file;
+		}
+
+		listing = list(filePath.removeLastSegments(1));
+		if (listing == null)
+			return fetch(path, false);
+		synchronized (this) {
+			listings.put(parent, listing);
+		}
+		return listing.children.get(name);
+	}
+
+	/**
+	 * Answer whether the cached listings show that the given directory exists,
+	 * without asking the remote host.
+	 */
+	public synchronized boolean isKnownFolder(String path) {
+		IPath folderPath = toPath(path);
+		long now = System.currentTimeMillis();
+		Listing own = listings.get(getKey(folderPath));
+		if (own != null && own.exists && !own.isExpired(now))
+			return true;
+		String name = folderPath.lastSegment();
+		Listing listing = listings.get(getKey(folderPath.removeLastSegments(1)));
+		if (name == null || listing == null || listing.isExpired(now) || listing.stale.contains(name))
+			return false;
+		IRemoteFile folder = listing.children.get(name);
+		return folder != null && folder.isDirectory();
+	}
+
+	/**
+	 * Forget what is known about the given path, after it was written, deleted or renamed.
+	 */
+	public synchronized void invalidate(String path) {
+		IPath filePath = toPath(path);
+		String name = filePath.lastSegment();
+		Listing listing = listings.get(getKey(filePath.removeLastSegments(1)));
+		if (listing != null && name != null)
+			listing.stale.add(name);
+		listings.remove(getKey(filePath));
+	}
+
+	/**
+	 * Record that the given directory was just created, so it is known to be empty.
+	 */
+	public synchronized void folderCreated(String path) {
+		invalidate(path);
+		listings.put(getKey(toPath(path)), new Listing());
+	}
+
+	/**
+	 * Forget everything, after changes the cache cannot follow in detail.
+	 */
+	public synchronized void clear() {
+		listings.clear();
+	}
+
+	/*
+	 * List a remote directory, or answer null if that fails.
+	 */
+	private Listing list(IPath directory) {
+		try {
+			IRemoteFile folder = Utilities.getIRemoteFile(host, directory.toString());
+			if (folder == null)
+				return null;
+			Listing listing = new Listing();
+			listing.exists = folder.exists();
+			if (listing.exists) {
+				IRemoteFile[] children = folder.getParentRemoteFileSubSystem().list(folder, new NullProgressMonitor());
+				if (children == null)
+					return null;
+				for (int i = 0; i < children.length; i++)
+					listing.children.put(children[i].getName(), children[i]);
+			}
+			return listing;
+		} catch (SystemMessageException e) {
+			return null;
+		}
+	}
+
+	/*
+	 * Look up a single remote file, or answer null if it does not exist.
+	 * With refresh, what the file subsystem remembers about it is not trusted.
+	 */
+	private IRemoteFile fetch(String path, boolean refresh) {
+		IRemoteFile file = Utilities.getIRemoteFile(host, path);
+		if (file == null)
+			return null;
+		if (refresh || file.isStale()) {
+			file.markStale(true);
+			try {
+				file = file.getParentRemoteFileSubSystem().getRemoteFileObject(path, new NullProgressMonitor());
+			} catch (SystemMessageException e) {
+				// keep what we have
+			}
+		}
+		return file.exists() ? file : null;
+	}
+
+	/*
+	 * Paths of Windows hosts may come with backslashes.
+	 */
+	private static IPath toPath(String path) {
+		return new Path(path.replace('\\', '/'));
+	}
+
+	private static String getKey(IPath directory) {
+		return directory.removeTrailingSeparator().toString();
+	}
+
+	/**
+	 * Drop the listings which have expired.
+	 */
+	public synchronized void evictExpired() {
+		long now = System.currentTimeMillis();
+		for (Iterator<Listing> it = listings.values().iterator(); it.hasNext();) {
+			if (it.next().isExpired(now))
+				it.remove();
+		}
+	}
+}
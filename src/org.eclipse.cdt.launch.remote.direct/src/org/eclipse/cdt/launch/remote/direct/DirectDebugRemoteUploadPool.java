@@ -0,0 +1,111 @@
+package org.eclipse.cdt.launch.remote.direct;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.jface.operation.ModalContext;
+import org.eclipse.rse.core.model.IHost;
+
+/**
+ * Bounded pool of worker threads uploading files to one remote host at the
+ * same time. Submitting blocks once all streams are busy and the backlog is
+ * full, so the export walk never runs far ahead of the transfers.
+ * <p>
+ * The progress monitor is only touched from the thread which submits the
+ * uploads; workers merely count what they have finished.
+ */
+class DirectDebugRemoteUploadPool {
+	// how often a blocked submitter wakes up to report progress and check for cancellation
+	private static final long POLL_INTERVAL = 100;
+
+	private final ExecutorService executor;
+	private final Semaphore slots;
+	private final int capacity;
+	private final IProgressMonitor monitor;
+	private final AtomicInteger completed = new AtomicInteger();
+
+	/**
+	 * Create a pool uploading to <code>host</code> with at most
+	 * <code>streams</code> concurrent transfers.
+	 */
+	public DirectDebugRemoteUploadPool(IHost host, int streams, IProgressMonitor monitor) {
+		final int threads = Math.max(1, streams);
+		final String name = "Direct Remote Upload (" + (host != null ? host.getAliasName() : "local") + ")"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		this.monitor = monitor;
+		this.capacity = threads * 2;
+		this.slots = new Semaphore(capacity);
+		this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			private int count = 0;
+
+			public synchronized Thread newThread(Runnable r) {
+				Thread t = new Thread(r, name + " #" + (++count)); //$NON-NLS-1$
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	/**
+	 * Queue an upload. Blocks while the backlog is full.
+	 *
+	 * @throws InterruptedException if the monitor was cancelled while waiting
+	 */
+	public void submit(final Runnable upload) throws InterruptedException {
+		while (!slots.tryAcquire(POLL_INTERVAL, TimeUnit.MILLISECONDS)) {
+			reportProgress();
+			ModalContext.checkCanceled(monitor);
+		}
+		try {
+			executor.execute(new Runnable() {
+				public void run() {
+					try {
+						// uploads still queued when the user cancels are dropped
+						if (!monitor.isCanceled())
+							upload.run();
+					} finally {
+						completed.incrementAndGet();
+						slots.release();
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			slots.release();
+			throw new InterruptedException();
+		}
+		reportProgress();
+	}
+
+	/**
+	 * Wait until every submitted upload has finished.
+	 *
+	 * @throws InterruptedException if the monitor was cancelled while waiting
+	 */
+	public void join() throws InterruptedException {
+		while (!slots.tryAcquire(capacity, POLL_INTERVAL, TimeUnit.MILLISECONDS)) {
+			reportProgress();
+			ModalContext.checkCanceled(monitor);
+		}
+		slots.release(capacity);
+		reportProgress();
+	}
+
+	/**
+	 * Release the worker threads once the queued uploads are done. After a
+	 * cancellation the queued uploads are skipped.
+	 */
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	private void reportProgress() {
+		int done = completed.getAndSet(0);
+		if (done > 0)
+			monitor.worked(done);
+	}
+}
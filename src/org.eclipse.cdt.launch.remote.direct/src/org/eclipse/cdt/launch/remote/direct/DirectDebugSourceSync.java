@@ -0,0 +1,90 @@
+package org.eclipse.cdt.launch.remote.direct;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.cdt.core.model.ICProject;
+import org.eclipse.cdt.debug.core.CDebugUtils;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.debug.core.ILaunchConfiguration;
+import org.eclipse.jface.action.Action;
+import org.eclipse.jface.viewers.StructuredSelection;
+
+/**
+ * Uploads the sources of the project of a launch configuration to the remote
+ * workspace, as described by the export description (*.rexpfd) in the project
+ * root. Used by the launch and by the background synchronization; only one
+ * synchronization of a project runs at a time.
+ */
+class DirectDebugSourceSync {
+	private static final String DESCRIPTION_EXTENSION = ".rexpfd"; //$NON-NLS-1$
+
+	private static final Map<String, Object> projectLocks = new HashMap<String, Object>();
+
+	private static class DummyAction extends Action {
+		/**
+		 * Constructor.
+		 */
+		public DummyAction() {
+			super();
+		}
+	}
+
+	private DirectDebugSourceSync() {
+	}
+
+	/**
+	 * Upload the changed sources of the project of the given configuration.
+	 * Waits for a synchronization of the same project which is already running.
+	 *
+	 * @return false if the project has no export description, so nothing was uploaded
+	 */
+	public static boolean synchronize(ILaunchConfiguration config, IProgressMonitor monitor) throws CoreException {
+		ICProject cProject = CDebugUtils.getCProject(config);
+		if (cProject == null)
+			return false;
+		IProject projectHandle = cProject.getProject();
+		DirectRemoteLaunchTimeline.Span discovery = DirectRemoteLaunchTimeline.current().begin("rexpfd-discovery"); //$NON-NLS-1$
+		IResource exportConfigResource = findExportDescription(projectHandle);
+		discovery.end();
+		if (exportConfigResource == null)
+			return false;
+
+		synchronized (getLock(projectHandle)) {
+			DirectDebugRemoteFileExportActionDelegate action = new DirectDebugRemoteFileExportActionDelegate();
+			action.setMonitor(monitor);
+			action.setSyncOptions(DirectDebugSyncOptions.fromConfiguration(config));
+			DummyAction dummy = new DummyAction();
+			action.selectionChanged(dummy, new StructuredSelection(exportConfigResource));
+			action.run(dummy);
+		}
+		return true;
+	}
+
+	/**
+	 * Answer the export description in the root of the given project, or null.
+	 */
+	public static IResource findExportDescription(IProject projectHandle) throws CoreException {
+		IResource[] rootFiles = projectHandle.members();
+		for (int i = 0; i < rootFiles.length; i++) {
+			IResource r = rootFiles[i];
+			if (r.getName().endsWith(DESCRIPTION_EXTENSION))
+				return r;
+		}
+		return null;
+	}
+
+	private static Object getLock(IProject project) {
+		synchronized (projectLocks) {
+			Object lock = projectLocks.get(project.getName());
+			if (lock == null) {
+				lock = new Object();
+				projectLocks.put(project.getName(), lock);
+			}
+			return lock;
+		}
+	}
+}
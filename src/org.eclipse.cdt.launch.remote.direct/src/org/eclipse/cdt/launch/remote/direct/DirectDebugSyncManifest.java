@@ -0,0 +1,230 @@
+package org.eclipse.cdt.launch.remote.direct;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.Set;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.rse.core.model.IHost;
+import org.eclipse.rse.ui.SystemBasePlugin;
+
+/**
+ * Records, per host and remote destination, the content digest of every file
+ * together with the modification stamp it was computed for. Files whose stamp
+ * did not change are not hashed again. The manifest also remembers, per
+ * selection of exported resources, the position in the
+ * {@link DirectDebugChangeJournal} of the last successful synchronization and
+ * the token it left on the remote host. It is kept in the state location of
+ * the plug-in.
+ */
+class DirectDebugSyncManifest {
+	private static final String MANIFEST_FOLDER = "manifests"; //$NON-NLS-1$
+	private static final String DIGEST_ALGORITHM = "MD5"; //$NON-NLS-1$
+	private static final char[] HEX = "0123456789abcdef".toCharArray(); //$NON-NLS-1$
+	// relative paths never start with '/'
+	private static final String JOURNAL_KEY = "/journal/"; //$NON-NLS-1$
+
+	private final File file;
+	private final Properties entries = new Properties();
+	// the files looked up or recorded since the manifest was loaded
+	private final Set<String> used = new HashSet<String>();
+	private boolean dirty = false;
+
+	private DirectDebugSyncManifest(File file) {
+		this.file = file;
+	}
+
+	/**
+	 * Load the manifest for the given host and remote destination, or an empty
+	 * one if there is none yet.
+	 */
+	public static DirectDebugSyncManifest load(IHost host, IPath root) {
+		File folder = Activator.getDefault().getStateLocation().append(MANIFEST_FOLDER).toFile();
+		folder.mkdirs();
+		String key = host.getHostName() + ':' + root.toString();
+		DirectDebugSyncManifest manifest = new DirectDebugSyncManifest(new File(folder, toHex(digest(key)) + ".properties")); //$NON-NLS-1$
+		if (manifest.file.isFile()) {
+			try {
+				InputStream in = new FileInputStream(manifest.file);
+				try {
+					manifest.entries.load(in);
+				} finally {
+					in.close();
+				}
+			} catch (IOException e) {
+				// start over, every file is hashed again
+				SystemBasePlugin.logError("Could not read synchronization manifest " + manifest.file, e); //$NON-NLS-1$
+				manifest.entries.clear();
+			}
+		}
+		return manifest;
+	}
+
+	/**
+	 * @param path the path of the file relative to the destination
+	 * @param stamp the current modification stamp of the file
+	 * @return the recorded digest, or <code>null</code> if the file changed since it was recorded
+	 */
+	public synchronized String getDigest(String path, long stamp) {
+		used.add(path);
+		String value = entries.getProperty(path);
+		if (value == null)
+			return null;
+		int sep = value.indexOf(':');
+		try {
+			if (sep < 0 || Long.parseLong(value.substring(0, sep)) != stamp)
+				return null;
+		} catch (NumberFormatException e) {
+			return null;
+		}
+		return value.substring(sep + 1);
+	}
+
+	/**
+	 * Record the digest of a file for its modification stamp.
+	 */
+	public synchronized void put(String path, long stamp, String digest) {
+		entries.setProperty(path, Long.toString(stamp) + ':' + digest);
+		used.add(path);
+		dirty = true;
+	}
+
+	/**
+	 * Forget the digests of the files neither looked up nor recorded since the
+	 * manifest was loaded. Only to be called after a synchronization which
+	 * looked at every file.
+	 */
+	public synchronized void pruneUnused() {
+		for (Iterator<Object> it = entries.keySet().iterator(); it.hasNext();) {
+			String path = (String) it.next();
+			if (!path.startsWith("/") && !used.contains(path)) { //$NON-NLS-1$
+				it.remove();
+				dirty = true;
+			}
+		}
+	}
+
+	/**
+	 * Answer the journal sequence number the last successful synchronization
+	 * of the same selection of resources started at, provided it used the same
+	 * journal epoch.
+	 *
+	 * @param epoch the current epoch of the change journal
+	 * @param selection a description of the exported resources and export options
+	 * @return the sequence number, or -1 if everything has to be visited
+	 */
+	public synchronized long getJournalSequence(String epoch, String selection) {
+		String[] value = getJournalEntry(selection);
+		if (value == null || !value[0].equals(epoch))
+			return -1;
+		try {
+			return Long.parseLong(value[1]);
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Answer the token the last successful synchronization of the selection
+	 * left on the remote host. If the remote host holds another one, something
+	 * else synchronized to the destination since.
+	 *
+	 * @return the token, or null if there is none
+	 */
+	public synchronized String getRemoteToken(String selection) {
+		String[] value = getJournalEntry(selection);
+		return value != null ? value[2] : null;
+	}
+
+	/**
+	 * Record the journal position a successful synchronization started at and
+	 * the token it left on the remote host.
+	 */
+	public synchronized void setJournalSequence(String epoch, String selection, long sequence, String token) {
+		entries.setProperty(JOURNAL_KEY + toHex(digest(selection)), epoch + ':' + sequence + ':' + token);
+		dirty = true;
+	}
+
+	/*
+	 * epoch:sequence:token
+	 */
+	private String[] getJournalEntry(String selection) {
+		String value = entries.getProperty(JOURNAL_KEY + toHex(digest(selection)));
+		if (value == null)
+			return null;
+		String[] parts = value.split(":", 3); //$NON-NLS-1$
+		return parts.length == 3 ? parts : null;
+	}
+
+	/**
+	 * Write the manifest back if it has changed.
+	 */
+	public synchronized void save() throws IOException {
+		if (!dirty)
+			return;
+		OutputStream out = new FileOutputStream(file);
+		try {
+			entries.store(out, null);
+		} finally {
+			out.close();
+		}
+		dirty = false;
+	}
+
+	/**
+	 * Compute the hex encoded content digest of a file, in the format printed by <code>md5sum</code>.
+	 */
+	public static String computeDigest(IFile file) throws CoreException, IOException {
+		MessageDigest md = newDigest();
+		InputStream in = file.getContents(true);
+		ByteBuffer buffer = DirectDebugBufferPool.acquire(DirectDebugBufferPool.MIN_CHUNK);
+		try {
+			int n;
+			while ((n = in.read(buffer.array(), buffer.arrayOffset(), buffer.capacity())) > 0)
+				md.update(buffer.array(), buffer.arrayOffset(), n);
+		} finally {
+			DirectDebugBufferPool.release(buffer);
+			in.close();
+		}
+		return toHex(md.digest());
+	}
+
+	private static byte[] digest(String value) {
+		try {
+			return newDigest().digest(value.getBytes("UTF-8")); //$NON-NLS-1$
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance(DIGEST_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			// every Java platform is required to support MD5
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		char[] chars = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			chars[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+			chars[i * 2 + 1] = HEX[bytes[i] & 0xf];
+		}
+		return new String(chars);
+	}
+}
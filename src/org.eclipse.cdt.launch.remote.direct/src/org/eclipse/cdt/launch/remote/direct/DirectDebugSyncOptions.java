@@ -0,0 +1,109 @@
+package org.eclipse.cdt.launch.remote.direct;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.debug.core.ILaunchConfiguration;
+
+/**
+ * Settings that control how local sources are pushed to the remote workspace.
+ * A snapshot is taken from the launch configuration when the synchronization
+ * starts, so changes made to the configuration meanwhile do not affect it.
+ */
+public class DirectDebugSyncOptions {
+	private int uploadStreams = IDirectRemoteConnectionConfigurationConstants.DEFAULT_SYNC_UPLOAD_STREAMS;
+	private int archiveMode = IDirectRemoteConnectionConfigurationConstants.DEFAULT_SYNC_ARCHIVE_MODE;
+	private int archiveThreshold = IDirectRemoteConnectionConfigurationConstants.DEFAULT_SYNC_ARCHIVE_THRESHOLD;
+	private int compression = IDirectRemoteConnectionConfigurationConstants.DEFAULT_SYNC_COMPRESSION;
+	private boolean contentHash = IDirectRemoteConnectionConfigurationConstants.DEFAULT_SYNC_CONTENT_HASH;
+	private boolean incremental = IDirectRemoteConnectionConfigurationConstants.DEFAULT_SYNC_INCREMENTAL;
+	private int deltaThreshold = IDirectRemoteConnectionConfigurationConstants.DEFAULT_SYNC_DELTA_THRESHOLD;
+
+	/**
+	 * Create the default options.
+	 */
+	public DirectDebugSyncOptions() {
+	}
+
+	/**
+	 * Reads the synchronization settings stored in the given launch configuration.
+	 */
+	public static DirectDebugSyncOptions fromConfiguration(ILaunchConfiguration config) throws CoreException {
+		DirectDebugSyncOptions options = new DirectDebugSyncOptions();
+		options.uploadStreams = config.getAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_SYNC_UPLOAD_STREAMS,
+				IDirectRemoteConnectionConfigurationConstants.DEFAULT_SYNC_UPLOAD_STREAMS);
+		options.archiveMode = config.getAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_SYNC_ARCHIVE_MODE,
+				IDirectRemoteConnectionConfigurationConstants.DEFAULT_SYNC_ARCHIVE_MODE);
+		options.archiveThreshold = config.getAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_SYNC_ARCHIVE_THRESHOLD,
+				IDirectRemoteConnectionConfigurationConstants.DEFAULT_SYNC_ARCHIVE_THRESHOLD);
+		if (config.hasAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_SYNC_COMPRESSION)) {
+			options.compression = config.getAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_SYNC_COMPRESSION,
+					IDirectRemoteConnectionConfigurationConstants.DEFAULT_SYNC_COMPRESSION);
+		} else if (!config.getAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_SYNC_ARCHIVE_GZIP,
+				IDirectRemoteConnectionConfigurationConstants.DEFAULT_SYNC_ARCHIVE_GZIP)) {
+			// a configuration from before the presets, which turned off gzip
+			options.compression = IDirectRemoteConnectionConfigurationConstants.SYNC_COMPRESSION_NONE;
+		}
+		options.contentHash = config.getAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_SYNC_CONTENT_HASH,
+				IDirectRemoteConnectionConfigurationConstants.DEFAULT_SYNC_CONTENT_HASH);
+		options.incremental = config.getAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_SYNC_INCREMENTAL,
+				IDirectRemoteConnectionConfigurationConstants.DEFAULT_SYNC_INCREMENTAL);
+		options.deltaThreshold = config.getAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_SYNC_DELTA_THRESHOLD,
+				IDirectRemoteConnectionConfigurationConstants.DEFAULT_SYNC_DELTA_THRESHOLD);
+		return options;
+	}
+
+	/**
+	 * @return the number of files uploaded to the host at the same time
+	 */
+	public int getUploadStreams() {
+		return Math.max(1, uploadStreams);
+	}
+
+	/**
+	 * @return when the changed files are sent as one archive, one of the
+	 *         <code>SYNC_ARCHIVE_*</code> constants
+	 */
+	public int getArchiveMode() {
+		return archiveMode;
+	}
+
+	/**
+	 * @return the number of changed files from which an archive is used in
+	 *         {@link IDirectRemoteConnectionConfigurationConstants#SYNC_ARCHIVE_AUTO} mode
+	 */
+	public int getArchiveThreshold() {
+		return Math.max(1, archiveThreshold);
+	}
+
+	/**
+	 * @return how strongly uploads are compressed, one of the
+	 *         <code>SYNC_COMPRESSION_*</code> constants
+	 */
+	public int getCompression() {
+		return compression;
+	}
+
+	/**
+	 * @return whether changes are detected by comparing the content digests of
+	 *         the local and remote files rather than modification stamps alone
+	 */
+	public boolean isContentHash() {
+		return contentHash;
+	}
+
+	/**
+	 * @return whether only the resources changed since the last successful
+	 *         synchronization are visited, rather than the whole project
+	 */
+	public boolean isIncremental() {
+		return incremental;
+	}
+
+	/**
+	 * @return the size in bytes from which a modified file that exists
+	 *         remotely is updated by sending only its changed blocks, or
+	 *         <code>0</code> if files are always uploaded whole
+	 */
+	public long getDeltaThreshold() {
+		return Math.max(0, deltaThreshold) * 1024L;
+	}
+}
@@ -0,0 +1,177 @@
+package org.eclipse.cdt.launch.remote.direct;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
+
+/**
+ * Minimal writer for POSIX ustar archives, as understood by GNU tar and
+ * busybox. Only regular files and directories are written. Names that do not
+ * fit the ustar header are stored in a GNU long name record.
+ */
+class DirectDebugTarWriter {
+	private static final int BLOCK_SIZE = 512;
+	private static final int NAME_LENGTH = 100;
+	private static final int PREFIX_LENGTH = 155;
+	private static final String LONG_LINK_NAME = "././@LongLink"; //$NON-NLS-1$
+	private static final byte TYPE_FILE = '0';
+	private static final byte TYPE_DIRECTORY = '5';
+	private static final byte TYPE_GNU_LONG_NAME = 'L';
+
+	private final OutputStream out;
+	private final byte[] buffer = new byte[64 * 1024];
+
+	public DirectDebugTarWriter(OutputStream out) {
+		this.out = out;
+	}
+
+	/**
+	 * Append a regular file to the archive. Exactly <code>size</code> bytes are
+	 * stored: a shorter stream is padded with zeros, a longer one truncated,
+	 * so the archive stays consistent if the file changes while it is read.
+	 *
+	 * @param name the path of the entry, relative to the extraction directory, with '/' separators
+	 * @param size the number of bytes to store
+	 * @param modTime the modification time in milliseconds
+	 * @param executable whether the file should be executable on the remote host
+	 * @param contents the file contents, not closed by this method
+	 */
+	public void putFile(String name, long size, long modTime, boolean executable, InputStream contents) throws IOException {
+		putEntry(name, size, modTime, executable ? 0755 : 0644, TYPE_FILE);
+
+		long remaining = size;
+		while (remaining > 0) {
+			int n = contents.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+			if (n < 0)
+				break;
+			out.write(buffer, 0, n);
+			remaining -= n;
+		}
+		while (remaining > 0) {
+			int n = (int) Math.min(buffer.length, remaining);
+			Arrays.fill(buffer, 0, n, (byte) 0);
+			out.write(buffer, 0, n);
+			remaining -= n;
+		}
+		pad(size);
+	}
+
+	/**
+	 * Append a directory to the archive, so that it is created even if it stays empty.
+	 *
+	 * @param name the path of the directory, relative to the extraction directory, with '/' separators
+	 * @param modTime the modification time in milliseconds
+	 */
+	public void putDirectory(String name, long modTime) throws IOException {
+		putEntry(name.endsWith("/") ? name : name + '/', 0, modTime, 0755, TYPE_DIRECTORY); //$NON-NLS-1$
+	}
+
+	/**
+	 * Write the end-of-archive marker and close the underlying stream.
+	 */
+	public void close() throws IOException {
+		try {
+			out.write(new byte[BLOCK_SIZE * 2]);
+			out.flush();
+		} finally {
+			out.close();
+		}
+	}
+
+	private void putEntry(String name, long size, long modTime, int mode, byte type) throws IOException {
+		byte[] nameBytes = getBytes(name);
+		String prefix = ""; //$NON-NLS-1$
+		String shortName = name;
+		if (nameBytes.length > NAME_LENGTH) {
+			int split = findPrefixSplit(name);
+			if (split > 0) {
+				prefix = name.substring(0, split);
+				shortName = name.substring(split + 1);
+			} else {
+				// neither fits, use a GNU long name record for the full path
+				byte[] longName = new byte[nameBytes.length + 1];
+				System.arraycopy(nameBytes, 0, longName, 0, nameBytes.length);
+				writeHeader(LONG_LINK_NAME, "", longName.length, 0, 0644, TYPE_GNU_LONG_NAME); //$NON-NLS-1$
+				out.write(longName);
+				pad(longName.length);
+				shortName = name.substring(0, NAME_LENGTH);
+			}
+		}
+		writeHeader(shortName, prefix, size, modTime / 1000, mode, type);
+	}
+
+	/*
+	 * Find a '/' splitting the name into a prefix and a name which both fit
+	 * the ustar header, or -1.
+	 */
+	private int findPrefixSplit(String name) throws IOException {
+		// a trailing '/' of a directory stays with the name
+		int split = name.lastIndexOf('/', name.length() - 2);
+		while (split > 0) {
+			if (getBytes(name.substring(0, split)).length <= PREFIX_LENGTH) {
+				return getBytes(name.substring(split + 1)).length <= NAME_LENGTH ? split : -1;
+			}
+			split = name.lastIndexOf('/', split - 1);
+		}
+		return -1;
+	}
+
+	private void writeHeader(String name, String prefix, long size, long modTime, int mode, byte type) throws IOException {
+		byte[] header = new byte[BLOCK_SIZE];
+		putString(header, 0, NAME_LENGTH, name);
+		putOctal(header, 100, 8, mode);
+		putOctal(header, 108, 8, 0); // uid
+		putOctal(header, 116, 8, 0); // gid
+		putOctal(header, 124, 12, size);
+		putOctal(header, 136, 12, modTime);
+		header[156] = type;
+		putString(header, 257, 6, "ustar"); //$NON-NLS-1$
+		header[263] = '0';
+		header[264] = '0';
+		putString(header, 345, PREFIX_LENGTH, prefix);
+
+		// the checksum is computed with its own field filled with spaces
+		for (int i = 148; i < 156; i++)
+			header[i] = ' ';
+		long checksum = 0;
+		for (int i = 0; i < BLOCK_SIZE; i++)
+			checksum += header[i] & 0xff;
+		putOctal(header, 148, 7, checksum);
+		header[155] = ' ';
+
+		out.write(header);
+	}
+
+	private void pad(long written) throws IOException {
+		int rest = (int) (written % BLOCK_SIZE);
+		if (rest != 0)
+			out.write(new byte[BLOCK_SIZE - rest]);
+	}
+
+	private static void putString(byte[] header, int offset, int length, String value) throws IOException {
+		byte[] bytes = getBytes(value);
+		System.arraycopy(bytes, 0, header, offset, Math.min(bytes.length, length));
+	}
+
+	/*
+	 * Octal number, zero padded, terminated by NUL.
+	 */
+	private static void putOctal(byte[] header, int offset, int length, long value) {
+		String octal = Long.toOctalString(value);
+		int digits = length - 1;
+		if (octal.length() > digits)
+			throw new IllegalArgumentException(octal);
+		int pos = offset;
+		for (int i = octal.length(); i < digits; i++)
+			header[pos++] = '0';
+		for (int i = 0; i < octal.length(); i++)
+			header[pos++] = (byte) octal.charAt(i);
+		header[pos] = 0;
+	}
+
+	private static byte[] getBytes(String value) throws UnsupportedEncodingException {
+		return value.getBytes("UTF-8"); //$NON-NLS-1$
+	}
+}
@@ -23,6 +23,7 @@ public class DirectDebugUniFilePlus extends File {
 	 */
 	private static final long serialVersionUID = -1717648997950319457L;
 	public IRemoteFile remoteFile = null;
+	private DirectDebugRemoteStatCache statCache = null;
 
 	/**
 	 * Constructor. There is only one way to construct this object,
@@ -34,6 +35,15 @@ public class DirectDebugUniFilePlus extends File {
 		this.remoteFile = remoteFile;
 	}
 
+	/**
+	 * Constructor for a remote file whose metadata comes from the given cache.
+	 *  Changes made through this object are reported to the cache.
+	 */
+	public DirectDebugUniFilePlus(IRemoteFile remoteFile, DirectDebugRemoteStatCache statCache) {
+		this(remoteFile);
+		this.statCache = statCache;
+	}
+
 	public boolean canRead() {
 		return remoteFile.canRead();
 	}
@@ -71,6 +81,7 @@ public class DirectDebugUniFilePlus extends File {
 		} catch (SystemMessageException e) {
 			throw new IOException(e.getMessage());
 		}
+		invalidate();
 		if (newFile != null) {
 			remoteFile = newFile;
 			return true;
@@ -82,6 +93,7 @@ public class DirectDebugUniFilePlus extends File {
 		boolean ok = true;
 		try {
 			remoteFile.getParentRemoteFileSubSystem().delete(remoteFile, new NullProgressMonitor());
+			invalidate();
 			//hmm, should we set remoteFile to null?
 		} catch (RemoteFileException exc) {
 			Exception e = exc.getRemoteException();
@@ -309,6 +321,7 @@ public class DirectDebugUniFilePlus extends File {
 		IRemoteFile dir = null;
 		try {
 			if (!remoteFile.exists()) dir = remoteFile.getParentRemoteFileSubSystem().createFolder(remoteFile, new NullProgressMonitor());
+			if (dir != null && statCache != null) statCache.folderCreated(remoteFile.getAbsolutePath());
 		} catch (RemoteFileException exc) {
 			Exception e = exc.getRemoteException();
 			if ((e != null) && (e instanceof SecurityException)) throw (SecurityException) e;
@@ -325,6 +338,7 @@ public class DirectDebugUniFilePlus extends File {
 		IRemoteFile dir = null;
 		try {
 			if (!remoteFile.exists()) dir = remoteFile.getParentRemoteFileSubSystem().createFolders(remoteFile, new NullProgressMonitor());
+			invalidate();
 		} catch (RemoteFileException exc) {
 			Exception e = exc.getRemoteException();
 			if ((e != null) && (e instanceof SecurityException)) throw (SecurityException) e;
@@ -341,6 +355,8 @@ public class DirectDebugUniFilePlus extends File {
 		boolean ok = false;
 		try {
 			remoteFile.getParentRemoteFileSubSystem().rename(remoteFile, dest.getName(), new NullProgressMonitor());
+			invalidate();
+			if (statCache != null) statCache.invalidate(dest.getPath());
 			ok = true;
 		} catch (RemoteFileException exc) {
 			Exception e = exc.getRemoteException();
@@ -359,6 +375,7 @@ public class DirectDebugUniFilePlus extends File {
 		try {
 			IProgressMonitor monitor = new NullProgressMonitor();
 			remoteFile.getParentRemoteFileSubSystem().setLastModified(remoteFile, time, monitor);
+			invalidate();
 			ok = true;
 		} catch (RemoteFileException exc) {
 			Exception e = exc.getRemoteException();
@@ -375,6 +392,7 @@ public class DirectDebugUniFilePlus extends File {
 		boolean ok = false;
 		try {
 			remoteFile.getParentRemoteFileSubSystem().setReadOnly(remoteFile, true, new NullProgressMonitor());
+			invalidate();
 			ok = true;
 		} catch (RemoteFileException exc) {
 			Exception e = exc.getRemoteException();
@@ -413,10 +431,18 @@ public class DirectDebugUniFilePlus extends File {
 
 	public void synchRemoteFile() {
 		// get the latest version of the remote file
+		invalidate();
 		remoteFile.markStale(true);
 		try {
 			remoteFile = remoteFile.getParentRemoteFileSubSystem().getRemoteFileObject(remoteFile.getAbsolutePath(), new NullProgressMonitor());
 		}
 		catch (Exception e){}
 	}
+
+	/*
+	 * Tell the metadata cache that this file has changed.
+	 */
+	private void invalidate() {
+		if (statCache != null) statCache.invalidate(remoteFile.getAbsolutePath());
+	}
 }
\ No newline at end of file
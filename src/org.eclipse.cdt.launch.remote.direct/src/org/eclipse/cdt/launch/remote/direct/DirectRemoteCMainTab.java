@@ -9,6 +9,7 @@ import org.eclipse.debug.core.ILaunchConfiguration;
 import org.eclipse.debug.core.ILaunchConfigurationWorkingCopy;
 import org.eclipse.jface.preference.PreferenceDialog;
 import org.eclipse.jface.window.Window;
+import org.eclipse.osgi.util.NLS;
 import org.eclipse.rse.core.IRSESystemType;
 import org.eclipse.rse.core.RSECorePlugin;
 import org.eclipse.rse.core.model.IHost;
@@ -26,6 +27,7 @@ import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.Combo;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Spinner;
 import org.eclipse.swt.widgets.Text;
 import org.eclipse.ui.PlatformUI;
 import org.eclipse.ui.dialogs.PreferencesUtil;
@@ -37,12 +39,17 @@ public class DirectRemoteCMainTab extends CMainTab {
 	private static final String REMOTE_WORKSPAPCE_TEXT_ERROR = Messages.DirectRemoteCMainTab_2;
 	private static final String CONNECTION_TEXT_ERROR = Messages.DirectRemoteCMainTab_3;
 	private static final String PRE_RUN_LABEL_TEXT = Messages.DirectRemoteCMainTab_4;
+	private static final String SOURCE_MAPPINGS_LABEL_TEXT = Messages.DirectRemoteCMainTab_21;
+	private static final String SOURCE_MAPPINGS_TEXT_ERROR = Messages.DirectRemoteCMainTab_22;
 
 	/* Defaults */
 	private static final String REMOTE_PATH_DEFAULT = EMPTY_STRING;
 	
 	/* SystemConnectionPropertyPage id*/
 	private static final String SYSTEM_PAGE_ID = "org.eclipse.rse.SystemPropertyPage"; //$NON-NLS-1$
+	private static final int MAX_GDB_START_TIMEOUT = 600;
+	private static final int MIN_CONSOLE_BUFFER = 64;
+	private static final int MAX_CONSOLE_BUFFER = 64 * 1024;
 
 	protected Button newRemoteConnectionButton;
 	protected Button editRemoteConnectionButton;
@@ -54,7 +61,18 @@ public class DirectRemoteCMainTab extends CMainTab {
 	protected Button remoteWorkSpaceBrowseButton;
 	protected Text preRunText;
 	protected Label preRunLabel;
+	protected Text sourceMappingsText;
+	protected Label sourceMappingsLabel;
+	protected Button sourceFetchButton;
 	protected Button attachButton;
+	protected Button prewarmButton;
+	protected Spinner gdbTimeoutSpinner;
+	protected Button consoleMirrorButton;
+	protected Spinner consoleBufferSpinner;
+	protected Button consoleSpillButton;
+	protected Button commandMetricsButton;
+	protected Text commandTraceText;
+	protected Button coalesceButton;
 
 
 	SystemNewConnectionAction action = null;
@@ -75,6 +93,7 @@ public class DirectRemoteCMainTab extends CMainTab {
 		createAttachButton(comp);
 		createRemoteWorkSpacePath(comp);
 		createPreRunText(comp);
+		createSourceMappingsText(comp);
 		/* The RSE Connection dropdown with New button. */
 		createVerticalSpacer(comp, 1);
 		createRemoteConnectionGroup(comp, 4);
@@ -119,6 +138,17 @@ public class DirectRemoteCMainTab extends CMainTab {
 					retVal = false;
 				}
 			}
+
+			if (retVal == true) {
+				String[] lines = sourceMappingsText.getText().split("\\r?\\n"); //$NON-NLS-1$
+				for (int i = 0; i < lines.length; i++) {
+					if (lines[i].trim().length() > 0 && DirectRemoteMappingSourceContainer.parseMapping(lines[i]) == null) {
+						setErrorMessage(NLS.bind(SOURCE_MAPPINGS_TEXT_ERROR, lines[i].trim()));
+						retVal = false;
+						break;
+					}
+				}
+			}
 		}
 		return retVal;
 	}
@@ -200,6 +230,117 @@ public class DirectRemoteCMainTab extends CMainTab {
 			}
 		});
 		attachButton.setEnabled(true);
+
+		prewarmButton = createCheckButton(mainComp,
+				Messages.DirectRemoteCMainTab_13);
+		prewarmButton.addSelectionListener(new SelectionAdapter() {
+
+			@Override
+			public void widgetSelected(SelectionEvent evt) {
+				updateLaunchConfigurationDialog();
+			}
+		});
+
+		Composite timeoutComp = new Composite(mainComp, SWT.NONE);
+		GridLayout timeoutLayout = new GridLayout(2, false);
+		timeoutLayout.marginHeight = 0;
+		timeoutLayout.marginWidth = 0;
+		timeoutComp.setLayout(timeoutLayout);
+		Label timeoutLabel = new Label(timeoutComp, SWT.NONE);
+		timeoutLabel.setText(Messages.DirectRemoteCMainTab_14);
+		gdbTimeoutSpinner = new Spinner(timeoutComp, SWT.BORDER);
+		gdbTimeoutSpinner.setMinimum(0);
+		gdbTimeoutSpinner.setMaximum(MAX_GDB_START_TIMEOUT);
+		gdbTimeoutSpinner.addModifyListener(new ModifyListener() {
+
+			public void modifyText(ModifyEvent evt) {
+				updateLaunchConfigurationDialog();
+			}
+		});
+
+		consoleMirrorButton = createCheckButton(mainComp,
+				Messages.DirectRemoteCMainTab_15);
+		consoleMirrorButton.addSelectionListener(new SelectionAdapter() {
+
+			@Override
+			public void widgetSelected(SelectionEvent evt) {
+				updateConsoleControls();
+				updateLaunchConfigurationDialog();
+			}
+		});
+
+		Composite consoleComp = new Composite(mainComp, SWT.NONE);
+		GridLayout consoleLayout = new GridLayout(3, false);
+		consoleLayout.marginHeight = 0;
+		consoleLayout.marginWidth = 0;
+		consoleComp.setLayout(consoleLayout);
+		Label consoleBufferLabel = new Label(consoleComp, SWT.NONE);
+		consoleBufferLabel.setText(Messages.DirectRemoteCMainTab_16);
+		consoleBufferSpinner = new Spinner(consoleComp, SWT.BORDER);
+		consoleBufferSpinner.setMinimum(MIN_CONSOLE_BUFFER);
+		consoleBufferSpinner.setMaximum(MAX_CONSOLE_BUFFER);
+		consoleBufferSpinner.addModifyListener(new ModifyListener() {
+
+			public void modifyText(ModifyEvent evt) {
+				updateLaunchConfigurationDialog();
+			}
+		});
+		consoleSpillButton = createCheckButton(consoleComp,
+				Messages.DirectRemoteCMainTab_17);
+		consoleSpillButton.addSelectionListener(new SelectionAdapter() {
+
+			@Override
+			public void widgetSelected(SelectionEvent evt) {
+				updateLaunchConfigurationDialog();
+			}
+		});
+
+		coalesceButton = createCheckButton(mainComp,
+				Messages.DirectRemoteCMainTab_20);
+		coalesceButton.addSelectionListener(new SelectionAdapter() {
+
+			@Override
+			public void widgetSelected(SelectionEvent evt) {
+				updateLaunchConfigurationDialog();
+			}
+		});
+
+		commandMetricsButton = createCheckButton(mainComp,
+				Messages.DirectRemoteCMainTab_18);
+		commandMetricsButton.addSelectionListener(new SelectionAdapter() {
+
+			@Override
+			public void widgetSelected(SelectionEvent evt) {
+				updateCommandMetricsControls();
+				updateLaunchConfigurationDialog();
+			}
+		});
+
+		Composite traceComp = new Composite(mainComp, SWT.NONE);
+		GridLayout traceLayout = new GridLayout(2, false);
+		traceLayout.marginHeight = 0;
+		traceLayout.marginWidth = 0;
+		traceComp.setLayout(traceLayout);
+		traceComp.setLayoutData(new GridData(GridData.FILL_HORIZONTAL));
+		Label traceLabel = new Label(traceComp, SWT.NONE);
+		traceLabel.setText(Messages.DirectRemoteCMainTab_19);
+		commandTraceText = new Text(traceComp, SWT.SINGLE | SWT.BORDER);
+		commandTraceText.setLayoutData(new GridData(GridData.FILL_HORIZONTAL));
+		commandTraceText.addModifyListener(new ModifyListener() {
+
+			public void modifyText(ModifyEvent evt) {
+				updateLaunchConfigurationDialog();
+			}
+		});
+	}
+
+	private void updateConsoleControls() {
+		consoleBufferSpinner.setEnabled(consoleMirrorButton.getSelection());
+		consoleSpillButton.setEnabled(consoleMirrorButton.getSelection());
+	}
+
+	private void updateCommandMetricsControls() {
+		commandTraceText.setEnabled(commandMetricsButton.getSelection());
 	}
 	protected void createRemoteWorkSpacePath(Composite parent) {
 		Composite mainComp = new Composite(parent, SWT.NONE);
@@ -273,14 +414,57 @@ public class DirectRemoteCMainTab extends CMainTab {
 		preRunText.addModifyListener(new ModifyListener() {
 
 			public void modifyText(ModifyEvent evt) {
+				// prerun commands must wait for the upload, no shell is prepared for them
+				prewarmButton.setEnabled(preRunText.getText().trim().length() == 0);
 				updateLaunchConfigurationDialog();
 			}
 		});
 
 	}
 
-	
-	
+	/*
+	 * createSourceMappingsText This creates the text of the additional source
+	 * mappings on the Main Tab.
+	 */
+	protected void createSourceMappingsText(Composite parent) {
+		Composite mainComp = new Composite(parent, SWT.NONE);
+		GridLayout mainLayout = new GridLayout();
+		mainLayout.numColumns = 2;
+		mainLayout.marginHeight = 0;
+		mainLayout.marginWidth = 0;
+		mainComp.setLayout(mainLayout);
+		GridData gd = new GridData(GridData.FILL_HORIZONTAL);
+		mainComp.setLayoutData(gd);
+
+		sourceMappingsLabel = new Label(mainComp, SWT.NONE);
+		sourceMappingsLabel.setText(SOURCE_MAPPINGS_LABEL_TEXT);
+		gd = new GridData();
+		gd.horizontalSpan = 2;
+		sourceMappingsLabel.setLayoutData(gd);
+
+		sourceMappingsText = new Text(mainComp, SWT.MULTI | SWT.BORDER | SWT.V_SCROLL);
+		gd = new GridData(GridData.FILL_HORIZONTAL);
+		gd.horizontalSpan = 2;
+		gd.heightHint = 3 * sourceMappingsText.getLineHeight();
+		sourceMappingsText.setLayoutData(gd);
+		sourceMappingsText.addModifyListener(new ModifyListener() {
+
+			public void modifyText(ModifyEvent evt) {
+				updateLaunchConfigurationDialog();
+			}
+		});
+
+		sourceFetchButton = createCheckButton(mainComp,
+				Messages.DirectRemoteCMainTab_23);
+		sourceFetchButton.addSelectionListener(new SelectionAdapter() {
+
+			@Override
+			public void widgetSelected(SelectionEvent evt) {
+				updateLaunchConfigurationDialog();
+			}
+		});
+	}
+
 	protected void handleNewRemoteConnectionSelected() {
 		if (action == null) {
 			action = new SystemNewConnectionAction(getControl().getShell(),
@@ -397,8 +581,26 @@ public class DirectRemoteCMainTab extends CMainTab {
 		String remoteConnection = null;
 		try {
 			attachButton.setSelection(config.getAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_REMOTE_IS_ATTACH, false));
+			prewarmButton.setSelection(config.getAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_PREWARM_GDB,
+					IDirectRemoteConnectionConfigurationConstants.DEFAULT_PREWARM_GDB));
+			gdbTimeoutSpinner.setSelection(config.getAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_GDB_START_TIMEOUT,
+					IDirectRemoteConnectionConfigurationConstants.DEFAULT_GDB_START_TIMEOUT));
+			consoleMirrorButton.setSelection(config.getAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_CONSOLE_MIRROR,
+					IDirectRemoteConnectionConfigurationConstants.DEFAULT_CONSOLE_MIRROR));
+			consoleBufferSpinner.setSelection(config.getAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_CONSOLE_BUFFER,
+					IDirectRemoteConnectionConfigurationConstants.DEFAULT_CONSOLE_BUFFER));
+			consoleSpillButton.setSelection(config.getAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_CONSOLE_SPILL,
+					IDirectRemoteConnectionConfigurationConstants.DEFAULT_CONSOLE_SPILL));
+			coalesceButton.setSelection(config.getAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_COALESCE_COMMANDS,
+					IDirectRemoteConnectionConfigurationConstants.DEFAULT_COALESCE_COMMANDS));
+			commandMetricsButton.setSelection(config.getAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_COMMAND_METRICS,
+					IDirectRemoteConnectionConfigurationConstants.DEFAULT_COMMAND_METRICS));
+			commandTraceText.setText(config.getAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_COMMAND_TRACE_FILE, EMPTY_STRING));
 			remoteWorkSpaceText.setText(config.getAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_REMOTE_WORKSPACE, EMPTY_STRING));
 			preRunText.setText(config.getAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_PRERUN_COMMANDS, EMPTY_STRING));
+			sourceMappingsText.setText(config.getAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_SOURCE_MAPPINGS, EMPTY_STRING));
+			sourceFetchButton.setSelection(config.getAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_SOURCE_FETCH,
+					IDirectRemoteConnectionConfigurationConstants.DEFAULT_SOURCE_FETCH));
 			remoteConnection = config
 					.getAttribute(
 							IDirectRemoteConnectionConfigurationConstants.ATTR_REMOTE_CONNECTION,
@@ -425,6 +627,8 @@ public class DirectRemoteCMainTab extends CMainTab {
 
 		
 		updateConnectionButtons();
+		updateConsoleControls();
+		updateCommandMetricsControls();
 	}
 
 	/*
@@ -436,6 +640,14 @@ public class DirectRemoteCMainTab extends CMainTab {
 	public void performApply(ILaunchConfigurationWorkingCopy config) {
 
 		config.setAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_REMOTE_IS_ATTACH, attachButton.getSelection());
+		config.setAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_PREWARM_GDB, prewarmButton.getSelection());
+		config.setAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_GDB_START_TIMEOUT, gdbTimeoutSpinner.getSelection());
+		config.setAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_CONSOLE_MIRROR, consoleMirrorButton.getSelection());
+		config.setAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_CONSOLE_BUFFER, consoleBufferSpinner.getSelection());
+		config.setAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_CONSOLE_SPILL, consoleSpillButton.getSelection());
+		config.setAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_COALESCE_COMMANDS, coalesceButton.getSelection());
+		config.setAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_COMMAND_METRICS, commandMetricsButton.getSelection());
+		config.setAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_COMMAND_TRACE_FILE, commandTraceText.getText().trim());
 		config.setAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_REMOTE_WORKSPACE, remoteWorkSpaceText.getText());
 		int currentSelection = connectionCombo.getSelectionIndex();
 		config.setAttribute(
@@ -446,6 +658,12 @@ public class DirectRemoteCMainTab extends CMainTab {
 		config.setAttribute(
 				IDirectRemoteConnectionConfigurationConstants.ATTR_PRERUN_COMMANDS,
 				preRunText.getText());
+		config.setAttribute(
+				IDirectRemoteConnectionConfigurationConstants.ATTR_SOURCE_MAPPINGS,
+				sourceMappingsText.getText());
+		config.setAttribute(
+				IDirectRemoteConnectionConfigurationConstants.ATTR_SOURCE_FETCH,
+				sourceFetchButton.getSelection());
 		super.performApply(config);
 	}
 
@@ -463,6 +681,36 @@ public class DirectRemoteCMainTab extends CMainTab {
 		config.setAttribute(
 				IDirectRemoteConnectionConfigurationConstants.ATTR_PRERUN_COMMANDS,
 				EMPTY_STRING);
+		config.setAttribute(
+				IDirectRemoteConnectionConfigurationConstants.ATTR_PREWARM_GDB,
+				IDirectRemoteConnectionConfigurationConstants.DEFAULT_PREWARM_GDB);
+		config.setAttribute(
+				IDirectRemoteConnectionConfigurationConstants.ATTR_GDB_START_TIMEOUT,
+				IDirectRemoteConnectionConfigurationConstants.DEFAULT_GDB_START_TIMEOUT);
+		config.setAttribute(
+				IDirectRemoteConnectionConfigurationConstants.ATTR_CONSOLE_MIRROR,
+				IDirectRemoteConnectionConfigurationConstants.DEFAULT_CONSOLE_MIRROR);
+		config.setAttribute(
+				IDirectRemoteConnectionConfigurationConstants.ATTR_CONSOLE_BUFFER,
+				IDirectRemoteConnectionConfigurationConstants.DEFAULT_CONSOLE_BUFFER);
+		config.setAttribute(
+				IDirectRemoteConnectionConfigurationConstants.ATTR_CONSOLE_SPILL,
+				IDirectRemoteConnectionConfigurationConstants.DEFAULT_CONSOLE_SPILL);
+		config.setAttribute(
+				IDirectRemoteConnectionConfigurationConstants.ATTR_COALESCE_COMMANDS,
+				IDirectRemoteConnectionConfigurationConstants.DEFAULT_COALESCE_COMMANDS);
+		config.setAttribute(
+				IDirectRemoteConnectionConfigurationConstants.ATTR_COMMAND_METRICS,
+				IDirectRemoteConnectionConfigurationConstants.DEFAULT_COMMAND_METRICS);
+		config.setAttribute(
+				IDirectRemoteConnectionConfigurationConstants.ATTR_COMMAND_TRACE_FILE,
+				EMPTY_STRING);
+		config.setAttribute(
+				IDirectRemoteConnectionConfigurationConstants.ATTR_SOURCE_MAPPINGS,
+				EMPTY_STRING);
+		config.setAttribute(
+				IDirectRemoteConnectionConfigurationConstants.ATTR_SOURCE_FETCH,
+				IDirectRemoteConnectionConfigurationConstants.DEFAULT_SOURCE_FETCH);
 	}
 
 }
@@ -0,0 +1,186 @@
+package org.eclipse.cdt.launch.remote.direct;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.eclipse.jface.action.Action;
+import org.eclipse.jface.action.IToolBarManager;
+import org.eclipse.jface.dialogs.MessageDialog;
+import org.eclipse.jface.viewers.ArrayContentProvider;
+import org.eclipse.jface.viewers.ITableLabelProvider;
+import org.eclipse.jface.viewers.LabelProvider;
+import org.eclipse.jface.viewers.TableViewer;
+import org.eclipse.osgi.util.NLS;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.FileDialog;
+import org.eclipse.swt.widgets.Table;
+import org.eclipse.swt.widgets.TableColumn;
+import org.eclipse.ui.part.ViewPart;
+
+/**
+ * Shows how long the MI commands of the latest debug sessions took, by
+ * family of commands: the time they waited in the queue of the debugger,
+ * and the time from sending them to gdb to its answer, which is spent on
+ * the connection and in gdb. Only sessions whose launch configuration
+ * collects statistics of the commands are shown.
+ */
+public class DirectRemoteCommandLatencyView extends ViewPart {
+	/* Milliseconds between refreshes while the view is open */
+	private static final int REFRESH_INTERVAL = 1000;
+
+	private static final String[] COLUMNS = { Messages.DirectRemoteCommandLatencyView_0,
+			Messages.DirectRemoteCommandLatencyView_1, Messages.DirectRemoteCommandLatencyView_2,
+			Messages.DirectRemoteCommandLatencyView_3, Messages.DirectRemoteCommandLatencyView_4,
+			Messages.DirectRemoteCommandLatencyView_5, Messages.DirectRemoteCommandLatencyView_6,
+			Messages.DirectRemoteCommandLatencyView_7, Messages.DirectRemoteCommandLatencyView_8 };
+	private static final int[] WIDTHS = { 160, 70, 80, 60, 90, 80, 80, 80, 80 };
+
+	private TableViewer viewer;
+
+	/* A family of commands of a session */
+	private static class Row {
+		final DirectRemoteCommandMetrics session;
+		final DirectRemoteCommandMetrics.CommandStats stats;
+
+		Row(DirectRemoteCommandMetrics session, DirectRemoteCommandMetrics.CommandStats stats) {
+			this.session = session;
+			this.stats = stats;
+		}
+	}
+
+	private static class RowLabelProvider extends LabelProvider implements ITableLabelProvider {
+
+		public Image getColumnImage(Object element, int columnIndex) {
+			return null;
+		}
+
+		public String getColumnText(Object element, int columnIndex) {
+			Row row = (Row) element;
+			switch (columnIndex) {
+			case 0:
+				return row.session.isEnded() ? NLS.bind(Messages.DirectRemoteCommandLatencyView_9, row.session.getName())
+						: row.session.getName();
+			case 1:
+				return row.stats.operation;
+			case 2:
+				return Long.toString(row.stats.done);
+			case 3:
+				return Long.toString(row.stats.failed);
+			case 4:
+				return DirectRemoteCommandMetrics.toMillis(row.stats.queueTime.getPercentile(0.5));
+			case 5:
+				return DirectRemoteCommandMetrics.toMillis(row.stats.roundTrip.getPercentile(0.5));
+			case 6:
+				return DirectRemoteCommandMetrics.toMillis(row.stats.roundTrip.getPercentile(0.95));
+			case 7:
+				return DirectRemoteCommandMetrics.toMillis(row.stats.roundTrip.getPercentile(0.99));
+			case 8:
+				return DirectRemoteCommandMetrics.toMillis(row.stats.roundTrip.getMax());
+			}
+			return ""; //$NON-NLS-1$
+		}
+	}
+
+	@Override
+	public void createPartControl(Composite parent) {
+		viewer = new TableViewer(parent, SWT.MULTI | SWT.FULL_SELECTION | SWT.H_SCROLL | SWT.V_SCROLL);
+		Table table = viewer.getTable();
+		table.setHeaderVisible(true);
+		table.setLinesVisible(true);
+		for (int i = 0; i < COLUMNS.length; i++) {
+			TableColumn column = new TableColumn(table, i < 2 ? SWT.LEFT : SWT.RIGHT);
+			column.setText(COLUMNS[i]);
+			column.setWidth(WIDTHS[i]);
+		}
+		viewer.setContentProvider(new ArrayContentProvider());
+		viewer.setLabelProvider(new RowLabelProvider());
+		createActions();
+		refresh();
+		scheduleRefresh();
+	}
+
+	private void createActions() {
+		IToolBarManager toolBar = getViewSite().getActionBars().getToolBarManager();
+		toolBar.add(new Action(Messages.DirectRemoteCommandLatencyView_10) {
+
+			@Override
+			public void run() {
+				DirectRemoteCommandMetrics.clearEnded();
+				refresh();
+			}
+		});
+		toolBar.add(new Action(Messages.DirectRemoteCommandLatencyView_11) {
+
+			@Override
+			public void run() {
+				export();
+			}
+		});
+	}
+
+	private void scheduleRefresh() {
+		viewer.getControl().getDisplay().timerExec(REFRESH_INTERVAL, new Runnable() {
+
+			public void run() {
+				if (viewer.getControl().isDisposed())
+					return;
+				refresh();
+				scheduleRefresh();
+			}
+		});
+	}
+
+	private void refresh() {
+		List<Row> rows = new ArrayList<Row>();
+		List<DirectRemoteCommandMetrics> sessions = DirectRemoteCommandMetrics.getSessions();
+		// newest first
+		for (int i = sessions.size() - 1; i >= 0; i--) {
+			DirectRemoteCommandMetrics session = sessions.get(i);
+			for (Iterator<DirectRemoteCommandMetrics.CommandStats> it = session.getFamilyStats().iterator(); it.hasNext();)
+				rows.add(new Row(session, it.next()));
+		}
+		viewer.setInput(rows);
+	}
+
+	/*
+	 * Write the statistics of the sessions shown to a JSON file chosen by the user.
+	 */
+	private void export() {
+		FileDialog dialog = new FileDialog(getSite().getShell(), SWT.SAVE);
+		dialog.setFilterExtensions(new String[] { "*.json" }); //$NON-NLS-1$
+		dialog.setFileName("gdb-latency.json"); //$NON-NLS-1$
+		dialog.setOverwrite(true);
+		String path = dialog.open();
+		if (path == null)
+			return;
+		Writer out = null;
+		try {
+			out = new OutputStreamWriter(new FileOutputStream(new File(path)), "UTF-8"); //$NON-NLS-1$
+			DirectRemoteCommandMetrics.writeJson(DirectRemoteCommandMetrics.getSessions(), out);
+		} catch (IOException e) {
+			MessageDialog.openError(getSite().getShell(), Messages.DirectRemoteCommandLatencyView_11,
+					NLS.bind(Messages.DirectRemoteCommandLatencyView_12, path, e.getMessage()));
+		} finally {
+			if (out != null) {
+				try {
+					out.close();
+				} catch (IOException e) {
+					// nothing more to do
+				}
+			}
+		}
+	}
+
+	@Override
+	public void setFocus() {
+		viewer.getControl().setFocus();
+	}
+}
@@ -0,0 +1,469 @@
+package org.eclipse.cdt.launch.remote.direct;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.eclipse.cdt.dsf.debug.service.command.ICommand;
+import org.eclipse.cdt.dsf.debug.service.command.ICommandListener;
+import org.eclipse.cdt.dsf.debug.service.command.ICommandResult;
+import org.eclipse.cdt.dsf.debug.service.command.ICommandToken;
+import org.eclipse.cdt.dsf.mi.service.command.commands.MICommand;
+import org.eclipse.cdt.dsf.mi.service.command.output.MIInfo;
+import org.eclipse.cdt.dsf.service.DsfSession;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.debug.core.ILaunchConfiguration;
+import org.eclipse.rse.ui.SystemBasePlugin;
+
+/**
+ * Statistics of the MI commands of a debug session: per operation, how many
+ * were queued, sent, completed and failed, and how long they waited in the
+ * queue and took from being sent to being done. Optionally every change of
+ * state is written to a trace file as well.
+ * <p>
+ * It is only added to the command control if the launch configuration asks
+ * for it; the session pays nothing otherwise. Recording takes two short
+ * locks, that of the commands in progress and that of the statistics of the
+ * operation, since commands are sent and completed by the threads talking
+ * to gdb.
+ */
+class DirectRemoteCommandMetrics implements ICommandListener {
+	private static final String MS = "%8.2f"; //$NON-NLS-1$
+	/* Sessions whose statistics are kept, the oldest are forgotten */
+	private static final int MAX_SESSIONS = 10;
+	/* Family of the commands which are not MI commands */
+	private static final String OTHER_FAMILY = "other"; //$NON-NLS-1$
+
+	// the latest sessions, newest last
+	private static final LinkedList<DirectRemoteCommandMetrics> sessions = new LinkedList<DirectRemoteCommandMetrics>();
+
+	private final String sessionId;
+	private final String name;
+	private final long startTime = System.currentTimeMillis();
+	private volatile long endTime;
+	private final Map<String, CommandStats> stats = new HashMap<String, CommandStats>();
+	// queued and sent time of the commands in progress
+	private final Map<ICommandToken, long[]> pending = new IdentityHashMap<ICommandToken, long[]>();
+	private final DirectRemoteCommandTrace trace;
+
+	/**
+	 * Latencies in buckets of powers of two microseconds. Recording does not
+	 * allocate; percentiles are answered with the upper bound of their bucket.
+	 */
+	static class Histogram {
+		private static final int BUCKETS = 40;
+		private final long[] counts = new long[BUCKETS];
+		private long count;
+		private long sum;
+		private long max;
+
+		void record(long micros) {
+			int bucket = 0;
+			while (bucket < BUCKETS - 1 && (1L << (bucket + 1)) <= micros)
+				bucket++;
+			counts[bucket]++;
+			count++;
+			sum += micros;
+			if (micros > max)
+				max = micros;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public long getMax() {
+			return max;
+		}
+
+		public long getMean() {
+			return count == 0 ? 0 : sum / count;
+		}
+
+		/**
+		 * Answer the latency in microseconds that the given share of the
+		 * recorded ones does not exceed, or 0 if none was recorded.
+		 */
+		public long getPercentile(double share) {
+			long rank = (long) Math.ceil(share * count);
+			long seen = 0;
+			for (int i = 0; i < BUCKETS; i++) {
+				seen += counts[i];
+				if (seen >= rank && seen > 0)
+					return Math.min(max, (1L << (i + 1)) - 1);
+			}
+			return max;
+		}
+
+		void addTo(Histogram other) {
+			for (int i = 0; i < BUCKETS; i++)
+				other.counts[i] += counts[i];
+			other.count += count;
+			other.sum += sum;
+			other.max = Math.max(other.max, max);
+		}
+	}
+
+	/**
+	 * The statistics of one MI operation, such as <code>-exec-next</code>.
+	 */
+	static class CommandStats {
+		final String operation;
+		long queued;
+		long sent;
+		long done;
+		long failed;
+		long removed;
+		final Histogram queueTime = new Histogram();
+		final Histogram roundTrip = new Histogram();
+
+		CommandStats(String operation) {
+			this.operation = operation;
+		}
+
+		synchronized CommandStats copy() {
+			CommandStats copy = new CommandStats(operation);
+			addTo(copy);
+			return copy;
+		}
+
+		synchronized void addTo(CommandStats other) {
+			other.queued += queued;
+			other.sent += sent;
+			other.done += done;
+			other.failed += failed;
+			other.removed += removed;
+			queueTime.addTo(other.queueTime);
+			roundTrip.addTo(other.roundTrip);
+		}
+	}
+
+	private DirectRemoteCommandMetrics(String sessionId, String name, DirectRemoteCommandTrace trace) {
+		this.sessionId = sessionId;
+		this.name = name;
+		this.trace = trace;
+	}
+
+	/**
+	 * Create the statistics of a session if the launch configuration asks
+	 * for them, opening its trace file if it names one.
+	 *
+	 * @return the statistics, or <code>null</code> if they are not wanted
+	 */
+	public static DirectRemoteCommandMetrics create(DsfSession session, ILaunchConfiguration config) {
+		try {
+			if (!config.getAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_COMMAND_METRICS,
+					IDirectRemoteConnectionConfigurationConstants.DEFAULT_COMMAND_METRICS))
+				return null;
+			String traceFile = config.getAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_COMMAND_TRACE_FILE,
+					""); //$NON-NLS-1$
+			DirectRemoteCommandTrace trace = null;
+			if (traceFile.trim().length() > 0) {
+				try {
+					trace = DirectRemoteCommandTrace.open(new File(traceFile.trim()), session.getId());
+				} catch (IOException e) {
+					SystemBasePlugin.logError("Could not open the MI command trace " + traceFile, e); //$NON-NLS-1$
+				}
+			}
+			DirectRemoteCommandMetrics metrics = new DirectRemoteCommandMetrics(session.getId(), config.getName(), trace);
+			synchronized (sessions) {
+				sessions.addLast(metrics);
+				if (sessions.size() > MAX_SESSIONS)
+					sessions.removeFirst();
+			}
+			return metrics;
+		} catch (CoreException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Answer the statistics of the latest sessions which collected them, newest last.
+	 */
+	public static List<DirectRemoteCommandMetrics> getSessions() {
+		synchronized (sessions) {
+			return new ArrayList<DirectRemoteCommandMetrics>(sessions);
+		}
+	}
+
+	/**
+	 * Forget the statistics of the sessions which ended.
+	 */
+	public static void clearEnded() {
+		synchronized (sessions) {
+			for (Iterator<DirectRemoteCommandMetrics> it = sessions.iterator(); it.hasNext();)
+				if (it.next().isEnded())
+					it.remove();
+		}
+	}
+
+	public String getSessionId() {
+		return sessionId;
+	}
+
+	/**
+	 * Answer the name of the launch configuration of the session.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	public long getStartTime() {
+		return startTime;
+	}
+
+	public boolean isEnded() {
+		return endTime != 0;
+	}
+
+	/**
+	 * Answer a copy of the statistics of every operation, by operation name.
+	 */
+	public List<CommandStats> getStats() {
+		List<CommandStats> all;
+		synchronized (stats) {
+			all = new ArrayList<CommandStats>(stats.values());
+		}
+		List<CommandStats> copies = new ArrayList<CommandStats>(all.size());
+		for (Iterator<CommandStats> it = all.iterator(); it.hasNext();)
+			copies.add(it.next().copy());
+		Collections.sort(copies, new Comparator<CommandStats>() {
+
+			public int compare(CommandStats a, CommandStats b) {
+				return a.operation.compareTo(b.operation);
+			}
+		});
+		return copies;
+	}
+
+	/**
+	 * Answer the statistics merged by family of operations, such as
+	 * <code>exec</code> for <code>-exec-next</code> and <code>-exec-continue</code>,
+	 * by family name.
+	 */
+	public List<CommandStats> getFamilyStats() {
+		Map<String, CommandStats> families = new TreeMap<String, CommandStats>();
+		for (Iterator<CommandStats> it = getStats().iterator(); it.hasNext();) {
+			CommandStats s = it.next();
+			String family = getFamily(s.operation);
+			CommandStats merged = families.get(family);
+			if (merged == null) {
+				merged = new CommandStats(family);
+				families.put(family, merged);
+			}
+			s.addTo(merged);
+		}
+		return new ArrayList<CommandStats>(families.values());
+	}
+
+	/**
+	 * Write the statistics of the given sessions as a JSON array, one object
+	 * per session with its families and operations. Times are in microseconds.
+	 */
+	public static void writeJson(List<DirectRemoteCommandMetrics> all, Writer out) throws IOException {
+		out.write("[\n"); //$NON-NLS-1$
+		for (Iterator<DirectRemoteCommandMetrics> it = all.iterator(); it.hasNext();) {
+			DirectRemoteCommandMetrics metrics = it.next();
+			out.write("  {\"session\": "); //$NON-NLS-1$
+			writeString(metrics.sessionId, out);
+			out.write(", \"name\": "); //$NON-NLS-1$
+			writeString(metrics.name, out);
+			out.write(", \"start\": " + metrics.startTime); //$NON-NLS-1$
+			if (metrics.isEnded())
+				out.write(", \"end\": " + metrics.endTime); //$NON-NLS-1$
+			out.write(",\n   \"families\": "); //$NON-NLS-1$
+			writeStats(metrics.getFamilyStats(), out);
+			out.write(",\n   \"operations\": "); //$NON-NLS-1$
+			writeStats(metrics.getStats(), out);
+			out.write(it.hasNext() ? "},\n" : "}\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		out.write("]\n"); //$NON-NLS-1$
+	}
+
+	private static void writeStats(List<CommandStats> stats, Writer out) throws IOException {
+		out.write('{');
+		for (Iterator<CommandStats> it = stats.iterator(); it.hasNext();) {
+			CommandStats s = it.next();
+			out.write("\n    "); //$NON-NLS-1$
+			writeString(s.operation, out);
+			out.write(": {\"queued\": " + s.queued + ", \"sent\": " + s.sent //$NON-NLS-1$ //$NON-NLS-2$
+					+ ", \"done\": " + s.done + ", \"failed\": " + s.failed //$NON-NLS-1$ //$NON-NLS-2$
+					+ ", \"removed\": " + s.removed); //$NON-NLS-1$
+			out.write(", \"queueTime\": "); //$NON-NLS-1$
+			writeHistogram(s.queueTime, out);
+			out.write(", \"roundTrip\": "); //$NON-NLS-1$
+			writeHistogram(s.roundTrip, out);
+			out.write(it.hasNext() ? "}," : "}"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		out.write('}');
+	}
+
+	private static void writeHistogram(Histogram h, Writer out) throws IOException {
+		out.write("{\"count\": " + h.getCount() + ", \"mean\": " + h.getMean() //$NON-NLS-1$ //$NON-NLS-2$
+				+ ", \"p50\": " + h.getPercentile(0.5) + ", \"p95\": " + h.getPercentile(0.95) //$NON-NLS-1$ //$NON-NLS-2$
+				+ ", \"p99\": " + h.getPercentile(0.99) + ", \"max\": " + h.getMax() + "}"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+
+	static void writeString(String value, Writer out) throws IOException {
+		out.write('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\') {
+				out.write('\\');
+				out.write(c);
+			} else if (c < ' ') {
+				out.write(String.format("\\u%04x", Integer.valueOf(c))); //$NON-NLS-1$
+			} else {
+				out.write(c);
+			}
+		}
+		out.write('"');
+	}
+
+	/**
+	 * Note that the session ended: write the statistics to the trace and close it.
+	 */
+	public void sessionEnded() {
+		endTime = System.currentTimeMillis();
+		if (trace != null) {
+			trace.comment(format());
+			trace.close();
+		}
+		synchronized (pending) {
+			pending.clear();
+		}
+	}
+
+	/**
+	 * Answer the statistics as a table, one operation per line, times in milliseconds.
+	 */
+	public String format() {
+		StringBuffer table = new StringBuffer();
+		table.append("operation count failed queue-p50 queue-p99 p50 p95 p99 max\n"); //$NON-NLS-1$
+		for (Iterator<CommandStats> it = getStats().iterator(); it.hasNext();) {
+			CommandStats s = it.next();
+			table.append(s.operation).append(' ').append(s.done).append(' ').append(s.failed);
+			table.append(' ').append(toMillis(s.queueTime.getPercentile(0.5)));
+			table.append(' ').append(toMillis(s.queueTime.getPercentile(0.99)));
+			table.append(' ').append(toMillis(s.roundTrip.getPercentile(0.5)));
+			table.append(' ').append(toMillis(s.roundTrip.getPercentile(0.95)));
+			table.append(' ').append(toMillis(s.roundTrip.getPercentile(0.99)));
+			table.append(' ').append(toMillis(s.roundTrip.getMax()));
+			table.append('\n');
+		}
+		return table.toString();
+	}
+
+	public void commandQueued(ICommandToken token) {
+		String operation = getOperation(token.getCommand());
+		long now = System.nanoTime();
+		synchronized (pending) {
+			pending.put(token, new long[] { now, 0 });
+		}
+		CommandStats s = getStats(operation);
+		synchronized (s) {
+			s.queued++;
+		}
+		if (trace != null)
+			trace.log('Q', operation, System.identityHashCode(token), -1);
+	}
+
+	public void commandSent(ICommandToken token) {
+		long micros;
+		synchronized (pending) {
+			long[] times = pending.get(token);
+			if (times == null)
+				return;
+			times[1] = System.nanoTime();
+			micros = (times[1] - times[0]) / 1000;
+		}
+		String operation = getOperation(token.getCommand());
+		CommandStats s = getStats(operation);
+		synchronized (s) {
+			s.sent++;
+			s.queueTime.record(micros);
+		}
+		if (trace != null)
+			trace.log('S', operation, System.identityHashCode(token), micros);
+	}
+
+	public void commandRemoved(ICommandToken token) {
+		synchronized (pending) {
+			if (pending.remove(token) == null)
+				return;
+		}
+		String operation = getOperation(token.getCommand());
+		CommandStats s = getStats(operation);
+		synchronized (s) {
+			s.removed++;
+		}
+		if (trace != null)
+			trace.log('R', operation, System.identityHashCode(token), -1);
+	}
+
+	public void commandDone(ICommandToken token, ICommandResult result) {
+		long[] times;
+		synchronized (pending) {
+			times = pending.remove(token);
+		}
+		if (times == null || times[1] == 0)
+			return;
+		long micros = (System.nanoTime() - times[1]) / 1000;
+		boolean failed = result instanceof MIInfo && ((MIInfo) result).isError();
+		String operation = getOperation(token.getCommand());
+		CommandStats s = getStats(operation);
+		synchronized (s) {
+			s.done++;
+			if (failed)
+				s.failed++;
+			s.roundTrip.record(micros);
+		}
+		if (trace != null)
+			trace.log(failed ? 'E' : 'D', operation, System.identityHashCode(token), micros);
+	}
+
+	private CommandStats getStats(String operation) {
+		synchronized (stats) {
+			CommandStats s = stats.get(operation);
+			if (s == null) {
+				s = new CommandStats(operation);
+				stats.put(operation, s);
+			}
+			return s;
+		}
+	}
+
+	/**
+	 * Answer the name of the MI operation of a command, such as <code>-exec-next</code>.
+	 */
+	static String getOperation(ICommand<?> command) {
+		if (command instanceof MICommand<?>)
+			return ((MICommand<?>) command).getCommandOperation();
+		return command.getClass().getSimpleName();
+	}
+
+	/**
+	 * Answer the family of an MI operation, the word after its dash, such as
+	 * <code>var</code> for <code>-var-update</code>.
+	 */
+	static String getFamily(String operation) {
+		if (!operation.startsWith("-")) //$NON-NLS-1$
+			return OTHER_FAMILY;
+		int end = operation.indexOf('-', 1);
+		return end < 0 ? operation.substring(1) : operation.substring(1, end);
+	}
+
+	static String toMillis(long micros) {
+		return String.format(MS, Double.valueOf(micros / 1000.0)).trim();
+	}
+}
@@ -0,0 +1,149 @@
+package org.eclipse.cdt.launch.remote.direct;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.rse.ui.SystemBasePlugin;
+
+/**
+ * Writes the MI commands of a debug session to a file, one line per
+ * change of state. The debugger only queues the events; a thread of its own
+ * formats and writes them, and events it cannot keep up with are dropped.
+ */
+class DirectRemoteCommandTrace implements Runnable {
+	/* Events queued before further ones are dropped */
+	private static final int QUEUE_SIZE = 8192;
+
+	/* A command changed its state */
+	private static class Event {
+		final long time;
+		final char phase;
+		final String operation;
+		final int token;
+		final long micros;
+		final String text;
+
+		Event(long time, char phase, String operation, int token, long micros, String text) {
+			this.time = time;
+			this.phase = phase;
+			this.operation = operation;
+			this.token = token;
+			this.micros = micros;
+			this.text = text;
+		}
+	}
+
+	// tells the writing thread to stop
+	private static final Event END = new Event(0, ' ', null, 0, 0, null);
+
+	private final File file;
+	private final BlockingQueue<Event> events = new ArrayBlockingQueue<Event>(QUEUE_SIZE);
+	private final AtomicLong dropped = new AtomicLong();
+	private final Writer writer;
+
+	private DirectRemoteCommandTrace(File file) throws IOException {
+		this.file = file;
+		writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), "UTF-8")); //$NON-NLS-1$
+	}
+
+	/**
+	 * Open the trace file, appending to it, and start writing.
+	 */
+	public static DirectRemoteCommandTrace open(File file, String sessionId) throws IOException {
+		DirectRemoteCommandTrace trace = new DirectRemoteCommandTrace(file);
+		trace.add(new Event(System.currentTimeMillis(), '#', null, 0, 0, "session " + sessionId)); //$NON-NLS-1$
+		Thread thread = new Thread(trace, "MI command trace " + sessionId); //$NON-NLS-1$
+		thread.setDaemon(true);
+		thread.start();
+		return trace;
+	}
+
+	/**
+	 * Queue an event of a command.
+	 *
+	 * @param phase 'Q' for queued, 'S' for sent, 'D' for done, 'E' for failed, 'R' for removed
+	 * @param token identifies the command among those in progress
+	 * @param micros the time since the previous phase, or -1
+	 */
+	public void log(char phase, String operation, int token, long micros) {
+		add(new Event(System.currentTimeMillis(), phase, operation, token, micros, null));
+	}
+
+	/**
+	 * Queue a free form comment line, such as the statistics of the session.
+	 */
+	public void comment(String text) {
+		add(new Event(System.currentTimeMillis(), '#', null, 0, 0, text));
+	}
+
+	/**
+	 * Write what is queued and close the file.
+	 */
+	public void close() {
+		try {
+			events.put(END);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void add(Event event) {
+		if (!events.offer(event))
+			dropped.incrementAndGet();
+	}
+
+	public void run() {
+		try {
+			while (true) {
+				Event event = events.take();
+				if (event == END)
+					break;
+				write(event);
+				// write out when the debugger pauses
+				if (events.isEmpty())
+					writer.flush();
+			}
+		} catch (InterruptedException e) {
+			// closing
+		} catch (IOException e) {
+			SystemBasePlugin.logError("Could not write the MI command trace " + file, e); //$NON-NLS-1$
+		} finally {
+			try {
+				long lost = dropped.get();
+				if (lost > 0)
+					writer.write("# " + lost + " events dropped\n"); //$NON-NLS-1$ //$NON-NLS-2$
+				writer.close();
+			} catch (IOException e) {
+				// nothing more to do
+			}
+			events.clear();
+		}
+	}
+
+	private void write(Event event) throws IOException {
+		writer.write(Long.toString(event.time));
+		writer.write(' ');
+		writer.write(event.phase);
+		writer.write(' ');
+		if (event.text != null) {
+			writer.write(event.text);
+		} else {
+			writer.write(Integer.toHexString(event.token));
+			writer.write(' ');
+			writer.write(event.operation);
+			if (event.micros >= 0) {
+				writer.write(' ');
+				writer.write(Long.toString(event.micros));
+				writer.write("us"); //$NON-NLS-1$
+			}
+		}
+		writer.write('\n');
+	}
+}
@@ -0,0 +1,460 @@
+package org.eclipse.cdt.launch.remote.direct;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.debug.core.DebugPlugin;
+import org.eclipse.debug.core.ILaunch;
+import org.eclipse.debug.core.ILaunchesListener2;
+import org.eclipse.rse.core.RSECorePlugin;
+import org.eclipse.rse.core.model.IHost;
+import org.eclipse.rse.core.subsystems.ISubSystem;
+import org.eclipse.rse.services.files.IFileService;
+import org.eclipse.rse.services.files.IHostFile;
+import org.eclipse.rse.services.shells.IHostShell;
+import org.eclipse.rse.services.shells.IShellService;
+import org.eclipse.rse.subsystems.files.core.model.RemoteFileUtility;
+import org.eclipse.rse.subsystems.files.core.servicesubsystem.FileServiceSubSystem;
+import org.eclipse.rse.subsystems.files.core.subsystems.IRemoteFileSubSystem;
+import org.eclipse.rse.ui.SystemBasePlugin;
+
+/**
+ * Keeps the shell and file subsystems of the hosts used for debugging looked
+ * up and connected, so that back-to-back launches and helper commands skip the
+ * search through the system registry and the connect handshake.
+ * <p>
+ * Every use checks that the subsystem is still connected and connects it
+ * again if not; a subsystem that fails to connect is looked up anew next
+ * time. A subsystem which was not used for a while is probed by a round trip
+ * to the host before it is handed out, since a connection which died silently
+ * still looks connected; it is connected anew if the host does not answer.
+ * Connecting and probing, which may wait for the host or for a password, run
+ * outside the lock of the host, one at a time per host: callers which need
+ * the connection meanwhile wait for that to complete, while lookups, leases
+ * and the pools of other hosts go on.
+ * <p>
+ * Connections the pool opened itself are closed after they were not used for
+ * a while, unless someone holds a {@link Lease} on them, as a debug session
+ * does until it terminates; those opened by the user, for instance in the
+ * Remote Systems view, are left alone.
+ */
+class DirectRemoteConnectionPool {
+	/* Connections opened by the pool and unused for this long are closed */
+	private static final long IDLE_TIMEOUT = 10 * 60 * 1000;
+	/* Subsystems unused for this long are probed before they are handed out */
+	private static final long PROBE_INTERVAL = 30 * 1000;
+
+	private static final Map<IHost, Entry> entries = new HashMap<IHost, Entry>();
+	private static final Map<String, IHost> hostsByName = new HashMap<String, IHost>();
+	private static Timer idleTimer;
+
+	/**
+	 * The subsystems of a host.
+	 */
+	private static class Entry {
+		final IHost host;
+		ISubSystem shellSubSystem;
+		IShellService shellService;
+		IRemoteFileSubSystem fileSubSystem;
+		// the subsystems the pool connected, so it may disconnect them again
+		final List<ISubSystem> connectedByPool = new ArrayList<ISubSystem>();
+		long lastUsed = System.currentTimeMillis();
+		// the leases not released yet
+		int leases = 0;
+		// whether a caller connects or probes a subsystem, without the lock
+		boolean connecting = false;
+
+		Entry(IHost host) {
+			this.host = host;
+		}
+	}
+
+	/**
+	 * A hold on the connection of a host, which is not closed as idle until
+	 * every lease on it has been released.
+	 */
+	static final class Lease implements ILaunchesListener2 {
+		private final Entry entry;
+		private volatile ILaunch launch;
+		private boolean released = false;
+
+		private Lease(Entry entry) {
+			this.entry = entry;
+		}
+
+		/**
+		 * Release the lease; releasing it again has no effect.
+		 */
+		public void release() {
+			synchronized (entry) {
+				if (released)
+					return;
+				released = true;
+				entry.leases--;
+				entry.lastUsed = System.currentTimeMillis();
+			}
+			if (launch != null)
+				DebugPlugin.getDefault().getLaunchManager().removeLaunchListener(this);
+		}
+
+		/**
+		 * Release the lease once the given launch terminated or was removed.
+		 */
+		public void releaseWhenTerminated(ILaunch launch) {
+			this.launch = launch;
+			DebugPlugin.getDefault().getLaunchManager().addLaunchListener(this);
+			if (launch.isTerminated())
+				release();
+		}
+
+		public void launchesTerminated(ILaunch[] launches) {
+			releaseIfAmong(launches);
+		}
+
+		public void launchesRemoved(ILaunch[] launches) {
+			releaseIfAmong(launches);
+		}
+
+		public void launchesAdded(ILaunch[] launches) {
+		}
+
+		public void launchesChanged(ILaunch[] launches) {
+		}
+
+		private void releaseIfAmong(ILaunch[] launches) {
+			for (int i = 0; i < launches.length; i++) {
+				if (launches[i] == launch) {
+					release();
+					return;
+				}
+			}
+		}
+	}
+
+	private DirectRemoteConnectionPool() {
+	}
+
+	/**
+	 * Answer the connection with the given name, or null if there is none.
+	 */
+	public static IHost getHost(String name) {
+		synchronized (hostsByName) {
+			IHost host = hostsByName.get(name);
+			// the connection may have been renamed or deleted since
+			if (host != null && name.equals(host.getAliasName())
+					&& RSECorePlugin.getTheSystemRegistry().getHost(host.getSystemProfile(), name) == host)
+				return host;
+			hostsByName.remove(name);
+		}
+		IHost[] connections = RSECorePlugin.getTheSystemRegistry().getHosts();
+		for (int i = 0; i < connections.length; i++) {
+			if (connections[i].getAliasName().equals(name)) {
+				synchronized (hostsByName) {
+					hostsByName.put(name, connections[i]);
+				}
+				return connections[i];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Take a lease on the connection of the given host, so it is not closed
+	 * as idle until the lease is released.
+	 */
+	public static Lease lease(IHost host) {
+		Entry entry = getEntry(host);
+		synchronized (entry) {
+			entry.leases++;
+			entry.lastUsed = System.currentTimeMillis();
+		}
+		return new Lease(entry);
+	}
+
+	/**
+	 * Answer the shell service of the given host, connecting it if necessary.
+	 */
+	public static IShellService getShellService(IHost host, IProgressMonitor monitor) throws Exception {
+		Entry entry = getEntry(host);
+		ISubSystem subsystem;
+		IShellService service;
+		synchronized (entry) {
+			awaitConnecting(entry, monitor);
+			long idle = System.currentTimeMillis() - entry.lastUsed;
+			entry.lastUsed = System.currentTimeMillis();
+			if (entry.shellSubSystem == null || entry.shellSubSystem.getHost() != host) {
+				entry.shellSubSystem = RSEHelper.getSubSystemWithShellService(host);
+				entry.shellService = null;
+				if (entry.shellSubSystem == null)
+					throw new Exception(Messages.RSEHelper_2);
+			}
+			subsystem = entry.shellSubSystem;
+			service = entry.shellService;
+			if (service != null && subsystem.isConnected() && idle <= PROBE_INTERVAL)
+				return service;
+			entry.connecting = true;
+		}
+		try {
+			if (service != null && subsystem.isConnected() && !probe(service, monitor)) {
+				// connected as far as RSE knows, but the host does not answer
+				reconnect(entry, subsystem, monitor);
+				service = null;
+			}
+			if (service == null || !subsystem.isConnected()) {
+				connect(entry, subsystem, monitor);
+				service = (IShellService) subsystem.getSubSystemConfiguration().getService(host)
+						.getAdapter(IShellService.class);
+			}
+			synchronized (entry) {
+				if (entry.shellSubSystem == subsystem)
+					entry.shellService = service;
+			}
+			return service;
+		} finally {
+			endConnecting(entry);
+		}
+	}
+
+	/**
+	 * Answer the file subsystem of the given host without connecting it, or null.
+	 */
+	public static IRemoteFileSubSystem getFileSubSystem(IHost host) {
+		Entry entry = getEntry(host);
+		synchronized (entry) {
+			if (entry.fileSubSystem == null || entry.fileSubSystem.getHost() != host)
+				entry.fileSubSystem = RemoteFileUtility.getFileSubSystem(host);
+			return entry.fileSubSystem;
+		}
+	}
+
+	/**
+	 * Answer the file subsystem of the given host, connecting it if necessary.
+	 */
+	public static IRemoteFileSubSystem getConnectedFileSubSystem(IHost host, IProgressMonitor monitor) throws Exception {
+		IRemoteFileSubSystem rfss = getFileSubSystem(host);
+		if (rfss == null)
+			throw new Exception(Messages.RSEHelper_2);
+		Entry entry = getEntry(host);
+		synchronized (entry) {
+			awaitConnecting(entry, monitor);
+			long idle = System.currentTimeMillis() - entry.lastUsed;
+			entry.lastUsed = System.currentTimeMillis();
+			if (rfss.isConnected() && idle <= PROBE_INTERVAL)
+				return rfss;
+			entry.connecting = true;
+		}
+		try {
+			if (rfss.isConnected() && !probe(rfss, monitor)) {
+				// connected as far as RSE knows, but the host does not answer
+				reconnect(entry, rfss, monitor);
+			}
+			if (!rfss.isConnected())
+				connect(entry, rfss, monitor);
+		} finally {
+			endConnecting(entry);
+		}
+		return rfss;
+	}
+
+	/**
+	 * Note that the connection of the given host is in use, so it is not
+	 * closed as idle.
+	 */
+	public static void touch(IHost host) {
+		Entry entry = getEntry(host);
+		synchronized (entry) {
+			entry.lastUsed = System.currentTimeMillis();
+		}
+	}
+
+	/**
+	 * Forget the subsystems of all hosts, closing the connections the pool opened.
+	 */
+	public static void closeAll() {
+		List<Entry> all;
+		synchronized (entries) {
+			all = new ArrayList<Entry>(entries.values());
+			entries.clear();
+			if (idleTimer != null) {
+				idleTimer.cancel();
+				idleTimer = null;
+			}
+		}
+		for (Iterator<Entry> it = all.iterator(); it.hasNext();)
+			disconnect(it.next());
+		synchronized (hostsByName) {
+			hostsByName.clear();
+		}
+	}
+
+	private static Entry getEntry(IHost host) {
+		synchronized (entries) {
+			Entry entry = entries.get(host);
+			if (entry == null) {
+				entry = new Entry(host);
+				entries.put(host, entry);
+				scheduleIdleCheck();
+			}
+			return entry;
+		}
+	}
+
+	/*
+	 * Wait until no other caller connects or probes a subsystem of the entry.
+	 * Called with the entry locked.
+	 */
+	private static void awaitConnecting(Entry entry, IProgressMonitor monitor) throws Exception {
+		while (entry.connecting) {
+			if (monitor.isCanceled())
+				throw new CoreException(Status.CANCEL_STATUS);
+			entry.wait(100);
+		}
+	}
+
+	/*
+	 * Let the callers waiting for the connection of the entry go on.
+	 */
+	private static void endConnecting(Entry entry) {
+		synchronized (entry) {
+			entry.connecting = false;
+			entry.notifyAll();
+		}
+	}
+
+	/*
+	 * Connect a subsystem of the entry. Called without the entry locked.
+	 */
+	private static void connect(Entry entry, ISubSystem subsystem, IProgressMonitor monitor) throws Exception {
+		boolean wasConnected = subsystem.isConnected();
+		try {
+			subsystem.connect(monitor, false);
+		} catch (OperationCanceledException e) {
+			throw new CoreException(Status.CANCEL_STATUS);
+		} catch (Exception e) {
+			// look the subsystems up again next time, they may have been reconfigured
+			synchronized (entry) {
+				entry.shellSubSystem = null;
+				entry.fileSubSystem = null;
+			}
+			throw e;
+		}
+		if (!subsystem.isConnected())
+			throw new Exception(Messages.RSEHelper_1);
+		synchronized (entry) {
+			if (!wasConnected && !entry.connectedByPool.contains(subsystem))
+				entry.connectedByPool.add(subsystem);
+		}
+	}
+
+	/*
+	 * Answer whether the host answers through the shell service, by opening
+	 * a shell; the shell subsystem claims to be connected either way.
+	 */
+	private static boolean probe(IShellService shellService, IProgressMonitor monitor) {
+		try {
+			IHostShell shell = shellService.launchShell("", new String[0], monitor); //$NON-NLS-1$
+			if (shell == null)
+				return false;
+			shell.exit();
+			return true;
+		} catch (Exception e) {
+			return false;
+		}
+	}
+
+	/*
+	 * Answer whether the host answers through the file subsystem, by asking
+	 * for the home directory. Subsystems of other kinds are taken at their word.
+	 */
+	private static boolean probe(IRemoteFileSubSystem rfss, IProgressMonitor monitor) {
+		if (!(rfss instanceof FileServiceSubSystem))
+			return true;
+		try {
+			IFileService fileService = ((FileServiceSubSystem) rfss).getFileService();
+			IHostFile home = fileService.getUserHome();
+			return home == null || fileService.getFile(home.getParentPath(), home.getName(), monitor) != null;
+		} catch (Exception e) {
+			return false;
+		}
+	}
+
+	/*
+	 * Connect a subsystem anew whose connection died. It stays the user's if
+	 * it was opened by the user. Called without the entry locked.
+	 */
+	private static void reconnect(Entry entry, ISubSystem subsystem, IProgressMonitor monitor) throws Exception {
+		boolean ours;
+		synchronized (entry) {
+			ours = entry.connectedByPool.contains(subsystem);
+		}
+		try {
+			subsystem.disconnect();
+		} catch (Exception e) {
+			// gone already
+		}
+		connect(entry, subsystem, monitor);
+		if (!ours) {
+			synchronized (entry) {
+				entry.connectedByPool.remove(subsystem);
+			}
+		}
+	}
+
+	private static void disconnect(Entry entry) {
+		List<ISubSystem> subsystems;
+		synchronized (entry) {
+			subsystems = new ArrayList<ISubSystem>(entry.connectedByPool);
+			entry.connectedByPool.clear();
+			entry.shellService = null;
+		}
+		for (Iterator<ISubSystem> it = subsystems.iterator(); it.hasNext();) {
+			ISubSystem subsystem = it.next();
+			try {
+				if (subsystem.isConnected())
+					subsystem.disconnect();
+			} catch (Exception e) {
+				SystemBasePlugin.logError("Could not disconnect " + entry.host.getAliasName(), e); //$NON-NLS-1$
+			}
+		}
+	}
+
+	/*
+	 * Start closing idle connections, if not done yet. Called with the entries locked.
+	 */
+	private static void scheduleIdleCheck() {
+		if (idleTimer != null)
+			return;
+		idleTimer = new Timer("Remote connection pool", true); //$NON-NLS-1$
+		idleTimer.schedule(new TimerTask() {
+
+			@Override
+			public void run() {
+				long now = System.currentTimeMillis();
+				List<Entry> all;
+				synchronized (entries) {
+					all = new ArrayList<Entry>(entries.values());
+				}
+				List<Entry> idle = new ArrayList<Entry>();
+				for (Iterator<Entry> it = all.iterator(); it.hasNext();) {
+					Entry entry = it.next();
+					synchronized (entry) {
+						if (!entry.connectedByPool.isEmpty() && entry.leases == 0 && !entry.connecting
+								&& now - entry.lastUsed > IDLE_TIMEOUT)
+							idle.add(entry);
+					}
+				}
+				for (Iterator<Entry> it = idle.iterator(); it.hasNext();)
+					disconnect(it.next());
+			}
+		}, IDLE_TIMEOUT / 2, IDLE_TIMEOUT / 2);
+	}
+}
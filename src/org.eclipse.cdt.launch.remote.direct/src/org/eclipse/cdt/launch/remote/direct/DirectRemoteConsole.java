@@ -0,0 +1,277 @@
+package org.eclipse.cdt.launch.remote.direct;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import org.eclipse.debug.core.DebugPlugin;
+import org.eclipse.debug.core.ILaunch;
+import org.eclipse.osgi.util.NLS;
+import org.eclipse.rse.ui.SystemBasePlugin;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.ui.console.ConsolePlugin;
+import org.eclipse.ui.console.IConsole;
+import org.eclipse.ui.console.MessageConsole;
+import org.eclipse.ui.console.MessageConsoleStream;
+
+/**
+ * The console showing what the remote shell of a launch printed while gdb
+ * was started, such as the output of the prerun commands or the reason gdb
+ * could not be run, and then the output of gdb and of the program it debugs.
+ * The output of gdb is decoded from gdb/MI, so the console shows the text of
+ * its stream records rather than the protocol. Each launch has a console of
+ * its own; those of removed launches are removed with the next launch, so
+ * the output of a launch which failed can still be read.
+ * <p>
+ * Output is put into ring buffers by the threads reading the shell and
+ * written to the console by a timer a few times per second, so a chatty
+ * shell neither blocks its readers nor creates garbage per line. Each write
+ * to the console is limited, so the console view is updated at a steady pace
+ * however much the program logs. The output of gdb may be spilled to disk
+ * when it arrives faster; output the console cannot keep up with is dropped,
+ * and the console says so.
+ */
+class DirectRemoteConsole {
+	/* Characters buffered per stream before the oldest are dropped */
+	private static final int BUFFER_SIZE = 64 * 1024;
+	/* Characters written to the console at once */
+	private static final int CHUNK_SIZE = 8 * 1024;
+	/* Milliseconds between writes to the console */
+	private static final long FLUSH_INTERVAL = 100;
+	/* Bytes of the output of gdb written to the console per stream and interval */
+	private static final int MAX_BYTES_PER_FLUSH = 64 * 1024;
+	/* Bytes the spill file of a stream holds at most; it is reused as a ring */
+	private static final long SPILL_LIMIT = 64L * 1024 * 1024;
+	/* Characters the console keeps; the oldest are removed beyond the high mark */
+	private static final int LOW_WATER_MARK = 800 * 1000;
+	private static final int HIGH_WATER_MARK = 1000 * 1000;
+
+	private static final Map<ILaunch, DirectRemoteConsole> consoles = new HashMap<ILaunch, DirectRemoteConsole>();
+	private static Timer flushTimer;
+
+	private final MessageConsole console;
+	private final MessageConsoleStream outputStream;
+	private final MessageConsoleStream errorStream;
+	private final DirectRemoteConsoleBuffer output = new DirectRemoteConsoleBuffer(BUFFER_SIZE);
+	private final DirectRemoteConsoleBuffer errors = new DirectRemoteConsoleBuffer(BUFFER_SIZE);
+	// only used by the flushing thread
+	private final char[] chunk = new char[CHUNK_SIZE];
+	private final byte[] byteChunk = new byte[CHUNK_SIZE];
+	// the output of the gdb process of the last launch, if it is shown
+	private DirectRemoteConsoleSpool processOutput;
+	private DirectRemoteConsoleSpool processErrors;
+	private DirectRemoteMiDecoder processDecoder;
+
+	private DirectRemoteConsole(String name) {
+		console = new MessageConsole(NLS.bind(Messages.DirectRemoteConsole_0, name), null);
+		console.setWaterMarks(LOW_WATER_MARK, HIGH_WATER_MARK);
+		outputStream = console.newMessageStream();
+		errorStream = console.newMessageStream();
+		final Display display = Display.getDefault();
+		display.asyncExec(new Runnable() {
+
+			public void run() {
+				errorStream.setColor(display.getSystemColor(SWT.COLOR_RED));
+			}
+		});
+	}
+
+	/**
+	 * Answer the console of the given launch, adding it to the console view
+	 * if it is not there yet.
+	 */
+	public static DirectRemoteConsole getConsole(ILaunch launch) {
+		DirectRemoteConsole console;
+		List<DirectRemoteConsole> removed = new ArrayList<DirectRemoteConsole>();
+		synchronized (consoles) {
+			console = consoles.get(launch);
+			if (console != null)
+				return console;
+			List<ILaunch> launches = Arrays.asList(DebugPlugin.getDefault().getLaunchManager().getLaunches());
+			for (Iterator<Map.Entry<ILaunch, DirectRemoteConsole>> it = consoles.entrySet().iterator(); it.hasNext();) {
+				Map.Entry<ILaunch, DirectRemoteConsole> entry = it.next();
+				if (!launches.contains(entry.getKey())) {
+					removed.add(entry.getValue());
+					it.remove();
+				}
+			}
+			console = new DirectRemoteConsole(launch.getLaunchConfiguration().getName());
+			consoles.put(launch, console);
+			scheduleFlush();
+		}
+		remove(removed);
+		ConsolePlugin.getDefault().getConsoleManager().addConsoles(new IConsole[] { console.console });
+		return console;
+	}
+
+	/**
+	 * Append a line of the output of the shell.
+	 */
+	public void appendOutput(String line) {
+		output.appendLine(line);
+	}
+
+	/**
+	 * Append a line of the error output of the shell.
+	 */
+	public void appendError(String line) {
+		errors.appendLine(line);
+	}
+
+	/**
+	 * Show what the debugger backend reads from the given gdb process in this
+	 * console, instead of the output of the process shown before.
+	 *
+	 * @param memoryLimit the bytes kept in memory per stream until the console caught up
+	 * @param spill whether to keep the bytes beyond that in a file rather than to drop them
+	 * @return the process to give to the backend
+	 */
+	public Process attach(Process process, int memoryLimit, boolean spill) {
+		DirectRemoteConsoleSpool output = new DirectRemoteConsoleSpool(memoryLimit, spill ? SPILL_LIMIT : 0);
+		DirectRemoteConsoleSpool errors = new DirectRemoteConsoleSpool(memoryLimit, spill ? SPILL_LIMIT : 0);
+		synchronized (this) {
+			closeSpools();
+			processOutput = output;
+			processErrors = errors;
+			processDecoder = new DirectRemoteMiDecoder(outputStream);
+		}
+		return new DirectRemoteProcess(process, output, errors);
+	}
+
+	/**
+	 * Bring the console to front, after the launch failed.
+	 */
+	public void reveal() {
+		flush();
+		ConsolePlugin.getDefault().getConsoleManager().showConsoleView(console);
+	}
+
+	/**
+	 * Remove all consoles from the console view.
+	 */
+	public static void closeAll() {
+		List<DirectRemoteConsole> all;
+		synchronized (consoles) {
+			all = new ArrayList<DirectRemoteConsole>(consoles.values());
+			consoles.clear();
+			if (flushTimer != null) {
+				flushTimer.cancel();
+				flushTimer = null;
+			}
+		}
+		remove(all);
+	}
+
+	private synchronized void flush() {
+		flush(output, outputStream);
+		flush(errors, errorStream);
+		if (processOutput != null) {
+			flush(processOutput, outputStream, processDecoder);
+			flush(processErrors, errorStream, null);
+		}
+	}
+
+	/*
+	 * Remove consoles which are no longer in the map from the console view.
+	 */
+	private static void remove(List<DirectRemoteConsole> removed) {
+		if (removed.isEmpty())
+			return;
+		IConsole[] toRemove = new IConsole[removed.size()];
+		for (int i = 0; i < toRemove.length; i++) {
+			DirectRemoteConsole console = removed.get(i);
+			synchronized (console) {
+				console.closeSpools();
+			}
+			toRemove[i] = console.console;
+		}
+		ConsolePlugin plugin = ConsolePlugin.getDefault();
+		if (plugin != null)
+			plugin.getConsoleManager().removeConsoles(toRemove);
+	}
+
+	/*
+	 * Stop showing the output of the gdb process. Called with the console locked.
+	 */
+	private void closeSpools() {
+		if (processOutput != null) {
+			processOutput.close();
+			processErrors.close();
+			processOutput = null;
+			processErrors = null;
+			processDecoder = null;
+		}
+	}
+
+	/*
+	 * Write what the spool holds, decoded if a decoder is given.
+	 */
+	private void flush(DirectRemoteConsoleSpool spool, MessageConsoleStream stream, DirectRemoteMiDecoder decoder) {
+		long dropped = spool.takeDropped();
+		if (dropped > 0)
+			stream.println(NLS.bind(Messages.DirectRemoteConsole_2, Long.valueOf(dropped)));
+		int written = 0;
+		int n;
+		// what is left is written with the next flush
+		while (written < MAX_BYTES_PER_FLUSH && (n = spool.drainTo(byteChunk)) > 0) {
+			try {
+				if (decoder != null)
+					decoder.write(byteChunk, 0, n);
+				else
+					stream.write(byteChunk, 0, n);
+			} catch (IOException e) {
+				// the console was closed
+				return;
+			}
+			written += n;
+		}
+	}
+
+	private void flush(DirectRemoteConsoleBuffer buffer, MessageConsoleStream stream) {
+		long dropped = buffer.takeDropped();
+		if (dropped > 0)
+			stream.println(NLS.bind(Messages.DirectRemoteConsole_1, Long.valueOf(dropped)));
+		int n;
+		while ((n = buffer.drainTo(chunk)) > 0) {
+			try {
+				stream.write(new String(chunk, 0, n));
+			} catch (IOException e) {
+				// the console was closed
+				return;
+			}
+		}
+	}
+
+	/*
+	 * Start writing the buffered output, if not done yet. Called with the consoles locked.
+	 */
+	private static void scheduleFlush() {
+		if (flushTimer != null)
+			return;
+		flushTimer = new Timer("Remote debugger consoles", true); //$NON-NLS-1$
+		flushTimer.schedule(new TimerTask() {
+
+			@Override
+			public void run() {
+				List<DirectRemoteConsole> all;
+				synchronized (consoles) {
+					all = new ArrayList<DirectRemoteConsole>(consoles.values());
+				}
+				for (Iterator<DirectRemoteConsole> it = all.iterator(); it.hasNext();) {
+					try {
+						it.next().flush();
+					} catch (RuntimeException e) {
+						SystemBasePlugin.logError("Could not write to the remote debugger console", e); //$NON-NLS-1$
+					}
+				}
+			}
+		}, FLUSH_INTERVAL, FLUSH_INTERVAL);
+	}
+}
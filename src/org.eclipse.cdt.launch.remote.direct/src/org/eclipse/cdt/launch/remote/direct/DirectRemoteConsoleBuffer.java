@@ -0,0 +1,76 @@
+package org.eclipse.cdt.launch.remote.direct;
+
+/**
+ * A fixed size ring of characters between the threads reading remote output
+ * and the one writing it to a console. Appending copies the characters into
+ * the ring and never allocates; when the reader falls behind, the oldest
+ * characters are overwritten and counted as dropped.
+ */
+class DirectRemoteConsoleBuffer {
+	private final char[] ring;
+	// position of the oldest character and number of characters held
+	private int start = 0;
+	private int length = 0;
+	private long dropped = 0;
+
+	DirectRemoteConsoleBuffer(int capacity) {
+		ring = new char[capacity];
+	}
+
+	/**
+	 * Append a line and a line feed.
+	 */
+	public synchronized void appendLine(String line) {
+		int n = line.length();
+		if (n >= ring.length) {
+			// only the end of the line fits
+			dropped += length + n - (ring.length - 1);
+			start = 0;
+			length = 0;
+			line.getChars(n - (ring.length - 1), n, ring, 0);
+			length = ring.length - 1;
+		} else {
+			makeRoom(n + 1);
+			int end = (start + length) % ring.length;
+			int first = Math.min(n, ring.length - end);
+			line.getChars(0, first, ring, end);
+			line.getChars(first, n, ring, 0);
+			length += n;
+		}
+		ring[(start + length) % ring.length] = '\n';
+		length++;
+	}
+
+	/**
+	 * Move up to <code>buffer.length</code> characters into the given buffer.
+	 *
+	 * @return the number of characters moved
+	 */
+	public synchronized int drainTo(char[] buffer) {
+		int n = Math.min(buffer.length, length);
+		int first = Math.min(n, ring.length - start);
+		System.arraycopy(ring, start, buffer, 0, first);
+		System.arraycopy(ring, 0, buffer, first, n - first);
+		start = (start + n) % ring.length;
+		length -= n;
+		return n;
+	}
+
+	/**
+	 * Answer the number of characters overwritten since the last call, and reset it.
+	 */
+	public synchronized long takeDropped() {
+		long result = dropped;
+		dropped = 0;
+		return result;
+	}
+
+	private void makeRoom(int n) {
+		int excess = length + n - ring.length;
+		if (excess > 0) {
+			start = (start + excess) % ring.length;
+			length -= excess;
+			dropped += excess;
+		}
+	}
+}
@@ -0,0 +1,233 @@
+package org.eclipse.cdt.launch.remote.direct;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.eclipse.rse.ui.SystemBasePlugin;
+
+/**
+ * A bounded queue of bytes between a stream of the debugger and the console.
+ * Writing never blocks: the bytes go into a ring in memory, and once that is
+ * full either into a spill file, which the console catches up on later, or
+ * nowhere, in which case they are counted as dropped. The order of the bytes
+ * is kept; while the spill file holds anything, new bytes are appended to it.
+ * <p>
+ * The spill file is a ring as well, so it never grows beyond its limit
+ * however long the console lags behind. It is written and read outside the
+ * lock of the queue: the writer only writes where nothing unread is and the
+ * console only reads what was written completely, so neither waits for the
+ * disk access of the other.
+ */
+class DirectRemoteConsoleSpool {
+	private static final String SPILL_PREFIX = "rexp-console-"; //$NON-NLS-1$
+	private static final String SPILL_SUFFIX = ".spool"; //$NON-NLS-1$
+
+	private final byte[] ring;
+	// position of the oldest byte and number of bytes held
+	private int start = 0;
+	private int length = 0;
+	/* Bytes the spill file may hold, 0 to drop what does not fit into memory */
+	private final long spillLimit;
+	// serializes the writers, which write the spill file without the lock of the queue
+	private final Object writeLock = new Object();
+	private File spillFile;
+	private FileChannel spill;
+	// bytes read from and written to the spill file so far; its offsets are taken modulo the limit
+	private long spillRead = 0;
+	private long spillWrite = 0;
+	private long dropped = 0;
+	private boolean closed = false;
+
+	/**
+	 * @param memoryLimit the size of the ring in memory
+	 * @param spillLimit the size of the spill file, 0 for no spill file
+	 */
+	DirectRemoteConsoleSpool(int memoryLimit, long spillLimit) {
+		ring = new byte[memoryLimit];
+		this.spillLimit = spillLimit;
+	}
+
+	/**
+	 * Queue bytes for the console.
+	 */
+	public void write(byte[] bytes, int offset, int count) {
+		synchronized (writeLock) {
+			long position;
+			int n;
+			synchronized (this) {
+				if (closed)
+					return;
+				if (spillWrite == spillRead) {
+					// nothing in the spill file comes first
+					int copied = Math.min(count, ring.length - length);
+					int end = (start + length) % ring.length;
+					int first = Math.min(copied, ring.length - end);
+					System.arraycopy(bytes, offset, ring, end, first);
+					System.arraycopy(bytes, offset + first, ring, 0, copied - first);
+					length += copied;
+					offset += copied;
+					count -= copied;
+				}
+				n = (int) Math.min(count, spillLimit - (spillWrite - spillRead));
+				dropped += count - n;
+				if (n == 0)
+					return;
+				position = spillWrite;
+			}
+			boolean written = writeSpill(bytes, offset, n, position);
+			synchronized (this) {
+				if (closed)
+					return;
+				if (written)
+					spillWrite += n;
+				else
+					dropped += n;
+			}
+		}
+	}
+
+	/**
+	 * Move up to <code>buffer.length</code> of the oldest bytes into the given
+	 * buffer. Called by one thread at a time.
+	 *
+	 * @return the number of bytes moved
+	 */
+	public int drainTo(byte[] buffer) {
+		FileChannel channel;
+		long position;
+		int n;
+		synchronized (this) {
+			if (length > 0) {
+				n = Math.min(buffer.length, length);
+				int first = Math.min(n, ring.length - start);
+				System.arraycopy(ring, start, buffer, 0, first);
+				System.arraycopy(ring, 0, buffer, first, n - first);
+				start = (start + n) % ring.length;
+				length -= n;
+				return n;
+			}
+			if (spillWrite == spillRead)
+				return 0;
+			channel = spill;
+			position = spillRead;
+			n = (int) Math.min(buffer.length, spillWrite - spillRead);
+		}
+		try {
+			readSpill(channel, buffer, n, position);
+		} catch (IOException e) {
+			synchronized (this) {
+				if (closed)
+					return 0;
+				dropped += spillWrite - spillRead;
+				spillRead = spillWrite;
+			}
+			SystemBasePlugin.logError("Could not read the console spill file " + spillFile, e); //$NON-NLS-1$
+			return 0;
+		}
+		synchronized (this) {
+			if (closed)
+				return 0;
+			spillRead += n;
+		}
+		return n;
+	}
+
+	/**
+	 * Answer the number of bytes dropped since the last call, and reset it.
+	 */
+	public synchronized long takeDropped() {
+		long result = dropped;
+		dropped = 0;
+		return result;
+	}
+
+	/**
+	 * Drop what is queued and delete the spill file. Bytes written later are ignored.
+	 */
+	public synchronized void close() {
+		closed = true;
+		length = 0;
+		spillRead = spillWrite;
+		if (spill != null) {
+			try {
+				spill.close();
+			} catch (IOException e) {
+				// it is deleted anyway
+			}
+			spill = null;
+		}
+		if (spillFile != null) {
+			spillFile.delete();
+			spillFile = null;
+		}
+	}
+
+	/*
+	 * Write bytes at the given position of the spill file. Called by the writer, without the lock.
+	 */
+	private boolean writeSpill(byte[] bytes, int offset, int count, long position) {
+		try {
+			FileChannel channel = getSpill();
+			if (channel == null)
+				return false;
+			int written = 0;
+			while (written < count) {
+				long at = (position + written) % spillLimit;
+				int n = (int) Math.min(count - written, spillLimit - at);
+				written += channel.write(ByteBuffer.wrap(bytes, offset + written, n), at);
+			}
+			return true;
+		} catch (IOException e) {
+			if (!isClosed())
+				SystemBasePlugin.logError("Could not write the console spill file " + spillFile, e); //$NON-NLS-1$
+			return false;
+		}
+	}
+
+	/*
+	 * Read bytes from the given position of the spill file. Called without the lock.
+	 */
+	private void readSpill(FileChannel channel, byte[] buffer, int count, long position) throws IOException {
+		int read = 0;
+		while (read < count) {
+			long at = (position + read) % spillLimit;
+			int n = (int) Math.min(count - read, spillLimit - at);
+			int r = channel.read(ByteBuffer.wrap(buffer, read, n), at);
+			if (r <= 0)
+				throw new EOFException();
+			read += r;
+		}
+	}
+
+	/*
+	 * Answer the spill file, created on first use, or null once the queue is closed.
+	 * Called by the writer, without the lock.
+	 */
+	private FileChannel getSpill() throws IOException {
+		synchronized (this) {
+			if (closed || spill != null)
+				return spill;
+		}
+		File file = File.createTempFile(SPILL_PREFIX, SPILL_SUFFIX);
+		file.deleteOnExit();
+		FileChannel channel = new RandomAccessFile(file, "rw").getChannel(); //$NON-NLS-1$
+		synchronized (this) {
+			if (!closed) {
+				spillFile = file;
+				spill = channel;
+				return channel;
+			}
+		}
+		channel.close();
+		file.delete();
+		return null;
+	}
+
+	private synchronized boolean isClosed() {
+		return closed;
+	}
+}
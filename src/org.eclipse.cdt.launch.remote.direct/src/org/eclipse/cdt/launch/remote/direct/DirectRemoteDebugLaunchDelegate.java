@@ -1,12 +1,12 @@
 package org.eclipse.cdt.launch.remote.direct;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.RejectedExecutionException;
 
 import org.eclipse.cdt.core.model.ICProject;
-import org.eclipse.cdt.debug.core.CDebugUtils;
 import org.eclipse.cdt.debug.core.ICDTLaunchConfigurationConstants;
-import org.eclipse.cdt.debug.core.sourcelookup.MappingSourceContainer;
-import org.eclipse.cdt.debug.internal.core.sourcelookup.MapEntrySourceContainer;
 import org.eclipse.cdt.dsf.concurrent.DsfRunnable;
 import org.eclipse.cdt.dsf.concurrent.ImmediateRequestMonitor;
 import org.eclipse.cdt.dsf.debug.service.IDsfDebugServicesFactory;
@@ -25,26 +25,22 @@ import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
-import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.SubProgressMonitor;
 import org.eclipse.debug.core.ILaunch;
 import org.eclipse.debug.core.ILaunchConfiguration;
 import org.eclipse.debug.core.model.ISourceLocator;
 import org.eclipse.debug.core.sourcelookup.ISourceContainer;
-import org.eclipse.jface.action.Action;
 import org.eclipse.jface.viewers.ISelection;
 import org.eclipse.jface.viewers.IStructuredSelection;
-import org.eclipse.jface.viewers.StructuredSelection;
+import org.eclipse.osgi.util.NLS;
 import org.eclipse.rse.core.RSECorePlugin;
+import org.eclipse.rse.core.model.IHost;
 import org.eclipse.rse.core.subsystems.ISubSystem;
 import org.eclipse.rse.internal.importexport.RemoteImportExportUtil;
 import org.eclipse.rse.internal.synchronize.RSESyncUtils;
 import org.eclipse.rse.services.shells.HostShellProcessAdapter;
-import org.eclipse.rse.services.shells.IHostOutput;
 import org.eclipse.rse.services.shells.IHostShell;
-import org.eclipse.rse.services.shells.IHostShellChangeEvent;
-import org.eclipse.rse.services.shells.IHostShellOutputListener;
 import org.eclipse.rse.services.shells.IHostShellOutputReader;
 import org.eclipse.ui.ISelectionService;
 import org.eclipse.ui.IWorkbench;
@@ -53,191 +49,269 @@ import org.eclipse.ui.IWorkbenchWindow;
 import org.eclipse.ui.PlatformUI;
 
 public class DirectRemoteDebugLaunchDelegate extends GdbLaunchDelegate {
-	private String version = ""; //$NON-NLS-1$
-	private IHostShell remoteShell = null;
-	private Process remoteProcess = null;
-	private static String DIRECT_REMOTE_DEBUG_MAPPING = "DirectRemoteDebugMapping";
-
-	private class DummyAction extends Action {
-		/**
-		 * Constructor.
-		 */
-		public DummyAction() {
-			super();
-		}
-	}
+	private static final String DIRECT_REMOTE_DEBUG_MAPPING = "DirectRemoteDebugMapping"; //$NON-NLS-1$
+
+	// the context of the launch the calling thread runs, as launches may run concurrently
+	private final ThreadLocal<DirectRemoteLaunchContext> launchContext = new ThreadLocal<DirectRemoteLaunchContext>();
 
 	public DirectRemoteDebugLaunchDelegate() {
 		super();
 	}
 
-	protected IHostShell getShell() {
-		return remoteShell;
-	}
-
-	protected Process getRemoteProcess() {
-		return remoteProcess;
-	}
-
 	@Override
 	protected IDsfDebugServicesFactory newServiceFactory(ILaunchConfiguration config, String version) {
-		return new DirectRemoteServicesFactory(version, this);
+		DirectRemoteLaunchContext context = launchContext.get();
+		Assert.isNotNull(context);
+		return new DirectRemoteServicesFactory(version, context);
 	}
 
 	private void uploadSourceCodeToRemoteWorkSpace(ILaunchConfiguration config, IProgressMonitor monitor)
 			throws CoreException {
-		IProject projectHandle = CDebugUtils.getCProject(config).getProject();
+		// nothing to upload without an export config file(*.rexpfd)
+		DirectDebugSourceSync.synchronize(config, monitor);
+	}
+
+	/*
+	 * Start a shell running gdb -version and wait until gdb reported its version,
+	 * or just a shell if the version is known from an earlier launch. The version
+	 * is never known with prerun commands, so they have finished once gdb answered.
+	 */
+	private DirectRemoteLaunchContext startRemoteShell(ILaunchConfiguration config, final GdbLaunch l,
+			DirectRemoteLaunchTimeline timeline, IProgressMonitor monitor) throws CoreException {
+		IHostShell remoteShell = null;
+		IPath gdbCommmand = LaunchUtils.getGDBPath(config);
+		String prelaunchCmd = config.getAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_PRERUN_COMMANDS,
+				""); //$NON-NLS-1$
+		IHost host = RSEHelper.getCurrentConnection(config);
+		timeline.setHost(host.getHostName());
+		DirectRemoteLaunchTimeline.Span shellSpan = timeline.begin("shell-connect"); //$NON-NLS-1$
+		String cachedVersion = DirectRemoteGdbVersionCache.get(host, gdbCommmand.toOSString(), prelaunchCmd);
+		if (cachedVersion != null) {
+			// gdb answered before; it is started right away and its version checked meanwhile
+			try {
+				remoteShell = RSEHelper.openRemoteShell(config, new SubProgressMonitor(monitor, 5));
+			} catch (Exception el) {
+				RSEHelper.abort(el.getMessage(), el, ICDTLaunchConfigurationConstants.ERR_INTERNAL_ERROR);
+			} finally {
+				shellSpan.end();
+			}
+			DirectRemoteGdbVersionCache.validate(host, gdbCommmand.toOSString(), prelaunchCmd);
+			return new DirectRemoteLaunchContext(config, remoteShell, createRemoteProcess(config, l, remoteShell),
+					cachedVersion);
+		}
+		DirectRemoteConsole console = DirectRemoteConsole.getConsole(l);
+		DirectRemoteGdbProbe probe = new DirectRemoteGdbProbe(console);
+		try {
+			remoteShell = RSEHelper.execCmdInRemoteShell(config, prelaunchCmd, gdbCommmand.toOSString(), "-version", //$NON-NLS-1$
+					probe, new SubProgressMonitor(monitor, 5));
+		} catch (Exception el) {
+			RSEHelper.abort(el.getMessage(), el, ICDTLaunchConfigurationConstants.ERR_INTERNAL_ERROR);
+		} finally {
+			shellSpan.end();
+		}
+
+		if (remoteShell == null)
+			RSEHelper.abort(Messages.DirectRemoteDebugLaunchDelegate_6, null,
+					ICDTLaunchConfigurationConstants.ERR_DEBUGGER_NOT_INSTALLED);
+		int timeout = config.getAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_GDB_START_TIMEOUT,
+				IDirectRemoteConnectionConfigurationConstants.DEFAULT_GDB_START_TIMEOUT);
+		DirectRemoteLaunchTimeline.Span bannerSpan = timeline.begin("gdb-banner"); //$NON-NLS-1$
+		boolean ready = probe.await(remoteShell, timeout * 1000L, monitor);
+		bannerSpan.end();
+		remoteShell.removeOutputListener(probe);
+		if (!ready) {
+			boolean timedOut = !monitor.isCanceled() && remoteShell.isActive();
+			remoteShell.exit();
+
+			try {
+				l.getSession().getExecutor().execute(new DsfRunnable() {
+
+					@Override
+					public void run() {
+						l.shutdownSession(new ImmediateRequestMonitor());
 
-		IResource exportConfigResource = null;
-		IResource[] rootFiles = projectHandle.members();
-		for (int i = 0; i < rootFiles.length; i++) {
-			IResource r = rootFiles[i];
-			String name = r.getName();
-			if (name.endsWith(".rexpfd")) {
-				exportConfigResource = r;
+					}
+				});
+			} catch (RejectedExecutionException e) {
 
-				break;
 			}
+			if (!monitor.isCanceled())
+				console.reveal();
+			if (timedOut)
+				RSEHelper.abort(NLS.bind(Messages.DirectRemoteDebugLaunchDelegate_7, Integer.valueOf(timeout)), null,
+						ICDTLaunchConfigurationConstants.ERR_DEBUGGER_NOT_INSTALLED);
+			RSEHelper.abort(Messages.DirectRemoteDebugLaunchDelegate_6, null,
+					ICDTLaunchConfigurationConstants.ERR_DEBUGGER_NOT_INSTALLED);
 		}
+		String version = probe.getVersion();
+		DirectRemoteGdbVersionCache.put(host, gdbCommmand.toOSString(), prelaunchCmd, version);
+		// created only now, so the backend reads little of the version output
+		return new DirectRemoteLaunchContext(config, remoteShell, createRemoteProcess(config, l, remoteShell), version);
+	}
 
-		if (exportConfigResource != null) {
-			//throw new RuntimeException("Not found export config file(*.rexpfd).");
-			DirectDebugRemoteFileExportActionDelegate action = new DirectDebugRemoteFileExportActionDelegate();
-			action.setMonitor(monitor);
-			DummyAction dummy = new DummyAction();
-			action.selectionChanged(dummy, new StructuredSelection(exportConfigResource));
-			action.run(dummy);
+	/*
+	 * Wrap the shell into the process given to the backend, and show what the
+	 * backend reads from it in the console if the configuration asks for it.
+	 */
+	private Process createRemoteProcess(ILaunchConfiguration config, ILaunch launch, IHostShell remoteShell)
+			throws CoreException {
+		Process process = null;
+		try {
+			process = new HostShellProcessAdapter(remoteShell);
+		} catch (Exception e) {
+			RSEHelper.abort(Messages.DirectRemoteDebugLaunchDelegate_5, e,
+					ICDTLaunchConfigurationConstants.ERR_INTERNAL_ERROR);
+		}
+		if (config.getAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_CONSOLE_MIRROR,
+				IDirectRemoteConnectionConfigurationConstants.DEFAULT_CONSOLE_MIRROR)) {
+			int memoryLimit = config.getAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_CONSOLE_BUFFER,
+					IDirectRemoteConnectionConfigurationConstants.DEFAULT_CONSOLE_BUFFER) * 1024;
+			boolean spill = config.getAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_CONSOLE_SPILL,
+					IDirectRemoteConnectionConfigurationConstants.DEFAULT_CONSOLE_SPILL);
+			process = DirectRemoteConsole.getConsole(launch).attach(process, memoryLimit, spill);
 		}
+		return process;
 	}
 
 	@Override
 	public void launch(ILaunchConfiguration config, String mode, ILaunch launch, IProgressMonitor monitor)
 			throws CoreException {
+		// the configurations asking for it are synchronized in the background from now on
+		Activator.getDefault().startBackgroundSync();
+		// where the time of the launch goes
+		DirectRemoteLaunchTimeline timeline = DirectRemoteLaunchTimeline.start(config.getName());
+		try {
+			launchTimed(config, mode, launch, timeline, monitor);
+		} catch (CoreException ex) {
+			timeline.complete("failed"); //$NON-NLS-1$
+			throw ex;
+		} catch (RuntimeException ex) {
+			timeline.complete("failed"); //$NON-NLS-1$
+			throw ex;
+		} finally {
+			DirectRemoteLaunchTimeline.leave();
+		}
+	}
+
+	private void launchTimed(ILaunchConfiguration config, String mode, ILaunch launch,
+			final DirectRemoteLaunchTimeline timeline, IProgressMonitor monitor) throws CoreException {
 
 		// Need to initialize RSE
 		if (!RSECorePlugin.isInitComplete(RSECorePlugin.INIT_MODEL)) {
 			monitor.subTask(Messages.DirectRemoteDebugLaunchDelegate_1);
+			DirectRemoteLaunchTimeline.Span rseSpan = timeline.begin("rse-init"); //$NON-NLS-1$
 			try {
 				RSECorePlugin.waitForInitCompletion(RSECorePlugin.INIT_MODEL);
 			} catch (InterruptedException e) {
 				throw new CoreException(
 						new Status(IStatus.ERROR, getPluginID(), IStatus.OK, e.getLocalizedMessage(), e));
+			} finally {
+				rseSpan.end();
 			}
 		}
 
-		// First, let's upload source code to the remote workspace.
-		this.uploadSourceCodeToRemoteWorkSpace(config, monitor);
+		// the connection stays open while the session runs, however long it is idle
+		DirectRemoteConnectionPool.Lease lease = DirectRemoteConnectionPool.lease(RSEHelper.getCurrentConnection(config));
+		lease.releaseWhenTerminated(launch);
+
+		// The shell for the debugger starts while the sources are uploaded.
+		final boolean prewarm = config.getAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_PREWARM_GDB,
+				IDirectRemoteConnectionConfigurationConstants.DEFAULT_PREWARM_GDB);
+		if (prewarm)
+			DirectRemoteShellPool.prepare(config);
 
-		remoteProcess = null;
-		IPath gdbCommmand = LaunchUtils.getGDBPath(config);
-		String prelaunchCmd = config.getAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_PRERUN_COMMANDS,
-				""); //$NON-NLS-1$
 		monitor.setTaskName(Messages.DirectRemoteDebugLaunchDelegate_3);
 		final GdbLaunch l = (GdbLaunch) launch;
-		try {
-			remoteShell = RSEHelper.execCmdInRemoteShell(config, prelaunchCmd, gdbCommmand.toOSString(), "-version", //$NON-NLS-1$
-					new SubProgressMonitor(monitor, 5));
-		} catch (Exception el) {
-			RSEHelper.abort(el.getMessage(), el, ICDTLaunchConfigurationConstants.ERR_INTERNAL_ERROR);
-		}
-
-		// We cannot use a global variable because multiple launches
-		// could access them at the same time. We need a different
-		// variable for each launch, but we also need it be final.
-		// Use a final array to do that.
-		final boolean gdbReady[] = new boolean[1];
-		gdbReady[0] = false;
-		final Object lock = new Object();
-		if (remoteShell != null) {
-			remoteShell.addOutputListener(new IHostShellOutputListener() {
-				boolean gdbInitialized = false;
-
-				@Override
-				public void shellOutputChanged(IHostShellChangeEvent event) {
-
-					StringBuilder buf = new StringBuilder();
-					for (IHostOutput line : event.getLines()) {
-						String lineString = line.getString();
-						if (lineString.length() == 0) {
-							continue;
-						}
-
-						if (lineString.contains("GNU gdb (GDB") && !gdbInitialized) { //$NON-NLS-1$
-							version = LaunchUtils.getGDBVersionFromText(lineString);
-							synchronized (lock) {
-								gdbReady[0] = true;
-								lock.notifyAll();
-							}
-
-							gdbInitialized = true;
-						}
-
-						buf.append(lineString);
-						buf.append(System.getProperty("line.separator"));
-
-						/*
-						 * if (lineString.contains("This GDB was configured as"
-						 * )) { //$NON-NLS-1$ synchronized (lock) { gdbReady[0]
-						 * = true; lock.notifyAll(); } working = false; break; }
-						 */
-					}
+		// later edits of the configuration do not affect this launch
+		final ILaunchConfiguration snapshot = config.getWorkingCopy();
+		DirectRemoteLaunchPipeline pipeline = new DirectRemoteLaunchPipeline(config.getName(), timeline);
+		// First, let's upload source code to the remote workspace.
+		final DirectRemoteLaunchPipeline.Stage<Boolean> upload = pipeline.add(
+				new DirectRemoteLaunchPipeline.Stage<Boolean>("upload", true) { //$NON-NLS-1$
 
-					String newContent = null;
-					if (buf.length() != 0) {
-						newContent = buf.toString();
-					} else {
-						newContent = "";
+					@Override
+					protected Boolean run(IProgressMonitor stageMonitor) throws CoreException {
+						uploadSourceCodeToRemoteWorkSpace(snapshot, stageMonitor);
+						return Boolean.TRUE;
 					}
+				});
+		// Meanwhile connect to the remote host...
+		final DirectRemoteLaunchPipeline.Stage<Object> connect = pipeline.add(
+				new DirectRemoteLaunchPipeline.Stage<Object>("connect", false) { //$NON-NLS-1$
 
-					// TODO: output to eclipse console.
-				}
-			});
-			try {
-				remoteProcess = new HostShellProcessAdapter(remoteShell);
-			} catch (Exception e) {
-				RSEHelper.abort(Messages.DirectRemoteDebugLaunchDelegate_5, e,
-						ICDTLaunchConfigurationConstants.ERR_INTERNAL_ERROR);
-			}
-			synchronized (lock) {
-				while (gdbReady[0] == false) {
-					if (monitor.isCanceled() || !remoteShell.isActive()) {
-						if (remoteProcess != null) {
-							remoteProcess.destroy();
-						}
-
+					@Override
+					protected Object run(IProgressMonitor stageMonitor) throws CoreException {
 						try {
-							l.getSession().getExecutor().execute(new DsfRunnable() {
-
-								@Override
-								public void run() {
-									l.shutdownSession(new ImmediateRequestMonitor());
-
-								}
-							});
-						} catch (RejectedExecutionException e) {
-
+							return RSEHelper.getConnectedRemoteShellService(RSEHelper.getCurrentConnection(snapshot),
+									stageMonitor);
+						} catch (CoreException e) {
+							throw e;
+						} catch (Exception e) {
+							RSEHelper.abort(e.getMessage(), e, ICDTLaunchConfigurationConstants.ERR_INTERNAL_ERROR);
+							return null;
+						}
+					}
+				});
+		// ...and start gdb, after the upload only if the prerun commands may build the program
+		String prelaunchCmd = snapshot.getAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_PRERUN_COMMANDS,
+				""); //$NON-NLS-1$
+		DirectRemoteLaunchPipeline.Stage<?>[] gdbNeeds = prelaunchCmd.trim().length() > 0
+				? new DirectRemoteLaunchPipeline.Stage<?>[] { connect, upload }
+				: new DirectRemoteLaunchPipeline.Stage<?>[] { connect };
+		DirectRemoteLaunchPipeline.Stage<DirectRemoteLaunchContext> gdb = pipeline.add(
+				new DirectRemoteLaunchPipeline.Stage<DirectRemoteLaunchContext>("gdb", false, gdbNeeds) { //$NON-NLS-1$
+
+					@Override
+					protected DirectRemoteLaunchContext run(IProgressMonitor stageMonitor) throws CoreException {
+						DirectRemoteShellPool.WarmShell warmShell = null;
+						if (prewarm)
+							warmShell = DirectRemoteShellPool.take(snapshot, stageMonitor);
+						if (warmShell != null) {
+							// the shell has run gdb -version already, the debugger is started in it right away
+							timeline.setHost(RSEHelper.getCurrentConnection(snapshot).getHostName());
+							return new DirectRemoteLaunchContext(snapshot, warmShell.getShell(),
+									createRemoteProcess(snapshot, l, warmShell.getShell()), warmShell.getVersion());
 						}
-						RSEHelper.abort(Messages.DirectRemoteDebugLaunchDelegate_6, null,
-								ICDTLaunchConfigurationConstants.ERR_DEBUGGER_NOT_INSTALLED);
+						return startRemoteShell(snapshot, l, timeline, stageMonitor);
 					}
-					try {
-						lock.wait(500);
-					} catch (InterruptedException e) {
 
+					@Override
+					protected void discard(DirectRemoteLaunchContext context) {
+						context.getProcess().destroy();
 					}
-				}
-			}
+				});
+		DirectRemoteLaunchContext context;
+		try {
+			pipeline.run(monitor);
+			// the program may only run once its sources are in place; since the debugger
+			// services start the program on their own, they only start after the upload,
+			// and just the shell and gdb -version overlap with it
+			pipeline.join(upload, monitor);
+			context = pipeline.join(gdb, monitor);
+		} catch (CoreException ex) {
+			pipeline.cancel();
+			lease.release();
+			monitor.done();
+			throw ex;
 		}
+		launchContext.set(context);
+		// ends when the program stops for the first time
+		timeline.watchFirstStop(l.getSession(), timeline.begin("first-stop")); //$NON-NLS-1$
+		DirectRemoteLaunchTimeline.Span servicesSpan = timeline.begin("dsf-services"); //$NON-NLS-1$
 		try {
 			super.launch(config, mode, launch, monitor);
+			// have a shell ready for the next launch
+			if (prewarm)
+				DirectRemoteShellPool.prepare(config);
 		} catch (CoreException ex) {
 			// launch failed, need to kill gdb
-			if (remoteProcess != null) {
-				remoteProcess.destroy();
-			}
+			context.getProcess().destroy();
+			lease.release();
 			// report failure further
 			throw ex;
 		} finally {
+			servicesSpan.end();
+			launchContext.remove();
 			monitor.done();
 		}
 	}
@@ -249,7 +323,8 @@ public class DirectRemoteDebugLaunchDelegate extends GdbLaunchDelegate {
 
 	@Override
 	protected String getGDBVersion(ILaunchConfiguration config) throws CoreException {
-		return version;
+		DirectRemoteLaunchContext context = launchContext.get();
+		return context != null ? context.getVersion() : ""; //$NON-NLS-1$
 	}
 
 	@Override
@@ -257,39 +332,53 @@ public class DirectRemoteDebugLaunchDelegate extends GdbLaunchDelegate {
 			throws CoreException {
 
 		DsfSourceLookupDirector sl = (DsfSourceLookupDirector) super.getSourceLocator(configuration, session);
-		ISourceContainer containers[] = sl.getSourceContainers();
-		boolean found = false;
-		;
+		List<ISourceContainer> containers = new ArrayList<ISourceContainer>(Arrays.asList(sl.getSourceContainers()));
+		boolean mapped = false;
+		boolean fetched = false;
 
 		for (ISourceContainer c : containers) {
-			if (c.getName() == DIRECT_REMOTE_DEBUG_MAPPING) {
-				found = true;
-				break;
-			}
+			if (DIRECT_REMOTE_DEBUG_MAPPING.equals(c.getName()))
+				mapped = true;
+			else if (c instanceof DirectRemoteFetchingSourceContainer)
+				fetched = true;
 		}
-
-		if (!found) {
-			ISourceContainer newConstrainters[] = new ISourceContainer[containers.length + 1];
-			System.arraycopy(containers, 0, newConstrainters, 0, containers.length);
-			MappingSourceContainer mapContainer = new MappingSourceContainer(DIRECT_REMOTE_DEBUG_MAPPING);
-			ICProject cp = LaunchUtils.getCProject(configuration);
-			String remoteWorkSpaceLocation = configuration
-					.getAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_REMOTE_WORKSPACE, ""); //$NON-NLS-1$
-
-			if (cp != null && remoteWorkSpaceLocation.length() > 0) {
-				IProject p = cp.getProject();
-
-				MapEntrySourceContainer entry = new MapEntrySourceContainer(Path.fromOSString(remoteWorkSpaceLocation),
-						p.getLocation());
-				mapContainer.addMapEntry(entry);
-				newConstrainters[containers.length] = mapContainer;
-				sl.setSourceContainers(newConstrainters);
+		int count = containers.size();
+		if (!mapped)
+			addMappingContainer(configuration, containers);
+		if (!fetched
+				&& configuration.getAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_SOURCE_FETCH,
+						IDirectRemoteConnectionConfigurationConstants.DEFAULT_SOURCE_FETCH)) {
+			String connection = configuration.getAttribute(
+					IDirectRemoteConnectionConfigurationConstants.ATTR_REMOTE_CONNECTION, ""); //$NON-NLS-1$
+			if (connection.length() > 0) {
+				// last, so only what no other container finds is downloaded
+				containers.add(new DirectRemoteFetchingSourceContainer(connection));
 			}
-
 		}
+		if (containers.size() > count)
+			sl.setSourceContainers(containers.toArray(new ISourceContainer[containers.size()]));
 		return sl;
 	}
 
+	/*
+	 * Add the mapping of the remote sources to the local ones, if there is any.
+	 */
+	private void addMappingContainer(ILaunchConfiguration configuration, List<ISourceContainer> containers)
+			throws CoreException {
+		ICProject cp = LaunchUtils.getCProject(configuration);
+		String remoteWorkSpaceLocation = configuration
+				.getAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_REMOTE_WORKSPACE, ""); //$NON-NLS-1$
+		String mappings = configuration
+				.getAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_SOURCE_MAPPINGS, ""); //$NON-NLS-1$
+		DirectRemoteMappingSourceContainer mapContainer = DirectRemoteMappingSourceContainer.create(
+				DIRECT_REMOTE_DEBUG_MAPPING, cp != null ? cp.getProject().getLocation() : null,
+				remoteWorkSpaceLocation, mappings);
+		if (mapContainer.getSourceContainers().length > 0) {
+			// first, so the sources it maps are found without asking the other containers
+			containers.add(0, mapContainer);
+		}
+	}
+
 	@Override
 	protected IPath checkBinaryDetails(ILaunchConfiguration config) throws CoreException {
 		return null;
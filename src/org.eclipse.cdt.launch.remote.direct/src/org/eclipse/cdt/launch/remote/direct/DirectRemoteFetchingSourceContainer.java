@@ -0,0 +1,136 @@
+package org.eclipse.cdt.launch.remote.direct;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.debug.core.sourcelookup.ISourceContainerType;
+import org.eclipse.debug.core.sourcelookup.containers.AbstractSourceContainer;
+import org.eclipse.debug.core.sourcelookup.containers.LocalFileStorage;
+import org.eclipse.osgi.util.NLS;
+import org.eclipse.rse.core.model.IHost;
+import org.eclipse.rse.subsystems.files.core.subsystems.IRemoteFile;
+import org.eclipse.rse.subsystems.files.core.subsystems.IRemoteFileSubSystem;
+import org.eclipse.rse.ui.SystemBasePlugin;
+
+/**
+ * Finds sources which are only on the remote host, such as system headers
+ * and libraries built on the target, by downloading them through the file
+ * subsystem of the connection. It is asked last, once no local source was
+ * found.
+ * <p>
+ * The downloads are kept in the {@link DirectRemoteSourceCache}, so a
+ * source is downloaded again only when it changed on the host. What a
+ * session looked up is remembered, so stepping through the same code again
+ * does not touch the connection.
+ */
+public class DirectRemoteFetchingSourceContainer extends AbstractSourceContainer {
+	public static final String TYPE_ID = Activator.PLUGIN_ID + ".containerType.remoteFetch"; //$NON-NLS-1$
+
+	/* Lookups remembered per session, the least recently used are forgotten */
+	private static final int LOOKUP_CACHE_SIZE = 2048;
+	private static final Object[] EMPTY = new Object[0];
+
+	private final String connectionName;
+	// what was found, or that nothing was, by the name gdb reported
+	private final Map<String, Object[]> lookups = new LinkedHashMap<String, Object[]>(64, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Object[]> eldest) {
+			return size() > LOOKUP_CACHE_SIZE;
+		}
+	};
+	private volatile boolean failureLogged;
+
+	/**
+	 * @param connectionName the name of the RSE connection to download from
+	 */
+	public DirectRemoteFetchingSourceContainer(String connectionName) {
+		this.connectionName = connectionName;
+	}
+
+	public String getConnectionName() {
+		return connectionName;
+	}
+
+	public String getName() {
+		return NLS.bind(Messages.DirectRemoteFetchingSourceContainer_0, connectionName);
+	}
+
+	public ISourceContainerType getType() {
+		return getSourceContainerType(TYPE_ID);
+	}
+
+	public Object[] findSourceElements(String name) throws CoreException {
+		IPath path = new Path(null, name.replace('\\', '/'));
+		if (!path.isAbsolute())
+			return EMPTY;
+		synchronized (lookups) {
+			Object[] found = lookups.get(name);
+			if (found != null)
+				return found;
+		}
+		IHost host = RSEHelper.getRemoteConnectionByName(connectionName);
+		if (host == null)
+			return EMPTY;
+		Object[] found;
+		try {
+			NullProgressMonitor monitor = new NullProgressMonitor();
+			IRemoteFileSubSystem rfss = DirectRemoteConnectionPool.getConnectedFileSubSystem(host, monitor);
+			IRemoteFile remoteFile = rfss.getRemoteFileObject(name, monitor);
+			if (remoteFile == null || !remoteFile.exists() || !remoteFile.isFile()) {
+				found = EMPTY;
+			} else {
+				DirectRemoteSourceCache cache = DirectRemoteSourceCache.getDefault();
+				String key = DirectRemoteSourceCache.getKey(host.getHostName(), remoteFile.getAbsolutePath(),
+						remoteFile.getLastModified(), remoteFile.getLength());
+				File copy = cache.get(key);
+				if (copy == null) {
+					File download = cache.createDownloadFile();
+					try {
+						rfss.download(remoteFile, download.getAbsolutePath(), remoteFile.getEncoding(), monitor);
+						copy = cache.put(key, remoteFile.getName(), download);
+					} finally {
+						download.delete();
+					}
+				}
+				found = new Object[] { new LocalFileStorage(copy) };
+			}
+		} catch (Exception e) {
+			// not remembered, the host may be reachable again later
+			if (!failureLogged) {
+				failureLogged = true;
+				SystemBasePlugin.logError("Could not download the source " + name + " from " + connectionName, e); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			return EMPTY;
+		}
+		synchronized (lookups) {
+			lookups.put(name, found);
+		}
+		return found;
+	}
+
+	@Override
+	public void dispose() {
+		super.dispose();
+		synchronized (lookups) {
+			lookups.clear();
+		}
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof DirectRemoteFetchingSourceContainer
+				&& connectionName.equals(((DirectRemoteFetchingSourceContainer) obj).connectionName);
+	}
+
+	@Override
+	public int hashCode() {
+		return connectionName.hashCode();
+	}
+}
@@ -0,0 +1,36 @@
+package org.eclipse.cdt.launch.remote.direct;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.debug.core.sourcelookup.ISourceContainer;
+import org.eclipse.debug.core.sourcelookup.containers.AbstractSourceContainerTypeDelegate;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * Stores and restores the containers downloading remote sources, by the
+ * name of their connection.
+ */
+public class DirectRemoteFetchingSourceContainerType extends AbstractSourceContainerTypeDelegate {
+	private static final String ELEMENT = "remoteFetch"; //$NON-NLS-1$
+	private static final String CONNECTION = "connection"; //$NON-NLS-1$
+
+	public ISourceContainer createSourceContainer(String memento) throws CoreException {
+		Node node = parseDocument(memento);
+		if (node.getNodeType() == Node.ELEMENT_NODE && ELEMENT.equals(node.getNodeName())) {
+			String connection = ((Element) node).getAttribute(CONNECTION);
+			if (connection.length() > 0)
+				return new DirectRemoteFetchingSourceContainer(connection);
+		}
+		abort(Messages.DirectRemoteFetchingSourceContainer_1, null);
+		return null;
+	}
+
+	public String getMemento(ISourceContainer container) throws CoreException {
+		Document document = newDocument();
+		Element element = document.createElement(ELEMENT);
+		element.setAttribute(CONNECTION, ((DirectRemoteFetchingSourceContainer) container).getConnectionName());
+		document.appendChild(element);
+		return serializeDocument(document);
+	}
+}
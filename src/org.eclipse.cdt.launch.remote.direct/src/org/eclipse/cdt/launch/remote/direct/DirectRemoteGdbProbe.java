@@ -0,0 +1,93 @@
+package org.eclipse.cdt.launch.remote.direct;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.cdt.dsf.gdb.launching.LaunchUtils;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.rse.services.shells.IHostOutput;
+import org.eclipse.rse.services.shells.IHostShell;
+import org.eclipse.rse.services.shells.IHostShellChangeEvent;
+import org.eclipse.rse.services.shells.IHostShellOutputListener;
+
+/**
+ * Watches the output of a shell running <code>gdb -version</code> and signals
+ * as soon as the banner of gdb appeared. It has to be added to the shell
+ * before the command is written, so it cannot miss the banner.
+ * <p>
+ * The lines are passed on to a console, if there is one, without being
+ * copied; all else the listener does per line is to look for the banner.
+ */
+class DirectRemoteGdbProbe implements IHostShellOutputListener {
+	/* The banner gdb prints first */
+	static final String GDB_BANNER = "GNU gdb (GDB"; //$NON-NLS-1$
+	/* How often cancellation and the shell are checked while waiting */
+	private static final long CHECK_INTERVAL = 50;
+
+	private final CountDownLatch ready = new CountDownLatch(1);
+	private final DirectRemoteConsole console;
+	private volatile String version;
+
+	/**
+	 * @param console the console to show the output in, or <code>null</code>
+	 */
+	DirectRemoteGdbProbe(DirectRemoteConsole console) {
+		this.console = console;
+	}
+
+	public void shellOutputChanged(IHostShellChangeEvent event) {
+		boolean error = event.isError();
+		IHostOutput[] lines = event.getLines();
+		for (int i = 0; i < lines.length; i++) {
+			String lineString = lines[i].getString();
+			if (console != null) {
+				if (error)
+					console.appendError(lineString);
+				else
+					console.appendOutput(lineString);
+			}
+			if (ready.getCount() > 0 && !error && lineString.contains(GDB_BANNER)) {
+				version = LaunchUtils.getGDBVersionFromText(lineString);
+				ready.countDown();
+			}
+		}
+	}
+
+	/**
+	 * Wait until gdb printed its banner. Returns right away when it did, and
+	 * gives up when the monitor is canceled, the shell ends or the time is up.
+	 *
+	 * @param timeout the time to wait in milliseconds, 0 to wait without limit
+	 * @return whether the banner appeared; if not, the monitor tells whether the wait was canceled
+	 */
+	public boolean await(IHostShell shell, long timeout, IProgressMonitor monitor) {
+		long deadline = timeout > 0 ? System.currentTimeMillis() + timeout : Long.MAX_VALUE;
+		try {
+			while (!ready.await(CHECK_INTERVAL, TimeUnit.MILLISECONDS)) {
+				if (monitor.isCanceled() || System.currentTimeMillis() > deadline)
+					return false;
+				if (!shell.isActive())
+					// the banner may have arrived with the last output
+					return ready.getCount() == 0;
+			}
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	/**
+	 * Answer whether the banner appeared.
+	 */
+	public boolean isReady() {
+		return ready.getCount() == 0;
+	}
+
+	/**
+	 * Answer the version gdb reported, or <code>null</code> if the banner has not appeared yet.
+	 */
+	public String getVersion() {
+		return version;
+	}
+}
@@ -0,0 +1,222 @@
+package org.eclipse.cdt.launch.remote.direct;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.Set;
+
+import org.eclipse.cdt.dsf.gdb.launching.LaunchUtils;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.osgi.util.NLS;
+import org.eclipse.rse.core.model.IHost;
+import org.eclipse.rse.ui.SystemBasePlugin;
+
+/**
+ * Remembers the version gdb reported, per host, gdb path and prerun commands,
+ * so a launch does not have to run <code>gdb -version</code> and wait for its
+ * banner before the debugger is started. The versions are kept in the state
+ * location of the plug-in.
+ * <p>
+ * A remembered version is checked again in the background whenever it is
+ * used; a version that changed is recorded for the next launch, and one that
+ * could not be confirmed is forgotten, so the next launch asks gdb again.
+ * <p>
+ * No version is remembered for configurations with prerun commands: they may
+ * build or deploy for longer than the debugger is given to start, so the
+ * launch has to wait for them through the banner of gdb, and they may change
+ * which gdb runs, so a check without them could not tell the version.
+ */
+class DirectRemoteGdbVersionCache {
+	private static final String CACHE_FILE = "gdb-versions.properties"; //$NON-NLS-1$
+	private static final char[] HEX = "0123456789abcdef".toCharArray(); //$NON-NLS-1$
+
+	private static Properties versions;
+	// the keys being checked, so a version is not checked twice at the same time
+	private static final Set<String> validating = new HashSet<String>();
+
+	/**
+	 * Runs <code>gdb -version</code> through the command channel of the host.
+	 */
+	private static class ValidateJob extends Job {
+		private final IHost host;
+		private final String gdbPath;
+		private final String key;
+
+		ValidateJob(IHost host, String gdbPath, String key) {
+			super(NLS.bind(Messages.DirectRemoteGdbVersionCache_0, host.getAliasName()));
+			this.host = host;
+			this.gdbPath = gdbPath;
+			this.key = key;
+			setSystem(true);
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			try {
+				String command = RSEHelper.spaceEscapify(gdbPath) + " -version"; //$NON-NLS-1$
+				RemoteCommandResult result = RSEHelper.runRemoteCommand(host, command, monitor);
+				String version = null;
+				for (Iterator<String> it = result.getOutput().iterator(); it.hasNext() && version == null;) {
+					String line = it.next();
+					if (line.contains(DirectRemoteGdbProbe.GDB_BANNER))
+						version = LaunchUtils.getGDBVersionFromText(line);
+				}
+				if (version != null && version.length() > 0)
+					store(key, version);
+				else if (!monitor.isCanceled())
+					store(key, null);
+			} catch (Exception e) {
+				// keep the version, the host may just be unreachable for now
+				if (!monitor.isCanceled())
+					SystemBasePlugin.logError("Could not check the gdb version of " + host.getAliasName(), e); //$NON-NLS-1$
+			} finally {
+				synchronized (validating) {
+					validating.remove(key);
+				}
+			}
+			return monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
+		}
+
+		@Override
+		public boolean belongsTo(Object family) {
+			return family == DirectRemoteGdbVersionCache.class;
+		}
+	}
+
+	private DirectRemoteGdbVersionCache() {
+	}
+
+	/**
+	 * Answer the version gdb reported last for the given host, gdb path and
+	 * prerun commands, or <code>null</code> if it is not known or there are
+	 * prerun commands.
+	 */
+	public static String get(IHost host, String gdbPath, String prelaunchCmd) {
+		if (hasPrelaunchCommand(prelaunchCmd))
+			return null;
+		String key = getKey(host, gdbPath, prelaunchCmd);
+		synchronized (DirectRemoteGdbVersionCache.class) {
+			return getVersions().getProperty(key);
+		}
+	}
+
+	/**
+	 * Record the version gdb reported, unless there are prerun commands.
+	 */
+	public static void put(IHost host, String gdbPath, String prelaunchCmd, String version) {
+		if (!hasPrelaunchCommand(prelaunchCmd) && version != null && version.length() > 0)
+			store(getKey(host, gdbPath, prelaunchCmd), version);
+	}
+
+	/**
+	 * Check the remembered version in the background, unless that is being done already.
+	 */
+	public static void validate(IHost host, String gdbPath, String prelaunchCmd) {
+		// the command channel needs a POSIX shell
+		if (hasPrelaunchCommand(prelaunchCmd) || !RSEHelper.isPosixHost(host))
+			return;
+		String key = getKey(host, gdbPath, prelaunchCmd);
+		synchronized (validating) {
+			if (!validating.add(key))
+				return;
+		}
+		new ValidateJob(host, gdbPath, key).schedule();
+	}
+
+	/**
+	 * Stop checking versions.
+	 */
+	public static void stop() {
+		Job.getJobManager().cancel(DirectRemoteGdbVersionCache.class);
+	}
+
+	/*
+	 * Record or, if the version is null, forget the version of a key and save the cache.
+	 */
+	private static synchronized void store(String key, String version) {
+		Properties all = getVersions();
+		Object previous = version == null ? all.remove(key) : all.setProperty(key, version);
+		if (version == null ? previous == null : version.equals(previous))
+			return;
+		File file = getCacheFile();
+		if (file == null)
+			return;
+		try {
+			OutputStream out = new FileOutputStream(file);
+			try {
+				all.store(out, null);
+			} finally {
+				out.close();
+			}
+		} catch (IOException e) {
+			SystemBasePlugin.logError("Could not save the gdb versions " + file, e); //$NON-NLS-1$
+		}
+	}
+
+	private static synchronized Properties getVersions() {
+		if (versions == null) {
+			versions = new Properties();
+			File file = getCacheFile();
+			if (file != null && file.isFile()) {
+				try {
+					InputStream in = new FileInputStream(file);
+					try {
+						versions.load(in);
+					} finally {
+						in.close();
+					}
+				} catch (IOException e) {
+					// every version is asked for again
+					SystemBasePlugin.logError("Could not read the gdb versions " + file, e); //$NON-NLS-1$
+					versions.clear();
+				}
+			}
+		}
+		return versions;
+	}
+
+	private static File getCacheFile() {
+		Activator plugin = Activator.getDefault();
+		return plugin == null ? null : plugin.getStateLocation().append(CACHE_FILE).toFile();
+	}
+
+	private static boolean hasPrelaunchCommand(String prelaunchCmd) {
+		return prelaunchCmd.trim().length() > 0;
+	}
+
+	private static String getKey(IHost host, String gdbPath, String prelaunchCmd) {
+		return host.getHostName() + ':' + gdbPath + ':' + toHex(digest(prelaunchCmd.trim()));
+	}
+
+	private static byte[] digest(String value) {
+		try {
+			return MessageDigest.getInstance("MD5").digest(value.getBytes("UTF-8")); //$NON-NLS-1$ //$NON-NLS-2$
+		} catch (NoSuchAlgorithmException e) {
+			// every Java platform is required to support MD5
+			throw new IllegalStateException(e);
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		char[] chars = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			chars[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+			chars[i * 2 + 1] = HEX[bytes[i] & 0xf];
+		}
+		return new String(chars);
+	}
+}
@@ -0,0 +1,49 @@
+package org.eclipse.cdt.launch.remote.direct;
+
+import org.eclipse.debug.core.ILaunchConfiguration;
+import org.eclipse.rse.services.shells.IHostShell;
+
+/**
+ * What a single launch hands to its debugger services: the shell gdb is
+ * started in, the process the backend talks to, the version of gdb and the
+ * launch configuration as it was when the launch started.
+ * <p>
+ * The launch delegate is shared by all launches of its type, which may run
+ * at the same time; each launch has a context of its own, which does not
+ * change once created.
+ */
+public final class DirectRemoteLaunchContext {
+	private final ILaunchConfiguration configuration;
+	private final IHostShell shell;
+	private final Process process;
+	private final String version;
+
+	/**
+	 * @param configuration a copy of the launch configuration, not changed by later edits
+	 * @param shell the remote shell gdb is started in
+	 * @param process the process given to the backend, reading and writing the shell
+	 * @param version the version gdb reported
+	 */
+	DirectRemoteLaunchContext(ILaunchConfiguration configuration, IHostShell shell, Process process, String version) {
+		this.configuration = configuration;
+		this.shell = shell;
+		this.process = process;
+		this.version = version;
+	}
+
+	public ILaunchConfiguration getConfiguration() {
+		return configuration;
+	}
+
+	public IHostShell getShell() {
+		return shell;
+	}
+
+	public Process getProcess() {
+		return process;
+	}
+
+	public String getVersion() {
+		return version;
+	}
+}
@@ -0,0 +1,212 @@
+package org.eclipse.cdt.launch.remote.direct;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+
+/**
+ * Runs the stages of a launch which do not depend on each other at the same
+ * time, such as uploading the sources and starting gdb. Each stage names the
+ * stages it needs; it starts once they completed, and fails without running
+ * if one of them failed.
+ * <p>
+ * Stages run in threads of their own, except those run in the foreground,
+ * which run in the launching thread so they can report progress. If the
+ * launch gives up, what stages produced, or produce later, is discarded.
+ */
+class DirectRemoteLaunchPipeline {
+	/* Milliseconds between checks whether the launch was canceled */
+	private static final long CHECK_INTERVAL = 100;
+
+	private final String name;
+	private final DirectRemoteLaunchTimeline timeline;
+	private final List<Stage<?>> stages = new ArrayList<Stage<?>>();
+	private volatile boolean canceled;
+
+	/**
+	 * A part of the launch.
+	 */
+	abstract static class Stage<T> {
+		private final String name;
+		private final Stage<?>[] after;
+		private final boolean foreground;
+		private final CountDownLatch done = new CountDownLatch(1);
+		private final NullProgressMonitor stageMonitor = new NullProgressMonitor();
+		private T result;
+		private CoreException error;
+		private boolean completed;
+		private boolean discarded;
+
+		/**
+		 * @param name names the stage in errors and threads
+		 * @param foreground whether the stage runs in the launching thread
+		 * @param after the stages which must complete first
+		 */
+		Stage(String name, boolean foreground, Stage<?>... after) {
+			this.name = name;
+			this.foreground = foreground;
+			this.after = after;
+		}
+
+		/**
+		 * Do the work of the stage.
+		 *
+		 * @param monitor reports progress of foreground stages, and tells all stages when the launch was canceled
+		 */
+		protected abstract T run(IProgressMonitor monitor) throws CoreException;
+
+		/**
+		 * Release what the stage produced, as the launch gave up. Does nothing by default.
+		 */
+		protected void discard(T result) {
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		private void execute(DirectRemoteLaunchPipeline pipeline, IProgressMonitor monitor) {
+			T value = null;
+			CoreException failure = null;
+			try {
+				for (int i = 0; i < after.length; i++) {
+					after[i].await(pipeline, monitor);
+					if (after[i].error != null)
+						throw after[i].error;
+				}
+				if (pipeline.canceled || monitor.isCanceled())
+					throw new OperationCanceledException();
+				DirectRemoteLaunchTimeline.Span span = pipeline.timeline.begin(name);
+				try {
+					value = run(monitor);
+				} finally {
+					span.end();
+				}
+			} catch (CoreException e) {
+				failure = e;
+			} catch (OperationCanceledException e) {
+				failure = new CoreException(Status.CANCEL_STATUS);
+			} catch (RuntimeException e) {
+				failure = new CoreException(new Status(IStatus.ERROR, Activator.PLUGIN_ID, IStatus.OK,
+						name + ": " + e.getMessage(), e)); //$NON-NLS-1$
+			}
+			boolean discard;
+			synchronized (this) {
+				result = value;
+				error = failure;
+				// a cancel from now on discards the result itself
+				completed = true;
+				discard = discarded && value != null;
+			}
+			done.countDown();
+			if (discard)
+				discard(value);
+		}
+
+		private void await(DirectRemoteLaunchPipeline pipeline, IProgressMonitor monitor) {
+			try {
+				while (!done.await(CHECK_INTERVAL, TimeUnit.MILLISECONDS)) {
+					if (monitor.isCanceled())
+						pipeline.cancel();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				pipeline.cancel();
+				throw new OperationCanceledException();
+			}
+		}
+
+		private void cancel() {
+			T value;
+			synchronized (this) {
+				if (discarded)
+					return;
+				discarded = true;
+				stageMonitor.setCanceled(true);
+				if (!completed)
+					return;
+				value = result;
+			}
+			if (value != null)
+				discard(value);
+		}
+	}
+
+	/**
+	 * @param name names the launch in the threads of the stages
+	 * @param timeline records how long each stage ran
+	 */
+	DirectRemoteLaunchPipeline(String name, DirectRemoteLaunchTimeline timeline) {
+		this.name = name;
+		this.timeline = timeline;
+	}
+
+	/**
+	 * Add a stage; the stages it needs must have been added before.
+	 */
+	public <T> Stage<T> add(Stage<T> stage) {
+		stages.add(stage);
+		return stage;
+	}
+
+	/**
+	 * Start the background stages and run the foreground ones in the calling
+	 * thread, in the order they were added.
+	 */
+	public void run(IProgressMonitor monitor) {
+		for (Iterator<Stage<?>> it = stages.iterator(); it.hasNext();) {
+			final Stage<?> stage = it.next();
+			if (stage.foreground)
+				continue;
+			Thread thread = new Thread(new Runnable() {
+
+				public void run() {
+					stage.execute(DirectRemoteLaunchPipeline.this, stage.stageMonitor);
+				}
+			}, name + ": " + stage.getName()); //$NON-NLS-1$
+			thread.setDaemon(true);
+			thread.start();
+		}
+		for (Iterator<Stage<?>> it = stages.iterator(); it.hasNext();) {
+			Stage<?> stage = it.next();
+			if (stage.foreground)
+				stage.execute(this, monitor);
+		}
+	}
+
+	/**
+	 * Wait until the given stage completed and answer what it produced.
+	 *
+	 * @throws CoreException if the stage failed, or the launch was canceled
+	 */
+	public <T> T join(Stage<T> stage, IProgressMonitor monitor) throws CoreException {
+		try {
+			stage.await(this, monitor);
+		} catch (OperationCanceledException e) {
+			throw new CoreException(Status.CANCEL_STATUS);
+		}
+		synchronized (stage) {
+			if (stage.error != null)
+				throw stage.error;
+			return stage.result;
+		}
+	}
+
+	/**
+	 * Give up: stop the stages still running, and discard what was produced.
+	 */
+	public void cancel() {
+		canceled = true;
+		for (Iterator<Stage<?>> it = stages.iterator(); it.hasNext();)
+			it.next().cancel();
+	}
+}
@@ -0,0 +1,534 @@
+package org.eclipse.cdt.launch.remote.direct;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.eclipse.cdt.dsf.concurrent.DsfRunnable;
+import org.eclipse.cdt.dsf.debug.service.IRunControl.IExitedDMEvent;
+import org.eclipse.cdt.dsf.debug.service.IRunControl.ISuspendedDMEvent;
+import org.eclipse.cdt.dsf.service.DsfServiceEventHandler;
+import org.eclipse.cdt.dsf.service.DsfSession;
+import org.eclipse.rse.ui.SystemBasePlugin;
+
+/**
+ * The phases of a launch and how long they took: waiting for RSE, finding
+ * the export description, walking the project and uploading its files,
+ * connecting, waiting for gdb, starting the debug services and reaching the
+ * first stop of the program.
+ * <p>
+ * The timelines of the latest launches are shown in the Launch Timeline
+ * view. When a launch has stopped for the first time, ended or failed, its
+ * timeline is appended to a log in the state location of the plug-in, one
+ * JSON object per line, to compare launches across hosts and releases. The
+ * log keeps only the slowest parts of a span, such as the uploads of single
+ * files, and counts the others; it is rolled over to a single backup once it
+ * grew beyond a limit.
+ */
+public class DirectRemoteLaunchTimeline {
+	/* Launches whose timelines are kept, the oldest are forgotten */
+	private static final int MAX_LAUNCHES = 10;
+	private static final String LOG_FILE = "launch-timeline.jsonl"; //$NON-NLS-1$
+	private static final String LOG_BACKUP_FILE = "launch-timeline.1.jsonl"; //$NON-NLS-1$
+	/* Bytes the log grows to before it replaces the backup */
+	private static final long MAX_LOG_SIZE = 1024 * 1024;
+	/* Parts of a span written to the log, the slowest; the others are only counted */
+	private static final int MAX_LOGGED_PARTS = 10;
+	// serializes the launches appending to the log
+	private static final Object logLock = new Object();
+
+	// the latest launches, newest last
+	private static final LinkedList<DirectRemoteLaunchTimeline> timelines = new LinkedList<DirectRemoteLaunchTimeline>();
+	// the timeline of the launch the calling thread runs
+	private static final ThreadLocal<DirectRemoteLaunchTimeline> current = new ThreadLocal<DirectRemoteLaunchTimeline>();
+	// the timeline of threads not running a launch, which records nothing
+	private static final DirectRemoteLaunchTimeline NONE = new DirectRemoteLaunchTimeline("", false); //$NON-NLS-1$
+
+	private final String name;
+	private final boolean recording;
+	private final long startTime = System.currentTimeMillis();
+	private final long startNanos = System.nanoTime();
+	private final List<Span> spans = new ArrayList<Span>();
+	// the spans without parent, in the order they started
+	private final List<Span> roots = new ArrayList<Span>();
+	private volatile String host = ""; //$NON-NLS-1$
+	private volatile String outcome;
+	// known once the launch completed
+	private volatile long duration = -1;
+
+	/**
+	 * A phase of a launch. Spans of the same phase which are parts of another,
+	 * such as the uploads of single files, name it as their parent.
+	 */
+	public class Span {
+		private final String phase;
+		private final String detail;
+		private final Span parent;
+		private final String thread = Thread.currentThread().getName();
+		private final long start = System.nanoTime();
+		private volatile long end;
+		// the spans which are parts of this one, locked by the spans of the timeline
+		private List<Span> children;
+
+		Span(String phase, String detail, Span parent) {
+			this.phase = phase;
+			this.detail = detail;
+			this.parent = parent;
+		}
+
+		public String getPhase() {
+			return phase;
+		}
+
+		/**
+		 * Answer what the phase worked on, such as the file uploaded, or null.
+		 */
+		public String getDetail() {
+			return detail;
+		}
+
+		public Span getParent() {
+			return parent;
+		}
+
+		public String getThread() {
+			return thread;
+		}
+
+		/**
+		 * Answer the milliseconds from the start of the launch to the start of the span.
+		 */
+		public long getStart() {
+			return (start - startNanos) / 1000000;
+		}
+
+		/**
+		 * Answer how many milliseconds the span took, or has taken so far.
+		 */
+		public long getDuration() {
+			long until = end != 0 ? end : System.nanoTime();
+			return (until - start) / 1000000;
+		}
+
+		public boolean isEnded() {
+			return end != 0;
+		}
+
+		public DirectRemoteLaunchTimeline getTimeline() {
+			return DirectRemoteLaunchTimeline.this;
+		}
+
+		public void end() {
+			if (end == 0)
+				end = System.nanoTime();
+		}
+	}
+
+	private DirectRemoteLaunchTimeline(String name, boolean recording) {
+		this.name = name;
+		this.recording = recording;
+	}
+
+	/**
+	 * Start the timeline of a launch of the configuration with the given name
+	 * and make it the one of the calling thread.
+	 */
+	public static DirectRemoteLaunchTimeline start(String name) {
+		DirectRemoteLaunchTimeline timeline = new DirectRemoteLaunchTimeline(name, true);
+		synchronized (timelines) {
+			timelines.addLast(timeline);
+			if (timelines.size() > MAX_LAUNCHES)
+				timelines.removeFirst();
+		}
+		current.set(timeline);
+		return timeline;
+	}
+
+	/**
+	 * Answer the timeline of the launch the calling thread runs, or one which
+	 * records nothing if the thread does not run a launch.
+	 */
+	public static DirectRemoteLaunchTimeline current() {
+		DirectRemoteLaunchTimeline timeline = current.get();
+		return timeline != null ? timeline : NONE;
+	}
+
+	/**
+	 * Note that the calling thread no longer runs a launch.
+	 */
+	public static void leave() {
+		current.remove();
+	}
+
+	/**
+	 * Answer the timelines of the latest launches, newest last.
+	 */
+	public static List<DirectRemoteLaunchTimeline> getTimelines() {
+		synchronized (timelines) {
+			return new ArrayList<DirectRemoteLaunchTimeline>(timelines);
+		}
+	}
+
+	/**
+	 * Forget the timelines of the launches which completed.
+	 */
+	public static void clearCompleted() {
+		synchronized (timelines) {
+			for (Iterator<DirectRemoteLaunchTimeline> it = timelines.iterator(); it.hasNext();)
+				if (it.next().isCompleted())
+					it.remove();
+		}
+	}
+
+	/**
+	 * Start a span of the given phase.
+	 *
+	 * @param detail what the phase works on, or null
+	 * @param parent the span this one is a part of, or null
+	 */
+	public Span begin(String phase, String detail, Span parent) {
+		Span span = new Span(phase, detail, parent);
+		if (recording) {
+			synchronized (spans) {
+				spans.add(span);
+				if (parent == null) {
+					roots.add(span);
+				} else {
+					if (parent.children == null)
+						parent.children = new ArrayList<Span>();
+					parent.children.add(span);
+				}
+			}
+		}
+		return span;
+	}
+
+	public Span begin(String phase) {
+		return begin(phase, null, null);
+	}
+
+	/**
+	 * Answer the spans recorded so far, in the order they started.
+	 */
+	public List<Span> getSpans() {
+		synchronized (spans) {
+			return new ArrayList<Span>(spans);
+		}
+	}
+
+	/**
+	 * Answer the spans which are parts of the given one, or those without
+	 * parent if it is null, in the order they started.
+	 */
+	public List<Span> getChildren(Span parent) {
+		synchronized (spans) {
+			if (parent == null)
+				return new ArrayList<Span>(roots);
+			return parent.children != null ? new ArrayList<Span>(parent.children) : new ArrayList<Span>(0);
+		}
+	}
+
+	/**
+	 * Answer whether the given span has parts, or the timeline has spans if it is null.
+	 */
+	public boolean hasChildren(Span parent) {
+		synchronized (spans) {
+			return parent == null ? !roots.isEmpty() : parent.children != null;
+		}
+	}
+
+	/**
+	 * Answer the milliseconds from the start of the launch to the end of its
+	 * last span, or to now while the launch is in progress.
+	 */
+	public long getDuration() {
+		long completed = duration;
+		if (completed >= 0)
+			return completed;
+		return (System.nanoTime() - startNanos) / 1000000;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getHost() {
+		return host;
+	}
+
+	public void setHost(String host) {
+		this.host = host;
+	}
+
+	public long getStartTime() {
+		return startTime;
+	}
+
+	/**
+	 * Answer how the launch ended, or null while it is in progress.
+	 */
+	public String getOutcome() {
+		return outcome;
+	}
+
+	public boolean isCompleted() {
+		return outcome != null;
+	}
+
+	/**
+	 * Note that the launch stopped for the first time, ended or failed, and
+	 * append the timeline to the log. The calling thread no longer runs it.
+	 *
+	 * @param outcome "stopped", "ended" or "failed"
+	 */
+	public void complete(String outcome) {
+		if (current.get() == this)
+			current.remove();
+		if (!recording)
+			return;
+		synchronized (this) {
+			if (this.outcome != null)
+				return;
+			this.outcome = outcome;
+		}
+		long last = 0;
+		for (Iterator<Span> it = getSpans().iterator(); it.hasNext();) {
+			Span span = it.next();
+			span.end();
+			last = Math.max(last, span.getStart() + span.getDuration());
+		}
+		duration = last;
+		writeLog();
+	}
+
+	/**
+	 * End the span of the first stop, and complete the timeline, when the
+	 * program of the given session stops or exits, or the session ends.
+	 */
+	public void watchFirstStop(final DsfSession session, final Span firstStop) {
+		final FirstStopWatch watch = new FirstStopWatch(this, session, firstStop);
+		DsfSession.addSessionEndedListener(watch);
+		try {
+			session.getExecutor().execute(new DsfRunnable() {
+
+				public void run() {
+					session.addServiceEventListener(watch, null);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			watch.sessionEnded(session);
+		}
+	}
+
+	/**
+	 * Waits for the first stop of a debug session.
+	 */
+	public static class FirstStopWatch implements DsfSession.SessionEndedListener {
+		private final DirectRemoteLaunchTimeline timeline;
+		private final DsfSession session;
+		private final Span firstStop;
+		private boolean finished;
+
+		FirstStopWatch(DirectRemoteLaunchTimeline timeline, DsfSession session, Span firstStop) {
+			this.timeline = timeline;
+			this.session = session;
+			this.firstStop = firstStop;
+		}
+
+		@DsfServiceEventHandler
+		public void eventDispatched(ISuspendedDMEvent event) {
+			done("stopped"); //$NON-NLS-1$
+		}
+
+		@DsfServiceEventHandler
+		public void eventDispatched(IExitedDMEvent event) {
+			done("ended"); //$NON-NLS-1$
+		}
+
+		public void sessionEnded(DsfSession ended) {
+			if (ended == session)
+				done("ended"); //$NON-NLS-1$
+		}
+
+		private void done(String outcome) {
+			synchronized (this) {
+				if (finished)
+					return;
+				finished = true;
+			}
+			DsfSession.removeSessionEndedListener(this);
+			if (session.isActive()) {
+				// not while the session dispatches the event to it
+				try {
+					session.getExecutor().execute(new DsfRunnable() {
+
+						public void run() {
+							session.removeServiceEventListener(FirstStopWatch.this);
+						}
+					});
+				} catch (RejectedExecutionException e) {
+					// the session is shutting down
+				}
+			}
+			firstStop.end();
+			timeline.complete(outcome);
+		}
+	}
+
+	private void writeLog() {
+		Activator plugin = Activator.getDefault();
+		if (plugin == null)
+			return;
+		File log = plugin.getStateLocation().append(LOG_FILE).toFile();
+		synchronized (logLock) {
+			if (log.length() > MAX_LOG_SIZE) {
+				File backup = plugin.getStateLocation().append(LOG_BACKUP_FILE).toFile();
+				backup.delete();
+				if (!log.renameTo(backup))
+					log.delete();
+			}
+			Writer out = null;
+			try {
+				out = new OutputStreamWriter(new FileOutputStream(log, true), "UTF-8"); //$NON-NLS-1$
+				writeJson(out, MAX_LOGGED_PARTS);
+				out.write('\n');
+			} catch (IOException e) {
+				SystemBasePlugin.logError("Could not write the launch timeline to " + log, e); //$NON-NLS-1$
+			} finally {
+				if (out != null) {
+					try {
+						out.close();
+					} catch (IOException e) {
+						// nothing more to do
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Write the timeline as a single line JSON object. Times are in milliseconds
+	 * from the start of the launch, which is in milliseconds since the epoch.
+	 */
+	public void writeJson(Writer out) throws IOException {
+		writeJson(out, -1);
+	}
+
+	/*
+	 * Write the timeline, with at most the given number of the slowest parts
+	 * of the same phase, without parts of their own, per span, or all parts
+	 * if it is negative. A span whose parts were left out tells how many of
+	 * the phase it had and how long they took together.
+	 */
+	private void writeJson(Writer out, int maxParts) throws IOException {
+		List<Span> all = getSpans();
+		// per span, the phases of the parts left out with their count and total duration
+		Map<Span, Map<String, long[]>> folded = new IdentityHashMap<Span, Map<String, long[]>>();
+		Map<Span, Boolean> omitted = new IdentityHashMap<Span, Boolean>();
+		if (maxParts >= 0) {
+			Comparator<Span> slowestFirst = new Comparator<Span>() {
+
+				public int compare(Span first, Span second) {
+					long difference = second.getDuration() - first.getDuration();
+					return difference > 0 ? 1 : difference < 0 ? -1 : 0;
+				}
+			};
+			for (int i = 0; i < all.size(); i++) {
+				Span span = all.get(i);
+				List<Span> parts = getChildren(span);
+				if (parts.size() <= maxParts)
+					continue;
+				Map<String, List<Span>> leavesByPhase = new LinkedHashMap<String, List<Span>>();
+				for (Iterator<Span> it = parts.iterator(); it.hasNext();) {
+					Span part = it.next();
+					if (hasChildren(part))
+						continue;
+					List<Span> leaves = leavesByPhase.get(part.phase);
+					if (leaves == null) {
+						leaves = new ArrayList<Span>();
+						leavesByPhase.put(part.phase, leaves);
+					}
+					leaves.add(part);
+				}
+				for (Iterator<Map.Entry<String, List<Span>>> it = leavesByPhase.entrySet().iterator(); it.hasNext();) {
+					Map.Entry<String, List<Span>> phase = it.next();
+					List<Span> leaves = phase.getValue();
+					if (leaves.size() <= maxParts)
+						continue;
+					long total = 0;
+					for (Iterator<Span> leaf = leaves.iterator(); leaf.hasNext();)
+						total += leaf.next().getDuration();
+					Collections.sort(leaves, slowestFirst);
+					for (int j = maxParts; j < leaves.size(); j++)
+						omitted.put(leaves.get(j), Boolean.TRUE);
+					Map<String, long[]> phases = folded.get(span);
+					if (phases == null) {
+						phases = new LinkedHashMap<String, long[]>();
+						folded.put(span, phases);
+					}
+					phases.put(phase.getKey(), new long[] { leaves.size(), total });
+				}
+			}
+			List<Span> logged = new ArrayList<Span>(all.size() - omitted.size());
+			for (Iterator<Span> it = all.iterator(); it.hasNext();) {
+				Span span = it.next();
+				if (!omitted.containsKey(span))
+					logged.add(span);
+			}
+			all = logged;
+		}
+		Map<Span, Integer> indexes = new IdentityHashMap<Span, Integer>(all.size());
+		for (int i = 0; i < all.size(); i++)
+			indexes.put(all.get(i), Integer.valueOf(i));
+		out.write("{\"launch\": "); //$NON-NLS-1$
+		DirectRemoteCommandMetrics.writeString(name, out);
+		out.write(", \"host\": "); //$NON-NLS-1$
+		DirectRemoteCommandMetrics.writeString(host, out);
+		out.write(", \"start\": " + startTime); //$NON-NLS-1$
+		out.write(", \"outcome\": "); //$NON-NLS-1$
+		DirectRemoteCommandMetrics.writeString(outcome != null ? outcome : "running", out); //$NON-NLS-1$
+		out.write(", \"spans\": ["); //$NON-NLS-1$
+		for (int i = 0; i < all.size(); i++) {
+			Span span = all.get(i);
+			if (i > 0)
+				out.write(", "); //$NON-NLS-1$
+			out.write("{\"phase\": "); //$NON-NLS-1$
+			DirectRemoteCommandMetrics.writeString(span.phase, out);
+			if (span.detail != null) {
+				out.write(", \"detail\": "); //$NON-NLS-1$
+				DirectRemoteCommandMetrics.writeString(span.detail, out);
+			}
+			if (span.parent != null)
+				out.write(", \"parent\": " + indexes.get(span.parent)); //$NON-NLS-1$
+			Map<String, long[]> phases = folded.get(span);
+			if (phases != null) {
+				out.write(", \"folded\": ["); //$NON-NLS-1$
+				for (Iterator<Map.Entry<String, long[]>> it = phases.entrySet().iterator(); it.hasNext();) {
+					Map.Entry<String, long[]> phase = it.next();
+					out.write("{\"phase\": "); //$NON-NLS-1$
+					DirectRemoteCommandMetrics.writeString(phase.getKey(), out);
+					out.write(", \"count\": " + phase.getValue()[0] + ", \"duration\": " + phase.getValue()[1] + "}"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					if (it.hasNext())
+						out.write(", "); //$NON-NLS-1$
+				}
+				out.write("]"); //$NON-NLS-1$
+			}
+			out.write(", \"thread\": "); //$NON-NLS-1$
+			DirectRemoteCommandMetrics.writeString(span.thread, out);
+			out.write(", \"start\": " + span.getStart() + ", \"duration\": " + span.getDuration() + "}"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+		out.write("]}"); //$NON-NLS-1$
+	}
+}
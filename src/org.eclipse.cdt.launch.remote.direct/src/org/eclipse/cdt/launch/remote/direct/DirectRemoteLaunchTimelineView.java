@@ -0,0 +1,223 @@
+package org.eclipse.cdt.launch.remote.direct;
+
+import java.text.DateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.jface.action.Action;
+import org.eclipse.jface.viewers.ITableLabelProvider;
+import org.eclipse.jface.viewers.ITreeContentProvider;
+import org.eclipse.jface.viewers.LabelProvider;
+import org.eclipse.jface.viewers.TreeViewer;
+import org.eclipse.jface.viewers.Viewer;
+import org.eclipse.osgi.util.NLS;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.GC;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.Listener;
+import org.eclipse.swt.widgets.Tree;
+import org.eclipse.swt.widgets.TreeColumn;
+import org.eclipse.ui.part.ViewPart;
+
+/**
+ * Shows the phases of the latest launches on a timeline: one row per launch,
+ * with its phases below and the parts of a phase, such as the uploads of
+ * single files, below the phase. The bar of a phase shows when it ran
+ * compared to the whole launch.
+ * <p>
+ * The view is refreshed while launches are in progress, only for those
+ * launches, and once more when they completed; the timelines of completed
+ * launches do not change.
+ */
+public class DirectRemoteLaunchTimelineView extends ViewPart {
+	/* Milliseconds between checks for launches to refresh */
+	private static final int REFRESH_INTERVAL = 1000;
+	/* Column of the bars */
+	private static final int BAR_COLUMN = 5;
+
+	private static final String[] COLUMNS = { Messages.DirectRemoteLaunchTimelineView_0,
+			Messages.DirectRemoteLaunchTimelineView_1, Messages.DirectRemoteLaunchTimelineView_2,
+			Messages.DirectRemoteLaunchTimelineView_3, Messages.DirectRemoteLaunchTimelineView_4,
+			Messages.DirectRemoteLaunchTimelineView_5 };
+	private static final int[] WIDTHS = { 200, 200, 80, 90, 140, 300 };
+
+	private TreeViewer viewer;
+	// the timelines shown, and those of them in progress, at the last refresh
+	private List<DirectRemoteLaunchTimeline> shown = new ArrayList<DirectRemoteLaunchTimeline>();
+	private final Set<DirectRemoteLaunchTimeline> running = new HashSet<DirectRemoteLaunchTimeline>();
+
+	private static class TimelineContentProvider implements ITreeContentProvider {
+
+		public Object[] getElements(Object inputElement) {
+			List<DirectRemoteLaunchTimeline> timelines = DirectRemoteLaunchTimeline.getTimelines();
+			// newest first
+			Object[] elements = new Object[timelines.size()];
+			for (int i = 0; i < elements.length; i++)
+				elements[i] = timelines.get(timelines.size() - 1 - i);
+			return elements;
+		}
+
+		public Object[] getChildren(Object parentElement) {
+			if (parentElement instanceof DirectRemoteLaunchTimeline)
+				return ((DirectRemoteLaunchTimeline) parentElement).getChildren(null).toArray();
+			DirectRemoteLaunchTimeline.Span parent = (DirectRemoteLaunchTimeline.Span) parentElement;
+			return parent.getTimeline().getChildren(parent).toArray();
+		}
+
+		public Object getParent(Object element) {
+			if (element instanceof DirectRemoteLaunchTimeline.Span) {
+				DirectRemoteLaunchTimeline.Span span = (DirectRemoteLaunchTimeline.Span) element;
+				return span.getParent() != null ? span.getParent() : span.getTimeline();
+			}
+			return null;
+		}
+
+		public boolean hasChildren(Object element) {
+			if (element instanceof DirectRemoteLaunchTimeline)
+				return ((DirectRemoteLaunchTimeline) element).hasChildren(null);
+			DirectRemoteLaunchTimeline.Span span = (DirectRemoteLaunchTimeline.Span) element;
+			return span.getTimeline().hasChildren(span);
+		}
+
+		public void dispose() {
+		}
+
+		public void inputChanged(Viewer viewer, Object oldInput, Object newInput) {
+		}
+	}
+
+	private static class TimelineLabelProvider extends LabelProvider implements ITableLabelProvider {
+
+		public Image getColumnImage(Object element, int columnIndex) {
+			return null;
+		}
+
+		public String getColumnText(Object element, int columnIndex) {
+			if (element instanceof DirectRemoteLaunchTimeline) {
+				DirectRemoteLaunchTimeline timeline = (DirectRemoteLaunchTimeline) element;
+				switch (columnIndex) {
+				case 0:
+					return timeline.getName();
+				case 1:
+					String started = DateFormat.getTimeInstance().format(new Date(timeline.getStartTime()));
+					return timeline.isCompleted() ? NLS.bind(Messages.DirectRemoteLaunchTimelineView_6, new Object[] {
+							timeline.getHost(), started, timeline.getOutcome() }) : NLS.bind(
+							Messages.DirectRemoteLaunchTimelineView_7, timeline.getHost(), started);
+				case 3:
+					return Long.toString(timeline.getDuration());
+				}
+				return ""; //$NON-NLS-1$
+			}
+			DirectRemoteLaunchTimeline.Span span = (DirectRemoteLaunchTimeline.Span) element;
+			switch (columnIndex) {
+			case 0:
+				return span.getPhase();
+			case 1:
+				return span.getDetail() != null ? span.getDetail() : ""; //$NON-NLS-1$
+			case 2:
+				return Long.toString(span.getStart());
+			case 3:
+				return span.isEnded() ? Long.toString(span.getDuration()) : NLS.bind(
+						Messages.DirectRemoteLaunchTimelineView_8, Long.valueOf(span.getDuration()));
+			case 4:
+				return span.getThread();
+			}
+			return ""; //$NON-NLS-1$
+		}
+	}
+
+	@Override
+	public void createPartControl(Composite parent) {
+		viewer = new TreeViewer(parent, SWT.MULTI | SWT.FULL_SELECTION | SWT.H_SCROLL | SWT.V_SCROLL);
+		Tree tree = viewer.getTree();
+		tree.setHeaderVisible(true);
+		tree.setLinesVisible(true);
+		for (int i = 0; i < COLUMNS.length; i++) {
+			TreeColumn column = new TreeColumn(tree, i == 2 || i == 3 ? SWT.RIGHT : SWT.LEFT);
+			column.setText(COLUMNS[i]);
+			column.setWidth(WIDTHS[i]);
+		}
+		tree.addListener(SWT.PaintItem, new Listener() {
+
+			public void handleEvent(Event event) {
+				paintBar(event);
+			}
+		});
+		viewer.setContentProvider(new TimelineContentProvider());
+		viewer.setLabelProvider(new TimelineLabelProvider());
+		viewer.setInput(this);
+		getViewSite().getActionBars().getToolBarManager().add(new Action(Messages.DirectRemoteLaunchTimelineView_9) {
+
+			@Override
+			public void run() {
+				DirectRemoteLaunchTimeline.clearCompleted();
+				refresh();
+			}
+		});
+		refresh();
+		scheduleRefresh();
+	}
+
+	/*
+	 * Refresh the whole tree if launches were added or forgotten, else only
+	 * the launches which were in progress at the last refresh.
+	 */
+	private void refresh() {
+		List<DirectRemoteLaunchTimeline> timelines = DirectRemoteLaunchTimeline.getTimelines();
+		if (!timelines.equals(shown)) {
+			viewer.refresh();
+		} else {
+			for (Iterator<DirectRemoteLaunchTimeline> it = timelines.iterator(); it.hasNext();) {
+				DirectRemoteLaunchTimeline timeline = it.next();
+				if (running.contains(timeline))
+					viewer.refresh(timeline);
+			}
+		}
+		shown = timelines;
+		running.clear();
+		for (Iterator<DirectRemoteLaunchTimeline> it = timelines.iterator(); it.hasNext();) {
+			DirectRemoteLaunchTimeline timeline = it.next();
+			if (!timeline.isCompleted())
+				running.add(timeline);
+		}
+	}
+
+	/*
+	 * Draw the bar of a span, placed by its start and length compared to the whole launch.
+	 */
+	private void paintBar(Event event) {
+		if (event.index != BAR_COLUMN || !(event.item.getData() instanceof DirectRemoteLaunchTimeline.Span))
+			return;
+		DirectRemoteLaunchTimeline.Span span = (DirectRemoteLaunchTimeline.Span) event.item.getData();
+		long total = Math.max(1, span.getTimeline().getDuration());
+		int width = viewer.getTree().getColumn(BAR_COLUMN).getWidth() - 4;
+		int x = event.x + 2 + (int) (span.getStart() * width / total);
+		int length = Math.max(1, (int) (span.getDuration() * width / total));
+		GC gc = event.gc;
+		gc.setBackground(event.display.getSystemColor(span.isEnded() ? SWT.COLOR_LIST_SELECTION : SWT.COLOR_DARK_YELLOW));
+		gc.fillRectangle(x, event.y + 3, length, Math.max(1, event.height - 6));
+	}
+
+	private void scheduleRefresh() {
+		viewer.getControl().getDisplay().timerExec(REFRESH_INTERVAL, new Runnable() {
+
+			public void run() {
+				if (viewer.getControl().isDisposed())
+					return;
+				refresh();
+				scheduleRefresh();
+			}
+		});
+	}
+
+	@Override
+	public void setFocus() {
+		viewer.getControl().setFocus();
+	}
+}
@@ -0,0 +1,227 @@
+package org.eclipse.cdt.launch.remote.direct;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.cdt.debug.core.sourcelookup.MappingSourceContainer;
+import org.eclipse.cdt.debug.internal.core.sourcelookup.MapEntrySourceContainer;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+
+/**
+ * Maps the remote paths of the sources gdb reports to local paths. The
+ * binaries of a launch may reference sources under several remote roots,
+ * such as the remote workspace, build directories, vendored trees and
+ * generated code; each root is a map entry.
+ * <p>
+ * Looking a source up does not try every entry: the remote roots are
+ * indexed by their segments, so the longest root the path starts with is
+ * found by walking the path once, and only the entries whose roots match
+ * are asked, longest first. The sources found are remembered, since the
+ * same frames are looked up again on every stop.
+ * <p>
+ * The entries are ordinary map entries, so the container is shown, edited
+ * and stored like any path mapping.
+ */
+public class DirectRemoteMappingSourceContainer extends MappingSourceContainer {
+	/* Sources whose lookup is remembered, the least recently used are forgotten */
+	private static final int CACHE_SIZE = 2048;
+	private static final Object[] EMPTY = new Object[0];
+
+	// the remote roots by their segments, rebuilt when the entries change
+	private volatile Node index = new Node();
+	// sources found, by the name gdb reported, most recently used last
+	private final Map<String, Object[]> resolved = new LinkedHashMap<String, Object[]>(64, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Object[]> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+
+	/* A segment of the remote roots; entries whose roots end here */
+	private static class Node {
+		final Map<String, Node> children = new HashMap<String, Node>();
+		final List<MapEntrySourceContainer> entries = new ArrayList<MapEntrySourceContainer>(1);
+	}
+
+	public DirectRemoteMappingSourceContainer(String name) {
+		super(name);
+	}
+
+	/**
+	 * Create the mapping of a launch: the remote workspace to the project
+	 * and the additional mappings of the launch configuration.
+	 *
+	 * @param projectLocation the location of the project, or null
+	 * @param remoteWorkspace the remote workspace directory, may be empty
+	 * @param mappings the additional mappings, one per line as remote path=local path;
+	 *            relative local paths are relative to the project
+	 */
+	public static DirectRemoteMappingSourceContainer create(String name, IPath projectLocation,
+			String remoteWorkspace, String mappings) {
+		DirectRemoteMappingSourceContainer container = new DirectRemoteMappingSourceContainer(name);
+		List<MapEntrySourceContainer> entries = new ArrayList<MapEntrySourceContainer>();
+		if (projectLocation != null && remoteWorkspace.length() > 0)
+			entries.add(new MapEntrySourceContainer(Path.fromOSString(remoteWorkspace), projectLocation));
+		String[] lines = mappings.split("\\r?\\n"); //$NON-NLS-1$
+		for (int i = 0; i < lines.length; i++) {
+			String[] mapping = parseMapping(lines[i]);
+			if (mapping == null)
+				continue;
+			IPath local = Path.fromOSString(mapping[1]);
+			if (!local.isAbsolute()) {
+				if (projectLocation == null)
+					continue;
+				local = projectLocation.append(local);
+			}
+			entries.add(new MapEntrySourceContainer(toPath(mapping[0]), local));
+		}
+		container.addMapEntries(entries.toArray(new MapEntrySourceContainer[entries.size()]));
+		return container;
+	}
+
+	/**
+	 * Split a line of the mappings into its remote and local path.
+	 *
+	 * @return the remote and the local path, or null if the line is empty or
+	 *         not of the form remote path=local path
+	 */
+	public static String[] parseMapping(String line) {
+		int separator = line.indexOf('=');
+		if (separator < 0)
+			return null;
+		String remote = line.substring(0, separator).trim();
+		String local = line.substring(separator + 1).trim();
+		if (remote.length() == 0 || local.length() == 0)
+			return null;
+		return new String[] { remote, local };
+	}
+
+	@Override
+	public void addMapEntry(MapEntrySourceContainer entry) {
+		super.addMapEntry(entry);
+		reindex();
+	}
+
+	@Override
+	public void addMapEntries(MapEntrySourceContainer[] entries) {
+		super.addMapEntries(entries);
+		reindex();
+	}
+
+	@Override
+	public void removeMapEntry(MapEntrySourceContainer entry) {
+		super.removeMapEntry(entry);
+		reindex();
+	}
+
+	@Override
+	public void removeMapEntries(MapEntrySourceContainer[] entries) {
+		super.removeMapEntries(entries);
+		reindex();
+	}
+
+	@Override
+	public void clear() {
+		super.clear();
+		reindex();
+	}
+
+	@Override
+	public Object[] findSourceElements(String name) throws CoreException {
+		synchronized (resolved) {
+			Object[] found = resolved.get(name);
+			if (found != null)
+				return found;
+		}
+		IPath path = toPath(name);
+		if (!path.isAbsolute()) {
+			// relative to the directory of the compilation, which only the entries know
+			return super.findSourceElements(name);
+		}
+		// the entries whose remote roots the path starts with, longest last
+		List<MapEntrySourceContainer> candidates = new ArrayList<MapEntrySourceContainer>();
+		Node node = index;
+		candidates.addAll(node.entries);
+		for (int i = 0; i < path.segmentCount() && node != null; i++) {
+			node = node.children.get(path.segment(i));
+			if (node != null)
+				candidates.addAll(node.entries);
+		}
+		for (int i = candidates.size() - 1; i >= 0; i--) {
+			Object[] found = candidates.get(i).findSourceElements(name);
+			if (found.length > 0) {
+				synchronized (resolved) {
+					resolved.put(name, found);
+				}
+				return found;
+			}
+		}
+		// not remembered, the source may be uploaded or generated later
+		return EMPTY;
+	}
+
+	@Override
+	public MappingSourceContainer copy() {
+		DirectRemoteMappingSourceContainer copy = new DirectRemoteMappingSourceContainer(getName());
+		List<MapEntrySourceContainer> entries = new ArrayList<MapEntrySourceContainer>();
+		try {
+			Object[] containers = getSourceContainers();
+			for (int i = 0; i < containers.length; i++)
+				entries.add(((MapEntrySourceContainer) containers[i]).copy());
+		} catch (CoreException e) {
+			// the entries are kept in memory, they can always be listed
+		}
+		copy.addMapEntries(entries.toArray(new MapEntrySourceContainer[entries.size()]));
+		return copy;
+	}
+
+	@Override
+	public void dispose() {
+		super.dispose();
+		synchronized (resolved) {
+			resolved.clear();
+		}
+	}
+
+	private void reindex() {
+		Node root = new Node();
+		try {
+			Object[] containers = getSourceContainers();
+			for (int i = 0; i < containers.length; i++) {
+				MapEntrySourceContainer entry = (MapEntrySourceContainer) containers[i];
+				IPath remote = toPath(entry.getBackendPath().toPortableString());
+				Node node = root;
+				for (int j = 0; j < remote.segmentCount(); j++) {
+					Node child = node.children.get(remote.segment(j));
+					if (child == null) {
+						child = new Node();
+						node.children.put(remote.segment(j), child);
+					}
+					node = child;
+				}
+				node.entries.add(entry);
+			}
+		} catch (CoreException e) {
+			// the entries are kept in memory, they can always be listed
+		}
+		index = root;
+		synchronized (resolved) {
+			resolved.clear();
+		}
+	}
+
+	/*
+	 * The paths gdb reports are those of the remote host, whatever the local
+	 * platform; backslashes are taken as separators as well.
+	 */
+	private static IPath toPath(String name) {
+		return new Path(null, name.replace('\\', '/'));
+	}
+}
@@ -0,0 +1,207 @@
+package org.eclipse.cdt.launch.remote.direct;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Turns the output of gdb/MI into what a user reads: the console, target and
+ * log stream records (<code>~"..."</code>, <code>@"..."</code>,
+ * <code>&amp;"..."</code>) are unquoted, while the result and async records,
+ * the tokens the backend numbers its commands with and the prompt are left
+ * out. Lines which are not records, such as the output of a program writing
+ * to the terminal of gdb, are passed on as they are, without waiting for
+ * their end.
+ * <p>
+ * Only used by the thread writing to the console.
+ */
+class DirectRemoteMiDecoder {
+	/* What is known of the current line */
+	private static final int UNDECIDED = 0;
+	private static final int STREAM_RECORD = 1;
+	private static final int OTHER_RECORD = 2;
+	private static final int TEXT = 3;
+	private static final byte[] PROMPT = { '(', 'g', 'd', 'b', ')' };
+
+	private final OutputStream out;
+	// the current line, while it is undecided or a stream record
+	private byte[] line = new byte[256];
+	private int lineLength = 0;
+	private int state = UNDECIDED;
+	// what is passed on, written at once
+	private byte[] decoded = new byte[1024];
+	private int decodedLength = 0;
+
+	/**
+	 * @param out where the text is written to
+	 */
+	DirectRemoteMiDecoder(OutputStream out) {
+		this.out = out;
+	}
+
+	/**
+	 * Decode bytes gdb printed; a line may be split across calls.
+	 */
+	public void write(byte[] bytes, int offset, int count) throws IOException {
+		for (int i = offset; i < offset + count; i++) {
+			byte b = bytes[i];
+			if (state == TEXT) {
+				emit(b);
+			} else if (state != OTHER_RECORD) {
+				append(b);
+				if (state == UNDECIDED)
+					decide();
+			}
+			if (b == '\n')
+				endLine();
+		}
+		if (decodedLength > 0) {
+			out.write(decoded, 0, decodedLength);
+			decodedLength = 0;
+		}
+	}
+
+	/*
+	 * Tell from the start of the line whether it is a record, once that can be told.
+	 */
+	private void decide() {
+		int i = 0;
+		while (i < lineLength && line[i] >= '0' && line[i] <= '9')
+			i++;
+		if (i == lineLength)
+			// a token so far
+			return;
+		byte type = line[i];
+		if (type == '(' && i == 0) {
+			int n = Math.min(lineLength, PROMPT.length);
+			for (int j = 0; j < n; j++) {
+				if (line[j] != PROMPT[j]) {
+					setText();
+					return;
+				}
+			}
+			if (n == PROMPT.length)
+				setOtherRecord();
+			return;
+		}
+		if (type != '~' && type != '@' && type != '&' && type != '^' && type != '*' && type != '+' && type != '=') {
+			setText();
+			return;
+		}
+		if (i + 1 == lineLength)
+			return;
+		byte next = line[i + 1];
+		if (type == '~' || type == '@' || type == '&') {
+			if (next == '"')
+				state = STREAM_RECORD;
+			else
+				setText();
+		} else if (next >= 'a' && next <= 'z') {
+			// ^done, *stopped, =thread-created and the like
+			setOtherRecord();
+		} else {
+			setText();
+		}
+	}
+
+	private void setText() {
+		state = TEXT;
+		for (int i = 0; i < lineLength; i++)
+			emit(line[i]);
+		lineLength = 0;
+	}
+
+	private void setOtherRecord() {
+		state = OTHER_RECORD;
+		lineLength = 0;
+	}
+
+	private void endLine() {
+		if (state == STREAM_RECORD)
+			unquote();
+		else if (state == UNDECIDED)
+			setText();
+		state = UNDECIDED;
+		lineLength = 0;
+	}
+
+	/*
+	 * Pass on the C string of the stream record in the line, without its escapes.
+	 */
+	private void unquote() {
+		int start = 0;
+		while (line[start] != '"')
+			start++;
+		int end = lineLength;
+		while (end > start + 1 && line[end - 1] != '"')
+			end--;
+		if (end == start + 1) {
+			// not closed, not a record after all
+			setText();
+			return;
+		}
+		end--;
+		for (int i = start + 1; i < end; i++) {
+			byte b = line[i];
+			if (b != '\\' || i + 1 == end) {
+				emit(b);
+				continue;
+			}
+			b = line[++i];
+			switch (b) {
+			case 'n':
+				emit((byte) '\n');
+				break;
+			case 't':
+				emit((byte) '\t');
+				break;
+			case 'r':
+				emit((byte) '\r');
+				break;
+			case 'b':
+				emit((byte) '\b');
+				break;
+			case 'f':
+				emit((byte) '\f');
+				break;
+			case 'e':
+				emit((byte) 033);
+				break;
+			case 'a':
+				emit((byte) 007);
+				break;
+			case 'v':
+				emit((byte) 013);
+				break;
+			default:
+				if (b >= '0' && b <= '7') {
+					int value = 0;
+					for (int digits = 0; digits < 3 && i < end && line[i] >= '0' && line[i] <= '7'; digits++)
+						value = value * 8 + line[i++] - '0';
+					i--;
+					emit((byte) value);
+				} else {
+					// \" and \\
+					emit(b);
+				}
+			}
+		}
+	}
+
+	private void append(byte b) {
+		if (lineLength == line.length) {
+			byte[] grown = new byte[line.length * 2];
+			System.arraycopy(line, 0, grown, 0, lineLength);
+			line = grown;
+		}
+		line[lineLength++] = b;
+	}
+
+	private void emit(byte b) {
+		if (decodedLength == decoded.length) {
+			byte[] grown = new byte[decoded.length * 2];
+			System.arraycopy(decoded, 0, grown, 0, decodedLength);
+			decoded = grown;
+		}
+		decoded[decodedLength++] = b;
+	}
+}
@@ -0,0 +1,15 @@
+package org.eclipse.cdt.launch.remote.direct;
+
+import org.eclipse.core.runtime.preferences.AbstractPreferenceInitializer;
+
+/**
+ * Sets the defaults of the workspace preferences.
+ */
+public class DirectRemotePreferenceInitializer extends AbstractPreferenceInitializer {
+
+	@Override
+	public void initializeDefaultPreferences() {
+		Activator.getDefault().getPreferenceStore().setDefault(IDirectRemotePreferenceConstants.PREF_SOURCE_CACHE_SIZE,
+				IDirectRemotePreferenceConstants.DEFAULT_SOURCE_CACHE_SIZE);
+	}
+}
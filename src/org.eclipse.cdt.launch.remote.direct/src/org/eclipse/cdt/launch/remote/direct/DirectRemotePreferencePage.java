@@ -0,0 +1,32 @@
+package org.eclipse.cdt.launch.remote.direct;
+
+import org.eclipse.jface.preference.FieldEditorPreferencePage;
+import org.eclipse.jface.preference.IntegerFieldEditor;
+import org.eclipse.ui.IWorkbench;
+import org.eclipse.ui.IWorkbenchPreferencePage;
+
+/**
+ * The preferences of direct remote debugging which apply to all launches.
+ */
+public class DirectRemotePreferencePage extends FieldEditorPreferencePage implements IWorkbenchPreferencePage {
+	private static final int MIN_SOURCE_CACHE_SIZE = 1;
+	private static final int MAX_SOURCE_CACHE_SIZE = 64 * 1024;
+
+	public DirectRemotePreferencePage() {
+		super(GRID);
+		setPreferenceStore(Activator.getDefault().getPreferenceStore());
+		setDescription(Messages.DirectRemotePreferencePage_0);
+	}
+
+	@Override
+	protected void createFieldEditors() {
+		IntegerFieldEditor sourceCacheSize = new IntegerFieldEditor(
+				IDirectRemotePreferenceConstants.PREF_SOURCE_CACHE_SIZE, Messages.DirectRemotePreferencePage_1,
+				getFieldEditorParent());
+		sourceCacheSize.setValidRange(MIN_SOURCE_CACHE_SIZE, MAX_SOURCE_CACHE_SIZE);
+		addField(sourceCacheSize);
+	}
+
+	public void init(IWorkbench workbench) {
+	}
+}
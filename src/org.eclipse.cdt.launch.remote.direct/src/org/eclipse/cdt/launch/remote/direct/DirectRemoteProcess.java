@@ -0,0 +1,102 @@
+package org.eclipse.cdt.launch.remote.direct;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * The remote gdb process as seen by the debugger backend. Whatever the
+ * backend reads from gdb is also queued for the console; the queues never
+ * block, so the console cannot slow the debug session down.
+ */
+class DirectRemoteProcess extends Process {
+	private final Process process;
+	private final InputStream inputStream;
+	private final InputStream errorStream;
+
+	/**
+	 * A stream which copies everything read from it into a spool.
+	 */
+	private static class TeeInputStream extends FilterInputStream {
+		private final DirectRemoteConsoleSpool spool;
+		private final byte[] single = new byte[1];
+
+		TeeInputStream(InputStream in, DirectRemoteConsoleSpool spool) {
+			super(in);
+			this.spool = spool;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b >= 0) {
+				single[0] = (byte) b;
+				spool.write(single, 0, 1);
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = super.read(b, off, len);
+			if (n > 0)
+				spool.write(b, off, n);
+			return n;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			// skipped bytes would be missing from the console
+			byte[] buffer = new byte[(int) Math.min(n, 8192)];
+			int read = read(buffer, 0, buffer.length);
+			return Math.max(read, 0);
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+	}
+
+	/**
+	 * @param process the process running gdb
+	 * @param output the spool for the output of gdb
+	 * @param errors the spool for the error output of gdb
+	 */
+	DirectRemoteProcess(Process process, DirectRemoteConsoleSpool output, DirectRemoteConsoleSpool errors) {
+		this.process = process;
+		inputStream = new TeeInputStream(process.getInputStream(), output);
+		errorStream = new TeeInputStream(process.getErrorStream(), errors);
+	}
+
+	@Override
+	public OutputStream getOutputStream() {
+		return process.getOutputStream();
+	}
+
+	@Override
+	public InputStream getInputStream() {
+		return inputStream;
+	}
+
+	@Override
+	public InputStream getErrorStream() {
+		return errorStream;
+	}
+
+	@Override
+	public int waitFor() throws InterruptedException {
+		return process.waitFor();
+	}
+
+	@Override
+	public int exitValue() {
+		return process.exitValue();
+	}
+
+	@Override
+	public void destroy() {
+		process.destroy();
+	}
+}
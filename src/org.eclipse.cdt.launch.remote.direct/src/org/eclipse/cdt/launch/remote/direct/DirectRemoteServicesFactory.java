@@ -5,67 +5,86 @@ import org.eclipse.cdt.dsf.debug.service.command.ICommandListener;
 import org.eclipse.cdt.dsf.debug.service.command.ICommandResult;
 import org.eclipse.cdt.dsf.debug.service.command.ICommandToken;
 import org.eclipse.cdt.dsf.gdb.service.GdbDebugServicesFactory;
+import org.eclipse.cdt.dsf.gdb.service.command.CommandFactory_6_8;
 import org.eclipse.cdt.dsf.gdb.service.command.GDBControl;
+import org.eclipse.cdt.dsf.gdb.service.command.GDBControl_7_4;
 import org.eclipse.cdt.dsf.mi.service.IMIBackend;
 import org.eclipse.cdt.dsf.mi.service.command.AbstractMIControl;
 import org.eclipse.cdt.dsf.mi.service.command.output.MIInfo;
 import org.eclipse.cdt.dsf.service.DsfSession;
+import org.eclipse.core.runtime.CoreException;
 import org.eclipse.debug.core.ILaunchConfiguration;
 
 public class DirectRemoteServicesFactory extends GdbDebugServicesFactory {
 	
-	private DirectRemoteDebugLaunchDelegate directRemoteDelegate = null;
-	public DirectRemoteServicesFactory(String version, DirectRemoteDebugLaunchDelegate directRemoteDelegate) {
+	private final DirectRemoteLaunchContext context;
+	public DirectRemoteServicesFactory(String version, DirectRemoteLaunchContext context) {
 		super(version);
-		this.directRemoteDelegate = directRemoteDelegate;
+		this.context = context;
 	}
 	
 	protected IMIBackend createBackendGDBService(DsfSession session, ILaunchConfiguration lc) {
-		return new GDBDirectRemoteBackend(session, lc, directRemoteDelegate);
+		return new GDBDirectRemoteBackend(session, lc, context);
 	}	
 	
 	@Override
 	protected ICommandControl createCommandControl(DsfSession session,
 			ILaunchConfiguration config) {
 		AbstractMIControl gdbControl = (GDBControl)super.createCommandControl(session, config);
+		// share the answers of equal reads; the controls of newer gdbs are kept as they are
+		if (gdbControl.getClass() == GDBControl_7_4.class && isCoalescing(config)) {
+			gdbControl = new GDBDirectRemoteControl(session, config, new CommandFactory_6_8());
+		}
 		gdbControl.addCommandListener(new ICommandListener() {
 			
 			@Override
 			public void commandSent(ICommandToken token) {
-				String str = token.getCommand().toString();
-				System.out.println(str);
-				
 			}
 			
 			@Override
 			public void commandRemoved(ICommandToken token) {
-				String str = token.getCommand().toString();
-				System.out.println(str);
-				
 			}
 			
 			@Override
 			public void commandQueued(ICommandToken token) {
-				String str = token.getCommand().toString();
-				System.out.println(str);
-				
 			}
 			
 			@Override
 			public void commandDone(ICommandToken token, ICommandResult result) {
 				if (result instanceof MIInfo) {
 					if(((MIInfo)result).isExit()) {
-						Process remoteProcess = directRemoteDelegate.getRemoteProcess();
-						if (remoteProcess != null) {
-							remoteProcess.destroy();
-						}
+						context.getProcess().destroy();
 					}
 				}
 				
 			}
 		});
+
+		// only sessions asking for statistics pay for them
+		final DirectRemoteCommandMetrics metrics = DirectRemoteCommandMetrics.create(session, config);
+		if (metrics != null) {
+			gdbControl.addCommandListener(metrics);
+			DsfSession.addSessionEndedListener(new DsfSession.SessionEndedListener() {
+
+				public void sessionEnded(DsfSession ended) {
+					if (ended.getId().equals(metrics.getSessionId())) {
+						DsfSession.removeSessionEndedListener(this);
+						metrics.sessionEnded();
+					}
+				}
+			});
+		}
 	    
 		return gdbControl;
 	}
+
+	private static boolean isCoalescing(ILaunchConfiguration config) {
+		try {
+			return config.getAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_COALESCE_COMMANDS,
+					IDirectRemoteConnectionConfigurationConstants.DEFAULT_COALESCE_COMMANDS);
+		} catch (CoreException e) {
+			return IDirectRemoteConnectionConfigurationConstants.DEFAULT_COALESCE_COMMANDS;
+		}
+	}
 	
 }
@@ -0,0 +1,316 @@
+package org.eclipse.cdt.launch.remote.direct;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.cdt.dsf.gdb.launching.LaunchUtils;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.debug.core.ILaunchConfiguration;
+import org.eclipse.osgi.util.NLS;
+import org.eclipse.rse.services.shells.IHostShell;
+import org.eclipse.rse.ui.SystemBasePlugin;
+
+/**
+ * Keeps a remote shell ready for the next launch of a configuration, so the
+ * launch neither waits for the shell to start nor for gdb to report its
+ * version. The shell has run <code>gdb -version</code>; the debugger itself is
+ * started in it by the launch, since its command line is only known then.
+ * <p>
+ * No shell is prepared for configurations with prerun commands: they may
+ * build the program from the sources the launch uploads, so they must not run
+ * before the upload, nor in a shell prepared before an earlier one.
+ * <p>
+ * Shells are kept per connection and gdb path. A shell is
+ * prepared in the background and handed to one launch only; a shell which
+ * was not taken for a while is closed. Until then it holds a lease on its
+ * connection, so the connection is not closed as idle under it.
+ */
+class DirectRemoteShellPool {
+	/* Shells ready for this long are closed rather than handed out */
+	private static final long MAX_AGE = 15 * 60 * 1000;
+
+	private static final Map<String, WarmShell> shells = new HashMap<String, WarmShell>();
+	private static Timer expiryTimer;
+
+	/**
+	 * A shell being prepared or ready.
+	 */
+	static class WarmShell {
+		private final CountDownLatch ready = new CountDownLatch(1);
+		private IHostShell shell;
+		private String version;
+		private long readyTime;
+		private DirectRemoteConnectionPool.Lease lease;
+
+		/**
+		 * Answer the shell, which is at the prompt after <code>gdb -version</code>.
+		 */
+		public synchronized IHostShell getShell() {
+			return shell;
+		}
+
+		/**
+		 * Answer the version gdb reported.
+		 */
+		public synchronized String getVersion() {
+			return version;
+		}
+
+		synchronized void setShell(IHostShell shell) {
+			this.shell = shell;
+		}
+
+		synchronized void setLease(DirectRemoteConnectionPool.Lease lease) {
+			this.lease = lease;
+		}
+
+		/*
+		 * Release the lease on the connection, which whoever took the shell
+		 * holds one of its own on.
+		 */
+		void releaseLease() {
+			DirectRemoteConnectionPool.Lease toRelease;
+			synchronized (this) {
+				toRelease = lease;
+				lease = null;
+			}
+			if (toRelease != null)
+				toRelease.release();
+		}
+
+		/*
+		 * Note the version gdb reported; the shell is ready then.
+		 */
+		void setVersion(String version) {
+			synchronized (this) {
+				this.version = version;
+				readyTime = System.currentTimeMillis();
+			}
+			ready.countDown();
+		}
+
+		synchronized boolean isUsable(long now) {
+			return version != null && shell != null && shell.isActive() && now - readyTime < MAX_AGE;
+		}
+
+		/*
+		 * Wake up whoever waits for the shell, which will not get ready.
+		 */
+		void fail() {
+			ready.countDown();
+		}
+
+		void close() {
+			IHostShell toClose;
+			synchronized (this) {
+				toClose = shell;
+				shell = null;
+			}
+			if (toClose != null)
+				toClose.exit();
+			releaseLease();
+		}
+	}
+
+	/**
+	 * Starts a shell and waits until gdb reported its version.
+	 */
+	private static class PrepareJob extends Job {
+		private final ILaunchConfiguration config;
+		private final String key;
+		private final WarmShell warmShell;
+
+		PrepareJob(ILaunchConfiguration config, String key, WarmShell warmShell) {
+			super(NLS.bind(Messages.DirectRemoteShellPool_0, config.getName()));
+			this.config = config;
+			this.key = key;
+			this.warmShell = warmShell;
+			setSystem(true);
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			try {
+				warmShell.setLease(DirectRemoteConnectionPool.lease(RSEHelper.getCurrentConnection(config)));
+				DirectRemoteGdbProbe probe = new DirectRemoteGdbProbe(null);
+				IHostShell shell = RSEHelper.execCmdInRemoteShell(config, "", //$NON-NLS-1$
+						LaunchUtils.getGDBPath(config).toOSString(), "-version", probe, monitor); //$NON-NLS-1$
+				if (shell != null) {
+					warmShell.setShell(shell);
+					int timeout = config.getAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_GDB_START_TIMEOUT,
+							IDirectRemoteConnectionConfigurationConstants.DEFAULT_GDB_START_TIMEOUT);
+					boolean ready = probe.await(shell, timeout * 1000L, monitor);
+					shell.removeOutputListener(probe);
+					if (ready)
+						warmShell.setVersion(probe.getVersion());
+				}
+			} catch (Exception e) {
+				SystemBasePlugin.logError("Could not prepare a debugger shell for " + config.getName(), e); //$NON-NLS-1$
+			}
+			if (warmShell.isUsable(System.currentTimeMillis())) {
+				try {
+					DirectRemoteGdbVersionCache.put(RSEHelper.getCurrentConnection(config),
+							LaunchUtils.getGDBPath(config).toOSString(), "", warmShell.getVersion()); //$NON-NLS-1$
+				} catch (CoreException e) {
+					// the version is only remembered
+				}
+			} else {
+				discard(key, warmShell);
+				warmShell.fail();
+			}
+			return monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
+		}
+
+		@Override
+		public boolean belongsTo(Object family) {
+			return family == DirectRemoteShellPool.class;
+		}
+	}
+
+	private DirectRemoteShellPool() {
+	}
+
+	/**
+	 * Start preparing a shell for the next launch of the given configuration,
+	 * unless there is one already or the configuration has prerun commands.
+	 */
+	public static void prepare(ILaunchConfiguration config) {
+		String key;
+		try {
+			if (hasPrelaunchCommand(config))
+				return;
+			key = getKey(config);
+		} catch (CoreException e) {
+			return;
+		}
+		WarmShell warmShell;
+		synchronized (shells) {
+			if (shells.containsKey(key))
+				return;
+			warmShell = new WarmShell();
+			shells.put(key, warmShell);
+			scheduleExpiryCheck();
+		}
+		new PrepareJob(config, key, warmShell).schedule();
+	}
+
+	/**
+	 * Take the shell prepared for the given configuration, waiting for it if
+	 * it is still being prepared.
+	 *
+	 * @return the shell, or <code>null</code> if there is none, it could not
+	 *         be prepared, the configuration has prerun commands or the
+	 *         monitor was canceled
+	 */
+	public static WarmShell take(ILaunchConfiguration config, IProgressMonitor monitor) throws CoreException {
+		if (hasPrelaunchCommand(config))
+			return null;
+		String key = getKey(config);
+		WarmShell warmShell;
+		synchronized (shells) {
+			warmShell = shells.remove(key);
+		}
+		if (warmShell == null)
+			return null;
+		try {
+			while (!warmShell.ready.await(100, TimeUnit.MILLISECONDS)) {
+				if (monitor.isCanceled()) {
+					// it may still serve the next launch
+					synchronized (shells) {
+						if (!shells.containsKey(key)) {
+							shells.put(key, warmShell);
+							return null;
+						}
+					}
+					warmShell.close();
+					return null;
+				}
+			}
+		} catch (InterruptedException e) {
+			warmShell.close();
+			return null;
+		}
+		if (warmShell.isUsable(System.currentTimeMillis())) {
+			warmShell.releaseLease();
+			return warmShell;
+		}
+		warmShell.close();
+		return null;
+	}
+
+	/**
+	 * Close all shells and stop preparing new ones.
+	 */
+	public static void closeAll() {
+		Job.getJobManager().cancel(DirectRemoteShellPool.class);
+		List<WarmShell> all;
+		synchronized (shells) {
+			all = new ArrayList<WarmShell>(shells.values());
+			shells.clear();
+			if (expiryTimer != null) {
+				expiryTimer.cancel();
+				expiryTimer = null;
+			}
+		}
+		for (Iterator<WarmShell> it = all.iterator(); it.hasNext();)
+			it.next().close();
+	}
+
+	private static void discard(String key, WarmShell warmShell) {
+		synchronized (shells) {
+			if (shells.get(key) == warmShell)
+				shells.remove(key);
+		}
+		warmShell.close();
+	}
+
+	private static String getKey(ILaunchConfiguration config) throws CoreException {
+		return config.getAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_REMOTE_CONNECTION, "") //$NON-NLS-1$
+				+ '\n' + LaunchUtils.getGDBPath(config).toOSString();
+	}
+
+	private static boolean hasPrelaunchCommand(ILaunchConfiguration config) throws CoreException {
+		return config.getAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_PRERUN_COMMANDS, "") //$NON-NLS-1$
+				.trim().length() > 0;
+	}
+
+	/*
+	 * Start closing expired shells, if not done yet. Called with the shells locked.
+	 */
+	private static void scheduleExpiryCheck() {
+		if (expiryTimer != null)
+			return;
+		expiryTimer = new Timer("Remote debugger shells", true); //$NON-NLS-1$
+		expiryTimer.schedule(new TimerTask() {
+
+			@Override
+			public void run() {
+				long now = System.currentTimeMillis();
+				List<WarmShell> expired = new ArrayList<WarmShell>();
+				synchronized (shells) {
+					for (Iterator<WarmShell> it = shells.values().iterator(); it.hasNext();) {
+						WarmShell warmShell = it.next();
+						// shells being prepared are left to their job
+						if (warmShell.ready.getCount() == 0 && !warmShell.isUsable(now)) {
+							expired.add(warmShell);
+							it.remove();
+						}
+					}
+				}
+				for (Iterator<WarmShell> it = expired.iterator(); it.hasNext();)
+					it.next().close();
+			}
+		}, MAX_AGE / 2, MAX_AGE / 2);
+	}
+}
@@ -0,0 +1,308 @@
+package org.eclipse.cdt.launch.remote.direct;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.eclipse.jface.preference.IPreferenceStore;
+import org.eclipse.jface.util.IPropertyChangeListener;
+import org.eclipse.jface.util.PropertyChangeEvent;
+import org.eclipse.rse.ui.SystemBasePlugin;
+
+/**
+ * Keeps copies of remote sources in the state location of the plug-in, so
+ * a source downloaded once is not downloaded again, not even by later
+ * sessions. A copy is identified by the host, the remote path and the
+ * modification time and size of the remote file, so a changed file is
+ * downloaded again.
+ * <p>
+ * The copies take at most as many bytes as the workspace preference allows;
+ * the least recently used are deleted first. The index of the copies and
+ * when they were last used is kept next to them. It is written when copies
+ * are added or deleted and when the plug-in stops, not when a copy is used,
+ * so looking sources up does not write to disk.
+ */
+class DirectRemoteSourceCache {
+	private static final String CACHE_FOLDER = "source-cache"; //$NON-NLS-1$
+	private static final String INDEX_FILE = "index.properties"; //$NON-NLS-1$
+	private static final char[] HEX = "0123456789abcdef".toCharArray(); //$NON-NLS-1$
+
+	private static DirectRemoteSourceCache instance;
+	// applies changes of the preference to the instance
+	private static IPropertyChangeListener limitListener;
+
+	private final File folder;
+	// the copies by key, least recently used first
+	private final LinkedHashMap<String, Copy> copies = new LinkedHashMap<String, Copy>(64, 0.75f, true);
+	private long size;
+	private long limit = IDirectRemotePreferenceConstants.DEFAULT_SOURCE_CACHE_SIZE * 1024L * 1024L;
+	// whether the index lags behind the copies, as to when they were used
+	private boolean dirty;
+
+	/* A copy of a remote file, in a folder of its own named by its key */
+	private static class Copy {
+		final String name;
+		final long length;
+		long lastUsed;
+
+		Copy(String name, long length, long lastUsed) {
+			this.name = name;
+			this.length = length;
+			this.lastUsed = lastUsed;
+		}
+	}
+
+	private DirectRemoteSourceCache(File folder) {
+		this.folder = folder;
+		load();
+	}
+
+	/**
+	 * Answer the cache of the workspace.
+	 */
+	public static synchronized DirectRemoteSourceCache getDefault() {
+		if (instance == null) {
+			final DirectRemoteSourceCache cache = new DirectRemoteSourceCache(
+					Activator.getDefault().getStateLocation().append(CACHE_FOLDER).toFile());
+			final IPreferenceStore store = Activator.getDefault().getPreferenceStore();
+			cache.setLimit(store.getInt(IDirectRemotePreferenceConstants.PREF_SOURCE_CACHE_SIZE) * 1024L * 1024L);
+			limitListener = new IPropertyChangeListener() {
+
+				public void propertyChange(PropertyChangeEvent event) {
+					if (IDirectRemotePreferenceConstants.PREF_SOURCE_CACHE_SIZE.equals(event.getProperty()))
+						cache.setLimit(store.getInt(IDirectRemotePreferenceConstants.PREF_SOURCE_CACHE_SIZE) * 1024L * 1024L);
+				}
+			};
+			store.addPropertyChangeListener(limitListener);
+			instance = cache;
+		}
+		return instance;
+	}
+
+	/**
+	 * Write the index of the cache of the workspace, if it was used, and stop
+	 * following the preference.
+	 */
+	public static synchronized void shutdown() {
+		if (instance == null)
+			return;
+		Activator plugin = Activator.getDefault();
+		if (plugin != null)
+			plugin.getPreferenceStore().removePropertyChangeListener(limitListener);
+		limitListener = null;
+		instance.flush();
+		instance = null;
+	}
+
+	/**
+	 * Answer the key of a copy of the given remote file.
+	 */
+	public static String getKey(String host, String path, long modified, long length) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1"); //$NON-NLS-1$
+			byte[] hash = digest.digest((host + '\0' + path + '\0' + modified + '\0' + length).getBytes("UTF-8")); //$NON-NLS-1$
+			char[] hex = new char[hash.length * 2];
+			for (int i = 0; i < hash.length; i++) {
+				hex[2 * i] = HEX[(hash[i] >> 4) & 0xf];
+				hex[2 * i + 1] = HEX[hash[i] & 0xf];
+			}
+			return new String(hex);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Set how many bytes the copies may take, deleting the least recently
+	 * used ones which do not fit any more.
+	 */
+	public synchronized void setLimit(long limit) {
+		this.limit = limit;
+		if (evict())
+			store();
+	}
+
+	/**
+	 * Write the index, if when copies were used is not written yet.
+	 */
+	public synchronized void flush() {
+		if (dirty)
+			store();
+	}
+
+	/**
+	 * Answer the copy with the given key, or null if there is none.
+	 */
+	public synchronized File get(String key) {
+		Copy copy = copies.get(key);
+		if (copy == null)
+			return null;
+		File file = getFile(key, copy);
+		if (!file.isFile()) {
+			// deleted behind our back
+			copies.remove(key);
+			size -= copy.length;
+			dirty = true;
+			return null;
+		}
+		copy.lastUsed = System.currentTimeMillis();
+		dirty = true;
+		return file;
+	}
+
+	/**
+	 * Answer a new file to download a remote file to, before it is added by
+	 * {@link #put(String, String, File)}.
+	 */
+	public File createDownloadFile() throws IOException {
+		synchronized (this) {
+			folder.mkdirs();
+		}
+		return File.createTempFile("download", ".tmp", folder); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * Add a downloaded file as the copy with the given key, deleting the
+	 * least recently used copies which no longer fit.
+	 *
+	 * @param name the name of the remote file, which the copy keeps
+	 * @return the copy
+	 */
+	public synchronized File put(String key, String name, File download) throws IOException {
+		Copy existing = copies.get(key);
+		if (existing != null && getFile(key, existing).isFile()) {
+			// downloaded at the same time by another lookup
+			download.delete();
+			return getFile(key, existing);
+		}
+		Copy copy = new Copy(name, download.length(), System.currentTimeMillis());
+		File file = getFile(key, copy);
+		file.getParentFile().mkdirs();
+		if (!download.renameTo(file)) {
+			download.delete();
+			throw new IOException(file.toString());
+		}
+		if (existing != null)
+			size -= existing.length;
+		copies.put(key, copy);
+		size += copy.length;
+		evict();
+		store();
+		return file;
+	}
+
+	/*
+	 * Delete the least recently used copies while they take more than the
+	 * limit, keeping the newest one.
+	 */
+	private boolean evict() {
+		boolean evicted = false;
+		for (Iterator<Map.Entry<String, Copy>> it = copies.entrySet().iterator(); size > limit && copies.size() > 1 && it.hasNext();) {
+			Map.Entry<String, Copy> entry = it.next();
+			File file = getFile(entry.getKey(), entry.getValue());
+			file.delete();
+			file.getParentFile().delete();
+			size -= entry.getValue().length;
+			it.remove();
+			evicted = true;
+		}
+		return evicted;
+	}
+
+	private File getFile(String key, Copy copy) {
+		return new File(new File(folder, key), copy.name);
+	}
+
+	private void load() {
+		File index = new File(folder, INDEX_FILE);
+		if (!index.isFile())
+			return;
+		Properties properties = new Properties();
+		InputStream in = null;
+		try {
+			in = new FileInputStream(index);
+			properties.load(in);
+		} catch (IOException e) {
+			SystemBasePlugin.logError("Could not read the index of the remote source cache " + index, e); //$NON-NLS-1$
+		} finally {
+			if (in != null) {
+				try {
+					in.close();
+				} catch (IOException e) {
+					// nothing more to do
+				}
+			}
+		}
+		final Map<String, Copy> loaded = new LinkedHashMap<String, Copy>();
+		for (Iterator<Map.Entry<Object, Object>> it = properties.entrySet().iterator(); it.hasNext();) {
+			Map.Entry<Object, Object> entry = it.next();
+			// length,last used,name
+			String[] value = ((String) entry.getValue()).split(",", 3); //$NON-NLS-1$
+			if (value.length < 3)
+				continue;
+			try {
+				loaded.put((String) entry.getKey(), new Copy(value[2], Long.parseLong(value[0]), Long.parseLong(value[1])));
+			} catch (NumberFormatException e) {
+				// not ours
+			}
+		}
+		List<String> keys = new ArrayList<String>(loaded.keySet());
+		Collections.sort(keys, new Comparator<String>() {
+
+			public int compare(String key1, String key2) {
+				long used1 = loaded.get(key1).lastUsed;
+				long used2 = loaded.get(key2).lastUsed;
+				return used1 < used2 ? -1 : used1 == used2 ? 0 : 1;
+			}
+		});
+		for (Iterator<String> it = keys.iterator(); it.hasNext();) {
+			String key = it.next();
+			Copy copy = loaded.get(key);
+			copies.put(key, copy);
+			size += copy.length;
+		}
+	}
+
+	private void store() {
+		dirty = false;
+		Properties properties = new Properties();
+		for (Iterator<Map.Entry<String, Copy>> it = copies.entrySet().iterator(); it.hasNext();) {
+			Map.Entry<String, Copy> entry = it.next();
+			Copy copy = entry.getValue();
+			properties.setProperty(entry.getKey(), copy.length + "," + copy.lastUsed + "," + copy.name); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		File index = new File(folder, INDEX_FILE);
+		OutputStream out = null;
+		try {
+			folder.mkdirs();
+			out = new FileOutputStream(index);
+			properties.store(out, null);
+		} catch (IOException e) {
+			SystemBasePlugin.logError("Could not write the index of the remote source cache " + index, e); //$NON-NLS-1$
+		} finally {
+			if (out != null) {
+				try {
+					out.close();
+				} catch (IOException e) {
+					// nothing more to do
+				}
+			}
+		}
+	}
+}
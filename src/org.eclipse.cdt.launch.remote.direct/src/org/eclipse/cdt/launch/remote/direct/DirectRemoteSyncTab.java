@@ -0,0 +1,289 @@
+package org.eclipse.cdt.launch.remote.direct;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.debug.core.ILaunchConfiguration;
+import org.eclipse.debug.core.ILaunchConfigurationWorkingCopy;
+import org.eclipse.debug.ui.AbstractLaunchConfigurationTab;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.ModifyEvent;
+import org.eclipse.swt.events.ModifyListener;
+import org.eclipse.swt.events.SelectionAdapter;
+import org.eclipse.swt.events.SelectionEvent;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.layout.GridLayout;
+import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Combo;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Group;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Spinner;
+import org.eclipse.ui.PlatformUI;
+
+/**
+ * Settings of the source upload which runs before the debug session starts.
+ */
+public class DirectRemoteSyncTab extends AbstractLaunchConfigurationTab {
+	/* Upper bound of the concurrent uploads offered in the UI */
+	private static final int MAX_UPLOAD_STREAMS = 32;
+	private static final int MAX_ARCHIVE_THRESHOLD = 100000;
+	private static final int MAX_BACKGROUND_DELAY = 600000;
+	private static final int MAX_DELTA_THRESHOLD = 1024 * 1024;
+
+	protected Spinner uploadStreamsSpinner;
+	protected Combo archiveModeCombo;
+	protected Spinner archiveThresholdSpinner;
+	protected Combo compressionCombo;
+	protected Button contentHashButton;
+	protected Button incrementalButton;
+	protected Button backgroundButton;
+	protected Spinner backgroundDelaySpinner;
+	protected Spinner deltaThresholdSpinner;
+
+	@Override
+	public void createControl(Composite parent) {
+		Composite comp = new Composite(parent, SWT.NONE);
+		setControl(comp);
+		GridLayout layout = new GridLayout();
+		layout.numColumns = 1;
+		comp.setLayout(layout);
+
+		createUploadGroup(comp);
+		createChangeDetectionGroup(comp);
+		createBackgroundGroup(comp);
+		PlatformUI
+				.getWorkbench()
+				.getHelpSystem()
+				.setHelp(getControl(),
+						Activator.PLUGIN_ID + ".launchgroup"); //$NON-NLS-1$
+	}
+
+	protected Group createGroup(Composite parent, String text, int columns) {
+		Group group = new Group(parent, SWT.NONE);
+		group.setText(text);
+		GridLayout layout = new GridLayout();
+		layout.numColumns = columns;
+		group.setLayout(layout);
+		group.setLayoutData(new GridData(GridData.FILL_HORIZONTAL));
+		return group;
+	}
+
+	protected void createUploadGroup(Composite parent) {
+		Group group = createGroup(parent, Messages.DirectRemoteSyncTab_1, 2);
+
+		Label streamsLabel = new Label(group, SWT.NONE);
+		streamsLabel.setText(Messages.DirectRemoteSyncTab_2);
+		uploadStreamsSpinner = new Spinner(group, SWT.BORDER);
+		uploadStreamsSpinner.setMinimum(1);
+		uploadStreamsSpinner.setMaximum(MAX_UPLOAD_STREAMS);
+		uploadStreamsSpinner.addModifyListener(new ModifyListener() {
+
+			public void modifyText(ModifyEvent evt) {
+				updateLaunchConfigurationDialog();
+			}
+		});
+
+		Label archiveModeLabel = new Label(group, SWT.NONE);
+		archiveModeLabel.setText(Messages.DirectRemoteSyncTab_3);
+		archiveModeCombo = new Combo(group, SWT.DROP_DOWN | SWT.READ_ONLY);
+		// items are in the order of the SYNC_ARCHIVE_* constants
+		archiveModeCombo.add(Messages.DirectRemoteSyncTab_4);
+		archiveModeCombo.add(Messages.DirectRemoteSyncTab_5);
+		archiveModeCombo.add(Messages.DirectRemoteSyncTab_6);
+		archiveModeCombo.addModifyListener(new ModifyListener() {
+
+			public void modifyText(ModifyEvent evt) {
+				updateArchiveControls();
+				updateLaunchConfigurationDialog();
+			}
+		});
+
+		Label thresholdLabel = new Label(group, SWT.NONE);
+		thresholdLabel.setText(Messages.DirectRemoteSyncTab_7);
+		archiveThresholdSpinner = new Spinner(group, SWT.BORDER);
+		archiveThresholdSpinner.setMinimum(1);
+		archiveThresholdSpinner.setMaximum(MAX_ARCHIVE_THRESHOLD);
+		archiveThresholdSpinner.addModifyListener(new ModifyListener() {
+
+			public void modifyText(ModifyEvent evt) {
+				updateLaunchConfigurationDialog();
+			}
+		});
+
+		Label compressionLabel = new Label(group, SWT.NONE);
+		compressionLabel.setText(Messages.DirectRemoteSyncTab_8);
+		compressionCombo = new Combo(group, SWT.DROP_DOWN | SWT.READ_ONLY);
+		// items are in the order of the SYNC_COMPRESSION_* constants
+		compressionCombo.add(Messages.DirectRemoteSyncTab_16);
+		compressionCombo.add(Messages.DirectRemoteSyncTab_17);
+		compressionCombo.add(Messages.DirectRemoteSyncTab_18);
+		compressionCombo.add(Messages.DirectRemoteSyncTab_19);
+		compressionCombo.addModifyListener(new ModifyListener() {
+
+			public void modifyText(ModifyEvent evt) {
+				updateLaunchConfigurationDialog();
+			}
+		});
+
+		Label deltaLabel = new Label(group, SWT.NONE);
+		deltaLabel.setText(Messages.DirectRemoteSyncTab_15);
+		deltaThresholdSpinner = new Spinner(group, SWT.BORDER);
+		deltaThresholdSpinner.setMinimum(0);
+		deltaThresholdSpinner.setMaximum(MAX_DELTA_THRESHOLD);
+		deltaThresholdSpinner.setIncrement(64);
+		deltaThresholdSpinner.addModifyListener(new ModifyListener() {
+
+			public void modifyText(ModifyEvent evt) {
+				updateLaunchConfigurationDialog();
+			}
+		});
+	}
+
+	protected void createChangeDetectionGroup(Composite parent) {
+		Group group = createGroup(parent, Messages.DirectRemoteSyncTab_9, 1);
+
+		contentHashButton = createCheckButton(group, Messages.DirectRemoteSyncTab_10);
+		contentHashButton.addSelectionListener(new SelectionAdapter() {
+
+			@Override
+			public void widgetSelected(SelectionEvent evt) {
+				updateLaunchConfigurationDialog();
+			}
+		});
+
+		incrementalButton = createCheckButton(group, Messages.DirectRemoteSyncTab_11);
+		incrementalButton.addSelectionListener(new SelectionAdapter() {
+
+			@Override
+			public void widgetSelected(SelectionEvent evt) {
+				updateLaunchConfigurationDialog();
+			}
+		});
+	}
+
+	protected void createBackgroundGroup(Composite parent) {
+		Group group = createGroup(parent, Messages.DirectRemoteSyncTab_12, 2);
+
+		backgroundButton = createCheckButton(group, Messages.DirectRemoteSyncTab_13);
+		GridData gd = new GridData();
+		gd.horizontalSpan = 2;
+		backgroundButton.setLayoutData(gd);
+		backgroundButton.addSelectionListener(new SelectionAdapter() {
+
+			@Override
+			public void widgetSelected(SelectionEvent evt) {
+				backgroundDelaySpinner.setEnabled(backgroundButton.getSelection());
+				if (backgroundButton.getSelection())
+					Activator.getDefault().startBackgroundSync();
+				updateLaunchConfigurationDialog();
+			}
+		});
+
+		Label delayLabel = new Label(group, SWT.NONE);
+		delayLabel.setText(Messages.DirectRemoteSyncTab_14);
+		backgroundDelaySpinner = new Spinner(group, SWT.BORDER);
+		backgroundDelaySpinner.setMinimum(0);
+		backgroundDelaySpinner.setMaximum(MAX_BACKGROUND_DELAY);
+		backgroundDelaySpinner.setIncrement(100);
+		backgroundDelaySpinner.addModifyListener(new ModifyListener() {
+
+			public void modifyText(ModifyEvent evt) {
+				updateLaunchConfigurationDialog();
+			}
+		});
+	}
+
+	private void updateArchiveControls() {
+		int mode = archiveModeCombo.getSelectionIndex();
+		archiveThresholdSpinner.setEnabled(mode == IDirectRemoteConnectionConfigurationConstants.SYNC_ARCHIVE_AUTO);
+	}
+
+	@Override
+	public void setDefaults(ILaunchConfigurationWorkingCopy config) {
+		config.setAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_SYNC_UPLOAD_STREAMS,
+				IDirectRemoteConnectionConfigurationConstants.DEFAULT_SYNC_UPLOAD_STREAMS);
+		config.setAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_SYNC_ARCHIVE_MODE,
+				IDirectRemoteConnectionConfigurationConstants.DEFAULT_SYNC_ARCHIVE_MODE);
+		config.setAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_SYNC_ARCHIVE_THRESHOLD,
+				IDirectRemoteConnectionConfigurationConstants.DEFAULT_SYNC_ARCHIVE_THRESHOLD);
+		config.setAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_SYNC_COMPRESSION,
+				IDirectRemoteConnectionConfigurationConstants.DEFAULT_SYNC_COMPRESSION);
+		config.setAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_SYNC_CONTENT_HASH,
+				IDirectRemoteConnectionConfigurationConstants.DEFAULT_SYNC_CONTENT_HASH);
+		config.setAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_SYNC_INCREMENTAL,
+				IDirectRemoteConnectionConfigurationConstants.DEFAULT_SYNC_INCREMENTAL);
+		config.setAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_SYNC_BACKGROUND,
+				IDirectRemoteConnectionConfigurationConstants.DEFAULT_SYNC_BACKGROUND);
+		config.setAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_SYNC_BACKGROUND_DELAY,
+				IDirectRemoteConnectionConfigurationConstants.DEFAULT_SYNC_BACKGROUND_DELAY);
+		config.setAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_SYNC_DELTA_THRESHOLD,
+				IDirectRemoteConnectionConfigurationConstants.DEFAULT_SYNC_DELTA_THRESHOLD);
+	}
+
+	@Override
+	public void initializeFrom(ILaunchConfiguration config) {
+		try {
+			uploadStreamsSpinner.setSelection(config.getAttribute(
+					IDirectRemoteConnectionConfigurationConstants.ATTR_SYNC_UPLOAD_STREAMS,
+					IDirectRemoteConnectionConfigurationConstants.DEFAULT_SYNC_UPLOAD_STREAMS));
+			archiveModeCombo.select(config.getAttribute(
+					IDirectRemoteConnectionConfigurationConstants.ATTR_SYNC_ARCHIVE_MODE,
+					IDirectRemoteConnectionConfigurationConstants.DEFAULT_SYNC_ARCHIVE_MODE));
+			archiveThresholdSpinner.setSelection(config.getAttribute(
+					IDirectRemoteConnectionConfigurationConstants.ATTR_SYNC_ARCHIVE_THRESHOLD,
+					IDirectRemoteConnectionConfigurationConstants.DEFAULT_SYNC_ARCHIVE_THRESHOLD));
+			// older configurations only have the gzip switch of the archive
+			compressionCombo.select(DirectDebugSyncOptions.fromConfiguration(config).getCompression());
+			contentHashButton.setSelection(config.getAttribute(
+					IDirectRemoteConnectionConfigurationConstants.ATTR_SYNC_CONTENT_HASH,
+					IDirectRemoteConnectionConfigurationConstants.DEFAULT_SYNC_CONTENT_HASH));
+			incrementalButton.setSelection(config.getAttribute(
+					IDirectRemoteConnectionConfigurationConstants.ATTR_SYNC_INCREMENTAL,
+					IDirectRemoteConnectionConfigurationConstants.DEFAULT_SYNC_INCREMENTAL));
+			backgroundButton.setSelection(config.getAttribute(
+					IDirectRemoteConnectionConfigurationConstants.ATTR_SYNC_BACKGROUND,
+					IDirectRemoteConnectionConfigurationConstants.DEFAULT_SYNC_BACKGROUND));
+			backgroundDelaySpinner.setSelection(config.getAttribute(
+					IDirectRemoteConnectionConfigurationConstants.ATTR_SYNC_BACKGROUND_DELAY,
+					IDirectRemoteConnectionConfigurationConstants.DEFAULT_SYNC_BACKGROUND_DELAY));
+			deltaThresholdSpinner.setSelection(config.getAttribute(
+					IDirectRemoteConnectionConfigurationConstants.ATTR_SYNC_DELTA_THRESHOLD,
+					IDirectRemoteConnectionConfigurationConstants.DEFAULT_SYNC_DELTA_THRESHOLD));
+		} catch (CoreException ce) {
+			// Ignore
+		}
+		updateArchiveControls();
+		backgroundDelaySpinner.setEnabled(backgroundButton.getSelection());
+	}
+
+	@Override
+	public void performApply(ILaunchConfigurationWorkingCopy config) {
+		config.setAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_SYNC_UPLOAD_STREAMS,
+				uploadStreamsSpinner.getSelection());
+		config.setAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_SYNC_ARCHIVE_MODE,
+				archiveModeCombo.getSelectionIndex());
+		config.setAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_SYNC_ARCHIVE_THRESHOLD,
+				archiveThresholdSpinner.getSelection());
+		config.setAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_SYNC_COMPRESSION,
+				compressionCombo.getSelectionIndex());
+		config.setAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_SYNC_CONTENT_HASH,
+				contentHashButton.getSelection());
+		config.setAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_SYNC_INCREMENTAL,
+				incrementalButton.getSelection());
+		config.setAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_SYNC_BACKGROUND,
+				backgroundButton.getSelection());
+		config.setAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_SYNC_BACKGROUND_DELAY,
+				backgroundDelaySpinner.getSelection());
+		config.setAttribute(IDirectRemoteConnectionConfigurationConstants.ATTR_SYNC_DELTA_THRESHOLD,
+				deltaThresholdSpinner.getSelection());
+	}
+
+	@Override
+	public String getName() {
+		return Messages.DirectRemoteSyncTab_0;
+	}
+
+	@Override
+	public String getId() {
+		return "org.eclipse.rse.remote.direct.DirectRemoteSyncTab"; //$NON-NLS-1$
+	}
+}
@@ -12,18 +12,18 @@ import org.eclipse.cdt.core.parser.util.StringUtil;
 
 public class GDBDirectRemoteBackend extends GDBBackend {
 	private final ILaunchConfiguration fLaunchConfiguration;
-	private DirectRemoteDebugLaunchDelegate delegate;
-	public GDBDirectRemoteBackend(DsfSession session, ILaunchConfiguration lc, DirectRemoteDebugLaunchDelegate delegate) {
+	private final DirectRemoteLaunchContext context;
+	public GDBDirectRemoteBackend(DsfSession session, ILaunchConfiguration lc, DirectRemoteLaunchContext context) {
 		super(session, lc);
-		this.delegate = delegate;
-		fLaunchConfiguration = lc;
+		this.context = context;
+		fLaunchConfiguration = context.getConfiguration();
 	}
 
 	@Override
 	protected Process launchGDBProcess(String commandLine) throws CoreException {
 		
-		delegate.getShell().writeToShell(commandLine);
-		return delegate.getRemoteProcess();
+		context.getShell().writeToShell(commandLine);
+		return context.getProcess();
 	}
 
 	@Override
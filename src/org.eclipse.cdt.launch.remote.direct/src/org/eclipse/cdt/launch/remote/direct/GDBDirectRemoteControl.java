@@ -0,0 +1,237 @@
+package org.eclipse.cdt.launch.remote.direct;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.eclipse.cdt.dsf.concurrent.DataRequestMonitor;
+import org.eclipse.cdt.dsf.datamodel.IDMContext;
+import org.eclipse.cdt.dsf.debug.service.command.ICommand;
+import org.eclipse.cdt.dsf.debug.service.command.ICommandListener;
+import org.eclipse.cdt.dsf.debug.service.command.ICommandResult;
+import org.eclipse.cdt.dsf.debug.service.command.ICommandToken;
+import org.eclipse.cdt.dsf.debug.service.command.IEventListener;
+import org.eclipse.cdt.dsf.gdb.service.command.GDBControl_7_4;
+import org.eclipse.cdt.dsf.mi.service.command.CommandFactory;
+import org.eclipse.cdt.dsf.mi.service.command.commands.MICommand;
+import org.eclipse.cdt.dsf.mi.service.command.output.MIExecAsyncOutput;
+import org.eclipse.cdt.dsf.mi.service.command.output.MIOOBRecord;
+import org.eclipse.cdt.dsf.mi.service.command.output.MIOutput;
+import org.eclipse.cdt.dsf.service.DsfSession;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.debug.core.ILaunchConfiguration;
+
+/**
+ * The command control of remote sessions. Refreshing the views after a
+ * step asks gdb for the same stacks, variables and registers several times;
+ * over a slow connection every answer costs a round trip. A command which
+ * only reads the state of the program and equals one already sent and not
+ * answered yet is not sent again, but answered with the result of the
+ * first.
+ * <p>
+ * Commands which may change the state of the program end the sharing, so
+ * a read queued after them is always sent to gdb, and so does every change
+ * of the execution state gdb reports (<code>*running</code>,
+ * <code>*stopped</code>), since the program may have stopped elsewhere than
+ * where a read sent before was answered. The commands themselves are written
+ * to gdb as soon as they are queued, without waiting for the answers of
+ * those before them, as by any MI command control. Command listeners are
+ * told about shared commands as about the others: queued and sent when they
+ * join the command in flight, done when it is answered.
+ * <p>
+ * Only replaces the control CDT uses for gdb 7.4 up to the gdb versions it
+ * has a newer control for; those sessions keep the control of CDT.
+ */
+public class GDBDirectRemoteControl extends GDBControl_7_4 {
+	/* MI operations which only read the state of the program */
+	private static final Set<String> READ_ONLY = new HashSet<String>(Arrays.asList(new String[] {
+			"-stack-info-depth", //$NON-NLS-1$
+			"-stack-info-frame", //$NON-NLS-1$
+			"-stack-list-frames", //$NON-NLS-1$
+			"-stack-list-arguments", //$NON-NLS-1$
+			"-stack-list-locals", //$NON-NLS-1$
+			"-stack-list-variables", //$NON-NLS-1$
+			"-thread-info", //$NON-NLS-1$
+			"-thread-list-ids", //$NON-NLS-1$
+			"-list-thread-groups", //$NON-NLS-1$
+			"-data-list-register-names", //$NON-NLS-1$
+			"-data-list-register-values", //$NON-NLS-1$
+			"-data-read-memory", //$NON-NLS-1$
+			"-data-read-memory-bytes", //$NON-NLS-1$
+			"-data-disassemble", //$NON-NLS-1$
+			"-var-evaluate-expression", //$NON-NLS-1$
+			"-var-info-expression", //$NON-NLS-1$
+			"-var-info-num-children", //$NON-NLS-1$
+			"-var-info-path-expression", //$NON-NLS-1$
+			"-var-info-type", //$NON-NLS-1$
+			"-var-show-attributes", //$NON-NLS-1$
+			"-var-show-format", //$NON-NLS-1$
+			"-break-list", //$NON-NLS-1$
+			"-file-list-exec-source-files", //$NON-NLS-1$
+	}));
+
+	// read commands sent and not answered yet, only used on the executor
+	private final Map<CommandKey, InFlight<?>> inFlight = new HashMap<CommandKey, InFlight<?>>();
+	private long shared;
+	// the listeners, which are told about shared commands by this control
+	private final List<ICommandListener> listeners = new CopyOnWriteArrayList<ICommandListener>();
+
+	/* Identifies equal commands: same context, same MI text */
+	private static class CommandKey {
+		private final IDMContext context;
+		private final String text;
+
+		CommandKey(ICommand<?> command) {
+			context = command.getContext();
+			text = command.toString();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof CommandKey))
+				return false;
+			CommandKey other = (CommandKey) obj;
+			return text.equals(other.text) && (context == null ? other.context == null : context.equals(other.context));
+		}
+
+		@Override
+		public int hashCode() {
+			return text.hashCode() * 31 + (context == null ? 0 : context.hashCode());
+		}
+	}
+
+	/* A read command sent to gdb, and the equal ones waiting for its answer */
+	private static class InFlight<V extends ICommandResult> {
+		final List<SharedToken<V>> waiting = new ArrayList<SharedToken<V>>();
+	}
+
+	/* The token of a command answered with the result of another */
+	private static class SharedToken<V extends ICommandResult> implements ICommandToken {
+		private final ICommand<V> command;
+		final DataRequestMonitor<V> rm;
+		InFlight<V> inFlight;
+
+		SharedToken(ICommand<V> command, DataRequestMonitor<V> rm, InFlight<V> inFlight) {
+			this.command = command;
+			this.rm = rm;
+			this.inFlight = inFlight;
+		}
+
+		public ICommand<? extends ICommandResult> getCommand() {
+			return command;
+		}
+	}
+
+	public GDBDirectRemoteControl(DsfSession session, ILaunchConfiguration config, CommandFactory factory) {
+		super(session, config, factory);
+		addEventListener(new IEventListener() {
+
+			public void eventReceived(Object output) {
+				if (!(output instanceof MIOutput))
+					return;
+				MIOOBRecord[] records = ((MIOutput) output).getMIOOBRecords();
+				for (int i = 0; i < records.length; i++) {
+					if (records[i] instanceof MIExecAsyncOutput) {
+						// the program ran or stopped, reads queued from now on must see where it is
+						inFlight.clear();
+						return;
+					}
+				}
+			}
+		});
+	}
+
+	@Override
+	public void addCommandListener(ICommandListener processor) {
+		listeners.add(processor);
+		super.addCommandListener(processor);
+	}
+
+	@Override
+	public void removeCommandListener(ICommandListener processor) {
+		listeners.remove(processor);
+		super.removeCommandListener(processor);
+	}
+
+	/**
+	 * Answer how many commands were answered with the result of another.
+	 */
+	public long getSharedCount() {
+		return shared;
+	}
+
+	@Override
+	public <V extends ICommandResult> ICommandToken queueCommand(final ICommand<V> command, final DataRequestMonitor<V> rm) {
+		if (!isReadOnly(command)) {
+			// reads queued from now on must see what this command did
+			inFlight.clear();
+			return super.queueCommand(command, rm);
+		}
+		final CommandKey key = new CommandKey(command);
+		@SuppressWarnings("unchecked")
+		InFlight<V> sent = (InFlight<V>) inFlight.get(key);
+		if (sent != null) {
+			SharedToken<V> token = new SharedToken<V>(command, rm, sent);
+			sent.waiting.add(token);
+			shared++;
+			for (Iterator<ICommandListener> it = listeners.iterator(); it.hasNext();) {
+				ICommandListener listener = it.next();
+				listener.commandQueued(token);
+				listener.commandSent(token);
+			}
+			return token;
+		}
+		final InFlight<V> first = new InFlight<V>();
+		inFlight.put(key, first);
+		return super.queueCommand(command, new DataRequestMonitor<V>(getExecutor(), null) {
+
+			@Override
+			protected void handleCompleted() {
+				if (inFlight.get(key) == first)
+					inFlight.remove(key);
+				complete(rm, getData(), getStatus());
+				for (Iterator<SharedToken<V>> it = first.waiting.iterator(); it.hasNext();) {
+					SharedToken<V> token = it.next();
+					token.inFlight = null;
+					complete(token.rm, getData(), getStatus());
+					for (Iterator<ICommandListener> each = listeners.iterator(); each.hasNext();)
+						each.next().commandDone(token, getData());
+				}
+			}
+		});
+	}
+
+	@Override
+	public void removeCommand(ICommandToken token) {
+		if (token instanceof SharedToken<?>) {
+			SharedToken<?> sharedToken = (SharedToken<?>) token;
+			if (sharedToken.inFlight != null) {
+				sharedToken.inFlight.waiting.remove(sharedToken);
+				sharedToken.inFlight = null;
+				sharedToken.rm.setStatus(Status.CANCEL_STATUS);
+				sharedToken.rm.done();
+				for (Iterator<ICommandListener> it = listeners.iterator(); it.hasNext();)
+					it.next().commandRemoved(sharedToken);
+			}
+			return;
+		}
+		super.removeCommand(token);
+	}
+
+	private static <V extends ICommandResult> void complete(DataRequestMonitor<V> rm, V data, IStatus status) {
+		rm.setData(data);
+		rm.setStatus(status);
+		rm.done();
+	}
+
+	private static boolean isReadOnly(ICommand<?> command) {
+		return command instanceof MICommand<?> && READ_ONLY.contains(((MICommand<?>) command).getCommandOperation());
+	}
+}
@@ -9,4 +9,63 @@ public interface IDirectRemoteConnectionConfigurationConstants extends IGDBServe
 	public static final String ATTR_PRERUN_COMMANDS = DebugPlugin.getUniqueIdentifier() + ".ATTR_PRERUN_CMDS";
 	public static final String ATTR_REMOTE_WORKSPACE = DebugPlugin.getUniqueIdentifier() + ".ATTR_REMOTE_WORKSPACE_APTH";
 	public static final String ATTR_REMOTE_IS_ATTACH = DebugPlugin.getUniqueIdentifier() + ".ATTR_REMOTE_IS_ATTACH_TO_PRCESSS";
+	/* Keep a shell which ran gdb -version ready for the next launch */
+	public static final String ATTR_PREWARM_GDB = DebugPlugin.getUniqueIdentifier() + ".ATTR_PREWARM_GDB"; //$NON-NLS-1$
+	public static final boolean DEFAULT_PREWARM_GDB = false;
+	/* Seconds to wait for gdb to report its version, 0 to wait without limit;
+	 * the prerun commands run in this time, so no limit unless one is set */
+	public static final String ATTR_GDB_START_TIMEOUT = DebugPlugin.getUniqueIdentifier() + ".ATTR_GDB_START_TIMEOUT"; //$NON-NLS-1$
+	public static final int DEFAULT_GDB_START_TIMEOUT = 0;
+	/* Console showing the output of gdb and the program */
+	public static final String ATTR_CONSOLE_MIRROR = DebugPlugin.getUniqueIdentifier() + ".ATTR_CONSOLE_MIRROR"; //$NON-NLS-1$
+	public static final boolean DEFAULT_CONSOLE_MIRROR = false;
+	/* Size in KB of the output kept in memory per stream until the console caught up */
+	public static final String ATTR_CONSOLE_BUFFER = DebugPlugin.getUniqueIdentifier() + ".ATTR_CONSOLE_BUFFER"; //$NON-NLS-1$
+	public static final int DEFAULT_CONSOLE_BUFFER = 1024;
+	public static final String ATTR_CONSOLE_SPILL = DebugPlugin.getUniqueIdentifier() + ".ATTR_CONSOLE_SPILL"; //$NON-NLS-1$
+	public static final boolean DEFAULT_CONSOLE_SPILL = true;
+	/* Statistics of the MI commands sent to gdb, optionally traced to a file */
+	public static final String ATTR_COMMAND_METRICS = DebugPlugin.getUniqueIdentifier() + ".ATTR_COMMAND_METRICS"; //$NON-NLS-1$
+	public static final boolean DEFAULT_COMMAND_METRICS = false;
+	public static final String ATTR_COMMAND_TRACE_FILE = DebugPlugin.getUniqueIdentifier() + ".ATTR_COMMAND_TRACE_FILE"; //$NON-NLS-1$
+	/* Answer equal read commands sent to gdb at the same time with a single round trip */
+	public static final String ATTR_COALESCE_COMMANDS = DebugPlugin.getUniqueIdentifier() + ".ATTR_COALESCE_COMMANDS"; //$NON-NLS-1$
+	public static final boolean DEFAULT_COALESCE_COMMANDS = false;
+	/* Remote source roots mapped to local paths besides the remote workspace, one per line as remote=local */
+	public static final String ATTR_SOURCE_MAPPINGS = DebugPlugin.getUniqueIdentifier() + ".ATTR_SOURCE_MAPPINGS"; //$NON-NLS-1$
+	/* Download sources found only on the remote host, as many as the workspace preference allows */
+	public static final String ATTR_SOURCE_FETCH = DebugPlugin.getUniqueIdentifier() + ".ATTR_SOURCE_FETCH"; //$NON-NLS-1$
+	public static final boolean DEFAULT_SOURCE_FETCH = true;
+
+	/* Source synchronization */
+	public static final String ATTR_SYNC_UPLOAD_STREAMS = DebugPlugin.getUniqueIdentifier() + ".ATTR_SYNC_UPLOAD_STREAMS"; //$NON-NLS-1$
+	public static final int DEFAULT_SYNC_UPLOAD_STREAMS = 4;
+	public static final String ATTR_SYNC_ARCHIVE_MODE = DebugPlugin.getUniqueIdentifier() + ".ATTR_SYNC_ARCHIVE_MODE"; //$NON-NLS-1$
+	public static final int SYNC_ARCHIVE_NEVER = 0;
+	public static final int SYNC_ARCHIVE_AUTO = 1;
+	public static final int SYNC_ARCHIVE_ALWAYS = 2;
+	public static final int DEFAULT_SYNC_ARCHIVE_MODE = SYNC_ARCHIVE_AUTO;
+	public static final String ATTR_SYNC_ARCHIVE_THRESHOLD = DebugPlugin.getUniqueIdentifier() + ".ATTR_SYNC_ARCHIVE_THRESHOLD"; //$NON-NLS-1$
+	public static final int DEFAULT_SYNC_ARCHIVE_THRESHOLD = 100;
+	/* Replaced by ATTR_SYNC_COMPRESSION, only read from older configurations */
+	public static final String ATTR_SYNC_ARCHIVE_GZIP = DebugPlugin.getUniqueIdentifier() + ".ATTR_SYNC_ARCHIVE_GZIP"; //$NON-NLS-1$
+	public static final boolean DEFAULT_SYNC_ARCHIVE_GZIP = true;
+	public static final String ATTR_SYNC_COMPRESSION = DebugPlugin.getUniqueIdentifier() + ".ATTR_SYNC_COMPRESSION"; //$NON-NLS-1$
+	public static final int SYNC_COMPRESSION_NONE = 0;
+	public static final int SYNC_COMPRESSION_FAST = 1;
+	public static final int SYNC_COMPRESSION_DEFAULT = 2;
+	public static final int SYNC_COMPRESSION_BEST = 3;
+	public static final int DEFAULT_SYNC_COMPRESSION = SYNC_COMPRESSION_DEFAULT;
+	public static final String ATTR_SYNC_CONTENT_HASH = DebugPlugin.getUniqueIdentifier() + ".ATTR_SYNC_CONTENT_HASH"; //$NON-NLS-1$
+	public static final boolean DEFAULT_SYNC_CONTENT_HASH = true;
+	public static final String ATTR_SYNC_INCREMENTAL = DebugPlugin.getUniqueIdentifier() + ".ATTR_SYNC_INCREMENTAL"; //$NON-NLS-1$
+	public static final boolean DEFAULT_SYNC_INCREMENTAL = true;
+	public static final String ATTR_SYNC_BACKGROUND = DebugPlugin.getUniqueIdentifier() + ".ATTR_SYNC_BACKGROUND"; //$NON-NLS-1$
+	public static final boolean DEFAULT_SYNC_BACKGROUND = false;
+	/* Milliseconds without further changes before a background synchronization starts */
+	public static final String ATTR_SYNC_BACKGROUND_DELAY = DebugPlugin.getUniqueIdentifier() + ".ATTR_SYNC_BACKGROUND_DELAY"; //$NON-NLS-1$
+	public static final int DEFAULT_SYNC_BACKGROUND_DELAY = 1000;
+	/* Size in KB from which a modified file is patched by a delta, 0 to always upload whole files */
+	public static final String ATTR_SYNC_DELTA_THRESHOLD = DebugPlugin.getUniqueIdentifier() + ".ATTR_SYNC_DELTA_THRESHOLD"; //$NON-NLS-1$
+	public static final int DEFAULT_SYNC_DELTA_THRESHOLD = 256;
 }
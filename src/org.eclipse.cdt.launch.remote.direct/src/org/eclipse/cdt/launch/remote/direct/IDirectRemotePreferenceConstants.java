@@ -0,0 +1,10 @@
+package org.eclipse.cdt.launch.remote.direct;
+
+/**
+ * The workspace preferences of the plug-in, shared by all launches.
+ */
+public interface IDirectRemotePreferenceConstants {
+	/* MB the sources downloaded from remote hosts may take */
+	public static final String PREF_SOURCE_CACHE_SIZE = Activator.PLUGIN_ID + ".sourceCacheSize"; //$NON-NLS-1$
+	public static final int DEFAULT_SOURCE_CACHE_SIZE = 256;
+}
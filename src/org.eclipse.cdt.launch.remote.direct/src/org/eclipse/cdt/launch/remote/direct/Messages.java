@@ -10,6 +10,17 @@ public class Messages extends NLS {
 	public static String DirectRemoteCMainTab_10;
 	public static String DirectRemoteCMainTab_11;
 	public static String DirectRemoteCMainTab_12;
+	public static String DirectRemoteCMainTab_13;
+	public static String DirectRemoteCMainTab_14;
+	public static String DirectRemoteCMainTab_15;
+	public static String DirectRemoteCMainTab_16;
+	public static String DirectRemoteCMainTab_17;
+	public static String DirectRemoteCMainTab_18;
+	public static String DirectRemoteCMainTab_19;
+	public static String DirectRemoteCMainTab_20;
+	public static String DirectRemoteCMainTab_21;
+	public static String DirectRemoteCMainTab_22;
+	public static String DirectRemoteCMainTab_23;
 	public static String DirectRemoteCMainTab_2;
 	public static String DirectRemoteCMainTab_3;
 	public static String DirectRemoteCMainTab_4;
@@ -21,10 +32,69 @@ public class Messages extends NLS {
 	public static String DirectRemoteDebugLaunchDelegate_3;
 	public static String DirectRemoteDebugLaunchDelegate_5;
 	public static String DirectRemoteDebugLaunchDelegate_6;
+	public static String DirectRemoteDebugLaunchDelegate_7;
 	public static String RSEHelper_0;
 	public static String RSEHelper_1;
 	public static String RSEHelper_2;
 	public static String RSEHelper_3;
+	public static String RSEHelper_4;
+	public static String RSEHelper_5;
+	public static String DirectRemoteSyncTab_0;
+	public static String DirectRemoteSyncTab_1;
+	public static String DirectRemoteSyncTab_2;
+	public static String DirectRemoteSyncTab_3;
+	public static String DirectRemoteSyncTab_4;
+	public static String DirectRemoteSyncTab_5;
+	public static String DirectRemoteSyncTab_6;
+	public static String DirectRemoteSyncTab_7;
+	public static String DirectRemoteSyncTab_8;
+	public static String DirectRemoteSyncTab_9;
+	public static String DirectRemoteSyncTab_10;
+	public static String DirectRemoteSyncTab_11;
+	public static String DirectRemoteSyncTab_12;
+	public static String DirectRemoteSyncTab_13;
+	public static String DirectRemoteSyncTab_14;
+	public static String DirectRemoteSyncTab_15;
+	public static String DirectRemoteSyncTab_16;
+	public static String DirectRemoteSyncTab_17;
+	public static String DirectRemoteSyncTab_18;
+	public static String DirectRemoteSyncTab_19;
+	public static String DirectDebugBackgroundSync_0;
+	public static String DirectDebugRemoteArchiveExporter_0;
+	public static String DirectDebugRemoteArchiveExporter_1;
+	public static String DirectDebugRemoteFileExportOperation_0;
+	public static String DirectRemoteShellPool_0;
+	public static String DirectRemoteGdbVersionCache_0;
+	public static String DirectRemoteConsole_0;
+	public static String DirectRemoteConsole_1;
+	public static String DirectRemoteConsole_2;
+	public static String DirectRemoteCommandLatencyView_0;
+	public static String DirectRemoteCommandLatencyView_1;
+	public static String DirectRemoteCommandLatencyView_2;
+	public static String DirectRemoteCommandLatencyView_3;
+	public static String DirectRemoteCommandLatencyView_4;
+	public static String DirectRemoteCommandLatencyView_5;
+	public static String DirectRemoteCommandLatencyView_6;
+	public static String DirectRemoteCommandLatencyView_7;
+	public static String DirectRemoteCommandLatencyView_8;
+	public static String DirectRemoteCommandLatencyView_9;
+	public static String DirectRemoteCommandLatencyView_10;
+	public static String DirectRemoteCommandLatencyView_11;
+	public static String DirectRemoteCommandLatencyView_12;
+	public static String DirectRemoteLaunchTimelineView_0;
+	public static String DirectRemoteLaunchTimelineView_1;
+	public static String DirectRemoteLaunchTimelineView_2;
+	public static String DirectRemoteLaunchTimelineView_3;
+	public static String DirectRemoteLaunchTimelineView_4;
+	public static String DirectRemoteLaunchTimelineView_5;
+	public static String DirectRemoteLaunchTimelineView_6;
+	public static String DirectRemoteLaunchTimelineView_7;
+	public static String DirectRemoteLaunchTimelineView_8;
+	public static String DirectRemoteLaunchTimelineView_9;
+	public static String DirectRemoteFetchingSourceContainer_0;
+	public static String DirectRemoteFetchingSourceContainer_1;
+	public static String DirectRemotePreferencePage_0;
+	public static String DirectRemotePreferencePage_1;
 	static {
 		// initialize resource bundle
 		NLS.initializeMessages(BUNDLE_NAME, Messages.class);
@@ -3,6 +3,10 @@ package org.eclipse.cdt.launch.remote.direct;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.eclipse.cdt.debug.core.ICDTLaunchConfigurationConstants;
 import org.eclipse.core.runtime.CoreException;
@@ -19,9 +23,13 @@ import org.eclipse.rse.core.model.IHost;
 import org.eclipse.rse.core.subsystems.ISubSystem;
 import org.eclipse.rse.services.IService;
 import org.eclipse.rse.services.shells.IHostShell;
+import org.eclipse.rse.services.shells.IHostShellOutputListener;
 import org.eclipse.rse.services.shells.IShellService;
+import org.eclipse.rse.subsystems.files.core.subsystems.IRemoteFileSubSystem;
 
 public class RSEHelper {
+	private static final long COMMAND_POLL_INTERVAL = 100;
+
 	/**
 	 * Throws a core exception with an error status object built from the given
 	 * message, lower level exception, and error code.
@@ -52,7 +60,29 @@ public class RSEHelper {
 
 		return inputString.replaceAll(" ", "\\\\ "); //$NON-NLS-1$ //$NON-NLS-2$
 	}
+
+	/**
+	 * Quotes the argument for a POSIX shell so that it is passed through
+	 * verbatim, whatever characters it contains.
+	 */
+	public static String quote(String argument) {
+		return "'" + argument.replace("'", "'\\''") + "'"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+	}
 	
+	/**
+	 * Answer whether the host looks like a POSIX system, which the helper
+	 * commands run through the shell rely on.
+	 * 
+	 * @param host
+	 *            the connection
+	 */
+	public static boolean isPosixHost(IHost host) {
+		if (host == null)
+			return false;
+		IRemoteFileSubSystem rfss = DirectRemoteConnectionPool.getFileSubSystem(host);
+		return rfss != null && rfss.getSeparatorChar() == '/';
+	}
+
 	/**
 	 * Find the first IShellServiceSubSystem service associated with the host.
 	 * 
@@ -78,16 +108,14 @@ public class RSEHelper {
 		return null;
 	}
 	
+	/**
+	 * Answer the connection with the given name, or <code>null</code> if
+	 * there is none.
+	 */
 	public static IHost getRemoteConnectionByName(String remoteConnection) {
 		if (remoteConnection == null)
 			return null;
-		IHost[] connections = RSECorePlugin.getTheSystemRegistry().getHosts();
-		for (int i = 0; i < connections.length; i++)
-			if (connections[i].getAliasName().equals(remoteConnection))
-				return connections[i];
-		return null; // TODO Connection is not found in the list--need to react
-		// somehow, throw the exception?
-
+		return DirectRemoteConnectionPool.getHost(remoteConnection);
 	}
 	
 	public static IHost getCurrentConnection(ILaunchConfiguration config)
@@ -103,31 +131,30 @@ public class RSEHelper {
 		return connection;
 	}
 
+	/**
+	 * Answer the shell service of the given connection, connecting it if
+	 * necessary. The subsystems are kept by the connection pool, so this is
+	 * cheap for a connection used before.
+	 */
 	public static IService getConnectedRemoteShellService(
 			IHost currentConnection, IProgressMonitor monitor) throws Exception {
-		ISubSystem subsystem = getSubSystemWithShellService(currentConnection);
-		if (subsystem != null) {
-			try {
-				subsystem.connect(monitor, false);
-			} catch (CoreException e) {
-				throw e;
-			} catch (OperationCanceledException e) {
-				throw new CoreException(Status.CANCEL_STATUS);
-			}
-			if (!subsystem.isConnected())
-				throw new Exception(Messages.RSEHelper_1);
-
-			return (IShellService) subsystem.getSubSystemConfiguration()
-					.getService(currentConnection).getAdapter(
-							IShellService.class);
-		} else {
-			throw new Exception(Messages.RSEHelper_2);
-		}
+		return DirectRemoteConnectionPool.getShellService(currentConnection, monitor);
 	}
 	
 	public static IHostShell execCmdInRemoteShell(ILaunchConfiguration config,
 			String prelaunchCmd, String remoteCommandPath, String arguments,
 			IProgressMonitor monitor) throws Exception {
+		return execCmdInRemoteShell(config, prelaunchCmd, remoteCommandPath, arguments, null, monitor);
+	}
+
+	/**
+	 * Like {@link #execCmdInRemoteShell(ILaunchConfiguration, String, String, String, IProgressMonitor)},
+	 * but the given listener, if any, is added to the shell before the command
+	 * is written, so it sees all of its output.
+	 */
+	public static IHostShell execCmdInRemoteShell(ILaunchConfiguration config,
+			String prelaunchCmd, String remoteCommandPath, String arguments,
+			IHostShellOutputListener listener, IProgressMonitor monitor) throws Exception {
 		// The exit command is called to force the remote shell to close after
 		// our command
 		// is executed. This is to prevent a running process at the end of the
@@ -154,6 +181,8 @@ public class RSEHelper {
 		if (shellService != null) {
 			hostShell = shellService.launchShell(
 					"", env, new SubProgressMonitor(monitor, 3)); //$NON-NLS-1$
+			if (listener != null)
+				hostShell.addOutputListener(listener);
 			hostShell.writeToShell(remoteCommand);
 			
 		}
@@ -161,6 +190,93 @@ public class RSEHelper {
 		return hostShell;
 	}
 	
+	/**
+	 * Open a shell on the connection of the given configuration.
+	 */
+	public static IHostShell openRemoteShell(ILaunchConfiguration config,
+			IProgressMonitor monitor) throws Exception {
+		monitor.beginTask("", 10); //$NON-NLS-1$
+		try {
+			IShellService shellService = (IShellService) getConnectedRemoteShellService(getCurrentConnection(config),
+					new SubProgressMonitor(monitor, 7));
+			String env[] = new String[0];
+			return shellService.launchShell(
+					"", env, new SubProgressMonitor(monitor, 3)); //$NON-NLS-1$
+		} finally {
+			monitor.done();
+		}
+	}
+
+	/**
+	 * Runs a command on the given host and waits until it has completed. The
+	 * command is run through the command channel of the host, so it does not
+	 * start a shell of its own. The command line must be valid for a POSIX
+	 * shell; it may span several lines.
+	 * 
+	 * @param host
+	 *            the connection
+	 * @param command
+	 *            the command line
+	 * @param monitor
+	 *            progress monitor, checked for cancellation while waiting
+	 * @return the exit status and the output of the command
+	 */
+	public static RemoteCommandResult runRemoteCommand(IHost host,
+			String command, IProgressMonitor monitor) throws Exception {
+		monitor.beginTask(NLS.bind(Messages.RSEHelper_4, command), 10);
+		try {
+			RemoteCommandChannel channel;
+			Future<RemoteCommandResult> result;
+			do {
+				channel = RemoteCommandChannel.getChannel(host, new SubProgressMonitor(monitor, 10));
+				result = channel.submit(command);
+			} while (result == null);
+			while (true) {
+				try {
+					return result.get(COMMAND_POLL_INTERVAL, TimeUnit.MILLISECONDS);
+				} catch (TimeoutException e) {
+					// still running
+				} catch (ExecutionException e) {
+					throw new Exception(NLS.bind(Messages.RSEHelper_5, command), e.getCause());
+				}
+				if (monitor.isCanceled()) {
+					// only this command stops, the channel goes on serving the others
+					result.cancel(true);
+					throw new OperationCanceledException();
+				}
+				if (!channel.isActive()) {
+					channel.close();
+					throw new Exception(NLS.bind(Messages.RSEHelper_5, command));
+				}
+			}
+		} finally {
+			monitor.done();
+		}
+	}
+
+	/**
+	 * Starts a command on the given host without waiting for it. Commands
+	 * submitted one after the other are sent at once and run in order in the
+	 * command channel of the host, so several helper commands cost a single
+	 * round trip.
+	 * 
+	 * @param host
+	 *            the connection
+	 * @param command
+	 *            the command line, valid for a POSIX shell
+	 * @param monitor
+	 *            progress monitor for opening the channel
+	 * @return the exit status and the output of the command, once it completed
+	 */
+	public static Future<RemoteCommandResult> submitRemoteCommand(IHost host,
+			String command, IProgressMonitor monitor) throws Exception {
+		Future<RemoteCommandResult> result;
+		do {
+			result = RemoteCommandChannel.getChannel(host, monitor).submit(command);
+		} while (result == null);
+		return result;
+	}
+
 	public static IHost[] getSuitableConnections() {
 		ArrayList<IHost> shellConnections = new ArrayList<IHost>(Arrays.asList(RSECorePlugin.getTheSystemRegistry()
 				.getHostsBySubSystemConfigurationCategory("shells"))); //$NON-NLS-1$
@@ -0,0 +1,396 @@
+package org.eclipse.cdt.launch.remote.direct;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubProgressMonitor;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.osgi.util.NLS;
+import org.eclipse.rse.core.model.IHost;
+import org.eclipse.rse.services.shells.IHostOutput;
+import org.eclipse.rse.services.shells.IHostShell;
+import org.eclipse.rse.services.shells.IHostShellChangeEvent;
+import org.eclipse.rse.services.shells.IHostShellOutputListener;
+import org.eclipse.rse.services.shells.IShellService;
+import org.eclipse.rse.ui.SystemBasePlugin;
+
+/**
+ * A long-lived shell on a host which runs the helper commands of the plug-in,
+ * so that they do not pay for starting a shell each. Commands are written to
+ * the shell as soon as they are submitted and run one after the other; the
+ * output of each is told apart by unique markers echoed around it.
+ * <p>
+ * Every command runs in a shell process of its own, which reports its process
+ * id first. A cancelled command is stopped by killing that process from
+ * another shell, so the commands of other callers go on undisturbed.
+ * <p>
+ * There is one channel per host. A channel which lost its shell or was idle
+ * for a while is closed; the next command opens a new one.
+ */
+class RemoteCommandChannel implements IHostShellOutputListener {
+	/* Markers delimiting the output of a command */
+	private static final String COMMAND_BEGIN_MARKER = "__REXP_BEGIN_"; //$NON-NLS-1$
+	private static final String COMMAND_END_MARKER = "__REXP_END_"; //$NON-NLS-1$
+	private static final String COMMAND_PID_MARKER = "__REXP_PID_"; //$NON-NLS-1$
+	/* Channels without commands for this long are closed */
+	private static final long IDLE_TIMEOUT = 60000;
+
+	private static final Map<IHost, RemoteCommandChannel> channels = new HashMap<IHost, RemoteCommandChannel>();
+	private static final AtomicLong commandCounter = new AtomicLong();
+	private static Timer idleTimer;
+
+	private final IHost host;
+	private final IHostShell shell;
+	// the commands written to the shell whose output is not complete yet, in order
+	private final LinkedList<PendingCommand> pending = new LinkedList<PendingCommand>();
+	// keeps the lines of concurrently submitted commands together
+	private final Object writeLock = new Object();
+	private long lastUsed = System.currentTimeMillis();
+	private boolean closed = false;
+
+	/**
+	 * A command written to the shell. Collects its output and completes
+	 * once the end marker has been seen.
+	 */
+	private static class PendingCommand implements Future<RemoteCommandResult> {
+		private final RemoteCommandChannel channel;
+		private final String command;
+		private final String beginMarker;
+		private final String pidMarker;
+		private final String endMarker;
+		private final List<String> output = new ArrayList<String>();
+		private final List<String> errors = new ArrayList<String>();
+		private final CountDownLatch done = new CountDownLatch(1);
+		private boolean started = false;
+		// the process running the command, once it reported
+		private String pid;
+		private boolean cancelled = false;
+		private RemoteCommandResult result;
+		private Exception failure;
+
+		PendingCommand(RemoteCommandChannel channel, String command, String id) {
+			this.channel = channel;
+			this.command = command;
+			beginMarker = COMMAND_BEGIN_MARKER + id;
+			pidMarker = COMMAND_PID_MARKER + id + ":"; //$NON-NLS-1$
+			endMarker = COMMAND_END_MARKER + id + ":"; //$NON-NLS-1$
+		}
+
+		/*
+		 * Take a line of output. Answer whether it was the last one of this
+		 * command. Called with the channel locked.
+		 */
+		boolean addLine(String line, boolean error) {
+			if (error) {
+				if (started)
+					errors.add(line);
+				return false;
+			}
+			if (!started) {
+				started = line.indexOf(beginMarker) >= 0;
+				return false;
+			}
+			int marker = line.indexOf(pidMarker);
+			if (marker >= 0) {
+				boolean kill;
+				synchronized (this) {
+					pid = line.substring(marker + pidMarker.length()).trim();
+					kill = cancelled;
+				}
+				if (kill)
+					channel.kill(pid);
+				return false;
+			}
+			int end = line.indexOf(endMarker);
+			if (end < 0) {
+				output.add(line);
+				return false;
+			}
+			int exitCode;
+			try {
+				exitCode = Integer.parseInt(line.substring(end + endMarker.length()).trim());
+			} catch (NumberFormatException e) {
+				exitCode = -1;
+			}
+			synchronized (this) {
+				if (!cancelled)
+					result = new RemoteCommandResult(exitCode, output, errors);
+			}
+			done.countDown();
+			return true;
+		}
+
+		void fail(Exception e) {
+			synchronized (this) {
+				failure = e;
+			}
+			done.countDown();
+		}
+
+		/**
+		 * Stop the command, killing its process if it started; the commands
+		 * submitted after it run as usual.
+		 */
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			String running;
+			synchronized (this) {
+				if (cancelled || result != null || failure != null)
+					return false;
+				cancelled = true;
+				running = pid;
+			}
+			if (running != null)
+				channel.kill(running);
+			done.countDown();
+			return true;
+		}
+
+		public synchronized boolean isCancelled() {
+			return cancelled;
+		}
+
+		public boolean isDone() {
+			return done.getCount() == 0;
+		}
+
+		public RemoteCommandResult get() throws InterruptedException, ExecutionException {
+			done.await();
+			return getResult();
+		}
+
+		public RemoteCommandResult get(long timeout, TimeUnit unit)
+				throws InterruptedException, ExecutionException, TimeoutException {
+			if (!done.await(timeout, unit))
+				throw new TimeoutException();
+			return getResult();
+		}
+
+		private synchronized RemoteCommandResult getResult() throws ExecutionException {
+			if (cancelled)
+				throw new CancellationException();
+			if (failure != null)
+				throw new ExecutionException(failure);
+			return result;
+		}
+	}
+
+	private RemoteCommandChannel(IHost host, IHostShell shell) {
+		this.host = host;
+		this.shell = shell;
+	}
+
+	/**
+	 * Answer the channel of the given host, opening a shell if there is none.
+	 */
+	public static RemoteCommandChannel getChannel(IHost host, IProgressMonitor monitor) throws Exception {
+		synchronized (channels) {
+			RemoteCommandChannel channel = channels.get(host);
+			if (channel != null && channel.isActive())
+				return channel;
+			if (channel != null)
+				channel.close();
+		}
+		monitor.beginTask("", 10); //$NON-NLS-1$
+		try {
+			IShellService shellService = DirectRemoteConnectionPool.getShellService(host, new SubProgressMonitor(monitor, 5));
+			String env[] = new String[0];
+			IHostShell shell = shellService.launchShell("", env, new SubProgressMonitor(monitor, 5)); //$NON-NLS-1$
+			RemoteCommandChannel channel = new RemoteCommandChannel(host, shell);
+			shell.addOutputListener(channel);
+			// without echo and prompts the output holds little besides that of the commands
+			shell.writeToShell("stty -echo 2>/dev/null; PS1=''; PS2=''"); //$NON-NLS-1$
+			synchronized (channels) {
+				RemoteCommandChannel other = channels.get(host);
+				if (other != null && other.isActive()) {
+					// another thread was faster
+					channel.close();
+					return other;
+				}
+				channels.put(host, channel);
+				scheduleIdleCheck();
+			}
+			return channel;
+		} finally {
+			monitor.done();
+		}
+	}
+
+	/**
+	 * Write a command to the shell. It runs in a shell process of its own once
+	 * the commands submitted before have completed, so it may change the
+	 * directory or the environment freely. Its standard input is empty, so it
+	 * cannot read the commands written after it, and its standard error is
+	 * part of its output. The command line must be valid for a POSIX shell; it
+	 * may span several lines.
+	 *
+	 * @return the outcome of the command, once it completed, or <code>null</code>
+	 *         if the channel has been closed meanwhile. Cancelling it stops only
+	 *         this command.
+	 */
+	public Future<RemoteCommandResult> submit(String command) {
+		String id = Long.toString(commandCounter.incrementAndGet()) + "_" + Long.toString(System.nanoTime()); //$NON-NLS-1$
+		PendingCommand pendingCommand = new PendingCommand(this, command, id);
+		// the output is read while writing, so the lock of the output listener is not held here
+		synchronized (writeLock) {
+			synchronized (this) {
+				if (closed)
+					return null;
+				lastUsed = System.currentTimeMillis();
+				pending.add(pendingCommand);
+			}
+			DirectRemoteConnectionPool.touch(host);
+			// The markers are split by quotes, so that an echo of the command
+			// line is never taken for the output.
+			shell.writeToShell("echo '" + COMMAND_BEGIN_MARKER + "'" + id); //$NON-NLS-1$ //$NON-NLS-2$
+			// the process reports its id before it runs the command
+			shell.writeToShell("sh -c 'echo \"$1$$\"; eval \"$2\"' sh '" + COMMAND_PID_MARKER + "'" + id + ": " //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					+ RSEHelper.quote(command) + " </dev/null 2>&1"); //$NON-NLS-1$
+			shell.writeToShell("echo '" + COMMAND_END_MARKER + "'" + id + ":$?"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+		return pendingCommand;
+	}
+
+	/*
+	 * Kill the process of a cancelled command and the processes it started,
+	 * from a shell of its own since the channel waits for the command.
+	 */
+	private void kill(final String pid) {
+		if (!pid.matches("[0-9]+")) //$NON-NLS-1$
+			return;
+		Job job = new Job("Cancel remote command") { //$NON-NLS-1$
+
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				try {
+					IShellService shellService = DirectRemoteConnectionPool.getShellService(host, monitor);
+					IHostShell killer = shellService.launchShell("", new String[0], monitor); //$NON-NLS-1$
+					killer.writeToShell("pkill -TERM -P " + pid + " 2>/dev/null; kill -TERM " + pid + " 2>/dev/null; exit"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				} catch (Exception e) {
+					SystemBasePlugin.logError("Could not stop the remote process " + pid, e); //$NON-NLS-1$
+				}
+				return Status.OK_STATUS;
+			}
+		};
+		job.setSystem(true);
+		job.schedule();
+	}
+
+	/**
+	 * Answer whether the shell of the channel is still usable.
+	 */
+	public synchronized boolean isActive() {
+		return !closed && shell.isActive();
+	}
+
+	/**
+	 * Close the shell, which also stops the running command. Commands which
+	 * have not completed fail. To stop a single command, cancel it instead.
+	 */
+	public void close() {
+		release(markClosed(false, 0));
+	}
+
+	private void closeIfIdle(long now) {
+		release(markClosed(true, now));
+	}
+
+	/*
+	 * Mark the channel closed, unless it is already or it was asked to close
+	 * an idle channel which is not. Answer the commands which will not complete,
+	 * or null if the channel is not to be closed.
+	 */
+	private synchronized List<PendingCommand> markClosed(boolean onlyIfIdle, long now) {
+		if (closed || (onlyIfIdle && (!pending.isEmpty() || now - lastUsed <= IDLE_TIMEOUT)))
+			return null;
+		closed = true;
+		List<PendingCommand> failed = new ArrayList<PendingCommand>(pending);
+		pending.clear();
+		return failed;
+	}
+
+	private void release(List<PendingCommand> failed) {
+		if (failed == null)
+			return;
+		synchronized (channels) {
+			if (channels.get(host) == this)
+				channels.remove(host);
+		}
+		shell.removeOutputListener(this);
+		shell.exit();
+		for (Iterator<PendingCommand> it = failed.iterator(); it.hasNext();) {
+			PendingCommand command = it.next();
+			command.fail(new Exception(NLS.bind(Messages.RSEHelper_5, command.command)));
+		}
+	}
+
+	/**
+	 * Close the channels of all hosts.
+	 */
+	public static void closeAll() {
+		List<RemoteCommandChannel> all;
+		synchronized (channels) {
+			all = new ArrayList<RemoteCommandChannel>(channels.values());
+			if (idleTimer != null) {
+				idleTimer.cancel();
+				idleTimer = null;
+			}
+		}
+		for (Iterator<RemoteCommandChannel> it = all.iterator(); it.hasNext();)
+			it.next().close();
+	}
+
+	public synchronized void shellOutputChanged(IHostShellChangeEvent event) {
+		for (IHostOutput line : event.getLines()) {
+			PendingCommand command = pending.peek();
+			if (command == null)
+				return;
+			if (command.addLine(line.getString(), event.isError())) {
+				pending.removeFirst();
+				lastUsed = System.currentTimeMillis();
+			}
+		}
+	}
+
+	/*
+	 * Start checking for idle channels, if not done yet. Called with the channels locked.
+	 */
+	private static void scheduleIdleCheck() {
+		if (idleTimer != null)
+			return;
+		idleTimer = new Timer("Remote command channels", true); //$NON-NLS-1$
+		idleTimer.schedule(new TimerTask() {
+
+			@Override
+			public void run() {
+				long now = System.currentTimeMillis();
+				List<RemoteCommandChannel> all;
+				synchronized (channels) {
+					all = new ArrayList<RemoteCommandChannel>(channels.values());
+				}
+				for (Iterator<RemoteCommandChannel> it = all.iterator(); it.hasNext();) {
+					RemoteCommandChannel channel = it.next();
+					if (channel.isActive())
+						channel.closeIfIdle(now);
+					else
+						channel.close();
+				}
+			}
+		}, IDLE_TIMEOUT, IDLE_TIMEOUT / 2);
+	}
+}
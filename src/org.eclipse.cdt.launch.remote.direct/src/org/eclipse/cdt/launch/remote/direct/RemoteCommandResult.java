@@ -0,0 +1,58 @@
+package org.eclipse.cdt.launch.remote.direct;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a command executed to completion on the remote host.
+ */
+public class RemoteCommandResult {
+	private final int exitCode;
+	private final List<String> output;
+	private final List<String> errors;
+
+	public RemoteCommandResult(int exitCode, List<String> output, List<String> errors) {
+		this.exitCode = exitCode;
+		this.output = new ArrayList<String>(output);
+		this.errors = new ArrayList<String>(errors);
+	}
+
+	/**
+	 * @return the exit status of the command, <code>0</code> on success
+	 */
+	public int getExitCode() {
+		return exitCode;
+	}
+
+	public boolean isOK() {
+		return exitCode == 0;
+	}
+
+	/**
+	 * @return the lines the command printed to its standard output and standard error
+	 */
+	public List<String> getOutput() {
+		return output;
+	}
+
+	/**
+	 * @return the lines the shell itself reported as errors, for instance about the command line
+	 */
+	public List<String> getErrors() {
+		return errors;
+	}
+
+	/**
+	 * @return the error output joined into one message, suitable for error
+	 *         reporting; the output if there was no error output
+	 */
+	public String getErrorText() {
+		StringBuilder buf = new StringBuilder();
+		for (String line : errors.isEmpty() ? output : errors) {
+			if (buf.length() > 0)
+				buf.append('\n');
+			buf.append(line);
+		}
+		return buf.toString();
+	}
+}
@@ -0,0 +1,97 @@
+# Remote side of the delta transfer of DirectDebugDeltaEngine.
+#
+#   sig PATH BLOCKSIZE        print the size and the checksums of every block of PATH
+#   patch PATH DELTA MD5      rebuild PATH from itself and DELTA, keep it only if its
+#                             digest is MD5
+#
+# The script is fed to python through a here-document of an interactive shell,
+# so it must not contain tab or exclamation mark characters. It runs with
+# Python 2.6 and later as well as Python 3.
+import hashlib
+import operator
+import os
+import struct
+import sys
+
+CHUNK = 1 << 20
+
+
+def weak(block, weights):
+    a = sum(block) & 0xffff
+    b = sum(map(operator.mul, weights, block)) & 0xffff
+    return (b << 16) | a
+
+
+def signature(path, size):
+    weights = list(range(size, 0, -1))
+    out = sys.stdout
+    f = open(path, 'rb')
+    try:
+        out.write('@@RXSIZE %d %d\n' % (os.path.getsize(path), size))
+        while True:
+            block = bytearray(f.read(size))
+            if not block:
+                break
+            w = weights[size - len(block):]
+            out.write('@@RX %08x %s\n' % (weak(block, w), hashlib.md5(bytes(block)).hexdigest()))
+    finally:
+        f.close()
+    return 0
+
+
+def copy(src, out, md5, remaining):
+    while remaining > 0:
+        chunk = src.read(min(remaining, CHUNK))
+        if not chunk:
+            raise ValueError('truncated')
+        out.write(chunk)
+        md5.update(chunk)
+        remaining -= len(chunk)
+
+
+def patch(path, delta_path, expected):
+    tmp = path + '.rexp-tmp'
+    md5 = hashlib.md5()
+    src = open(path, 'rb')
+    delta = open(delta_path, 'rb')
+    out = open(tmp, 'wb')
+    try:
+        try:
+            if not delta.read(4) == b'RXD1':
+                raise ValueError('not a delta')
+            size = struct.unpack('>i', delta.read(4))[0]
+            old_size = os.path.getsize(path)
+            while True:
+                op = delta.read(1)
+                if op == b'E':
+                    break
+                elif op == b'C':
+                    first, count = struct.unpack('>ii', delta.read(8))
+                    src.seek(first * size)
+                    copy(src, out, md5, min(count * size, old_size - first * size))
+                elif op == b'D':
+                    copy(delta, out, md5, struct.unpack('>i', delta.read(4))[0])
+                else:
+                    raise ValueError('corrupt delta')
+        finally:
+            out.close()
+            delta.close()
+            src.close()
+        if not md5.hexdigest() == expected:
+            raise ValueError('digest mismatch')
+        os.chmod(tmp, os.stat(path).st_mode & 4095)
+        os.rename(tmp, path)
+    except Exception:
+        if os.path.exists(tmp):
+            os.remove(tmp)
+        sys.stderr.write('%s\n' % sys.exc_info()[1])
+        return 1
+    return 0
+
+
+if __name__ == '__main__':
+    if sys.argv[1] == 'sig':
+        sys.exit(signature(sys.argv[2], int(sys.argv[3])))
+    elif sys.argv[1] == 'patch':
+        sys.exit(patch(sys.argv[2], sys.argv[3], sys.argv[4]))
+    sys.exit(2)